@@ -15,10 +15,20 @@
  */
 package dev.zucca_ops.kustomtrace.cli;
 
+import dev.zucca_ops.kustomtrace.KustomTrace;
 import dev.zucca_ops.kustomtrace.cli.commands.AffectedAppsCommand;
+import dev.zucca_ops.kustomtrace.cli.commands.AllAppFilesCommand;
 import dev.zucca_ops.kustomtrace.cli.commands.AppFilesCommand;
 import dev.zucca_ops.kustomtrace.cli.commands.ListRootAppsCommand;
+import dev.zucca_ops.kustomtrace.cli.commands.WatchCommand;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.ResourceParsing;
+import dev.zucca_ops.kustomtrace.parser.ParseCache;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -29,7 +39,13 @@ import picocli.CommandLine.Option;
         version = "1.1.0",
         mixinStandardHelpOptions = true,
         description = "Analyzes Kubernetes deployment repositories.",
-        subcommands = {AffectedAppsCommand.class, AppFilesCommand.class, ListRootAppsCommand.class})
+        subcommands = {
+            AffectedAppsCommand.class,
+            AllAppFilesCommand.class,
+            AppFilesCommand.class,
+            ListRootAppsCommand.class,
+            WatchCommand.class
+        })
 public class KustomTraceCLI implements Callable<Integer> {
 
     @Option(
@@ -68,6 +84,58 @@ public class KustomTraceCLI implements Callable<Integer> {
             description = "Output the list of affected apps to the specified YAML file.")
     private File outputFile;
 
+    @Option(
+            names = {"--exclude"},
+            paramLabel = "<pattern>",
+            description =
+                    "Skip paths matching a .gitignore-style pattern, relative to the apps directory. Repeatable.")
+    private List<String> excludes = new ArrayList<>();
+
+    @Option(
+            names = {"--respect-gitignore"},
+            description = "Skip paths ignored by .gitignore files and .git/info/exclude.")
+    private boolean respectGitignore;
+
+    @Option(
+            names = {"--use-git-index"},
+            description =
+                    "List candidate files from the local .git/index instead of walking the apps directory. Falls back to the walk when there is no index.")
+    private boolean useGitIndex;
+
+    @Option(
+            names = {"--revision"},
+            paramLabel = "<commit>",
+            description =
+                    "Build the graph from a commit (e.g. HEAD, main~1, a tag or object id) read from the local .git object store instead of the working tree.")
+    private String revision;
+
+    @Option(
+            names = {"--two-phase-build"},
+            description =
+                    "Parse every file in parallel first, then link all references in one pass, instead of building overlays recursively.")
+    private boolean twoPhaseBuild;
+
+    @Option(
+            names = {"--resource-parsing"},
+            paramLabel = "<mode>",
+            description =
+                    "When to parse referenced resource files: ${COMPLETION-CANDIDATES}. LAZY and NONE skip reading them, so files with invalid content are listed instead of reported. Default: ${DEFAULT-VALUE}.")
+    private ResourceParsing resourceParsing = ResourceParsing.EAGER;
+
+    @Option(
+            names = {"--parse-cache"},
+            paramLabel = "<dir>",
+            description =
+                    "Cache what is parsed from each file in <dir>, keyed by content, so unchanged files are not parsed again. The directory can be shared between runs and concurrent builds.")
+    private File parseCacheDir;
+
+    @Option(
+            names = {"--cache-file"},
+            paramLabel = "<file>",
+            description =
+                    "Save the built graph to <file> and load it from there on later runs, as long as no file it was built from changed size or modification time. Ignored with --revision.")
+    private File cacheFile;
+
     public File getAppsDir() {
         return appsDir;
     }
@@ -80,6 +148,32 @@ public class KustomTraceCLI implements Callable<Integer> {
         return outputFile;
     }
 
+    public BuildOptions getBuildOptions() {
+        return new BuildOptions()
+                .exclude(excludes)
+                .respectGitignore(respectGitignore)
+                .useGitIndex(useGitIndex)
+                .twoPhaseBuild(twoPhaseBuild)
+                .resourceParsing(resourceParsing)
+                .parseCache(parseCacheDir == null ? null : new ParseCache(parseCacheDir.toPath()))
+                .cacheFile(cacheFile == null ? null : cacheFile.toPath());
+    }
+
+    public String getRevision() {
+        return revision;
+    }
+
+    /**
+     * Builds the {@link KustomTrace} for {@code appsDir} from the working tree, or from the
+     * commit given with {@code --revision}.
+     */
+    public KustomTrace buildKustomTrace(Path appsDir) throws IOException {
+        if (revision != null) {
+            return KustomTrace.fromCommit(appsDir, revision, getBuildOptions());
+        }
+        return KustomTrace.fromDirectory(appsDir, getBuildOptions());
+    }
+
     @Override
     public Integer call() {
         new CommandLine(this).usage(System.out);
@@ -19,7 +19,6 @@ import dev.zucca_ops.kustomtrace.KustomTrace;
 import dev.zucca_ops.kustomtrace.cli.KustomTraceCLI;
 import dev.zucca_ops.kustomtrace.cli.util.CLIHelper;
 import dev.zucca_ops.kustomtrace.cli.util.PathUtil;
-import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
 import java.io.*;
 import java.nio.file.Path;
 import java.util.*;
@@ -110,9 +109,12 @@ public class AffectedAppsCommand implements Callable<Integer> {
             return 0; // Not an error, just no input to process.
         }
 
-        try {
-            Path appsDirPath = effectiveAppsDir.toPath();
-            KustomTrace kustomTrace = KustomTrace.fromDirectory(appsDirPath);
+        Path appsDirPath = effectiveAppsDir.toPath();
+        try (KustomTrace kustomTrace = parentCLI.buildKustomTrace(appsDirPath)) {
+            // Looks every file up at once, so that files sharing bases do not each walk them.
+            Map<Path, Optional<List<Path>>> appsByFile =
+                    kustomTrace.findAppsWithEach(
+                            allModifiedFiles.stream().map(File::toPath).toList());
 
             Map<String, List<String>> affectedAppsDataForYaml = new LinkedHashMap<>();
             List<String> consoleOutputLines = new ArrayList<>();
@@ -141,14 +143,13 @@ public class AffectedAppsCommand implements Callable<Integer> {
                 }
 
                 List<String> relativeAffectedAppPathsForCurrentFile = new ArrayList<>();
-                try {
-                    List<Path> affectedApps = kustomTrace.getAppsWith(modifiedFileFullPath);
-
-                    if (!affectedApps.isEmpty()) {
+                Optional<List<Path>> affectedApps = appsByFile.get(modifiedFileFullPath);
+                if (affectedApps.isPresent()) {
+                    if (!affectedApps.get().isEmpty()) {
                         anyAppsAffectedOverall = true;
                     }
 
-                    for (Path app : affectedApps) {
+                    for (Path app : affectedApps.get()) {
                         // PathUtil should correctly relativize app paths against appsDirPath
                         relativeAffectedAppPathsForCurrentFile.add(
                                 PathUtil.getRelativePath(app, appsDirPath, effectiveLogFile));
@@ -170,18 +171,22 @@ public class AffectedAppsCommand implements Callable<Integer> {
                                     appPath -> consoleOutputLines.add("  - " + appPath));
                         }
                     }
-                } catch (UnreferencedFileException e) {
+                } else {
                     // relativeAffectedAppPathsForCurrentFile will remain empty
+                    String unreferenced =
+                            "File with path "
+                                    + modifiedFileFullPath
+                                    + " is not referenced by any app";
                     if (outputFile == null) {
                         consoleOutputLines.add(
                                 "Affected apps by "
                                         + yamlKeyForModifiedFile
                                         + ":"); // Use yamlKeyForModifiedFile
-                        consoleOutputLines.add("  Warning: " + e.getMessage());
+                        consoleOutputLines.add("  Warning: " + unreferenced);
                     } else { // YAML output mode
                         if (effectiveLogFile != null) {
                             CLIHelper.printWarning(
-                                    e.getMessage()
+                                    unreferenced
                                             + " (for modified file: "
                                             + yamlKeyForModifiedFile
                                             + ")",
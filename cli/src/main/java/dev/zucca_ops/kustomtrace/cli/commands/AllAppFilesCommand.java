@@ -0,0 +1,113 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.cli.commands;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.cli.KustomTraceCLI;
+import dev.zucca_ops.kustomtrace.cli.util.CLIHelper;
+import dev.zucca_ops.kustomtrace.cli.util.PathUtil;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.ParentCommand;
+
+@Command(
+        name = "all-app-files",
+        mixinStandardHelpOptions = true,
+        description =
+                "Lists the files used by every root application, collecting the files of shared bases once.")
+public class AllAppFilesCommand implements Callable<Integer> {
+
+    @ParentCommand private KustomTraceCLI parentCLI;
+
+    @Override
+    public Integer call() {
+        File effectiveAppsDir = parentCLI.getAppsDir();
+        File effectiveLogFile = parentCLI.getLogFile();
+        File outputFile = parentCLI.getOutputFile();
+
+        if (effectiveAppsDir == null) {
+            CLIHelper.printError(
+                    "Critical: --apps-dir was not properly configured.", null, effectiveLogFile);
+            return 1;
+        }
+        final Path appsDirPathGlobal = effectiveAppsDir.toPath().toAbsolutePath().normalize();
+        if (!Files.isDirectory(appsDirPathGlobal)) {
+            CLIHelper.printError(
+                    "Invalid --apps-dir (not a directory or does not exist): " + appsDirPathGlobal,
+                    null,
+                    effectiveLogFile);
+            return 1;
+        }
+
+        try (KustomTrace kustomTrace = parentCLI.buildKustomTrace(appsDirPathGlobal)) {
+            Map<Path, List<Path>> allAppFiles = kustomTrace.getAllAppFiles();
+
+            // Files are relative to --apps-dir, as an overlay's files are often outside its
+            // own directory.
+            Map<String, List<String>> appData = new TreeMap<>();
+            for (Map.Entry<Path, List<Path>> entry : allAppFiles.entrySet()) {
+                String appKey =
+                        PathUtil.getRelativePath(
+                                entry.getKey(), appsDirPathGlobal, effectiveLogFile);
+                if (appKey.isEmpty()) {
+                    Path namePart = entry.getKey().getFileName();
+                    appKey = namePart == null ? "" : namePart.toString();
+                }
+                appData.put(
+                        appKey,
+                        entry.getValue().stream()
+                                .map(
+                                        file ->
+                                                PathUtil.getRelativePath(
+                                                        file, appsDirPathGlobal, effectiveLogFile))
+                                .sorted()
+                                .toList());
+            }
+
+            if (outputFile != null) {
+                Map<String, Object> yamlRoot = new LinkedHashMap<>();
+                yamlRoot.put("all-app-files", appData);
+                CLIHelper.writeYamlToFile(yamlRoot, outputFile);
+            } else if (appData.isEmpty()) {
+                System.out.println("No root applications found in: " + appsDirPathGlobal);
+            } else {
+                for (Map.Entry<String, List<String>> app : appData.entrySet()) {
+                    CLIHelper.printOutput(
+                            "Files used by application '" + app.getKey() + "':",
+                            app.getValue(),
+                            null);
+                }
+            }
+            return 0;
+
+        } catch (Exception e) {
+            String unexpectedUserMessage =
+                    "An unexpected error occurred while listing the files of all apps. Please check logs for details.";
+            CLIHelper.logRawMessage(
+                    "UNEXPECTED ERROR in all-app-files: " + e.getMessage(), effectiveLogFile);
+            CLIHelper.logStackTrace(e, effectiveLogFile);
+            CLIHelper.printError(unexpectedUserMessage, null, effectiveLogFile);
+            return 1;
+        }
+    }
+}
@@ -109,8 +109,7 @@ public class AppFilesCommand implements Callable<Integer> {
             return 1;
         }
 
-        try {
-            KustomTrace kustomTrace = KustomTrace.fromDirectory(appsDirPathGlobal);
+        try (KustomTrace kustomTrace = parentCLI.buildKustomTrace(appsDirPathGlobal)) {
 
             // KustomTrace.getDependenciesFor is responsible for resolving appPathInputAsPath
             // (whether it's a dir or direct kustomization file) to the actual kustomization file.
@@ -58,8 +58,7 @@ public class ListRootAppsCommand implements Callable<Integer> {
             return 1;
         }
 
-        try {
-            KustomTrace kustomTrace = KustomTrace.fromDirectory(appsDirPathGlobal);
+        try (KustomTrace kustomTrace = parentCLI.buildKustomTrace(appsDirPathGlobal)) {
 
             // Get the root application paths from KustomTrace (these are likely absolute)
             List<Path> absoluteRootAppPaths = kustomTrace.getRootApps();
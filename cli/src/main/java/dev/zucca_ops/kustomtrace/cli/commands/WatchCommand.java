@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.cli.commands;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.cli.KustomTraceCLI;
+import dev.zucca_ops.kustomtrace.cli.util.CLIHelper;
+import dev.zucca_ops.kustomtrace.cli.util.PathUtil;
+import dev.zucca_ops.kustomtrace.watch.GraphWatcher;
+import dev.zucca_ops.kustomtrace.watch.WatchBatch;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+@Command(
+        name = "watch",
+        mixinStandardHelpOptions = true,
+        description =
+                "Builds the graph once, then watches the apps directory and prints one JSON line per batch of changes with the changed files and the root apps they affect.")
+public class WatchCommand implements Callable<Integer> {
+
+    @ParentCommand private KustomTraceCLI parentCLI;
+
+    @Option(
+            names = {"--debounce"},
+            paramLabel = "<ms>",
+            description =
+                    "Wait until no file event arrived for <ms> milliseconds before applying a batch. Default: ${DEFAULT-VALUE}.")
+    private long debounceMillis = GraphWatcher.DEFAULT_DEBOUNCE.toMillis();
+
+    @Override
+    public Integer call() {
+        File effectiveAppsDir = parentCLI.getAppsDir();
+        File effectiveLogFile = parentCLI.getLogFile();
+        File outputFile = parentCLI.getOutputFile();
+
+        if (effectiveAppsDir == null) {
+            CLIHelper.printError(
+                    "Critical: --apps-dir was not properly configured.", null, effectiveLogFile);
+            return 1;
+        }
+        final Path appsDirPathGlobal = effectiveAppsDir.toPath().toAbsolutePath().normalize();
+        if (!Files.isDirectory(appsDirPathGlobal)) {
+            CLIHelper.printError(
+                    "Invalid --apps-dir (not a directory or does not exist): " + appsDirPathGlobal,
+                    null,
+                    effectiveLogFile);
+            return 1;
+        }
+        if (parentCLI.getRevision() != null) {
+            CLIHelper.printError("--revision cannot be used with watch.", null, effectiveLogFile);
+            return 1;
+        }
+        if (debounceMillis < 0) {
+            CLIHelper.printError(
+                    "Invalid --debounce (must not be negative): " + debounceMillis,
+                    null,
+                    effectiveLogFile);
+            return 1;
+        }
+
+        try (PrintWriter out = openOutput(outputFile);
+                KustomTrace kustomTrace = parentCLI.buildKustomTrace(appsDirPathGlobal)) {
+            GraphWatcher watcher =
+                    kustomTrace.watch(
+                            Duration.ofMillis(debounceMillis),
+                            batch -> {
+                                out.println(toJson(batch, appsDirPathGlobal, effectiveLogFile));
+                                out.flush();
+                            });
+            Runtime.getRuntime()
+                    .addShutdownHook(
+                            new Thread(
+                                    () -> {
+                                        try {
+                                            watcher.close();
+                                        } catch (IOException e) {
+                                            // Exiting anyway.
+                                        }
+                                    }));
+            System.err.println(
+                    "Watching "
+                            + appsDirPathGlobal
+                            + " ("
+                            + watcher.getWatchedDirectoryCount()
+                            + " directories). Press Ctrl+C to stop.");
+            watcher.await();
+            return 0;
+
+        } catch (Exception e) {
+            String unexpectedUserMessage =
+                    "An unexpected error occurred while watching. Please check logs for details.";
+            CLIHelper.logRawMessage(
+                    "UNEXPECTED ERROR in watch: " + e.getMessage(), effectiveLogFile);
+            CLIHelper.logStackTrace(e, effectiveLogFile);
+            CLIHelper.printError(unexpectedUserMessage, null, effectiveLogFile);
+            return 1;
+        }
+    }
+
+    /** Appends to {@code outputFile}, or writes to standard output when it is null. */
+    private static PrintWriter openOutput(File outputFile) throws IOException {
+        if (outputFile == null) {
+            return new PrintWriter(
+                    new OutputStreamWriter(System.out, StandardCharsets.UTF_8), false) {
+                @Override
+                public void close() {
+                    flush(); // Leave System.out open.
+                }
+            };
+        }
+        return new PrintWriter(
+                new OutputStreamWriter(
+                        new FileOutputStream(outputFile, true), StandardCharsets.UTF_8),
+                false);
+    }
+
+    private static String toJson(WatchBatch batch, Path appsDir, File logFile) {
+        StringBuilder json = new StringBuilder("{\"changed\":");
+        appendPaths(json, batch.changed(), appsDir, logFile);
+        json.append(",\"affectedApps\":");
+        appendPaths(json, batch.affectedApps(), appsDir, logFile);
+        json.append(",\"reparsed\":")
+                .append(batch.stats().reparsed())
+                .append(",\"relinked\":")
+                .append(batch.stats().relinked())
+                .append(",\"removed\":")
+                .append(batch.stats().removed())
+                .append(",\"rebuilt\":")
+                .append(batch.stats().rebuilt())
+                .append(",\"durationMillis\":")
+                .append(batch.durationMillis())
+                .append('}');
+        return json.toString();
+    }
+
+    private static void appendPaths(
+            StringBuilder json, List<Path> paths, Path appsDir, File logFile) {
+        json.append('[');
+        for (int i = 0; i < paths.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendString(json, PathUtil.getRelativePath(paths.get(i), appsDir, logFile));
+        }
+        json.append(']');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
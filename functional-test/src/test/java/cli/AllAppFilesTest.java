@@ -0,0 +1,57 @@
+package cli;
+
+import cli.util.OutputResourceAssesor;
+import dev.zucca_ops.kustomtrace.cli.KustomTraceCLI;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AllAppFilesTest {
+
+    private final Path resourcesDir = Paths.get( "src", "test", "resources");
+    private final OutputResourceAssesor outputResourceAssesor = new OutputResourceAssesor("all-app-files");
+    private CommandLine cmd;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        cmd = new CommandLine(new KustomTraceCLI());
+    }
+
+    @Test
+    void testOverallResources() {
+        Path actualOutputFile = tempDir.resolve("all-app-files-actual-output.yaml");
+
+        int exitCode = cmd.execute(
+                "--apps-dir", resourcesDir.toString(),
+                "--output", actualOutputFile.toString(),
+                "all-app-files"
+        );
+        assertEquals(0, exitCode);
+
+        outputResourceAssesor.assertYamlOutputMatchesResource(actualOutputFile, "overall.yaml");
+    }
+
+    @Test
+    void testEmptyBecauseCircularApp() {
+        Path actualOutputFile = tempDir.resolve("all-app-files-actual-output.yaml");
+        Path appsPath = resourcesDir.resolve("circular-dependency-apps").resolve("app2");
+
+        int exitCode = cmd.execute(
+                "--apps-dir", appsPath.toString(),
+                "--output", actualOutputFile.toString(),
+                "all-app-files"
+        );
+        assertEquals(0, exitCode);
+
+        outputResourceAssesor.assertYamlOutputMatchesResource(actualOutputFile, "empty.yaml");
+    }
+}
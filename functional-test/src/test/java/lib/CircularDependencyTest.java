@@ -5,6 +5,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
 import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
 import dev.zucca_ops.kustomtrace.model.KustomGraph;
 import dev.zucca_ops.kustomtrace.model.Kustomization;
 import org.junit.jupiter.api.Test;
@@ -21,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.*;
 public class CircularDependencyTest {
 
     private static final Logger logger = (Logger) LoggerFactory.getLogger(Kustomization.class);
+    private static final Logger builderLogger = (Logger) LoggerFactory.getLogger(KustomGraphBuilder.class);
 
     private Path getTestResourcePath() {
         return Paths.get("src", "test", "resources", "circular-dependency-apps", "");
@@ -32,6 +34,7 @@ public class CircularDependencyTest {
         ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
         listAppender.start();
         logger.addAppender(listAppender);
+        builderLogger.addAppender(listAppender);
 
         Path appsDir = getTestResourcePath();
         KustomTrace kustomTrace = KustomTrace.fromDirectory(appsDir);
@@ -55,12 +58,18 @@ public class CircularDependencyTest {
         List<Path> app1Dependencies = app1.getDependencies().toList();
         List<Kustomization> app1Apps = app1.getApps().toList();
 
-        // Assert that a warning about circular dependency was logged
+        // Assert that the cycle was logged once, by the build, and not again by the queries
         List<ILoggingEvent> warnings = listAppender.list.stream()
                 .filter(event -> event.getLevel() == Level.ERROR && event.getMessage().contains("Circular dependency detected"))
                 .toList();
-        assertEquals(2, warnings.size(), "Should have logged two circular dependency warnings.");
-        assertThat(warnings).allMatch(warning -> warning.getMessage().contains("Circular"));
+        assertEquals(1, warnings.size(), "Should have logged the circular dependency once.");
+        assertThat(warnings).allMatch(warning -> warning.getLoggerName().equals(KustomGraphBuilder.class.getName()));
+
+        // The cycle runs through both apps and both components
+        assertEquals(1, graph.getCycles().size());
+        assertThat(graph.getCycles().get(0)).containsExactlyInAnyOrder(
+                app1.getPath(), app2.getPath(),
+                graph.getNode(app1ComponentPath).getPath(), graph.getNode(app2ComponentPath).getPath());
 
         // Assert getDependencies() functions correctly (doesn't loop infinitely)
         assertThat(app1Dependencies).contains(app1Path);
@@ -77,5 +86,6 @@ public class CircularDependencyTest {
         assertEquals(0, app1Apps.size());
 
         logger.detachAppender(listAppender);
+        builderLogger.detachAppender(listAppender);
     }
 }
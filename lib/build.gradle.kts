@@ -2,6 +2,7 @@ plugins {
     id("java")
     id("dev.zucca-ops.gradle-publisher") version "1.1.1"
     id("signing")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "dev.zucca-ops"
@@ -27,6 +28,17 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Benchmarks live under src/jmh/java. Run a subset with e.g.
+// ./gradlew :kustomtrace:jmh -PjmhIncludes=DirectoryWalkBenchmark
+// and add profilers with e.g. -PjmhProfilers=gc
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    (findProperty("jmhIncludes") as String?)?.let { includes.set(listOf(it)) }
+    (findProperty("jmhProfilers") as String?)?.let { profilers.set(it.split(",")) }
+}
+
 java {
     withJavadocJar()
     withSourcesJar()
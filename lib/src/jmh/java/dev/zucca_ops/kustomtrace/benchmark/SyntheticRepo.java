@@ -0,0 +1,194 @@
+package dev.zucca_ops.kustomtrace.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates Kustomize repositories on disk for the benchmarks.
+ * <p>
+ * Every app follows the usual layout: a base with a few resources, two overlays that patch
+ * it, and a {@code charts} folder of rendered manifests that no kustomization references.
+ */
+public final class SyntheticRepo {
+
+    /** Files written per app by {@link #standard(Path, int)}. */
+    public static final int FILES_PER_APP = 18;
+
+    private SyntheticRepo() {}
+
+    /**
+     * Creates a temporary repository holding roughly {@code files} files.
+     */
+    public static Path withFileCount(int files) throws IOException {
+        Path root = Files.createTempDirectory("kustomtrace-bench");
+        standard(root, Math.max(1, files / FILES_PER_APP));
+        return root;
+    }
+
+    /**
+     * Writes {@code apps} apps, grouped ten per team directory, under {@code root}.
+     */
+    public static void standard(Path root, int apps) throws IOException {
+        for (int i = 0; i < apps; i++) {
+            Path app = root.resolve("team-" + (i / 10)).resolve("app-" + i);
+            Path base = app.resolve("base");
+            write(
+                    base.resolve("kustomization.yaml"),
+                    "resources:\n  - deployment.yaml\n  - service.yaml\n  - configmap.yaml\n");
+            write(base.resolve("deployment.yaml"), resource("Deployment", "app-" + i));
+            write(base.resolve("service.yaml"), resource("Service", "app-" + i));
+            write(base.resolve("configmap.yaml"), resource("ConfigMap", "app-" + i));
+
+            for (String env : new String[] {"dev", "prod"}) {
+                Path overlay = app.resolve("overlays").resolve(env);
+                write(
+                        overlay.resolve("kustomization.yaml"),
+                        "resources:\n  - ../../base\npatches:\n  - path: replicas.yaml\n");
+                write(overlay.resolve("replicas.yaml"), resource("Deployment", "app-" + i));
+            }
+
+            for (int c = 0; c < 8; c++) {
+                write(
+                        app.resolve("charts").resolve("rendered-" + c + ".yaml"),
+                        resource("ConfigMap", "rendered-" + c));
+            }
+        }
+    }
+
+    /**
+     * Writes a single {@code hub} base and {@code dependents} apps that all reference it, so
+     * every build thread races for the same node.
+     */
+    public static void sharedBase(Path root, int dependents) throws IOException {
+        Path hub = root.resolve("hub");
+        write(
+                hub.resolve("kustomization.yaml"),
+                "resources:\n  - deployment.yaml\n  - service.yaml\n");
+        write(hub.resolve("deployment.yaml"), resource("Deployment", "hub"));
+        write(hub.resolve("service.yaml"), resource("Service", "hub"));
+
+        for (int i = 0; i < dependents; i++) {
+            Path app = root.resolve("team-" + (i / 100)).resolve("app-" + i);
+            write(
+                    app.resolve("kustomization.yaml"),
+                    "resources:\n  - ../../hub\n  - configmap.yaml\n");
+            write(app.resolve("configmap.yaml"), resource("ConfigMap", "app-" + i));
+        }
+    }
+
+    /**
+     * Writes {@code apps} apps whose overlays are stacked {@code depth} levels deep: each
+     * layer patches the one below it, down to a base with a few resources.
+     */
+    public static void deepOverlays(Path root, int apps, int depth) throws IOException {
+        for (int i = 0; i < apps; i++) {
+            Path app = root.resolve("team-" + (i / 10)).resolve("app-" + i);
+            Path base = app.resolve("layer-0");
+            write(
+                    base.resolve("kustomization.yaml"),
+                    "resources:\n  - deployment.yaml\n  - service.yaml\n");
+            write(base.resolve("deployment.yaml"), resource("Deployment", "app-" + i));
+            write(base.resolve("service.yaml"), resource("Service", "app-" + i));
+
+            for (int layer = 1; layer < depth; layer++) {
+                Path overlay = app.resolve("layer-" + layer);
+                write(
+                        overlay.resolve("kustomization.yaml"),
+                        "resources:\n  - ../layer-"
+                                + (layer - 1)
+                                + "\npatches:\n  - path: patch.yaml\n");
+                write(overlay.resolve("patch.yaml"), resource("Deployment", "app-" + i));
+            }
+        }
+    }
+
+    /**
+     * Writes a {@code platform} stack of {@code depth} overlays, each patching the one below,
+     * and {@code apps} apps that all include its top layer, so every app shares the whole
+     * stack.
+     */
+    public static void sharedOverlayStack(Path root, int apps, int depth) throws IOException {
+        Path platform = root.resolve("platform");
+        deepOverlays(platform, 1, depth);
+        String top = "../../platform/team-0/app-0/layer-" + (depth - 1);
+        for (int i = 0; i < apps; i++) {
+            Path app = root.resolve("team-" + (i / 100)).resolve("app-" + i);
+            write(
+                    app.resolve("kustomization.yaml"),
+                    "resources:\n  - " + top + "\n  - configmap.yaml\n");
+            write(app.resolve("configmap.yaml"), resource("ConfigMap", "app-" + i));
+        }
+    }
+
+    /**
+     * Writes {@code components} shared components and {@code apps} apps, each a base and two
+     * overlays that include every component and the team's shared patches, so most
+     * references repeat the same few targets.
+     */
+    public static void sharedComponents(Path root, int apps, int components) throws IOException {
+        StringBuilder included = new StringBuilder("components:\n");
+        for (int c = 0; c < components; c++) {
+            Path component = root.resolve("components").resolve("component-" + c);
+            write(
+                    component.resolve("kustomization.yaml"),
+                    "apiVersion: kustomize.config.k8s.io/v1alpha1\nkind: Component\n"
+                            + "resources:\n  - configmap.yaml\n");
+            write(component.resolve("configmap.yaml"), resource("ConfigMap", "component-" + c));
+            included.append("  - ../../../../components/component-").append(c).append('\n');
+        }
+        for (int i = 0; i < apps; i++) {
+            Path team = root.resolve("team-" + (i / 100));
+            Path app = team.resolve("app-" + i);
+            Path base = app.resolve("base");
+            write(team.resolve("labels.yaml"), resource("Deployment", "team-" + (i / 100)));
+            write(base.resolve("kustomization.yaml"), "resources:\n  - deployment.yaml\n");
+            write(base.resolve("deployment.yaml"), resource("Deployment", "app-" + i));
+            for (String env : new String[] {"dev", "prod"}) {
+                write(
+                        app.resolve("overlays").resolve(env).resolve("kustomization.yaml"),
+                        "resources:\n  - ../../base\n"
+                                + "patchesStrategicMerge:\n  - ../../../labels.yaml\n"
+                                + included);
+            }
+        }
+    }
+
+    /**
+     * Renders a minimal Kubernetes manifest.
+     */
+    public static String resource(String kind, String name) {
+        return "apiVersion: v1\nkind: " + kind + "\nmetadata:\n  name: " + name + "\n";
+    }
+
+    /**
+     * Writes {@code content} to {@code file}, creating parent directories as needed.
+     */
+    public static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    /**
+     * Recursively deletes a generated repository.
+     */
+    public static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(
+                            path -> {
+                                try {
+                                    Files.delete(path);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the recursive build with {@link BuildOptions#twoPhaseBuild} on apps whose overlays
+ * are stacked many levels deep, where the recursive build follows each chain on one thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeepOverlayBuildBenchmark {
+
+    @Param({"50"})
+    int apps;
+
+    @Param({"10", "40"})
+    int depth;
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kustomtrace-bench");
+        SyntheticRepo.deepOverlays(root, apps, depth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public KustomGraph recursiveBuild() throws IOException {
+        return new KustomGraphBuilder(root).build();
+    }
+
+    @Benchmark
+    public KustomGraph twoPhaseBuild() throws IOException {
+        return new KustomGraphBuilder(root, new BuildOptions().twoPhaseBuild(true)).build();
+    }
+}
@@ -0,0 +1,67 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares building a graph with reading it back from a {@link GraphSnapshot}, and measures
+ * the stat-only validation of the snapshot, on a generated repository of about
+ * {@code files} files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GraphSnapshotBenchmark {
+
+    @Param({"10000", "100000"})
+    int files;
+
+    private Path root;
+    private Path snapshotFile;
+    private GraphSnapshot snapshot;
+    private final BuildOptions options = new BuildOptions();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = SyntheticRepo.withFileCount(files);
+        snapshotFile = Files.createTempFile("kustomtrace-bench", ".snapshot");
+        GraphSnapshot.of(new KustomGraphBuilder(root, options).build(), root, options)
+                .write(snapshotFile);
+        snapshot = GraphSnapshot.read(snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public KustomGraph build() throws IOException {
+        return new KustomGraphBuilder(root, options).build();
+    }
+
+    @Benchmark
+    public KustomGraph read() throws IOException {
+        return GraphSnapshot.read(snapshotFile).getGraph();
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return snapshot.isReusableFor(root, options);
+    }
+}
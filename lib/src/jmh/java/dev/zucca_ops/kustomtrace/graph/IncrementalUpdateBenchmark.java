@@ -0,0 +1,88 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link KustomGraphBuilder#update} after {@code changes} apps had their base
+ * kustomization and one resource edited, against a full build of the same repository of
+ * about {@code files} files. The update time should follow {@code changes}, not
+ * {@code files}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IncrementalUpdateBenchmark {
+
+    @Param({"10000", "100000"})
+    int files;
+
+    @Param({"1", "10", "100"})
+    int changes;
+
+    private Path root;
+    private KustomGraphBuilder builder;
+    private final List<Path> changed = new ArrayList<>();
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = SyntheticRepo.withFileCount(files);
+        builder = new KustomGraphBuilder(root, new BuildOptions());
+        builder.build();
+        // The first update records what every kustomization looks at; keep it out of the runs.
+        builder.update(List.of());
+    }
+
+    @Setup(Level.Invocation)
+    public void edit() throws IOException {
+        changed.clear();
+        round++;
+        int apps = Math.max(1, files / SyntheticRepo.FILES_PER_APP);
+        for (int i = 0; i < Math.min(changes, apps); i++) {
+            Path base = root.resolve("team-" + (i / 10)).resolve("app-" + i).resolve("base");
+            Path kustomization = base.resolve("kustomization.yaml");
+            Path service = base.resolve("service.yaml");
+            // Alternate between dropping and restoring the configmap, so edges change each time.
+            SyntheticRepo.write(
+                    kustomization,
+                    round % 2 == 0
+                            ? "resources:\n  - deployment.yaml\n  - service.yaml\n  - configmap.yaml\n"
+                            : "resources:\n  - deployment.yaml\n  - service.yaml\n");
+            SyntheticRepo.write(
+                    service, SyntheticRepo.resource("Service", "app-" + i + "-" + round));
+            changed.add(kustomization);
+            changed.add(service);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public UpdateStats update() throws IOException {
+        return builder.update(changed);
+    }
+
+    @Benchmark
+    public KustomGraph fullBuild() throws IOException {
+        return new KustomGraphBuilder(root, new BuildOptions()).build();
+    }
+}
@@ -0,0 +1,87 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.parser.ReferenceResolutionCache;
+import dev.zucca_ops.kustomtrace.scan.FileAttributeCache;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Extracts the references of every kustomization of a generated repository where most of
+ * them repeat the same few targets, as one build does, with and without a
+ * {@link ReferenceResolutionCache}. Both start from empty caches, and both check the files
+ * through a {@link FileAttributeCache}, as {@link KustomGraphBuilder} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReferenceResolutionBenchmark {
+
+    @Param({"2000"})
+    int apps;
+
+    @Param({"8"})
+    int components;
+
+    private Path root;
+    private KustomGraphBuilder builder;
+    private final List<Kustomization> kustomizations = new ArrayList<>();
+    private final FileAttributeCache attributeCache =
+            new FileAttributeCache(FileSource.fileSystem());
+    private final ReferenceResolutionCache resolutionCache = new ReferenceResolutionCache();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kustomtrace-bench");
+        SyntheticRepo.sharedComponents(root, apps, components);
+        builder = new KustomGraphBuilder(root);
+        for (GraphNode node : builder.build().getNodes()) {
+            if (node instanceof Kustomization kustomization) {
+                kustomizations.add(kustomization);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public long uncached() {
+        attributeCache.clear();
+        return extractAll(new ResourceReferenceResolver(builder, attributeCache));
+    }
+
+    @Benchmark
+    public long memoized() {
+        attributeCache.clear();
+        resolutionCache.clear();
+        return extractAll(new ResourceReferenceResolver(builder, attributeCache, resolutionCache));
+    }
+
+    private long extractAll(ResourceReferenceResolver resolver) {
+        long references = 0;
+        for (Kustomization kustomization : kustomizations) {
+            references += resolver.extractReferences(kustomization).size();
+        }
+        return references;
+    }
+}
@@ -0,0 +1,51 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Builds a repository where thousands of apps share one base, the worst case for node
+ * memoization: every fork-join worker asks for the hub while it is first being parsed.
+ * Run with {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism=N} to vary the
+ * number of contending workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SharedBaseContentionBenchmark {
+
+    @Param({"5000"})
+    int dependents;
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kustomtrace-bench");
+        SyntheticRepo.sharedBase(root, dependents);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public KustomGraph buildSharedBase() throws IOException {
+        return new KustomGraphBuilder(root).build();
+    }
+}
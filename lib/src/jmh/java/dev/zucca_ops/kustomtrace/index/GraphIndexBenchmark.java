@@ -0,0 +1,79 @@
+package dev.zucca_ops.kustomtrace.index;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.GraphSnapshot;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures one "which apps use this file" query the way a pre-commit hook runs it: opening a
+ * {@link GraphIndex} and querying the mapped file, against reading a {@link GraphSnapshot}
+ * and querying the loaded graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    int files;
+
+    private Path root;
+    private Path indexFile;
+    private Path snapshotFile;
+    private Path queried;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = SyntheticRepo.withFileCount(files);
+        BuildOptions options = new BuildOptions();
+        KustomGraph graph = new KustomGraphBuilder(root, options).build();
+        queried =
+                graph.getNodes().stream()
+                        .filter(node -> node instanceof KustomFile)
+                        .findFirst()
+                        .orElseThrow()
+                        .getPath();
+        indexFile = Files.createTempFile("kustomtrace-bench", ".idx");
+        GraphIndex.write(graph, indexFile);
+        snapshotFile = Files.createTempFile("kustomtrace-bench", ".snapshot");
+        GraphSnapshot.of(graph, root, options).write(snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public List<Path> openIndexAndQuery() throws IOException, UnreferencedFileException {
+        return GraphIndex.open(indexFile).getRootAppPathsWithFile(queried);
+    }
+
+    @Benchmark
+    public List<Kustomization> readSnapshotAndQuery()
+            throws IOException, UnreferencedFileException {
+        return GraphSnapshot.read(snapshotFile).getGraph().getRootAppsWithFile(queried);
+    }
+}
@@ -0,0 +1,96 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Adds {@code dependents} distinct kustomizations to a single node from {@code threads}
+ * threads at once, as a build does for a base shared by every overlay, then reads the
+ * dependents once. {@code copyOnWriteList} is the {@code addIfAbsent} list nodes used before,
+ * for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AddDependentBenchmark {
+
+    @Param({"10000"})
+    int dependents;
+
+    @Param({"8"})
+    int threads;
+
+    private final List<Kustomization> overlays = new ArrayList<>();
+    private ExecutorService executor;
+    private KustomFile hub;
+    private CopyOnWriteArrayList<Kustomization> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < dependents; i++) {
+            overlays.add(
+                    new Kustomization(
+                            Path.of("apps", "app-" + i, "overlays", "prod", "kustomization.yaml"),
+                            Map.of()));
+        }
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        hub = new KustomFile(Path.of("base", "deployment.yaml"));
+        list = new CopyOnWriteArrayList<>();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int graphNode() throws Exception {
+        addConcurrently(hub::addDependent);
+        return hub.getDependents().size();
+    }
+
+    @Benchmark
+    public int copyOnWriteList() throws Exception {
+        addConcurrently(list::addIfAbsent);
+        return list.size();
+    }
+
+    private void addConcurrently(Consumer<Kustomization> add) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            futures.add(
+                    executor.submit(
+                            () -> {
+                                for (int i = first; i < overlays.size(); i += threads) {
+                                    add.accept(overlays.get(i));
+                                }
+                            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
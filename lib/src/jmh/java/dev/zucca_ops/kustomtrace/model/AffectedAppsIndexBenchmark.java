@@ -0,0 +1,106 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Finds the root apps affected by {@code changed} files of a repository of about
+ * {@code files} files, as the affected-apps job does for a large change: by walking the
+ * dependents of each file, or with one OR per file on an {@link AffectedAppsIndex}. Building
+ * the index, from the built graph, is measured on its own.
+ * <p>
+ * The {@code standard} layout gives every app its own base; in {@code sharedBase} all apps
+ * include one hub, so a change to the hub reaches every app.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AffectedAppsIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    int files;
+
+    @Param({"100", "5000"})
+    int changed;
+
+    @Param({"standard", "sharedBase"})
+    String layout;
+
+    private Path root;
+    private KustomGraph graph;
+    private AffectedAppsIndex index;
+    private final List<Path> changedFiles = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (layout.equals("sharedBase")) {
+            root = Files.createTempDirectory("kustomtrace-bench");
+            SyntheticRepo.sharedBase(root, files / 2);
+        } else {
+            root = SyntheticRepo.withFileCount(files);
+        }
+        graph = new KustomGraphBuilder(root, new BuildOptions()).build();
+        index = graph.freeze().getAffectedAppsIndex();
+        List<Path> nodes = new ArrayList<>();
+        graph.getNodes().forEach(node -> nodes.add(node.getPath()));
+        Collections.sort(nodes);
+        Collections.shuffle(nodes, new Random(42));
+        changedFiles.addAll(nodes.subList(0, Math.min(changed, nodes.size())));
+        Path hub = root.resolve("hub").resolve("deployment.yaml");
+        if (graph.containsNode(hub)) {
+            changedFiles.set(0, hub);
+        }
+        System.out.printf("%n%s%n", index);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public int walkDependents() throws UnreferencedFileException {
+        Set<Kustomization> apps = new LinkedHashSet<>();
+        for (Path file : changedFiles) {
+            apps.addAll(graph.getRootAppsWithFile(file));
+        }
+        return apps.size();
+    }
+
+    @Benchmark
+    public int orBitmaps() {
+        return index.getRootAppsWithAnyFile(changedFiles).size();
+    }
+
+    @Benchmark
+    public AffectedAppsIndex freezeAndIndex() {
+        return graph.freeze().getAffectedAppsIndex();
+    }
+
+    @Benchmark
+    public AffectedAppsIndex numberAndIndex() {
+        return graph.computeAffectedAppsIndex();
+    }
+}
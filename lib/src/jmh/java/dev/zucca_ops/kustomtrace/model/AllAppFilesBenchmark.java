@@ -0,0 +1,86 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.exceptions.KustomException;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Lists the files of every root app of a repository with {@code apps} apps: one app at a
+ * time, walking each app's overlays with {@link KustomGraph#getAllAppFiles(Path)}, or in one
+ * pass with {@link KustomGraph#getAllAppFiles()}, which includes freezing the graph.
+ * <p>
+ * The {@code sharedBase} layout has every app include one hub, and {@code sharedStack} a
+ * shared stack of 20 overlays; in {@code deepOverlays} each app stacks 20 overlays on its own
+ * base.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AllAppFilesBenchmark {
+
+    @Param({"3000"})
+    int apps;
+
+    @Param({"standard", "sharedBase", "sharedStack", "deepOverlays"})
+    String layout;
+
+    private Path root;
+    private KustomGraph graph;
+    private List<Path> appDirs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kustomtrace-bench");
+        switch (layout) {
+            case "sharedBase" -> SyntheticRepo.sharedBase(root, apps);
+            case "sharedStack" -> SyntheticRepo.sharedOverlayStack(root, apps, 20);
+            case "deepOverlays" -> SyntheticRepo.deepOverlays(root, apps, 20);
+            default -> SyntheticRepo.standard(root, apps);
+        }
+        graph = new KustomGraphBuilder(root, new BuildOptions()).build();
+        appDirs =
+                graph.getRootApps().stream()
+                        .map(app -> app.getPath().getParent())
+                        .sorted()
+                        .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public long perApp() throws KustomException {
+        long files = 0;
+        for (Path app : appDirs) {
+            files += graph.getAllAppFiles(app).size();
+        }
+        return files;
+    }
+
+    @Benchmark
+    public long onePass() {
+        long files = 0;
+        for (List<Path> appFiles : graph.getAllAppFiles().values()) {
+            files += appFiles.size();
+        }
+        return files;
+    }
+}
@@ -0,0 +1,126 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.exceptions.KustomException;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares queries on a built {@link KustomGraph} with the same queries on its
+ * {@link FrozenGraph}: the root apps of every resource file, and the files of every app.
+ * <p>
+ * The setup also prints the heap each form retains, measured after a full collection while
+ * only that form is reachable, so that one run reports both latency and footprint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FrozenGraphBenchmark {
+
+    @Param({"10000", "100000"})
+    int files;
+
+    private Path root;
+    private KustomGraph graph;
+    private FrozenGraph frozen;
+    private final List<Path> resourceFiles = new ArrayList<>();
+    private final List<Path> appDirs = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = SyntheticRepo.withFileCount(files);
+        long empty = retainedHeap();
+        graph = build();
+        long withGraph = retainedHeap();
+        frozen = graph.freeze();
+        graph = null;
+        long withFrozen = retainedHeap();
+        graph = build();
+        for (int id = 0; id < frozen.size(); id++) {
+            if (frozen.isKustomization(id)) {
+                appDirs.add(frozen.getPath(id).getParent());
+            } else {
+                resourceFiles.add(frozen.getPath(id));
+            }
+        }
+        System.out.printf(
+                "%nRetained heap for %d nodes: graph %d KiB, frozen %d KiB (%d KiB of arrays).%n",
+                frozen.size(),
+                (withGraph - empty) / 1024,
+                (withFrozen - empty) / 1024,
+                frozen.getArrayBytes() / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public int appsWithEveryFile_graph() throws KustomException {
+        int apps = 0;
+        for (Path file : resourceFiles) {
+            apps += graph.getRootAppsWithFile(file).size();
+        }
+        return apps;
+    }
+
+    @Benchmark
+    public int appsWithEveryFile_frozen() throws KustomException {
+        int apps = 0;
+        for (Path file : resourceFiles) {
+            apps += frozen.getRootAppPathsWithFile(file).size();
+        }
+        return apps;
+    }
+
+    @Benchmark
+    public int filesOfEveryApp_graph() throws KustomException {
+        int count = 0;
+        for (Path app : appDirs) {
+            count += graph.getAllAppFiles(app).size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int filesOfEveryApp_frozen() throws KustomException {
+        int count = 0;
+        for (Path app : appDirs) {
+            count += frozen.getAllAppFiles(app).size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public FrozenGraph freeze() {
+        return graph.freeze();
+    }
+
+    private KustomGraph build() throws IOException {
+        return new KustomGraphBuilder(root, new BuildOptions()).build();
+    }
+
+    private static long retainedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,64 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Single traversals of a graph built from {@code deepOverlays}: an app's files, following
+ * references down a stack of {@code depth} overlays, and a base file's apps, following
+ * dependents up. Run with {@code -PjmhProfilers=gc} for the bytes allocated per query
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TraversalBenchmark {
+
+    @Param({"5", "50", "500"})
+    int depth;
+
+    private Path root;
+    private Kustomization app;
+    private KustomFile baseFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kustomtrace-bench");
+        SyntheticRepo.deepOverlays(root, 10, depth);
+        KustomGraph graph = new KustomGraphBuilder(root, new BuildOptions()).build();
+        Path appDir = root.resolve("team-0").resolve("app-0");
+        Path top = appDir.resolve("layer-" + (depth - 1)).resolve("kustomization.yaml");
+        app = graph.getKustomization(top);
+        baseFile = graph.getKustomFile(appDir.resolve("layer-0").resolve("deployment.yaml"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public long dependencies() {
+        return app.getDependencies().count();
+    }
+
+    @Benchmark
+    public long apps() {
+        return baseFile.getApps().count();
+    }
+}
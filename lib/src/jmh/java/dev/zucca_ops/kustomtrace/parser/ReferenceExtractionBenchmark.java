@@ -0,0 +1,110 @@
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.scan.FileAttributeCache;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Extracts the references of every kustomization of a generated repository through the
+ * {@link ReferenceType} stream API, key by key and value by value, and through a
+ * {@link ReferenceSink}. The files are checked against a warm {@link FileAttributeCache}, so
+ * the difference is the extraction itself. Run with {@code -PjmhProfilers=gc} for the bytes
+ * allocated per pass ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReferenceExtractionBenchmark {
+
+    @Param({"500"})
+    int apps;
+
+    private Path root;
+    private final List<Map<String, Object>> contents = new ArrayList<>();
+    private final List<Path> baseDirs = new ArrayList<>();
+    private final FileAttributeCache files = new FileAttributeCache(FileSource.fileSystem());
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kustomtrace-bench");
+        SyntheticRepo.standard(root.resolve("standard"), apps);
+        SyntheticRepo.sharedComponents(root.resolve("shared"), apps, 8);
+        for (GraphNode node : new KustomGraphBuilder(root).build().getNodes()) {
+            if (node instanceof Kustomization kustomization) {
+                contents.add(kustomization.getSpec().getReferenceFields());
+                baseDirs.add(kustomization.getPath().getParent().normalize());
+            }
+        }
+        streams();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public long streams() {
+        long references = 0;
+        for (int i = 0; i < contents.size(); i++) {
+            Map<String, Object> content = contents.get(i);
+            Path baseDir = baseDirs.get(i);
+            references +=
+                    content.keySet().stream()
+                            .map(ReferenceType::fromYamlKey)
+                            .flatMap(
+                                    type ->
+                                            type.getRawReferences(content)
+                                                    .flatMap(
+                                                            value ->
+                                                                    type.extract(
+                                                                            value, baseDir, files)))
+                            .count();
+        }
+        return references;
+    }
+
+    @Benchmark
+    public long sink() {
+        Counter counter = new Counter();
+        for (int i = 0; i < contents.size(); i++) {
+            Map<String, Object> content = contents.get(i);
+            for (String key : content.keySet()) {
+                ReferenceType type = ReferenceType.fromYamlKey(key);
+                for (Object value : type.getRawReferenceList(content)) {
+                    type.extract(value, baseDirs.get(i), files, counter);
+                }
+            }
+        }
+        return counter.references;
+    }
+
+    private static final class Counter implements ReferenceSink {
+        long references;
+
+        @Override
+        public void accept(Path path) {
+            references++;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares loading every document of a resource file into maps with reading only the resource
+ * headers from the event stream. The file mixes CRDs with deep schemas and ConfigMaps with
+ * large embedded data, {@code sizeMb} megabytes in total, so time and allocation per MB are
+ * the reported per-operation figures divided by {@code sizeMb}. Allocation comes from the GC
+ * profiler:
+ * {@code ./gradlew :kustomtrace:jmh -PjmhIncludes=ResourceHeaderBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResourceHeaderBenchmark {
+
+    // Kept below the loader's default limit of 3M code points per stream.
+    @Param({"1", "2"})
+    int sizeMb;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("kustomtrace-bench", ".yaml");
+        StringBuilder yaml = new StringBuilder();
+        for (int i = 0; yaml.length() < sizeMb * 1024 * 1024; i++) {
+            if (i % 2 == 0) {
+                appendCustomResourceDefinition(yaml, i);
+            } else {
+                appendConfigMap(yaml, i);
+            }
+        }
+        Files.writeString(file, yaml);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<ResourceHeader> fullParse() throws FileNotFoundException, InvalidContentException {
+        return YamlParser.parseFile(file, FileSource.fileSystem()).stream()
+                .map(ResourceHeader::of)
+                .toList();
+    }
+
+    @Benchmark
+    public List<ResourceHeader> eventExtraction()
+            throws FileNotFoundException, InvalidContentException {
+        return YamlParser.parseResourceHeaders(file, FileSource.fileSystem());
+    }
+
+    private static void appendCustomResourceDefinition(StringBuilder yaml, int index) {
+        yaml.append("---\napiVersion: apiextensions.k8s.io/v1\n")
+                .append("kind: CustomResourceDefinition\nmetadata:\n  name: crd-")
+                .append(index)
+                .append(".example.com\nspec:\n  versions:\n    - name: v1\n")
+                .append("      schema:\n        openAPIV3Schema:\n          type: object\n")
+                .append("          properties:\n");
+        for (int field = 0; field < 200; field++) {
+            yaml.append("            field")
+                    .append(field)
+                    .append(":\n              type: object\n")
+                    .append("              description: Generated field ")
+                    .append(field)
+                    .append("\n              properties:\n")
+                    .append("                value: {type: string, maxLength: 253}\n")
+                    .append("                items: {type: array, items: {type: integer}}\n");
+        }
+    }
+
+    private static void appendConfigMap(StringBuilder yaml, int index) {
+        yaml.append("---\napiVersion: v1\nkind: ConfigMap\nmetadata:\n  name: config-")
+                .append(index)
+                .append("\n  labels:\n    app: bench\ndata:\n");
+        for (int key = 0; key < 50; key++) {
+            yaml.append("  key-").append(key).append(": |\n");
+            for (int line = 0; line < 20; line++) {
+                yaml.append("    line ")
+                        .append(line)
+                        .append(" of an embedded configuration file for key ")
+                        .append(key)
+                        .append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Compares loading many small manifests the way {@link YamlParser} used to, with a new
+ * default {@link Yaml} per file opened after a separate regular-file check, against the
+ * current path: the thread's reused loader, the reduced resolver and a single open. The
+ * manifests are typical Deployments with timestamp-like annotations, a few KB each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class YamlLoaderBenchmark {
+
+    @Param({"1000"})
+    int fileCount;
+
+    private Path directory;
+    private final List<Path> files = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("kustomtrace-bench");
+        for (int i = 0; i < fileCount; i++) {
+            Path file = directory.resolve("deployment-" + i + ".yaml");
+            Files.writeString(file, deployment(i));
+            files.add(file);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+        files.clear();
+    }
+
+    @Benchmark
+    public void newLoaderPerFile(Blackhole blackhole) throws IOException {
+        for (Path file : files) {
+            if (!Files.isRegularFile(file)) {
+                throw new FileNotFoundException(file.toString());
+            }
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                for (Object document : new Yaml().loadAll(inputStream)) {
+                    blackhole.consume(document);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void reusedLoader(Blackhole blackhole)
+            throws FileNotFoundException, InvalidContentException {
+        for (Path file : files) {
+            blackhole.consume(YamlParser.parseFile(file, FileSource.fileSystem()));
+        }
+    }
+
+    private static String deployment(int index) {
+        StringBuilder yaml =
+                new StringBuilder("apiVersion: apps/v1\nkind: Deployment\nmetadata:\n")
+                        .append("  name: app-")
+                        .append(index)
+                        .append("\n  annotations:\n    deployed-at: 2025-05-27T10:15:30Z\n")
+                        .append("    release-date: 2025-05-27\n    revision: \"")
+                        .append(index)
+                        .append("\"\n  labels:\n    app: app-")
+                        .append(index)
+                        .append("\nspec:\n  replicas: 3\n  template:\n    spec:\n")
+                        .append("      containers:\n");
+        for (int container = 0; container < 4; container++) {
+            yaml.append("        - name: container-")
+                    .append(container)
+                    .append("\n          image: registry.example.com/app:1.")
+                    .append(container)
+                    .append(".0\n          ports:\n            - containerPort: 80")
+                    .append(container)
+                    .append("\n          env:\n");
+            for (int variable = 0; variable < 10; variable++) {
+                yaml.append("            - name: VARIABLE_")
+                        .append(variable)
+                        .append("\n              value: \"value-")
+                        .append(variable)
+                        .append("\"\n");
+            }
+        }
+        return yaml.toString();
+    }
+}
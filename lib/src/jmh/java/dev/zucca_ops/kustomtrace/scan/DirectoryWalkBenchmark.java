@@ -0,0 +1,78 @@
+package dev.zucca_ops.kustomtrace.scan;
+
+import dev.zucca_ops.kustomtrace.benchmark.SyntheticRepo;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the previous {@code Files.walk(...).parallel()} scan with
+ * {@link ParallelDirectoryWalker} on pools of increasing size, so the scaling with core
+ * count can be read straight from the {@code parallelism} column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DirectoryWalkBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    @Param({"60000"})
+    int files;
+
+    private Path root;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = SyntheticRepo.withFileCount(files);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        SyntheticRepo.delete(root);
+    }
+
+    @Benchmark
+    public long filesWalkParallel() throws Exception {
+        LongAdder found = new LongAdder();
+        pool.submit(
+                        () -> {
+                            try (Stream<Path> stream = Files.walk(root)) {
+                                stream.filter(KustomizeFileUtil::isKustomizationFileName)
+                                        .filter(KustomizeFileUtil::isFile)
+                                        .parallel()
+                                        .forEach(path -> found.increment());
+                            }
+                            return null;
+                        })
+                .get();
+        return found.sum();
+    }
+
+    @Benchmark
+    public long forkJoinWalker() throws IOException {
+        LongAdder found = new LongAdder();
+        new ParallelDirectoryWalker(pool)
+                .walk(root, KustomizeFileUtil::isKustomizationFileName, path -> found.increment());
+        return found.sum();
+    }
+}
@@ -17,55 +17,515 @@ package dev.zucca_ops.kustomtrace;
 
 import dev.zucca_ops.kustomtrace.exceptions.KustomException;
 import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.git.GitCommitSource;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.GraphSnapshot;
 import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import dev.zucca_ops.kustomtrace.graph.UpdateStats;
+import dev.zucca_ops.kustomtrace.index.GraphIndex;
+import dev.zucca_ops.kustomtrace.model.AffectedAppsIndex;
+import dev.zucca_ops.kustomtrace.model.FrozenGraph;
+import dev.zucca_ops.kustomtrace.model.GraphView;
 import dev.zucca_ops.kustomtrace.model.KustomGraph;
-import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.watch.GraphWatcher;
+import dev.zucca_ops.kustomtrace.watch.WatchBatch;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class KustomTrace {
+public class KustomTrace implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(KustomTrace.class);
-    private final KustomGraph graph;
+    // What the queries run on: the KustomGraph, replaced by update() when it falls back to a
+    // full build, its FrozenGraph once frozen, or the GraphIndex an instance was opened from.
+    private volatile GraphView view;
+    private final Path appsDir;
+    // Null for instances loaded with load(Path), which keep the snapshot instead.
+    private final BuildOptions options;
+    // The snapshot the graph was loaded from, until the graph is updated.
+    private GraphSnapshot snapshot;
+    // Created on the first update of an instance that was not built by this process.
+    private KustomGraphBuilder builder;
+    // Built on demand for the current graph; dropped when the graph changes.
+    private volatile AffectedAppsIndex affectedApps;
+    // The commit source of instances built with fromCommit, closed by close().
+    private GitCommitSource commitSource;
 
-    private KustomTrace(KustomGraph graph) {
-        this.graph = graph;
+    private KustomTrace(KustomGraphBuilder builder, Path appsDir, BuildOptions options) {
+        this.view = builder.getGraph();
+        this.appsDir = appsDir;
+        this.options = options;
+        this.snapshot = null;
+        this.builder = builder;
         logger.debug("dev.zucca_ops.kustomtrace.KustomTrace instance created.");
     }
 
+    private KustomTrace(GraphSnapshot snapshot, BuildOptions options) {
+        this.view = snapshot.getGraph();
+        this.appsDir = snapshot.getAppsDir();
+        this.options = options;
+        this.snapshot = snapshot;
+        logger.debug("dev.zucca_ops.kustomtrace.KustomTrace instance loaded from a snapshot.");
+    }
+
+    private KustomTrace(GraphIndex index) {
+        this.view = index;
+        this.appsDir = null;
+        this.options = null;
+        this.snapshot = null;
+        logger.debug("dev.zucca_ops.kustomtrace.KustomTrace instance backed by {}.", index);
+    }
+
     public static KustomTrace fromDirectory(Path appsDir) throws IOException {
+        return fromDirectory(appsDir, new BuildOptions());
+    }
+
+    /**
+     * Builds the graph of {@code appsDir}. When the options name a
+     * {@link BuildOptions#cacheFile cache file} holding a snapshot that is still valid for this
+     * directory and these options, the graph is loaded from it instead; otherwise the freshly
+     * built graph is saved there.
+     *
+     * @param appsDir The apps directory.
+     * @param options The build options.
+     */
+    public static KustomTrace fromDirectory(Path appsDir, BuildOptions options)
+            throws IOException {
         logger.info("Creating dev.zucca_ops.kustomtrace.KustomTrace from directory: {}", appsDir);
-        KustomGraphBuilder builder = new KustomGraphBuilder(appsDir);
+        Path cacheFile = options.getCacheFile();
+        boolean useCacheFile =
+                cacheFile != null
+                        && options.getFileSource() == FileSource.fileSystem()
+                        && !options.isRetainContent();
+        if (cacheFile != null && !useCacheFile) {
+            logger.info("Not using cache file {} for this build.", cacheFile);
+        }
+        if (useCacheFile && Files.isRegularFile(cacheFile)) {
+            try {
+                GraphSnapshot cached = GraphSnapshot.read(cacheFile);
+                if (cached.isReusableFor(appsDir, options)) {
+                    logger.info("Kustom graph loaded from cache file {}.", cacheFile);
+                    return new KustomTrace(cached, options);
+                }
+                logger.info("Cache file {} is out of date; rebuilding.", cacheFile);
+            } catch (IOException e) {
+                logger.warn("Could not read cache file {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        KustomGraphBuilder builder = new KustomGraphBuilder(appsDir, options);
         logger.debug("KustomGraphBuilder created for: {}", appsDir);
-        KustomGraph graph = builder.build();
+        builder.build();
         logger.info("Kustom graph built successfully.");
-        return new KustomTrace(graph);
+        KustomTrace trace = new KustomTrace(builder, appsDir, options);
+        if (useCacheFile) {
+            try {
+                trace.save(cacheFile);
+            } catch (IOException e) {
+                logger.warn("Could not write cache file {}: {}", cacheFile, e.getMessage());
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Loads a graph saved with {@link #save(Path)}. The snapshot is used as it is, even if the
+     * files it describes changed since; {@link BuildOptions#cacheFile} only uses snapshots
+     * that are still valid.
+     *
+     * @param snapshotFile The file written by {@link #save(Path)}.
+     * @throws IOException If the file cannot be read or is not a snapshot of this version.
+     */
+    public static KustomTrace load(Path snapshotFile) throws IOException {
+        logger.info("Loading dev.zucca_ops.kustomtrace.KustomTrace from: {}", snapshotFile);
+        return new KustomTrace(GraphSnapshot.read(snapshotFile), null);
+    }
+
+    /**
+     * Saves the graph, with the size and modification time of its files, as a
+     * {@link GraphSnapshot} that {@link #load(Path)} reads back.
+     *
+     * @param snapshotFile The file to write; replaced atomically.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the graph was built from a commit.
+     * @throws IllegalStateException If this instance was opened from a graph index, or frozen.
+     */
+    public synchronized void save(Path snapshotFile) throws IOException {
+        logger.info("Saving the Kustom graph to: {}", snapshotFile);
+        KustomGraph graph = requireGraph();
+        GraphSnapshot toWrite =
+                snapshot != null ? snapshot : GraphSnapshot.of(graph, appsDir, options);
+        toWrite.write(snapshotFile);
+    }
+
+    /**
+     * Brings the graph up to date with changed, added and deleted files, without building it
+     * again: only those files are parsed, the kustomizations whose references they affect are
+     * relinked, and files no longer referenced are dropped. Afterwards the queries answer as
+     * they would on a freshly built instance. See {@link KustomGraphBuilder#update} for the
+     * cases that still need a full build.
+     * <p>
+     * Queries must not run while an update is in progress.
+     *
+     * @param changed The paths of the files that changed, were added or were deleted.
+     * @return The {@link UpdateStats} of the update.
+     * @throws IOException If a full build was needed and failed.
+     * @throws IllegalStateException If this instance was created with {@link #load(Path)} or
+     *     {@link #openIndex(Path)}, which do not know the build options, or was frozen.
+     */
+    public synchronized UpdateStats update(Collection<Path> changed) throws IOException {
+        if (options == null) {
+            throw new IllegalStateException(
+                    "Only instances built with fromDirectory or fromCommit can be updated.");
+        }
+        KustomGraph graph = requireGraph();
+        if (builder == null) {
+            builder = new KustomGraphBuilder(appsDir, options, graph);
+        }
+        UpdateStats stats = builder.update(changed);
+        view = builder.getGraph();
+        snapshot = null;
+        affectedApps = null;
+        return stats;
+    }
+
+    /**
+     * Watches the apps directory and applies every change to the graph with
+     * {@link #update(Collection)}, as described in {@link GraphWatcher}. Each batch of changes
+     * is passed to {@code listener} with the root apps it affects.
+     *
+     * @param debounce How long to wait for more events before applying a batch.
+     * @param listener Receives every applied batch, on the watch thread.
+     * @return The running {@link GraphWatcher}; close it to stop watching.
+     * @throws IOException If the directories cannot be watched.
+     * @throws IllegalStateException If this instance cannot be updated, or was built from a
+     *     commit.
+     */
+    public GraphWatcher watch(Duration debounce, Consumer<WatchBatch> listener)
+            throws IOException {
+        if (options == null || options.getFileSource() != FileSource.fileSystem()) {
+            throw new IllegalStateException(
+                    "Only instances built with fromDirectory from the file system can be watched.");
+        }
+        requireGraph();
+        return GraphWatcher.start(this, appsDir, options.ignoreRules(appsDir), debounce, listener);
+    }
+
+    /**
+     * Replaces the graph with its {@link FrozenGraph}, so that the queries run on primitive
+     * arrays and the node objects can be garbage collected. Afterwards {@link #getGraph()},
+     * {@link #save(Path)}, {@link #update(Collection)} and {@link #watch} are not available;
+     * {@link #getFrozenGraph()} gives access to the frozen form.
+     *
+     * @return This instance.
+     * @throws IllegalStateException If this instance was opened from a graph index.
+     */
+    public synchronized KustomTrace freeze() {
+        if (!(view instanceof FrozenGraph)) {
+            FrozenGraph frozen = requireGraph().freeze();
+            view = frozen;
+            affectedApps = null;
+            snapshot = null;
+            builder = null;
+            logger.debug("Kustom graph frozen: {}.", frozen);
+        }
+        return this;
+    }
+
+    /**
+     * Opens a graph index written by {@link #writeIndex(Path)}. The file is memory-mapped and
+     * queried in place, without loading the graph: {@link #getRootApps()},
+     * {@link #getAppsWith(Path)} and {@link #getDependenciesFor(Path)} answer from the mapped
+     * bytes, while {@link #getGraph()} and {@link #save(Path)} are not available.
+     * <p>
+     * Like {@link #load(Path)}, the index is used as it is, even if the files changed since.
+     *
+     * @param indexFile The file written by {@link #writeIndex(Path)}.
+     * @throws IOException If the file cannot be mapped or is not an index of this version.
+     */
+    public static KustomTrace openIndex(Path indexFile) throws IOException {
+        logger.info("Opening dev.zucca_ops.kustomtrace.KustomTrace index: {}", indexFile);
+        return new KustomTrace(GraphIndex.open(indexFile));
+    }
+
+    /**
+     * Writes the graph as a read-only {@link GraphIndex} for {@link #openIndex(Path)}.
+     *
+     * @param indexFile The file to write; replaced atomically.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void writeIndex(Path indexFile) throws IOException {
+        logger.info("Writing the Kustom graph index to: {}", indexFile);
+        GraphView current = view;
+        if (current instanceof GraphIndex index) {
+            Files.copy(index.getFile(), indexFile, StandardCopyOption.REPLACE_EXISTING);
+        } else if (current instanceof FrozenGraph frozen) {
+            GraphIndex.write(frozen, indexFile);
+        } else {
+            GraphIndex.write((KustomGraph) current, indexFile);
+        }
+    }
+
+    /**
+     * Builds the graph of {@code appsDir} as it is in a commit, reading the git object store
+     * directly instead of the working tree. Paths in the graph are the paths the files would
+     * have if the commit were checked out.
+     * <p>
+     * The returned instance keeps the commit's files readable, since some queries and
+     * updates look files up lazily, and holds the repository's packfiles open until it is
+     * {@link #close() closed}.
+     *
+     * @param appsDir  The apps directory, inside the repository's working tree.
+     * @param revision The commit to read, e.g. {@code HEAD}, {@code main~2} or an object id.
+     * @param options  The build options; any file source they set is replaced.
+     */
+    public static KustomTrace fromCommit(Path appsDir, String revision, BuildOptions options)
+            throws IOException {
+        logger.info(
+                "Creating dev.zucca_ops.kustomtrace.KustomTrace from directory {} at revision {}",
+                appsDir,
+                revision);
+        GitCommitSource source = GitCommitSource.open(appsDir, revision);
+        try {
+            KustomTrace trace = fromDirectory(appsDir, options.fileSource(source));
+            trace.commitSource = source;
+            return trace;
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
     }
 
+    public static KustomTrace fromCommit(Path appsDir, String revision) throws IOException {
+        return fromCommit(appsDir, revision, new BuildOptions());
+    }
+
+    /**
+     * @return The root application directories, in path order.
+     */
     public List<Path> getRootApps() {
         logger.debug("Getting all applications from the graph.");
-        return kustomizationsToPath(graph.getRootApps());
+        return directoriesOf(view.getRootAppPaths());
     }
 
-    private List<Path> kustomizationsToPath(List<Kustomization> apps) {
-        return apps.stream().map(Kustomization::getPath).map(Path::getParent).toList();
+    /**
+     * The directories of the kustomization files, sorted, so that every query answers in the
+     * same order whichever view or index it answers from.
+     */
+    private static List<Path> directoriesOf(List<Path> kustomizationFiles) {
+        return kustomizationFiles.stream().map(Path::getParent).sorted().toList();
     }
 
+    /**
+     * Finds the root applications that directly or indirectly include a file. While the
+     * {@link AffectedAppsIndex} is current, it answers from the index.
+     *
+     * @param file The file.
+     * @return The root application directories, each once, in path order.
+     * @throws UnreferencedFileException If the graph does not hold the file.
+     */
     public List<Path> getAppsWith(Path file) throws UnreferencedFileException {
         logger.debug("Getting applications referencing file: {}", file);
-        return kustomizationsToPath(graph.getRootAppsWithFile(file));
+        AffectedAppsIndex indexed = currentAffectedAppsIndex();
+        if (indexed != null) {
+            return directoriesOf(indexed.getRootAppsWithFile(file));
+        }
+        return directoriesOf(view.getRootAppPathsWithFile(file));
+    }
+
+    /**
+     * Finds the root applications that use a file, like {@link #getAppsWith(Path)}, for
+     * callers that expect files outside the graph: it looks the file up first, instead of
+     * throwing and catching an {@link UnreferencedFileException} for each of them.
+     *
+     * @param file The file.
+     * @return The root application directories, or empty if the graph does not hold the file.
+     */
+    public Optional<List<Path>> findAppsWith(Path file) {
+        if (!view.containsNode(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(getAppsWith(file));
+        } catch (UnreferencedFileException e) {
+            // Removed by a concurrent update since the lookup.
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finds the root applications that use each of the files, as {@link #findAppsWith(Path)}
+     * would for each. On an instance built or loaded in memory, this computes the
+     * {@link AffectedAppsIndex} on the first call, as {@link #indexAffectedApps()} does, so
+     * that each file is a single lookup however many apps share it.
+     *
+     * @param files The files, e.g. those changed by a commit.
+     * @return The root application directories of each file, in path order, or empty for a
+     *     file the graph does not hold; keyed by the absolute, normalized path of each file,
+     *     in the order of {@code files}.
+     */
+    public Map<Path, Optional<List<Path>>> findAppsWithEach(Collection<Path> files) {
+        logger.debug("Getting applications referencing each of {} file(s).", files.size());
+        AffectedAppsIndex indexed = view instanceof GraphIndex ? null : affectedAppsIndex();
+        Map<Path, Optional<List<Path>>> apps = new LinkedHashMap<>();
+        for (Path file : files) {
+            Path normalized = file.toAbsolutePath().normalize();
+            apps.computeIfAbsent(
+                    normalized,
+                    key ->
+                            indexed != null
+                                    ? indexed.findRootAppsWithFile(key)
+                                            .map(KustomTrace::directoriesOf)
+                                    : findAppsWith(key));
+        }
+        return apps;
+    }
+
+    /**
+     * Finds the root applications that use any of the files. Files the graph does not hold
+     * are skipped. On an instance built or loaded in memory, this computes the
+     * {@link AffectedAppsIndex} on the first call, as {@link #indexAffectedApps()} does, and
+     * answers with one bitmap OR per file.
+     *
+     * @param files The files, e.g. those changed by a commit.
+     * @return The root application directories, each once, in path order.
+     */
+    public List<Path> getAppsWithAny(Collection<Path> files) {
+        logger.debug("Getting applications referencing any of {} file(s).", files.size());
+        if (view instanceof GraphIndex) {
+            Set<Path> apps = new LinkedHashSet<>();
+            for (Path file : files) {
+                findAppsWith(file).ifPresent(apps::addAll);
+            }
+            return apps.stream().sorted().toList();
+        }
+        return directoriesOf(affectedAppsIndex().getRootAppsWithAnyFile(files));
+    }
+
+    /**
+     * Computes the {@link AffectedAppsIndex} of the graph now, instead of on the first
+     * {@link #getAppsWithAny(Collection)} or {@link #findAppsWithEach(Collection)} call. While
+     * it is current, {@link #getAppsWith(Path)} answers from it too. An
+     * {@link #update(Collection)} drops it. An instance opened from a graph index has none.
+     *
+     * @return This instance.
+     */
+    public synchronized KustomTrace indexAffectedApps() {
+        if (!(view instanceof GraphIndex)) {
+            affectedAppsIndex();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the {@link AffectedAppsIndex} of the current graph, computing it first if needed,
+     * under the same lock as {@link #update(Collection)} so that it is never the index of a
+     * graph the update replaced. A graph that is not frozen is numbered for the computation,
+     * not copied.
+     */
+    private synchronized AffectedAppsIndex affectedAppsIndex() {
+        AffectedAppsIndex indexed = currentAffectedAppsIndex();
+        if (indexed == null) {
+            GraphView current = view;
+            indexed =
+                    current instanceof FrozenGraph frozen
+                            ? frozen.getAffectedAppsIndex()
+                            : ((KustomGraph) current).computeAffectedAppsIndex();
+            affectedApps = indexed;
+            logger.debug("Affected apps indexed: {}.", indexed);
+        }
+        return indexed;
+    }
+
+    private AffectedAppsIndex currentAffectedAppsIndex() {
+        AffectedAppsIndex indexed = affectedApps;
+        if (indexed == null
+                && view instanceof FrozenGraph frozen
+                && frozen.hasAffectedAppsIndex()) {
+            indexed = frozen.getAffectedAppsIndex();
+        }
+        return indexed;
     }
 
     public List<Path> getDependenciesFor(Path app) throws KustomException {
         logger.debug("Getting dependencies for application at: {}", app);
-        return graph.getAllAppFiles(app);
+        return view.getAllAppFiles(app);
     }
 
+    /**
+     * Lists the files of every root application, as {@link #getDependenciesFor(Path)} would
+     * for each, in one pass: the files of a kustomization are collected once and shared by
+     * every kustomization referencing it. An instance opened from a graph index walks each app
+     * in turn.
+     *
+     * @return The files of each root application, keyed by its directory; applications and
+     *     files are in path order.
+     */
+    public Map<Path, List<Path>> getAllAppFiles() {
+        logger.debug("Getting the files of all applications.");
+        Map<Path, List<Path>> apps = new LinkedHashMap<>();
+        view.getAllAppFiles()
+                .forEach((kustomization, appFiles) -> apps.put(kustomization.getParent(), appFiles));
+        return apps;
+    }
+
+    /**
+     * @return The underlying graph.
+     * @throws IllegalStateException If this instance was opened from a graph index, or frozen.
+     */
     public KustomGraph getGraph() {
         logger.debug("Getting the underlying KustomGraph.");
-        return graph;
+        return requireGraph();
+    }
+
+    /**
+     * @return The frozen graph, or {@code null} if {@link #freeze()} was not called.
+     */
+    public FrozenGraph getFrozenGraph() {
+        return view instanceof FrozenGraph frozen ? frozen : null;
+    }
+
+    /**
+     * Releases what this instance holds open: the repository's packfiles for an instance
+     * built with {@link #fromCommit}. Instances built from a directory or loaded from a file
+     * hold nothing, and closing them has no effect. Closing twice has no further effect.
+     *
+     * @throws IOException If a packfile cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        GitCommitSource source = commitSource;
+        if (source != null) {
+            commitSource = null;
+            logger.debug("Closing {}.", source);
+            source.close();
+        }
+    }
+
+    private KustomGraph requireGraph() {
+        GraphView current = view;
+        if (current instanceof GraphIndex index) {
+            throw new IllegalStateException(
+                    "This KustomTrace is backed by the graph index " + index.getFile()
+                            + " and has no graph.");
+        }
+        if (current instanceof FrozenGraph) {
+            throw new IllegalStateException("This KustomTrace is frozen and has no graph.");
+        }
+        return (KustomGraph) current;
     }
 }
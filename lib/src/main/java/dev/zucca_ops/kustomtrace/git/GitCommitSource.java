@@ -0,0 +1,374 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.WalkStats;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link FileSource} reading the files of a commit straight from the git object store.
+ * <p>
+ * Files are reported at the paths they would have in the working tree, so a graph built from
+ * a commit can be queried with the same paths as one built from disk; the working tree itself
+ * is never read. Symbolic links inside the commit are followed; links leaving the repository
+ * resolve to nothing. Trees are parsed once and cached, and blobs are inflated in memory.
+ * <p>
+ * The source keeps the repository's packfiles open and must be closed when no longer needed.
+ */
+public final class GitCommitSource implements FileSource, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitCommitSource.class);
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MAX_SYMLINK_HOPS = 40;
+
+    private static final int MODE_TYPE_MASK = 0170000;
+    private static final int MODE_TREE = 0040000;
+    private static final int MODE_FILE = 0100000;
+    private static final int MODE_SYMLINK = 0120000;
+
+    private final GitObjectStore store;
+    private final Path workTree;
+    private final String commitId;
+    private final TreeEntry rootTree;
+    private final Map<String, Map<String, TreeEntry>> trees = new ConcurrentHashMap<>();
+
+    private GitCommitSource(GitObjectStore store, String commitId, String treeId) {
+        this.store = store;
+        this.workTree = store.getRepository().getWorkTree().toAbsolutePath().normalize();
+        this.commitId = commitId;
+        this.rootTree = new TreeEntry(MODE_TREE, treeId);
+    }
+
+    /**
+     * Opens the commit named by {@code revision} in the repository containing
+     * {@code directory}.
+     *
+     * @param directory A path inside the repository's working tree, such as the apps directory.
+     * @param revision  The commit to read; see {@link GitObjectStore#resolveCommit(String)}.
+     * @return The opened source.
+     * @throws IOException If there is no repository or the revision cannot be resolved.
+     */
+    public static GitCommitSource open(Path directory, String revision) throws IOException {
+        GitRepository repository =
+                GitRepository.find(directory)
+                        .orElseThrow(
+                                () -> new IOException("Not inside a git repository: " + directory));
+        GitObjectStore store = GitObjectStore.open(repository);
+        try {
+            String commitId = store.resolveCommit(revision);
+            String treeId = store.read(commitId, GitObject.Type.COMMIT).header("tree");
+            if (treeId == null) {
+                throw new IOException("Commit " + commitId + " has no tree");
+            }
+            logger.info("Reading files from commit {} ({})", commitId, revision);
+            return new GitCommitSource(store, commitId, treeId);
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The full id of the commit the files are read from.
+     */
+    public String getCommitId() {
+        return commitId;
+    }
+
+    @Override
+    public boolean isFile(Path path) {
+        TreeEntry entry = lookupQuietly(path);
+        return entry != null && entry.isFile();
+    }
+
+    @Override
+    public boolean isDirectory(Path path) {
+        TreeEntry entry = lookupQuietly(path);
+        return entry != null && entry.isTree();
+    }
+
+    @Override
+    public InputStream newInputStream(Path path) throws IOException {
+        TreeEntry entry = lookup(path);
+        if (entry == null || !entry.isFile()) {
+            throw new NoSuchFileException(
+                    path.toString(), null, "not a file in commit " + commitId);
+        }
+        return new ByteArrayInputStream(store.read(entry.id(), GitObject.Type.BLOB).data());
+    }
+
+    @Override
+    public WalkStats scan(
+            Path root, IgnoreRules ignoreRules, Predicate<Path> fileFilter, Consumer<Path> consumer)
+            throws IOException {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        TreeEntry rootEntry = lookup(normalizedRoot);
+        if (rootEntry == null || !rootEntry.isTree()) {
+            throw new NotDirectoryException(root.toString());
+        }
+
+        long start = System.currentTimeMillis();
+        Scan scan = new Scan(fileFilter);
+        scan.visitTree(normalizedRoot, rootEntry.id(), ignoreRules);
+        ForkJoinPool.commonPool()
+                .submit(() -> scan.matches.parallelStream().forEach(consumer))
+                .join();
+
+        WalkStats stats =
+                new WalkStats(scan.directories, scan.files, scan.matches.size(), scan.pruned);
+        logger.debug(
+                "Scan of {} at commit {} visited {} directories and {} files, {} matched, {}"
+                        + " pruned in {} ms.",
+                root,
+                commitId,
+                stats.directories(),
+                stats.files(),
+                stats.matches(),
+                stats.pruned(),
+                System.currentTimeMillis() - start);
+        return stats;
+    }
+
+    /** The state of a single scan; the trees are walked on the calling thread. */
+    private final class Scan {
+        private final Predicate<Path> fileFilter;
+        private final List<Path> matches = new ArrayList<>();
+        private long directories;
+        private long files;
+        private long pruned;
+
+        private Scan(Predicate<Path> fileFilter) {
+            this.fileFilter = fileFilter;
+        }
+
+        private void visitTree(Path directory, String treeId, IgnoreRules rules)
+                throws IOException {
+            directories++;
+            Map<String, TreeEntry> entries = tree(treeId);
+
+            IgnoreRules directoryRules = rules;
+            if (!rules.isEmpty()) {
+                List<String> ignoreFiles = new ArrayList<>(2);
+                for (String name : List.of(IgnoreRules.KUSTOMTRACE_IGNORE, IgnoreRules.GITIGNORE)) {
+                    TreeEntry entry = entries.get(name);
+                    if (entry != null && entry.isFile()) {
+                        ignoreFiles.add(name);
+                    }
+                }
+                if (!ignoreFiles.isEmpty()) {
+                    directoryRules = rules.enter(directory, ignoreFiles);
+                }
+            }
+
+            List<Map.Entry<String, TreeEntry>> subtrees = new ArrayList<>();
+            for (Map.Entry<String, TreeEntry> named : entries.entrySet()) {
+                TreeEntry entry = named.getValue();
+                if (entry.isTree()) {
+                    subtrees.add(named);
+                } else if (entry.isFile() || entry.isSymbolicLink()) {
+                    files++;
+                    visitFile(directory.resolve(named.getKey()), entry, directoryRules);
+                }
+                // Gitlinks (submodules) have no content in this repository.
+            }
+
+            for (Map.Entry<String, TreeEntry> subtree : subtrees) {
+                Path subdirectory = directory.resolve(subtree.getKey());
+                if (directoryRules.isIgnored(subdirectory, true)) {
+                    pruned++;
+                } else {
+                    visitTree(subdirectory, subtree.getValue().id(), directoryRules);
+                }
+            }
+        }
+
+        private void visitFile(Path file, TreeEntry entry, IgnoreRules rules) {
+            if (!fileFilter.test(file)) {
+                return;
+            }
+            if (rules.isIgnored(file, false)) {
+                pruned++;
+                return;
+            }
+            if (entry.isFile() || isFile(file)) {
+                matches.add(file);
+            }
+        }
+    }
+
+    private TreeEntry lookupQuietly(Path path) {
+        try {
+            return lookup(path);
+        } catch (IOException e) {
+            logger.warn("Could not read {} from commit {}: {}", path, commitId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Finds the entry at {@code path}, following symbolic links.
+     *
+     * @return The entry, or {@code null} if the path does not exist in the commit.
+     */
+    private TreeEntry lookup(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath().normalize();
+        if (!absolute.startsWith(workTree)) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        for (Path name : workTree.relativize(absolute)) {
+            if (!name.toString().isEmpty()) {
+                names.add(name.toString());
+            }
+        }
+
+        int hops = 0;
+        restart:
+        while (true) {
+            TreeEntry current = rootTree;
+            for (int i = 0; i < names.size(); i++) {
+                if (!current.isTree()) {
+                    return null;
+                }
+                TreeEntry entry = tree(current.id()).get(names.get(i));
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.isSymbolicLink()) {
+                    if (++hops > MAX_SYMLINK_HOPS) {
+                        return null;
+                    }
+                    names = followLink(names, i, entry);
+                    if (names == null) {
+                        return null;
+                    }
+                    continue restart;
+                }
+                current = entry;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Replaces the link at {@code names[index]} with its target.
+     *
+     * @return The new path from the repository root, or {@code null} if it leaves it.
+     */
+    private List<String> followLink(List<String> names, int index, TreeEntry link)
+            throws IOException {
+        byte[] target = store.read(link.id(), GitObject.Type.BLOB).data();
+        Path linkDirectory = workTree;
+        for (String name : names.subList(0, index)) {
+            linkDirectory = linkDirectory.resolve(name);
+        }
+        Path resolved = linkDirectory.resolve(new String(target, StandardCharsets.UTF_8));
+        for (String name : names.subList(index + 1, names.size())) {
+            resolved = resolved.resolve(name);
+        }
+        resolved = resolved.normalize();
+        if (!resolved.startsWith(workTree)) {
+            return null;
+        }
+        List<String> resolvedNames = new ArrayList<>();
+        for (Path name : workTree.relativize(resolved)) {
+            if (!name.toString().isEmpty()) {
+                resolvedNames.add(name.toString());
+            }
+        }
+        return resolvedNames;
+    }
+
+    private Map<String, TreeEntry> tree(String id) throws IOException {
+        Map<String, TreeEntry> cached = trees.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, TreeEntry> parsed = parseTree(store.read(id, GitObject.Type.TREE).data());
+        Map<String, TreeEntry> existing = trees.putIfAbsent(id, parsed);
+        return existing != null ? existing : parsed;
+    }
+
+    /** Parses the {@code <octal mode> <name>\0<raw id>} records of a tree object. */
+    private Map<String, TreeEntry> parseTree(byte[] data) throws IOException {
+        int hashLength = store.getRepository().getHashLength();
+        Map<String, TreeEntry> entries = new LinkedHashMap<>();
+        int position = 0;
+        while (position < data.length) {
+            int mode = 0;
+            while (position < data.length && data[position] != ' ') {
+                mode = (mode << 3) + (data[position++] - '0');
+            }
+            int nameStart = ++position;
+            while (position < data.length && data[position] != 0) {
+                position++;
+            }
+            if (position + 1 + hashLength > data.length) {
+                throw new IOException("Corrupt tree object in commit " + commitId);
+            }
+            String name = new String(data, nameStart, position - nameStart, StandardCharsets.UTF_8);
+            position++;
+            String id = HEX.formatHex(data, position, position + hashLength);
+            position += hashLength;
+            entries.put(name, new TreeEntry(mode, id));
+        }
+        return entries;
+    }
+
+    private record TreeEntry(int mode, String id) {
+        boolean isTree() {
+            return (mode & MODE_TYPE_MASK) == MODE_TREE;
+        }
+
+        boolean isFile() {
+            return (mode & MODE_TYPE_MASK) == MODE_FILE;
+        }
+
+        boolean isSymbolicLink() {
+            return (mode & MODE_TYPE_MASK) == MODE_SYMLINK;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    @Override
+    public String toString() {
+        return "git commit " + commitId;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Reader for the git index file ({@code .git/index}), versions 2, 3 and 4.
+ * <p>
+ * The whole file is read into memory and its trailing checksum is verified. Entries are
+ * decoded, including the prefix-compressed paths of version 4; extensions are skipped,
+ * except that the presence of a sparse-directory or a split-index extension is recorded.
+ *
+ * @see <a href="https://git-scm.com/docs/index-format">Git index format</a>
+ */
+public final class GitIndex {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    private static final int EXTENDED_FLAG = 0x4000;
+    private static final int SKIP_WORKTREE_FLAG = 0x4000;
+    private static final int NAME_MASK = 0x0FFF;
+    private static final int SPARSE_DIRECTORY_EXTENSION = 0x73646972; // "sdir"
+    private static final int SPLIT_INDEX_EXTENSION = 0x6C696E6B; // "link"
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final int version;
+    private final List<GitIndexEntry> entries;
+    private final boolean sparse;
+    private final boolean split;
+
+    private GitIndex(int version, List<GitIndexEntry> entries, boolean sparse, boolean split) {
+        this.version = version;
+        this.entries = entries;
+        this.sparse = sparse;
+        this.split = split;
+    }
+
+    /**
+     * Reads a SHA-1 repository's index file.
+     *
+     * @param indexFile The index file.
+     * @return The decoded index.
+     * @throws IOException If the file cannot be read, has an unsupported version or is corrupt.
+     */
+    public static GitIndex read(Path indexFile) throws IOException {
+        return read(indexFile, 20);
+    }
+
+    /**
+     * Reads an index file.
+     *
+     * @param indexFile  The index file.
+     * @param hashLength The object id length of the repository, 20 or 32 bytes.
+     * @return The decoded index.
+     * @throws IOException If the file cannot be read, has an unsupported version or is corrupt.
+     */
+    public static GitIndex read(Path indexFile, int hashLength) throws IOException {
+        byte[] data = Files.readAllBytes(indexFile);
+        try {
+            return parse(data, hashLength);
+        } catch (RuntimeException e) {
+            // Buffer underflows and bad offsets all mean the same thing to the caller.
+            throw new IOException("Corrupt git index " + indexFile + ": " + e, e);
+        }
+    }
+
+    static GitIndex parse(byte[] data, int hashLength) throws IOException {
+        if (data.length < 12 + hashLength) {
+            throw new IOException("Git index is truncated");
+        }
+        verifyChecksum(data, hashLength);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, data.length - hashLength);
+        if (buffer.getInt() != SIGNATURE) {
+            throw new IOException("Not a git index: bad signature");
+        }
+        int version = buffer.getInt();
+        if (version < 2 || version > 4) {
+            throw new IOException("Unsupported git index version " + version);
+        }
+        int count = buffer.getInt();
+
+        List<GitIndexEntry> entries = new ArrayList<>(count);
+        byte[] previousPath = new byte[0];
+        byte[] objectId = new byte[hashLength];
+        for (int i = 0; i < count; i++) {
+            int entryStart = buffer.position();
+            buffer.position(entryStart + 8); // ctime
+            long mtimeSeconds = Integer.toUnsignedLong(buffer.getInt());
+            int mtimeNanos = buffer.getInt();
+            buffer.position(buffer.position() + 8); // dev, ino
+            int mode = buffer.getInt();
+            buffer.position(buffer.position() + 8); // uid, gid
+            long size = Integer.toUnsignedLong(buffer.getInt());
+            buffer.get(objectId);
+            int flags = Short.toUnsignedInt(buffer.getShort());
+            int extendedFlags = 0;
+            if ((flags & EXTENDED_FLAG) != 0) {
+                if (version < 3) {
+                    throw new IOException("Extended flags in a version 2 index");
+                }
+                extendedFlags = Short.toUnsignedInt(buffer.getShort());
+            }
+
+            byte[] path;
+            if (version == 4) {
+                int strip = (int) readOffset(buffer);
+                byte[] suffix = readNulTerminated(buffer);
+                int keep = previousPath.length - strip;
+                if (keep < 0) {
+                    throw new IOException("Bad path prefix length in entry " + i);
+                }
+                path = Arrays.copyOf(previousPath, keep + suffix.length);
+                System.arraycopy(suffix, 0, path, keep, suffix.length);
+            } else {
+                int nameLength = flags & NAME_MASK;
+                if (nameLength < NAME_MASK) {
+                    path = new byte[nameLength];
+                    buffer.get(path);
+                    buffer.get(); // NUL
+                } else {
+                    path = readNulTerminated(buffer);
+                }
+                // Entries are padded with NULs to a multiple of eight bytes.
+                int length = buffer.position() - entryStart;
+                buffer.position(entryStart + ((length + 7) & ~7));
+            }
+            previousPath = path;
+
+            entries.add(
+                    new GitIndexEntry(
+                            new String(path, StandardCharsets.UTF_8),
+                            mode,
+                            size,
+                            mtimeSeconds,
+                            mtimeNanos,
+                            HEX.formatHex(objectId),
+                            (flags >> 12) & 0x3,
+                            (extendedFlags & SKIP_WORKTREE_FLAG) != 0));
+        }
+
+        boolean sparse = false;
+        boolean split = false;
+        while (buffer.remaining() >= 8) {
+            int signature = buffer.getInt();
+            int size = buffer.getInt();
+            sparse |= signature == SPARSE_DIRECTORY_EXTENSION;
+            split |= signature == SPLIT_INDEX_EXTENSION;
+            buffer.position(buffer.position() + size);
+        }
+        sparse |= entries.stream().anyMatch(GitIndexEntry::isDirectory);
+
+        return new GitIndex(version, List.copyOf(entries), sparse, split);
+    }
+
+    private static void verifyChecksum(byte[] data, int hashLength) throws IOException {
+        int contentLength = data.length - hashLength;
+        byte[] expected = Arrays.copyOfRange(data, contentLength, data.length);
+        boolean skipHash = true; // index.skipHash writes an all-zero checksum
+        for (byte b : expected) {
+            skipHash &= b == 0;
+        }
+        if (skipHash) {
+            return;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance(hashLength == 32 ? "SHA-256" : "SHA-1");
+            digest.update(data, 0, contentLength);
+            if (!MessageDigest.isEqual(expected, digest.digest())) {
+                throw new IOException("Git index checksum mismatch");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Reads git's variable-length offset encoding, used for version 4 path prefixes. */
+    private static long readOffset(ByteBuffer buffer) {
+        int c = buffer.get() & 0xFF;
+        long value = c & 0x7F;
+        while ((c & 0x80) != 0) {
+            c = buffer.get() & 0xFF;
+            value = ((value + 1) << 7) | (c & 0x7F);
+        }
+        return value;
+    }
+
+    private static byte[] readNulTerminated(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(bytes);
+        buffer.get(); // NUL
+        return bytes;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public List<GitIndexEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * @return {@code true} if the index collapses directories outside a sparse checkout into
+     *         single entries, so it does not list every tracked file.
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * @return {@code true} if the index is split ({@code core.splitIndex}): most entries are
+     *         in a shared index file, and this one only lists those changed since.
+     */
+    public boolean isSplit() {
+        return split;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+/**
+ * A single entry of the git index.
+ *
+ * @param path          The path relative to the working tree root, separated by {@code /}.
+ * @param mode          The git file mode, e.g. {@code 0100644}.
+ * @param size          The file size recorded when the entry was last refreshed (truncated to
+ *                      32 bits by git).
+ * @param mtimeSeconds  The modification time recorded for the entry, in seconds.
+ * @param mtimeNanos    The nanosecond part of the modification time.
+ * @param objectId      The id of the blob, as a lowercase hexadecimal string.
+ * @param stage         The merge stage; 0 for entries that are not in conflict.
+ * @param skipWorktree  Whether the entry is outside a sparse checkout.
+ */
+public record GitIndexEntry(
+        String path,
+        int mode,
+        long size,
+        long mtimeSeconds,
+        int mtimeNanos,
+        String objectId,
+        int stage,
+        boolean skipWorktree) {
+
+    private static final int TYPE_MASK = 0170000;
+
+    public boolean isRegularFile() {
+        return (mode & TYPE_MASK) == 0100000;
+    }
+
+    public boolean isSymbolicLink() {
+        return (mode & TYPE_MASK) == 0120000;
+    }
+
+    public boolean isGitlink() {
+        return (mode & TYPE_MASK) == 0160000;
+    }
+
+    /**
+     * @return {@code true} for the directory entries of a sparse index.
+     */
+    public boolean isDirectory() {
+        return (mode & TYPE_MASK) == 0040000;
+    }
+}
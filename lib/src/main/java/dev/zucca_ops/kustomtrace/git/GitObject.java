@@ -0,0 +1,95 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * An inflated git object.
+ *
+ * @param type The object type.
+ * @param data The object content, without the loose-object header.
+ */
+public record GitObject(Type type, byte[] data) {
+
+    /** The git object types; deltas are resolved before objects are returned. */
+    public enum Type {
+        COMMIT("commit"),
+        TREE("tree"),
+        BLOB("blob"),
+        TAG("tag");
+
+        private final String gitName;
+
+        Type(String gitName) {
+            this.gitName = gitName;
+        }
+
+        public String gitName() {
+            return gitName;
+        }
+
+        static Type fromGitName(String name) throws IOException {
+            for (Type type : values()) {
+                if (type.gitName.equals(name)) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown git object type: " + name);
+        }
+
+        static Type fromPackCode(int code) throws IOException {
+            return switch (code) {
+                case 1 -> COMMIT;
+                case 2 -> TREE;
+                case 3 -> BLOB;
+                case 4 -> TAG;
+                default -> throw new IOException("Unknown packed object type: " + code);
+            };
+        }
+    }
+
+    /**
+     * Reads the value of a header line, such as {@code tree} in a commit or {@code object} in
+     * a tag. Only the header block, up to the first blank line, is searched.
+     *
+     * @param name The header name.
+     * @return The first value of the header, or {@code null} if the header is absent.
+     */
+    public String header(String name) {
+        List<String> values = headers(name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Reads every value of a repeated header line, such as {@code parent} in a commit.
+     *
+     * @param name The header name.
+     * @return The values, in order.
+     */
+    public List<String> headers(String name) {
+        String text = new String(data, StandardCharsets.UTF_8);
+        int end = text.indexOf("\n\n");
+        String prefix = name + " ";
+        return (end < 0 ? text : text.substring(0, end))
+                .lines()
+                .filter(line -> line.startsWith(prefix))
+                .map(line -> line.substring(prefix.length()))
+                .toList();
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.zip.InflaterInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only access to a repository's object database: loose objects, packfiles and the
+ * object directories listed in {@code objects/info/alternates}.
+ * <p>
+ * Objects are inflated in memory; nothing is written to disk. Instances are thread-safe and
+ * keep the packfiles open until {@link #close()}; no object can be read after that.
+ */
+public final class GitObjectStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitObjectStore.class);
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MIN_ABBREVIATION = 4;
+    private static final int MAX_TAG_DEPTH = 10;
+
+    private final GitRepository repository;
+    private final List<Path> objectDirectories;
+    private final List<PackFile> packs;
+    private volatile boolean closed;
+
+    private GitObjectStore(
+            GitRepository repository, List<Path> objectDirectories, List<PackFile> packs) {
+        this.repository = repository;
+        this.objectDirectories = objectDirectories;
+        this.packs = packs;
+    }
+
+    /**
+     * Opens the object database of {@code repository}.
+     *
+     * @param repository The repository.
+     * @return The opened store.
+     * @throws IOException If a pack index cannot be read.
+     */
+    public static GitObjectStore open(GitRepository repository) throws IOException {
+        List<Path> objectDirectories = new ArrayList<>();
+        collectObjectDirectories(repository.getCommonDir().resolve("objects"), objectDirectories);
+
+        List<PackFile> packs = new ArrayList<>();
+        try {
+            for (Path objectDirectory : objectDirectories) {
+                Path packDirectory = objectDirectory.resolve("pack");
+                if (!Files.isDirectory(packDirectory)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> indexes =
+                        Files.newDirectoryStream(packDirectory, "*.idx")) {
+                    for (Path index : indexes) {
+                        packs.add(PackFile.open(index, repository.getHashLength()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            for (PackFile pack : packs) {
+                pack.close();
+            }
+            throw e;
+        }
+        logger.debug(
+                "Opened git object store with {} object directories and {} packs",
+                objectDirectories.size(),
+                packs.size());
+        return new GitObjectStore(repository, List.copyOf(objectDirectories), List.copyOf(packs));
+    }
+
+    private static void collectObjectDirectories(Path objectDirectory, List<Path> directories)
+            throws IOException {
+        Path normalized = objectDirectory.toAbsolutePath().normalize();
+        if (directories.contains(normalized) || !Files.isDirectory(normalized)) {
+            return;
+        }
+        directories.add(normalized);
+        Path alternates = normalized.resolve("info").resolve("alternates");
+        if (Files.isRegularFile(alternates)) {
+            for (String line : Files.readAllLines(alternates)) {
+                String alternate = line.trim();
+                if (!alternate.isEmpty() && !alternate.startsWith("#")) {
+                    collectObjectDirectories(normalized.resolve(alternate), directories);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an object, resolving deltas if it is packed.
+     *
+     * @param id The full hexadecimal object id.
+     * @return The object.
+     * @throws NoSuchFileException If no object has this id.
+     * @throws IOException         If the object cannot be read or is corrupt, or the store is
+     *                             closed.
+     */
+    public GitObject read(String id) throws IOException {
+        if (closed) {
+            throw new IOException("Git object store of " + repository.getWorkTree() + " is closed");
+        }
+        if (id.length() != repository.getHashLength() * 2) {
+            throw new IllegalArgumentException("Not a full object id: " + id);
+        }
+        for (Path objectDirectory : objectDirectories) {
+            Path loose = objectDirectory.resolve(id.substring(0, 2)).resolve(id.substring(2));
+            if (Files.isRegularFile(loose)) {
+                return readLoose(loose);
+            }
+        }
+        byte[] rawId = HEX.parseHex(id);
+        for (PackFile pack : packs) {
+            long offset = pack.find(rawId);
+            if (offset >= 0) {
+                return pack.read(offset, this);
+            }
+        }
+        throw new NoSuchFileException("Git object " + id);
+    }
+
+    /**
+     * Reads an object and checks its type.
+     *
+     * @param id   The full hexadecimal object id.
+     * @param type The expected type.
+     * @return The object.
+     * @throws IOException If the object is missing, unreadable or of another type.
+     */
+    public GitObject read(String id, GitObject.Type type) throws IOException {
+        GitObject object = read(id);
+        if (object.type() != type) {
+            throw new IOException(
+                    "Git object " + id + " is a " + object.type().gitName() + ", not a "
+                            + type.gitName());
+        }
+        return object;
+    }
+
+    /**
+     * Expands an abbreviated object id.
+     *
+     * @param prefix At least four hexadecimal digits.
+     * @return The full ids starting with {@code prefix}, in sorted order.
+     * @throws IOException If an object directory cannot be listed.
+     */
+    public List<String> resolvePrefix(String prefix) throws IOException {
+        String lowerPrefix = prefix.toLowerCase();
+        TreeSet<String> matches = new TreeSet<>();
+        for (Path objectDirectory : objectDirectories) {
+            Path fanout = objectDirectory.resolve(lowerPrefix.substring(0, 2));
+            if (!Files.isDirectory(fanout)) {
+                continue;
+            }
+            try (DirectoryStream<Path> objects = Files.newDirectoryStream(fanout)) {
+                for (Path object : objects) {
+                    String id = lowerPrefix.substring(0, 2) + object.getFileName();
+                    if (id.startsWith(lowerPrefix)) {
+                        matches.add(id);
+                    }
+                }
+            }
+        }
+        for (PackFile pack : packs) {
+            matches.addAll(pack.findByPrefix(lowerPrefix));
+        }
+        return List.copyOf(matches);
+    }
+
+    /**
+     * Resolves a revision to a commit id. Supported forms are full and abbreviated object
+     * ids, {@code HEAD} (or {@code @}), branch, tag and remote-tracking names as accepted by
+     * {@link GitRepository#resolveRef(String)}, each optionally followed by {@code ~<n>} and
+     * {@code ^<n>} suffixes. Annotated tags are peeled to the commit they point to.
+     *
+     * @param revision The revision.
+     * @return The full id of the commit.
+     * @throws IOException If the revision cannot be resolved to a commit.
+     */
+    public String resolveCommit(String revision) throws IOException {
+        int suffixStart = revision.length();
+        while (suffixStart > 0) {
+            int i = suffixStart;
+            while (i > 0 && Character.isDigit(revision.charAt(i - 1))) {
+                i--;
+            }
+            if (i > 0 && (revision.charAt(i - 1) == '~' || revision.charAt(i - 1) == '^')) {
+                suffixStart = i - 1;
+            } else {
+                break;
+            }
+        }
+        String base = revision.substring(0, suffixStart);
+        if (base.isEmpty() && suffixStart < revision.length()) {
+            base = "HEAD";
+        }
+        String commit = peelToCommit(resolveObject(base.equals("@") ? "HEAD" : base), revision);
+
+        int i = suffixStart;
+        while (i < revision.length()) {
+            char operator = revision.charAt(i++);
+            int digitsStart = i;
+            while (i < revision.length() && Character.isDigit(revision.charAt(i))) {
+                i++;
+            }
+            int count = digitsStart == i ? 1 : Integer.parseInt(revision.substring(digitsStart, i));
+            if (operator == '~') {
+                for (int step = 0; step < count; step++) {
+                    commit = parent(commit, 1, revision);
+                }
+            } else if (count > 0) {
+                commit = parent(commit, count, revision);
+            }
+        }
+        return commit;
+    }
+
+    private String resolveObject(String name) throws IOException {
+        if (repository.isObjectId(name)) {
+            return name.toLowerCase();
+        }
+        Optional<String> ref = repository.resolveRef(name);
+        if (ref.isPresent()) {
+            return ref.get();
+        }
+        if (name.length() >= MIN_ABBREVIATION && GitRepository.isHex(name)) {
+            List<String> matches = resolvePrefix(name);
+            if (matches.size() == 1) {
+                return matches.get(0);
+            }
+            if (matches.size() > 1) {
+                throw new IOException("Ambiguous revision: " + name);
+            }
+        }
+        throw new IOException("Unknown revision: " + name);
+    }
+
+    private String peelToCommit(String id, String revision) throws IOException {
+        String current = id;
+        for (int depth = 0; depth <= MAX_TAG_DEPTH; depth++) {
+            GitObject object = read(current);
+            switch (object.type()) {
+                case COMMIT -> {
+                    return current;
+                }
+                case TAG -> current = object.header("object");
+                default -> throw new IOException(
+                        "Revision " + revision + " is a " + object.type().gitName()
+                                + ", not a commit");
+            }
+            if (current == null) {
+                throw new IOException("Corrupt tag object for revision " + revision);
+            }
+        }
+        throw new IOException("Too many nested tags for revision " + revision);
+    }
+
+    private String parent(String commit, int number, String revision) throws IOException {
+        List<String> parents = read(commit, GitObject.Type.COMMIT).headers("parent");
+        if (number > parents.size()) {
+            throw new IOException("Revision " + revision + " does not exist: commit "
+                    + commit + " has " + parents.size() + " parent(s)");
+        }
+        return parents.get(number - 1);
+    }
+
+    private static GitObject readLoose(Path file) throws IOException {
+        byte[] content;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+            content = in.readAllBytes();
+        }
+        int space = indexOf(content, (byte) ' ', 0);
+        int nul = indexOf(content, (byte) 0, Math.max(space, 0));
+        if (space < 0 || nul < 0) {
+            throw new IOException("Corrupt loose object " + file);
+        }
+        GitObject.Type type =
+                GitObject.Type.fromGitName(
+                        new String(content, 0, space, StandardCharsets.US_ASCII));
+        String declaredSize =
+                new String(content, space + 1, nul - space - 1, StandardCharsets.US_ASCII);
+        int size;
+        try {
+            size = Integer.parseInt(declaredSize);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt loose object " + file, e);
+        }
+        if (size != content.length - nul - 1) {
+            throw new IOException("Corrupt loose object " + file);
+        }
+        byte[] data = new byte[size];
+        System.arraycopy(content, nul + 1, data, 0, size);
+        return new GitObject(type, data);
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public GitRepository getRepository() {
+        return repository;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        IOException failure = null;
+        for (PackFile pack : packs) {
+            try {
+                pack.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
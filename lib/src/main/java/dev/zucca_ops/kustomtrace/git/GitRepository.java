@@ -0,0 +1,269 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local git repository: its working tree and the directories holding its metadata.
+ * <p>
+ * Only the on-disk layout is read; no git executable is needed. Linked worktrees, whose
+ * {@code .git} is a file pointing at the real git directory, are supported.
+ */
+public final class GitRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitRepository.class);
+    private static final int MAX_SYMREF_DEPTH = 5;
+
+    private final Path workTree;
+    private final Path gitDir;
+    private final Path commonDir;
+    private final int hashLength;
+
+    private GitRepository(Path workTree, Path gitDir, Path commonDir, int hashLength) {
+        this.workTree = workTree;
+        this.gitDir = gitDir;
+        this.commonDir = commonDir;
+        this.hashLength = hashLength;
+    }
+
+    /**
+     * Finds the repository containing {@code start}, looking in {@code start} and its parents.
+     *
+     * @param start A directory inside the working tree.
+     * @return The repository, or empty if {@code start} is not inside one.
+     * @throws IOException If a {@code .git} file or the repository config cannot be read.
+     */
+    public static Optional<GitRepository> find(Path start) throws IOException {
+        for (Path current = start.toAbsolutePath().normalize();
+                current != null;
+                current = current.getParent()) {
+            Path dotGit = current.resolve(".git");
+            if (Files.isDirectory(dotGit)) {
+                return Optional.of(open(current, dotGit));
+            }
+            if (Files.isRegularFile(dotGit)) {
+                return Optional.of(open(current, readGitDirFile(dotGit)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static GitRepository open(Path workTree, Path gitDir) throws IOException {
+        Path commonDir = gitDir;
+        Path commonDirFile = gitDir.resolve("commondir");
+        if (Files.isRegularFile(commonDirFile)) {
+            commonDir = gitDir.resolve(Files.readString(commonDirFile).trim()).normalize();
+        }
+        int hashLength = "sha256".equals(readObjectFormat(commonDir.resolve("config"))) ? 32 : 20;
+        logger.debug("Found git repository at {} (git dir {})", workTree, gitDir);
+        return new GitRepository(workTree, gitDir, commonDir, hashLength);
+    }
+
+    private static Path readGitDirFile(Path dotGit) throws IOException {
+        String content = Files.readString(dotGit).trim();
+        if (!content.startsWith("gitdir:")) {
+            throw new IOException("Unrecognized .git file: " + dotGit);
+        }
+        return dotGit.getParent().resolve(content.substring("gitdir:".length()).trim()).normalize();
+    }
+
+    /** Reads {@code extensions.objectFormat}, the only config value the readers depend on. */
+    private static String readObjectFormat(Path config) throws IOException {
+        if (!Files.isRegularFile(config)) {
+            return null;
+        }
+        boolean inExtensions = false;
+        for (String rawLine : Files.readAllLines(config)) {
+            String line = rawLine.trim();
+            if (line.startsWith("[")) {
+                inExtensions = line.toLowerCase().startsWith("[extensions");
+            } else if (inExtensions) {
+                int equals = line.indexOf('=');
+                if (equals > 0
+                        && line.substring(0, equals).trim().equalsIgnoreCase("objectformat")) {
+                    return line.substring(equals + 1).trim().toLowerCase();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists the files tracked in the index that lie under {@code directory}, without touching
+     * the working tree.
+     * <p>
+     * Only stage-0 entries for regular files and symbolic links are returned; submodules,
+     * unmerged entries and entries outside a sparse checkout are left out.
+     *
+     * @param directory A directory inside the working tree.
+     * @return The tracked paths, relative to {@code directory} and separated by {@code /}, or
+     *         empty if there is no index or it cannot be used (e.g. a sparse or split index).
+     * @throws IOException If the index exists but cannot be read or is corrupt.
+     */
+    public Optional<List<String>> trackedFiles(Path directory) throws IOException {
+        Path indexFile = gitDir.resolve("index");
+        if (!Files.isRegularFile(indexFile)) {
+            logger.debug("No git index at {}", indexFile);
+            return Optional.empty();
+        }
+
+        GitIndex index = GitIndex.read(indexFile, hashLength);
+        if (index.isSparse()) {
+            logger.info("Git index at {} is sparse; it does not list every file.", indexFile);
+            return Optional.empty();
+        }
+        if (index.isSplit()) {
+            logger.info(
+                    "Git index at {} is split; it only lists the entries changed since its shared"
+                            + " index.",
+                    indexFile);
+            return Optional.empty();
+        }
+
+        String prefix =
+                workTree.relativize(directory.toAbsolutePath().normalize())
+                        .toString()
+                        .replace(File.separatorChar, '/');
+        prefix = prefix.isEmpty() ? "" : prefix + "/";
+
+        List<String> files = new ArrayList<>();
+        for (GitIndexEntry entry : index.entries()) {
+            if (entry.stage() == 0
+                    && !entry.skipWorktree()
+                    && (entry.isRegularFile() || entry.isSymbolicLink())
+                    && entry.path().startsWith(prefix)) {
+                files.add(entry.path().substring(prefix.length()));
+            }
+        }
+        logger.debug(
+                "Git index at {} (version {}) lists {} file(s) under {}",
+                indexFile,
+                index.version(),
+                files.size(),
+                directory);
+        return Optional.of(files);
+    }
+
+    /**
+     * Resolves a reference name the way {@code git rev-parse} does, trying {@code <name>},
+     * {@code refs/<name>}, {@code refs/tags/<name>}, {@code refs/heads/<name>},
+     * {@code refs/remotes/<name>} and {@code refs/remotes/<name>/HEAD} in turn. Loose refs
+     * and {@code packed-refs} are read; symbolic refs such as {@code HEAD} are followed.
+     *
+     * @param name A reference name, such as {@code HEAD}, {@code main} or {@code v1.0}.
+     * @return The object id the reference points to, or empty if no reference matches.
+     * @throws IOException If a reference file cannot be read.
+     */
+    public Optional<String> resolveRef(String name) throws IOException {
+        List<String> candidates =
+                List.of(
+                        name,
+                        "refs/" + name,
+                        "refs/tags/" + name,
+                        "refs/heads/" + name,
+                        "refs/remotes/" + name,
+                        "refs/remotes/" + name + "/HEAD");
+        for (String candidate : candidates) {
+            Optional<String> id = readRef(candidate, 0);
+            if (id.isPresent()) {
+                return id;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<String> readRef(String name, int depth) throws IOException {
+        if (depth > MAX_SYMREF_DEPTH || name.contains("..") || name.startsWith("/")) {
+            return Optional.empty();
+        }
+        // HEAD and other pseudo-refs are per worktree; everything under refs/ is shared.
+        Path refFile = (name.startsWith("refs/") ? commonDir : gitDir).resolve(name);
+        if (Files.isRegularFile(refFile)) {
+            String content = Files.readString(refFile).trim();
+            if (content.startsWith("ref:")) {
+                return readRef(content.substring("ref:".length()).trim(), depth + 1);
+            }
+            return isObjectId(content) ? Optional.of(content.toLowerCase()) : Optional.empty();
+        }
+        if (!name.startsWith("refs/")) {
+            return Optional.empty();
+        }
+
+        Path packedRefs = commonDir.resolve("packed-refs");
+        if (Files.isRegularFile(packedRefs)) {
+            for (String line : Files.readAllLines(packedRefs)) {
+                if (line.startsWith("#") || line.startsWith("^")) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space > 0 && line.substring(space + 1).trim().equals(name)) {
+                    String id = line.substring(0, space);
+                    return isObjectId(id) ? Optional.of(id.toLowerCase()) : Optional.empty();
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param candidate A string to check.
+     * @return {@code true} if {@code candidate} is a full hexadecimal object id for this
+     *         repository's hash algorithm.
+     */
+    public boolean isObjectId(String candidate) {
+        return candidate.length() == hashLength * 2 && isHex(candidate);
+    }
+
+    static boolean isHex(String candidate) {
+        for (int i = 0; i < candidate.length(); i++) {
+            if (Character.digit(candidate.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return !candidate.isEmpty();
+    }
+
+    public Path getWorkTree() {
+        return workTree;
+    }
+
+    public Path getGitDir() {
+        return gitDir;
+    }
+
+    /**
+     * @return The directory holding objects and refs shared by all worktrees.
+     */
+    public Path getCommonDir() {
+        return commonDir;
+    }
+
+    /**
+     * @return The length in bytes of object ids: 20 for SHA-1, 32 for SHA-256 repositories.
+     */
+    public int getHashLength() {
+        return hashLength;
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.git;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A packfile and its index, read with positional reads so it can be shared between threads.
+ * <p>
+ * Index versions 1 and 2 are supported. Deltified objects ({@code OFS_DELTA} and
+ * {@code REF_DELTA}) are resolved against their bases, which are kept in a small cache
+ * because many objects in a pack share the same bases.
+ *
+ * @see <a href="https://git-scm.com/docs/pack-format">Git pack format</a>
+ */
+final class PackFile implements Closeable {
+
+    private static final int IDX_V2_MAGIC = 0xFF744F63;
+    private static final int OFS_DELTA = 6;
+    private static final int REF_DELTA = 7;
+    private static final int BASE_CACHE_ENTRIES = 256;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path packPath;
+    private final FileChannel channel;
+    private final int hashLength;
+    private final int[] fanout = new int[256];
+    private final byte[] names;
+    private final long[] offsets;
+    private final Map<Long, GitObject> baseCache =
+            new LinkedHashMap<>(BASE_CACHE_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, GitObject> eldest) {
+                    return size() > BASE_CACHE_ENTRIES;
+                }
+            };
+
+    private PackFile(
+            Path packPath, FileChannel channel, int hashLength, byte[] names, long[] offsets) {
+        this.packPath = packPath;
+        this.channel = channel;
+        this.hashLength = hashLength;
+        this.names = names;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Opens a pack from its {@code .idx} file; the {@code .pack} file must sit next to it.
+     */
+    static PackFile open(Path indexPath, int hashLength) throws IOException {
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        int[] fanout = new int[256];
+        byte[] names;
+        long[] offsets;
+
+        if (index.getInt(0) == IDX_V2_MAGIC) {
+            int version = index.getInt(4);
+            if (version != 2) {
+                throw new IOException(
+                        "Unsupported pack index version " + version + ": " + indexPath);
+            }
+            index.position(8);
+            for (int i = 0; i < 256; i++) {
+                fanout[i] = index.getInt();
+            }
+            int count = fanout[255];
+            names = new byte[count * hashLength];
+            index.get(names);
+            index.position(index.position() + count * 4); // CRC32s
+            int smallOffsets = index.position();
+            int largeOffsets = smallOffsets + count * 4;
+            offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                int offset = index.getInt(smallOffsets + i * 4);
+                offsets[i] =
+                        offset < 0
+                                ? index.getLong(largeOffsets + (offset & 0x7FFFFFFF) * 8)
+                                : offset;
+            }
+        } else {
+            for (int i = 0; i < 256; i++) {
+                fanout[i] = index.getInt();
+            }
+            int count = fanout[255];
+            names = new byte[count * hashLength];
+            offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = Integer.toUnsignedLong(index.getInt());
+                index.get(names, i * hashLength, hashLength);
+            }
+        }
+
+        String indexName = indexPath.getFileName().toString();
+        Path packPath =
+                indexPath.resolveSibling(
+                        indexName.substring(0, indexName.length() - ".idx".length()) + ".pack");
+        PackFile pack =
+                new PackFile(
+                        packPath,
+                        FileChannel.open(packPath, StandardOpenOption.READ),
+                        hashLength,
+                        names,
+                        offsets);
+        System.arraycopy(fanout, 0, pack.fanout, 0, 256);
+        return pack;
+    }
+
+    /**
+     * @return The offset of the object in the pack, or -1 if the pack does not contain it.
+     */
+    long find(byte[] id) {
+        int first = id[0] & 0xFF;
+        int low = first == 0 ? 0 : fanout[first - 1];
+        int high = fanout[first] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison =
+                    Arrays.compareUnsigned(
+                            names,
+                            middle * hashLength,
+                            (middle + 1) * hashLength,
+                            id,
+                            0,
+                            hashLength);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return offsets[middle];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lists the ids in the pack starting with the given hexadecimal prefix.
+     */
+    List<String> findByPrefix(String hexPrefix) {
+        List<String> matches = new ArrayList<>();
+        int count = offsets.length;
+        for (int i = 0; i < count; i++) {
+            String id = HEX.formatHex(names, i * hashLength, (i + 1) * hashLength);
+            if (id.startsWith(hexPrefix)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Reads and, if needed, undeltifies the object at {@code offset}.
+     *
+     * @param offset The object's offset in the pack.
+     * @param store  The store used to look up the bases of {@code REF_DELTA} objects.
+     */
+    GitObject read(long offset, GitObjectStore store) throws IOException {
+        byte[] header = new byte[32];
+        int read = readAtMost(header, offset);
+
+        int position = 0;
+        int c = header[position++] & 0xFF;
+        int typeCode = (c >> 4) & 0x7;
+        long size = c & 0x0F;
+        int shift = 4;
+        while ((c & 0x80) != 0) {
+            c = header[position++] & 0xFF;
+            size |= (long) (c & 0x7F) << shift;
+            shift += 7;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Object too large at offset " + offset + " in " + packPath);
+        }
+
+        switch (typeCode) {
+            case OFS_DELTA -> {
+                c = header[position++] & 0xFF;
+                long distance = c & 0x7F;
+                while ((c & 0x80) != 0) {
+                    c = header[position++] & 0xFF;
+                    distance = ((distance + 1) << 7) | (c & 0x7F);
+                }
+                GitObject base = readBase(offset - distance, store);
+                byte[] delta = inflate(offset + position, (int) size);
+                return new GitObject(base.type(), applyDelta(base.data(), delta));
+            }
+            case REF_DELTA -> {
+                if (position + hashLength > read) {
+                    throw new EOFException("Truncated object header in " + packPath);
+                }
+                String baseId = HEX.formatHex(header, position, position + hashLength);
+                position += hashLength;
+                long baseOffset = find(Arrays.copyOfRange(header, position - hashLength, position));
+                GitObject base =
+                        baseOffset >= 0 ? readBase(baseOffset, store) : store.read(baseId);
+                byte[] delta = inflate(offset + position, (int) size);
+                return new GitObject(base.type(), applyDelta(base.data(), delta));
+            }
+            default -> {
+                GitObject.Type type = GitObject.Type.fromPackCode(typeCode);
+                return new GitObject(type, inflate(offset + position, (int) size));
+            }
+        }
+    }
+
+    private GitObject readBase(long offset, GitObjectStore store) throws IOException {
+        synchronized (baseCache) {
+            GitObject cached = baseCache.get(offset);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        GitObject base = read(offset, store);
+        synchronized (baseCache) {
+            baseCache.put(offset, base);
+        }
+        return base;
+    }
+
+    private byte[] inflate(long position, int size) throws IOException {
+        byte[] output = new byte[size];
+        byte[] input = new byte[Math.min(Math.max(size, 64), 8192)];
+        Inflater inflater = new Inflater();
+        try {
+            int produced = 0;
+            long next = position;
+            while (produced < size) {
+                if (inflater.needsInput()) {
+                    int read = readAtMost(input, next);
+                    next += read;
+                    inflater.setInput(input, 0, read);
+                }
+                int inflated = inflater.inflate(output, produced, size - produced);
+                produced += inflated;
+                if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            if (produced != size) {
+                throw new IOException("Corrupt object at offset " + position + " in " + packPath);
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt object at offset " + position + " in " + packPath, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Applies a git delta to its base: a header with the base and result sizes, followed by
+     * commands that either copy a range of the base or insert literal bytes.
+     */
+    static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] position = {0};
+        long baseSize = readDeltaSize(delta, position);
+        long resultSize = readDeltaSize(delta, position);
+        if (baseSize != base.length || resultSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("Delta does not apply to its base");
+        }
+
+        byte[] result = new byte[(int) resultSize];
+        int written = 0;
+        int i = position[0];
+        try {
+            while (i < delta.length) {
+                int command = delta[i++] & 0xFF;
+                if ((command & 0x80) != 0) {
+                    long copyOffset = 0;
+                    int copySize = 0;
+                    for (int bit = 0; bit < 4; bit++) {
+                        if ((command & (1 << bit)) != 0) {
+                            copyOffset |= (long) (delta[i++] & 0xFF) << (bit * 8);
+                        }
+                    }
+                    for (int bit = 0; bit < 3; bit++) {
+                        if ((command & (0x10 << bit)) != 0) {
+                            copySize |= (delta[i++] & 0xFF) << (bit * 8);
+                        }
+                    }
+                    if (copySize == 0) {
+                        copySize = 0x10000;
+                    }
+                    System.arraycopy(base, Math.toIntExact(copyOffset), result, written, copySize);
+                    written += copySize;
+                } else if (command != 0) {
+                    System.arraycopy(delta, i, result, written, command);
+                    i += command;
+                    written += command;
+                } else {
+                    throw new IOException("Invalid delta command");
+                }
+            }
+        } catch (IndexOutOfBoundsException | ArithmeticException e) {
+            throw new IOException("Delta does not apply to its base", e);
+        }
+        if (written != result.length) {
+            throw new IOException("Delta does not apply to its base");
+        }
+        return result;
+    }
+
+    private static long readDeltaSize(byte[] delta, int[] position) throws IOException {
+        long size = 0;
+        int shift = 0;
+        int c;
+        do {
+            if (position[0] >= delta.length) {
+                throw new IOException("Truncated delta header");
+            }
+            c = delta[position[0]++] & 0xFF;
+            size |= (long) (c & 0x7F) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return size;
+    }
+
+    /**
+     * Reads up to {@code buffer.length} bytes at {@code position}, stopping early at the end of
+     * the pack.
+     */
+    private int readAtMost(byte[] buffer, long position) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                break;
+            }
+        }
+        if (target.position() == 0) {
+            throw new EOFException("Unexpected end of " + packPath);
+        }
+        return target.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return packPath.toString();
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.parser.ParseCache;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Options controlling how a {@link KustomGraphBuilder} scans and builds the graph.
+ * <p>
+ * Setters return {@code this} so options can be chained:
+ * <pre>{@code
+ * BuildOptions options = new BuildOptions().exclude("vendor/").respectGitignore(true);
+ * }</pre>
+ */
+public class BuildOptions {
+
+    private final List<String> excludes = new ArrayList<>();
+    private boolean respectGitignore = false;
+    private boolean defaultExcludes = true;
+    private boolean useGitIndex = false;
+    private FileSource fileSource = FileSource.fileSystem();
+    private boolean twoPhaseBuild = false;
+    private ResourceParsing resourceParsing = ResourceParsing.EAGER;
+    private boolean retainContent = false;
+    private ParseCache parseCache;
+    private Path cacheFile;
+
+    /**
+     * Adds exclude patterns, in {@code .gitignore} syntax, relative to the apps directory.
+     * Excluded directories are not walked at all.
+     *
+     * @param patterns The patterns to add.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions exclude(String... patterns) {
+        return exclude(List.of(patterns));
+    }
+
+    /**
+     * Adds exclude patterns, in {@code .gitignore} syntax, relative to the apps directory.
+     *
+     * @param patterns The patterns to add.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions exclude(Collection<String> patterns) {
+        patterns.forEach(pattern -> excludes.add(Objects.requireNonNull(pattern)));
+        return this;
+    }
+
+    /**
+     * Sets whether {@code .gitignore} files (and {@code .git/info/exclude}) prune the walk.
+     * {@value IgnoreRules#KUSTOMTRACE_IGNORE} files are always honoured.
+     *
+     * @param respectGitignore {@code true} to honour {@code .gitignore} files.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions respectGitignore(boolean respectGitignore) {
+        this.respectGitignore = respectGitignore;
+        return this;
+    }
+
+    /**
+     * Sets whether the built-in excludes ({@link IgnoreRules#DEFAULT_EXCLUDES}) apply.
+     *
+     * @param defaultExcludes {@code false} to walk VCS and {@code node_modules} directories.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions defaultExcludes(boolean defaultExcludes) {
+        this.defaultExcludes = defaultExcludes;
+        return this;
+    }
+
+    /**
+     * Sets whether candidate files are listed from the local {@code .git/index} instead of
+     * walking the apps directory. Only tracked files are considered, so untracked output is
+     * skipped without being listed. When the apps directory is not inside a git repository,
+     * or the index is missing or unusable, the directory walk is used instead.
+     *
+     * @param useGitIndex {@code true} to list candidates from the git index.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions useGitIndex(boolean useGitIndex) {
+        this.useGitIndex = useGitIndex;
+        return this;
+    }
+
+    /**
+     * Sets where files are read from. Defaults to {@link FileSource#fileSystem()}; use a
+     * {@code GitCommitSource} to build the graph of a commit without checking it out.
+     * {@link #useGitIndex} only applies to the file system.
+     *
+     * @param fileSource The {@link FileSource} to scan and parse.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions fileSource(FileSource fileSource) {
+        this.fileSource = Objects.requireNonNull(fileSource, "FileSource cannot be null.");
+        return this;
+    }
+
+    /**
+     * Sets whether the graph is built in two phases: every file is first parsed by an
+     * independent task, then all references are linked in a single pass. The resulting graph
+     * is the same; deep overlay trees no longer build recursively.
+     *
+     * @param twoPhaseBuild {@code true} to parse everything before linking.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions twoPhaseBuild(boolean twoPhaseBuild) {
+        this.twoPhaseBuild = twoPhaseBuild;
+        return this;
+    }
+
+    /**
+     * Sets when resource files are parsed. Defaults to {@link ResourceParsing#EAGER}; callers
+     * that never read {@code KustomFile} resources can skip parsing them with
+     * {@link ResourceParsing#LAZY} or {@link ResourceParsing#NONE}.
+     *
+     * @param resourceParsing The {@link ResourceParsing} mode.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions resourceParsing(ResourceParsing resourceParsing) {
+        this.resourceParsing =
+                Objects.requireNonNull(resourceParsing, "ResourceParsing cannot be null.");
+        return this;
+    }
+
+    /**
+     * Sets whether each {@code Kustomization} keeps its whole parsed file. By default only
+     * {@code kind} and the reference-bearing fields are kept, as a {@code KustomizationSpec},
+     * and the rest of the file is never built; {@code Kustomization.getContent()} then
+     * returns just those fields.
+     *
+     * @param retainContent {@code true} to keep the full content of every kustomization.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions retainContent(boolean retainContent) {
+        this.retainContent = retainContent;
+        return this;
+    }
+
+    /**
+     * Sets an on-disk {@link ParseCache} for kustomization specs and resource headers. Files
+     * whose content is already cached are read and hashed but not parsed; the cache is
+     * trimmed to its size bound when the build ends. Not used for retained content.
+     *
+     * @param parseCache The {@link ParseCache}, or {@code null} to parse every file.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions parseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+        return this;
+    }
+
+    /**
+     * Sets a file holding a {@link GraphSnapshot} of the built graph. When the file holds a
+     * snapshot taken with the same apps directory and options, and none of the files it
+     * recorded changed size or modification time, {@code KustomTrace.fromDirectory} loads it
+     * instead of building; otherwise it builds and writes a new snapshot there. Only used for
+     * graphs read from the file system, and not with {@link #retainContent}.
+     *
+     * @param cacheFile The snapshot file, or {@code null} to always build.
+     * @return This {@link BuildOptions}.
+     */
+    public BuildOptions cacheFile(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        return this;
+    }
+
+    public List<String> getExcludes() {
+        return List.copyOf(excludes);
+    }
+
+    public boolean isRespectGitignore() {
+        return respectGitignore;
+    }
+
+    public boolean isDefaultExcludes() {
+        return defaultExcludes;
+    }
+
+    public boolean isUseGitIndex() {
+        return useGitIndex;
+    }
+
+    public FileSource getFileSource() {
+        return fileSource;
+    }
+
+    public boolean isTwoPhaseBuild() {
+        return twoPhaseBuild;
+    }
+
+    public ResourceParsing getResourceParsing() {
+        return resourceParsing;
+    }
+
+    public boolean isRetainContent() {
+        return retainContent;
+    }
+
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Describes the options that change which nodes a graph holds, so that a
+     * {@link GraphSnapshot} is only reused by builds that would produce the same graph.
+     */
+    String snapshotKey() {
+        return "excludes="
+                + excludes
+                + ";respectGitignore="
+                + respectGitignore
+                + ";defaultExcludes="
+                + defaultExcludes
+                + ";useGitIndex="
+                + useGitIndex
+                + ";resourceParsing="
+                + resourceParsing;
+    }
+
+    /**
+     * Compiles the ignore rules for a walk of {@code appsDir}.
+     *
+     * @param appsDir The directory being walked.
+     * @return The {@link IgnoreRules} described by these options.
+     */
+    public IgnoreRules ignoreRules(Path appsDir) {
+        return IgnoreRules.load(appsDir, excludes, defaultExcludes, respectGitignore, fileSource);
+    }
+}
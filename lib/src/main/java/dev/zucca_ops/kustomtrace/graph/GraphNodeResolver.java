@@ -19,10 +19,15 @@ import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
 import dev.zucca_ops.kustomtrace.model.KustomFile;
 import dev.zucca_ops.kustomtrace.model.KustomResource;
 import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.parser.KustomizationSpec;
 import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.parser.ParseCache;
+import dev.zucca_ops.kustomtrace.parser.ResourceHeader;
 import dev.zucca_ops.kustomtrace.parser.YamlParser;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,14 +42,38 @@ public class GraphNodeResolver {
 
     /**
      * Resolves a file path into a {@link KustomFile}. If the file is parseable
-     * (e.g., .yaml, .yml, .json), its content is parsed into {@link KustomResource}s.
+     * (e.g., .yaml, .yml, .json), its content is parsed into {@link KustomResource}s when
+     * {@link ResolverContext#resourceParsing()} says: now, on the first time its resources are
+     * asked for, or never. A deferred parse logs invalid content instead of throwing it.
+     * Resource headers are taken from the context's {@link ParseCache} when the file's
+     * content is cached.
      *
-     * @param path The {@link Path} to the file.
+     * @param path    The {@link Path} to the file.
+     * @param context Where the file is read from, and how it is parsed.
      * @return A {@link KustomFile} representing the file.
-     * @throws InvalidContentException If a parseable file contains non-map document roots.
-     * @throws FileNotFoundException If the file cannot be found or read.
+     * @throws InvalidContentException If the content is parsed now and a parseable file
+     *     contains non-map document roots.
+     * @throws FileNotFoundException If the content is parsed now and the file cannot be found
+     *     or read.
      */
-    static KustomFile resolveKustomFile(Path path)
+    static KustomFile resolveKustomFile(Path path, ResolverContext context)
+            throws InvalidContentException, FileNotFoundException {
+        FileSource source = context.source();
+        ParseCache parseCache = context.parseCache();
+        if (context.resourceParsing() == ResourceParsing.EAGER) {
+            return resolveParsedKustomFile(path, source, parseCache);
+        }
+        if (context.resourceParsing() == ResourceParsing.NONE
+                || !KustomizeFileUtil.isValidKubernetesResource(path)) {
+            logger.debug("Creating KustomFile without parsing: {}", path);
+            return new KustomFile(path);
+        }
+        logger.debug("Deferring parsing of KustomFile: {}", path);
+        return new KustomFile(path, () -> loadResources(path, source, parseCache));
+    }
+
+    private static KustomFile resolveParsedKustomFile(
+            Path path, FileSource source, ParseCache parseCache)
             throws InvalidContentException, FileNotFoundException {
         logger.debug("Resolving KustomFile: {}", path);
         KustomFile file = new KustomFile(path);
@@ -53,15 +82,11 @@ public class GraphNodeResolver {
             logger.debug(
                     "Path identified as a valid Kubernetes resource, attempting to parse: {}",
                     path);
-            YamlParser.parseFile(path).stream()
-                    .map(
-                            GraphNodeResolver
-                                    ::resolveResource) // Converts each Map doc to a KustomResource
-                    .forEach(
-                            resource -> {
-                                file.addResource(resource);
-                                resource.setFile(file);
-                            });
+            for (ResourceHeader header : parseResourceHeaders(path, source, parseCache)) {
+                KustomResource resource = resolveResource(header);
+                file.addResource(resource);
+                resource.setFile(file);
+            }
             logger.debug("Finished processing resources in: {}", path);
         } else {
             logger.debug(
@@ -71,6 +96,27 @@ public class GraphNodeResolver {
         return file;
     }
 
+    private static List<ResourceHeader> parseResourceHeaders(
+            Path path, FileSource source, ParseCache parseCache)
+            throws InvalidContentException, FileNotFoundException {
+        return parseCache == null
+                ? YamlParser.parseResourceHeaders(path, source)
+                : parseCache.parseResourceHeaders(path, source);
+    }
+
+    static List<KustomResource> loadResources(
+            Path path, FileSource source, ParseCache parseCache) {
+        logger.debug("Parsing deferred KustomFile: {}", path);
+        try {
+            return parseResourceHeaders(path, source, parseCache).stream()
+                    .map(GraphNodeResolver::resolveResource)
+                    .toList();
+        } catch (InvalidContentException | FileNotFoundException | RuntimeException e) {
+            logger.error("Could not load the resources of {}: {}", path, e.getMessage());
+            return List.of();
+        }
+    }
+
     /**
      * Converts a parsed YAML document map into a {@link KustomResource}.
      * Extracts 'kind' and 'metadata.name' if present and correctly typed.
@@ -79,50 +125,51 @@ public class GraphNodeResolver {
      * @return A {@link KustomResource}.
      */
     static KustomResource resolveResource(Map<String, Object> document) {
+        return resolveResource(ResourceHeader.of(document));
+    }
+
+    /**
+     * Converts the header fields of a YAML document into a {@link KustomResource}.
+     *
+     * @param header The document's {@code kind} and {@code metadata.name}.
+     * @return A {@link KustomResource}.
+     */
+    static KustomResource resolveResource(ResourceHeader header) {
         logger.trace("Resolving KustomResource from document");
         KustomResource resource = new KustomResource();
-
-        resource.setKind(YamlParser.getKind(document));
-
-        Object metadataObj = document.get("metadata");
-        if (metadataObj instanceof Map) {
-            Map<String, Object> metadata = (Map<String, Object>) metadataObj;
-            Object nameObj = metadata.get("name");
-            if (nameObj instanceof String) {
-                resource.setName((String) nameObj);
-            } else {
-                if (metadata.containsKey("name")) {
-                    logger.debug(
-                            "Resource metadata 'name' is present but not a String. Found: {}. Metadata keys: {}",
-                            nameObj != null ? nameObj.getClass().getName() : "null",
-                            metadata.keySet());
-                }
-            }
-        } else {
-            if (document.containsKey("metadata")) {
-                logger.debug(
-                        "Resource 'metadata' is present but not a Map. Found: {}. Document snippet: {}",
-                        metadataObj != null ? metadataObj.getClass().getName() : "null",
-                        document.keySet());
-            }
-        }
+        resource.setKind(header.kind());
+        resource.setName(header.name());
         return resource;
     }
 
     /**
-     * Resolves a kustomization file path into a {@link Kustomization} object.
+     * Resolves a kustomization file path into a {@link Kustomization} object. Unless
+     * {@link ResolverContext#retainContent()} is set, only the file's {@link KustomizationSpec}
+     * is built and kept, and it is taken from the context's {@link ParseCache} when the file's
+     * content is cached. Retained content is never cached.
      *
-     * @param path The {@link Path} to the kustomization file.
+     * @param path    The {@link Path} to the kustomization file.
+     * @param context Where the file is read from, and how it is parsed.
      * @return A {@link Kustomization} representing the parsed content.
-     * @throws InvalidContentException If parsing fails or content is invalid (e.g., not a single map document).
+     * @throws InvalidContentException If parsing fails or content is invalid (e.g., not a
+     *     single map document).
      * @throws FileNotFoundException If the file cannot be found or read.
      */
-    static Kustomization resolveKustomization(Path path)
+    static Kustomization resolveKustomization(Path path, ResolverContext context)
             throws InvalidContentException, FileNotFoundException {
-        logger.debug("Resolving Kustomization from: {}", path);
-        Map<String, Object> fileContent = YamlParser.parseKustomizationFile(path);
-        logger.debug("Successfully resolved Kustomization from: {}", path);
-
-        return new Kustomization(path, fileContent);
+        FileSource source = context.source();
+        if (context.retainContent()) {
+            logger.debug("Resolving Kustomization from: {}", path);
+            Map<String, Object> fileContent = YamlParser.parseKustomizationFile(path, source);
+            logger.debug("Successfully resolved Kustomization from: {}", path);
+            return new Kustomization(path, fileContent);
+        }
+        if (context.parseCache() != null) {
+            logger.debug("Resolving Kustomization spec through the parse cache: {}", path);
+            return new Kustomization(
+                    path, context.parseCache().parseKustomizationSpec(path, source));
+        }
+        logger.debug("Resolving Kustomization spec from: {}", path);
+        return new Kustomization(path, YamlParser.parseKustomizationSpec(path, source));
     }
 }
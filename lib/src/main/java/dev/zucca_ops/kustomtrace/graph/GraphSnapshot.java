@@ -0,0 +1,573 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.git.GitRepository;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.KustomResource;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.model.ResourceReference;
+import dev.zucca_ops.kustomtrace.parser.KustomizationSpec;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import dev.zucca_ops.kustomtrace.scan.AtomicFiles;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.ParallelDirectoryWalker;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Versioned binary snapshot of a built {@link KustomGraph}: every node with its
+ * {@link KustomizationSpec} or resources, the typed
+ * {@link ResourceReference}s and the dependents, in the order the graph holds them.
+ * <p>
+ * A snapshot also records the size and modification time of every node file, of every
+ * directory a build of the apps directory walks, ignored ones included, of the ignore files
+ * those directories hold, of the {@code .gitignore} files above the apps directory and
+ * {@code .git/info/exclude}, of each node's directory outside the apps directory, and of the
+ * missing targets outside it that references name, with their directories.
+ * {@link #isReusableFor(Path, BuildOptions)} stats them again, in parallel, without reading
+ * any file: an edited file changes its own stamp, and an added, removed or renamed one changes
+ * its directory's. With {@link BuildOptions#useGitIndex} the git index file and the tracked
+ * ignore files are stamped instead of the walked directories, since only tracked files are
+ * built. The stamps are taken when the snapshot is created, so it should be created right
+ * after the build.
+ * <p>
+ * Only graphs read from the file system can be snapshotted. Kustomizations keep only their
+ * spec, and resource files whose {@link ResourceParsing#LAZY} loader had not run are loaded
+ * lazily again after {@link #read(Path)}.
+ */
+public final class GraphSnapshot {
+
+    // Bumped whenever the layout changes.
+    private static final int FORMAT_VERSION = 3;
+    private static final int MAGIC = 0x4B54_4753; // "KTGS"
+
+    private static final byte KUSTOMIZATION = 0;
+    private static final byte FILE = 1;
+    private static final byte UNLOADED_FILE = 2;
+
+    private static final List<String> IGNORE_FILES =
+            List.of(IgnoreRules.KUSTOMTRACE_IGNORE, IgnoreRules.GITIGNORE);
+    private static final ReferenceType[] REFERENCE_TYPES = ReferenceType.values();
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphSnapshot.class);
+
+    private final KustomGraph graph;
+    private final Path appsDir;
+    private final String optionsKey;
+    // The stamp of nodes.get(i) is stamps.get(i); directories and ignore files follow.
+    private final List<GraphNode> nodes;
+    private final List<FileStamp> stamps;
+
+    private GraphSnapshot(
+            KustomGraph graph,
+            Path appsDir,
+            String optionsKey,
+            List<GraphNode> nodes,
+            List<FileStamp> stamps) {
+        this.graph = graph;
+        this.appsDir = appsDir;
+        this.optionsKey = optionsKey;
+        this.nodes = nodes;
+        this.stamps = stamps;
+    }
+
+    /**
+     * Takes a snapshot of a graph, stamping its files as they are now. The apps directory is
+     * walked again, with the ignore rules of {@code options}, to stamp every directory the
+     * build walked; the attributes read while listing them are used, so no directory is
+     * stat'ed twice.
+     *
+     * @param graph   The graph, built from the file system.
+     * @param appsDir The apps directory the graph was built from.
+     * @param options The options the graph was built with.
+     * @return The {@link GraphSnapshot}.
+     * @throws IllegalArgumentException If the graph was not read from the file system.
+     * @throws IOException              If the apps directory or its git index cannot be read.
+     */
+    public static GraphSnapshot of(KustomGraph graph, Path appsDir, BuildOptions options)
+            throws IOException {
+        if (graph.getFileSource() != FileSource.fileSystem()) {
+            throw new IllegalArgumentException(
+                    "Only graphs read from the file system can be snapshotted, not from "
+                            + graph.getFileSource());
+        }
+        Path normalizedAppsDir = appsDir.toAbsolutePath().normalize();
+        long start = System.currentTimeMillis();
+        List<GraphNode> nodes = List.copyOf(graph.getNodes());
+        Map<Path, FileStamp> scanned = stampScannedPaths(normalizedAppsDir, options);
+        List<Path> outside = directoriesOutside(nodes, scanned.keySet());
+        List<Path> unresolved = unresolvedTargetsOutside(graph, normalizedAppsDir, outside);
+        List<FileStamp> stamps =
+                new ArrayList<>(
+                        nodes.size() + scanned.size() + outside.size() + unresolved.size());
+        nodes.parallelStream()
+                .map(node -> FileStamp.of(node.getPath()))
+                .forEachOrdered(stamps::add);
+        scanned.values().stream()
+                .sorted(Comparator.comparing(FileStamp::path))
+                .forEachOrdered(stamps::add);
+        outside.parallelStream().map(FileStamp::of).forEachOrdered(stamps::add);
+        // A created ignore file changes its directory's stamp; only existing ones need theirs.
+        outside.parallelStream()
+                .flatMap(directory -> IGNORE_FILES.stream().map(directory::resolve))
+                .map(FileStamp::of)
+                .filter(FileStamp::exists)
+                .forEachOrdered(stamps::add);
+        unresolved.parallelStream().map(FileStamp::of).forEachOrdered(stamps::add);
+        logger.debug(
+                "Stamped {} path(s) of {} node(s) in {} ms.",
+                stamps.size(),
+                nodes.size(),
+                System.currentTimeMillis() - start);
+        return new GraphSnapshot(
+                graph, normalizedAppsDir, options.snapshotKey(), nodes, List.copyOf(stamps));
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(Path)}. The graph is rebuilt in memory, but no
+     * file it describes is read or checked; see {@link #isReusableFor(Path, BuildOptions)}.
+     *
+     * @param file The snapshot file.
+     * @return The {@link GraphSnapshot}.
+     * @throws IOException If the file cannot be read, or is not a snapshot of this version.
+     */
+    public static GraphSnapshot read(Path file) throws IOException {
+        long start = System.currentTimeMillis();
+        DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException(file + " is not a graph snapshot of version " + FORMAT_VERSION);
+        }
+        try {
+            Path appsDir = Path.of(readString(in));
+            String optionsKey = readString(in);
+
+            KustomGraph graph = new KustomGraph(FileSource.fileSystem());
+            GraphNode[] nodes = new GraphNode[readCount(in)];
+            List<FileStamp> stamps = new ArrayList<>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                byte tag = in.readByte();
+                Path path = Path.of(readString(in));
+                stamps.add(new FileStamp(path, in.readLong(), in.readLong()));
+                nodes[i] = readNode(in, tag, path);
+                graph.addNode(nodes[i]);
+            }
+            for (GraphNode node : nodes) {
+                if (node instanceof Kustomization kustomization) {
+                    int references = readCount(in);
+                    for (int r = 0; r < references; r++) {
+                        ReferenceType type = REFERENCE_TYPES[in.readUnsignedByte()];
+                        kustomization.addReference(
+                                new ResourceReference(type, nodes[in.readInt()]));
+                    }
+                }
+            }
+            for (GraphNode node : nodes) {
+                int dependents = readCount(in);
+                for (int d = 0; d < dependents; d++) {
+                    node.addDependent((Kustomization) nodes[in.readInt()]);
+                }
+            }
+
+            for (int i = 0, count = readCount(in); i < count; i++) {
+                stamps.add(new FileStamp(Path.of(readString(in)), in.readLong(), in.readLong()));
+            }
+            logger.debug(
+                    "Read graph snapshot {} with {} node(s) in {} ms.",
+                    file,
+                    nodes.length,
+                    System.currentTimeMillis() - start);
+            return new GraphSnapshot(
+                    graph, appsDir, optionsKey, List.of(nodes), List.copyOf(stamps));
+        } catch (IOException | RuntimeException e) {
+            throw new IOException("Malformed graph snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes this snapshot to a temporary file next to {@code file} and moves it into place
+     * atomically, so concurrent readers see either the previous snapshot or this one.
+     *
+     * @param file The snapshot file.
+     * @throws IOException If the file cannot be written, or a kustomization's spec holds a
+     *                     value the binary form cannot hold.
+     */
+    public void write(Path file) throws IOException {
+        long start = System.currentTimeMillis();
+        byte[] data = encode();
+        Path target = file.toAbsolutePath().normalize();
+        AtomicFiles.write(target, data);
+        logger.debug(
+                "Wrote graph snapshot {} ({} bytes) in {} ms.",
+                target,
+                data.length,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Checks whether this snapshot can stand in for a build of {@code appsDir} with
+     * {@code options}: it must have been taken with the same apps directory and the same
+     * node-affecting options, and every path it stamped must still have the same size and
+     * modification time. Only file attributes are read, in parallel.
+     *
+     * @param appsDir The apps directory about to be built.
+     * @param options The options it is about to be built with.
+     * @return {@code true} if the snapshot's graph equals the graph the build would produce.
+     */
+    public boolean isReusableFor(Path appsDir, BuildOptions options) {
+        if (!this.appsDir.equals(appsDir.toAbsolutePath().normalize())) {
+            logger.debug("Graph snapshot was taken of {}, not {}.", this.appsDir, appsDir);
+            return false;
+        }
+        if (!optionsKey.equals(options.snapshotKey())) {
+            logger.debug("Graph snapshot was taken with other build options: {}", optionsKey);
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        boolean current = stamps.parallelStream().allMatch(FileStamp::isCurrent);
+        logger.debug(
+                "Checked {} stamp(s) of the graph snapshot in {} ms: {}.",
+                stamps.size(),
+                System.currentTimeMillis() - start,
+                current ? "unchanged" : "changed");
+        return current;
+    }
+
+    public KustomGraph getGraph() {
+        return graph;
+    }
+
+    public Path getAppsDir() {
+        return appsDir;
+    }
+
+    /**
+     * @return The number of paths whose attributes are checked by
+     *         {@link #isReusableFor(Path, BuildOptions)}.
+     */
+    public int getStampCount() {
+        return stamps.size();
+    }
+
+    /**
+     * Stamps the paths whose attributes change when a file the build would find is added,
+     * removed or renamed, or when the rules that ignore files change: the git index file and
+     * the tracked ignore files when the build reads the candidates from the index, and
+     * otherwise every directory under {@code appsDir} the walk lists or prunes, together with
+     * the ignore files it finds; and in both cases the ignore files above {@code appsDir} the
+     * rules were read from, or looked for.
+     */
+    private static Map<Path, FileStamp> stampScannedPaths(Path appsDir, BuildOptions options)
+            throws IOException {
+        IgnoreRules ignoreRules = options.ignoreRules(appsDir);
+        Map<Path, FileStamp> stamps = new ConcurrentHashMap<>();
+        ignoreRules.getAncestorIgnoreFiles().forEach(file -> stamps.put(file, FileStamp.of(file)));
+        if (options.isUseGitIndex()) {
+            Optional<GitRepository> repository = GitRepository.find(appsDir);
+            Optional<List<String>> tracked =
+                    repository.isPresent()
+                            ? repository.get().trackedFiles(appsDir)
+                            : Optional.empty();
+            if (tracked.isPresent()) {
+                Path indexFile = repository.get().getGitDir().resolve("index");
+                stamps.put(indexFile, FileStamp.of(indexFile));
+                // An ignore file edited without being staged leaves the index as it was.
+                for (String file : tracked.get()) {
+                    Path path = appsDir.resolve(file);
+                    if (IGNORE_FILES.contains(path.getFileName().toString())) {
+                        stamps.put(path, FileStamp.of(path));
+                    }
+                }
+                return stamps;
+            }
+        }
+        new ParallelDirectoryWalker()
+                .walk(
+                        appsDir,
+                        ignoreRules,
+                        file -> false,
+                        file -> {},
+                        (path, attributes) -> {
+                            if (attributes.isDirectory()
+                                    || IGNORE_FILES.contains(path.getFileName().toString())) {
+                                stamps.put(path, FileStamp.of(path, attributes));
+                            }
+                        });
+        return stamps;
+    }
+
+    /**
+     * The directory of every node that is not among the {@code scanned} paths, e.g. because
+     * it lies outside the apps directory.
+     */
+    private static List<Path> directoriesOutside(List<GraphNode> nodes, Set<Path> scanned) {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (GraphNode node : nodes) {
+            Path directory = node.getPath().toAbsolutePath().normalize().getParent();
+            if (directory != null && !scanned.contains(directory)) {
+                directories.add(directory);
+            }
+        }
+        return List.copyOf(directories);
+    }
+
+    /**
+     * The targets outside the apps directory, and their parent directories, of the plain path
+     * references that no node stands for, e.g. because the target was missing at build time:
+     * creating it changes one of their stamps. The directories of {@code outside} nodes are
+     * stamped already.
+     */
+    private static List<Path> unresolvedTargetsOutside(
+            KustomGraph graph, Path appsDir, List<Path> outside) {
+        Set<Path> targets = new TreeSet<>();
+        for (GraphNode node : graph.getNodes()) {
+            if (!(node instanceof Kustomization kustomization)
+                    || kustomization.getSpec() == null) {
+                continue;
+            }
+            Path baseDir = kustomization.getPath().toAbsolutePath().normalize().getParent();
+            Map<String, Object> fields = kustomization.getSpec().getReferenceFields();
+            for (String key : fields.keySet()) {
+                for (Object value : ReferenceType.fromYamlKey(key).getRawReferenceList(fields)) {
+                    if (value instanceof Map<?, ?> inline) {
+                        value = inline.get("path");
+                    }
+                    if (!(value instanceof String reference) || reference.contains("\n")) {
+                        continue;
+                    }
+                    Path target = baseDir.resolve(reference).normalize();
+                    if (!target.startsWith(appsDir) && !resolves(graph, target)) {
+                        targets.add(target);
+                        if (target.getParent() != null) {
+                            targets.add(target.getParent());
+                        }
+                    }
+                }
+            }
+        }
+        targets.removeAll(outside);
+        return List.copyOf(targets);
+    }
+
+    /** Whether a node stands for {@code target}, or for the kustomization file inside it. */
+    private static boolean resolves(KustomGraph graph, Path target) {
+        if (graph.containsNode(target)) {
+            return true;
+        }
+        for (String name : KustomizeFileUtil.KUSTOMIZATION_FILE_NAMES) {
+            if (graph.containsNode(target.resolve(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] encode() throws IOException {
+        Map<GraphNode, Integer> ids = new IdentityHashMap<>(nodes.size());
+        for (GraphNode node : nodes) {
+            ids.put(node, ids.size());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(nodes.size() * 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, appsDir.toString());
+            writeString(out, optionsKey);
+
+            out.writeInt(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                writeNode(out, nodes.get(i), stamps.get(i));
+            }
+            for (GraphNode node : nodes) {
+                if (node instanceof Kustomization kustomization) {
+                    List<ResourceReference> references = kustomization.getReferences();
+                    out.writeInt(references.size());
+                    for (ResourceReference reference : references) {
+                        out.writeByte(reference.referenceType().ordinal());
+                        out.writeInt(id(ids, reference.resource()));
+                    }
+                }
+            }
+            for (GraphNode node : nodes) {
+                List<Kustomization> dependents = node.getDependents();
+                out.writeInt(dependents.size());
+                for (Kustomization dependent : dependents) {
+                    out.writeInt(id(ids, dependent));
+                }
+            }
+
+            List<FileStamp> otherStamps = stamps.subList(nodes.size(), stamps.size());
+            out.writeInt(otherStamps.size());
+            for (FileStamp stamp : otherStamps) {
+                writeString(out, stamp.path().toString());
+                out.writeLong(stamp.size());
+                out.writeLong(stamp.modified());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int id(Map<GraphNode, Integer> ids, GraphNode node) throws IOException {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new IOException("Edge to a node that is not in the graph: " + node.getPath());
+        }
+        return id;
+    }
+
+    private static void writeNode(DataOutputStream out, GraphNode node, FileStamp stamp)
+            throws IOException {
+        if (node instanceof Kustomization kustomization) {
+            writeNodeHeader(out, KUSTOMIZATION, stamp);
+            if (!kustomization.getSpec().write(out)) {
+                throw new IOException(
+                        "The spec of " + node.getPath() + " cannot be written to a snapshot");
+            }
+        } else if (node instanceof KustomFile file && !file.isLoaded()) {
+            writeNodeHeader(out, UNLOADED_FILE, stamp);
+        } else {
+            KustomFile file = (KustomFile) node;
+            writeNodeHeader(out, FILE, stamp);
+            List<KustomResource> resources = file.getResources();
+            out.writeInt(resources.size());
+            for (KustomResource resource : resources) {
+                writeNullableString(out, resource.getKind());
+                writeString(out, resource.getName());
+            }
+        }
+    }
+
+    private static void writeNodeHeader(DataOutputStream out, byte tag, FileStamp stamp)
+            throws IOException {
+        out.writeByte(tag);
+        writeString(out, stamp.path().toString());
+        out.writeLong(stamp.size());
+        out.writeLong(stamp.modified());
+    }
+
+    private static GraphNode readNode(DataInputStream in, byte tag, Path path)
+            throws IOException {
+        switch (tag) {
+            case KUSTOMIZATION:
+                return new Kustomization(path, KustomizationSpec.read(in));
+            case UNLOADED_FILE:
+                return new KustomFile(
+                        path,
+                        () -> GraphNodeResolver.loadResources(path, FileSource.fileSystem(), null));
+            case FILE:
+                KustomFile file = new KustomFile(path);
+                int resources = readCount(in);
+                for (int i = 0; i < resources; i++) {
+                    String kind = readNullableString(in);
+                    file.addResource(new KustomResource(readString(in), kind, file));
+                }
+                return file;
+            default:
+                throw new IOException("Unknown node type " + tag);
+        }
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Malformed count " + count);
+        }
+        return count;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Malformed string of length " + length);
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The size and modification time of a path when a snapshot was taken; both are {@code -1}
+     * for a path that did not exist.
+     */
+    private record FileStamp(Path path, long size, long modified) {
+
+        static FileStamp of(Path path) {
+            try {
+                return of(path, Files.readAttributes(path, BasicFileAttributes.class));
+            } catch (IOException e) {
+                return new FileStamp(path, -1, -1);
+            }
+        }
+
+        static FileStamp of(Path path, BasicFileAttributes attributes) {
+            return new FileStamp(
+                    path,
+                    attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        }
+
+        boolean exists() {
+            return size >= 0;
+        }
+
+        boolean isCurrent() {
+            FileStamp current = of(path);
+            return current.size == size && current.modified == modified;
+        }
+    }
+}
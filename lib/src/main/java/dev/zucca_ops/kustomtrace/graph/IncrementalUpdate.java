@@ -0,0 +1,506 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.model.ResourceReference;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.WalkStats;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies file changes to a graph built by a {@link KustomGraphBuilder}, touching only the
+ * nodes they affect.
+ * <p>
+ * The references of a kustomization depend on its own content and on which of the paths it
+ * names exist: a directory reference, for instance, resolves to whichever kustomization file
+ * the directory holds. Every path looked at while a kustomization's references are extracted
+ * is recorded, so that a change to one of those paths, or below one of them, is known to
+ * affect that kustomization. An update then
+ * <ol>
+ *   <li>drops the nodes of the changed files, and queues their dependents for relinking,</li>
+ *   <li>builds the changed kustomization files that a scan of the apps directory would find,</li>
+ *   <li>resolves the references of the queued kustomizations again, building the nodes they
+ *       now reference, and moves them between the dependents of their old and new targets,</li>
+ *   <li>removes the nodes that no scanned kustomization reaches any more.</li>
+ * </ol>
+ * The result is the graph a full build would produce. The work is proportional to the number
+ * of changed files and their neighbours, except for the first update, which records the paths
+ * looked at by every kustomization already in the graph.
+ * <p>
+ * Not thread-safe; the graph must not be queried while an update runs.
+ */
+final class IncrementalUpdate {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalUpdate.class);
+
+    private final KustomGraphBuilder builder;
+    private final KustomGraph graph;
+    private final Path appsDir;
+    private final BuildOptions options;
+    private final FileSource fileSource;
+    private final ResourceReferenceResolver resolver;
+    // Paths looked at by the reference extraction of each kustomization, and the reverse.
+    private final Map<Path, Set<Path>> probesByKustomization = new HashMap<>();
+    private final Map<Path, Set<Path>> kustomizationsByProbe = new HashMap<>();
+    // The nodes the last update relinked, built or removed.
+    private final Set<Path> changedNodes = new HashSet<>();
+    private boolean indexed;
+
+    IncrementalUpdate(
+            KustomGraphBuilder builder,
+            KustomGraph graph,
+            Path appsDir,
+            BuildOptions options,
+            ResourceReferenceResolver resolver) {
+        this.builder = builder;
+        this.graph = graph;
+        this.appsDir = appsDir.toAbsolutePath().normalize();
+        this.options = options;
+        this.fileSource = options.getFileSource();
+        this.resolver = resolver;
+    }
+
+    /**
+     * Checks whether a change can be applied incrementally. Changes to ignore files can add or
+     * remove whole subtrees from the scan, and a scan of the git index or of a commit does not
+     * follow the working tree, so those need a full build.
+     */
+    boolean supports(Collection<Path> changed) {
+        if (fileSource != FileSource.fileSystem() || options.isUseGitIndex()) {
+            return false;
+        }
+        for (Path path : changed) {
+            Path fileName = path.getFileName();
+            if (fileName == null) {
+                continue;
+            }
+            String name = fileName.toString();
+            if (name.equals(IgnoreRules.KUSTOMTRACE_IGNORE)
+                    || (options.isRespectGitignore()
+                            && (name.equals(IgnoreRules.GITIGNORE) || isInGitDirectory(path)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInGitDirectory(Path path) {
+        for (Path element : path) {
+            if (element.toString().equals(".git")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    UpdateStats apply(Collection<Path> changedPaths) {
+        long start = System.currentTimeMillis();
+        if (!indexed) {
+            graph.getNodes().stream()
+                    .filter(Kustomization.class::isInstance)
+                    .map(Kustomization.class::cast)
+                    .toList()
+                    .forEach(this::recordProbes);
+            indexed = true;
+            logger.debug(
+                    "Recorded the paths looked at by {} kustomization(s) in {} ms.",
+                    probesByKustomization.size(),
+                    System.currentTimeMillis() - start);
+        }
+
+        changedNodes.clear();
+        Set<Path> changed = expand(changedPaths);
+        Set<Kustomization> relink = identitySet();
+        Deque<GraphNode> orphanCandidates = new ArrayDeque<>();
+        Set<Path> detached = new HashSet<>();
+
+        for (Path path : changed) {
+            for (Path probe = path; probe != null; probe = probe.getParent()) {
+                for (Path kustomizationPath :
+                        kustomizationsByProbe.getOrDefault(probe, Collections.emptySet())) {
+                    if (graph.getNode(kustomizationPath) instanceof Kustomization kustomization) {
+                        relink.add(kustomization);
+                    }
+                }
+            }
+            GraphNode previous = graph.getNode(path);
+            if (previous != null) {
+                relink.addAll(previous.getDependents());
+                detach(previous, orphanCandidates);
+                detached.add(path);
+            }
+        }
+
+        // Changed kustomizations the scan finds are built again; other changed files come back
+        // only if a kustomization still references them.
+        ScanCheck scanCheck = new ScanCheck();
+        List<GraphNode> added = new ArrayList<>();
+        for (Path path : changed) {
+            if (KustomizeFileUtil.isKustomizationFileName(path) && scanCheck.isScanned(path)) {
+                try {
+                    Kustomization built = builder.buildKustomization(path);
+                    added.add(built);
+                    changedNodes.add(built.getPath());
+                } catch (Exception e) {
+                    logger.error(
+                            "Skipping invalid or unreadable kustomization file at {}: {}",
+                            path,
+                            e.getMessage());
+                }
+            }
+        }
+
+        int relinked = 0;
+        for (Kustomization kustomization : relink) {
+            if (graph.getNode(kustomization.getPath()) == kustomization) {
+                relink(kustomization, orphanCandidates, added);
+                changedNodes.add(kustomization.getPath());
+                relinked++;
+            }
+        }
+        recordNewKustomizations(added);
+
+        int removed = removeOrphans(orphanCandidates, scanCheck);
+        int reparsed = 0;
+        for (Path path : changed) {
+            if (graph.containsNode(path)) {
+                reparsed++;
+            } else if (detached.contains(path)) {
+                removed++;
+            }
+        }
+        logger.info(
+                "Updated the graph for {} changed path(s) in {} ms: {} reparsed, {} relinked, {} removed.",
+                changed.size(),
+                System.currentTimeMillis() - start,
+                reparsed,
+                relinked,
+                removed);
+        return new UpdateStats(reparsed, relinked, removed, false);
+    }
+
+    /**
+     * Normalizes the changed paths and replaces directories by the files they stand for: the
+     * files in an existing directory, and the nodes below a directory, whether it still exists
+     * or not. Finding the nodes takes one pass over the graph for each changed path that is
+     * neither a file nor a node.
+     */
+    private Set<Path> expand(Collection<Path> changedPaths) {
+        Set<Path> changed = new LinkedHashSet<>();
+        for (Path changedPath : changedPaths) {
+            Path path = changedPath.toAbsolutePath().normalize();
+            changed.add(path);
+            if (graph.containsNode(path) || fileSource.isFile(path)) {
+                continue;
+            }
+            graph.getNodes().stream()
+                    .map(node -> node.getPath().toAbsolutePath().normalize())
+                    .filter(nodePath -> nodePath.startsWith(path))
+                    .forEach(changed::add);
+            if (fileSource.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(Files::isRegularFile)
+                            .forEach(file -> changed.add(file.toAbsolutePath().normalize()));
+                } catch (IOException | UncheckedIOException e) {
+                    logger.warn("Could not list changed directory {}: {}", path, e.getMessage());
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return The paths of the nodes the last update relinked, built or removed: those whose
+     *     references changed, and so the only ones a new cycle can go through.
+     */
+    Set<Path> changedNodes() {
+        return Collections.unmodifiableSet(changedNodes);
+    }
+
+    /** Takes a node out of the graph, with its outgoing edges. Its dependents keep theirs. */
+    private void detach(GraphNode node, Collection<GraphNode> orphanCandidates) {
+        graph.removeNode(node);
+        changedNodes.add(node.getPath());
+        if (node instanceof Kustomization kustomization) {
+            forgetProbes(kustomization.getPath());
+            for (ResourceReference reference : kustomization.getReferences()) {
+                reference.resource().removeDependent(kustomization);
+                orphanCandidates.add(reference.resource());
+            }
+        }
+    }
+
+    /**
+     * Resolves the references of a kustomization again, in declaration order, and moves it
+     * from the dependents of the targets it dropped to those of the targets it gained.
+     */
+    private void relink(
+            Kustomization kustomization,
+            Collection<GraphNode> orphanCandidates,
+            Collection<GraphNode> added) {
+        List<ResourceReference> previous = List.copyOf(kustomization.getReferences());
+        RecordingFileSource recording = new RecordingFileSource(fileSource);
+        List<UnresolvedReference> extracted =
+                new ResourceReferenceResolver(builder, recording).extractReferences(kustomization);
+        List<ResourceReference> current =
+                extracted.stream()
+                        .map(
+                                reference ->
+                                        resolver.resolveDependency(
+                                                reference.type(), reference.path()))
+                        .filter(Objects::nonNull)
+                        .toList();
+        recordProbes(kustomization.getPath(), recording.probes());
+
+        kustomization.setReferences(current);
+        Set<GraphNode> targets = identitySet();
+        for (ResourceReference reference : current) {
+            targets.add(reference.resource());
+            reference.resource().addDependent(kustomization);
+            added.add(reference.resource());
+        }
+        for (ResourceReference reference : previous) {
+            if (!targets.contains(reference.resource())) {
+                reference.resource().removeDependent(kustomization);
+                orphanCandidates.add(reference.resource());
+            }
+        }
+    }
+
+    /**
+     * Records the paths looked at by kustomizations built during this update, found by
+     * following references from the nodes that were added or relinked.
+     */
+    private void recordNewKustomizations(Collection<GraphNode> added) {
+        Deque<GraphNode> pending = new ArrayDeque<>(added);
+        while (!pending.isEmpty()) {
+            if (pending.pop() instanceof Kustomization kustomization
+                    && !probesByKustomization.containsKey(kustomization.getPath())) {
+                recordProbes(kustomization);
+                kustomization.getReferences().stream()
+                        .map(ResourceReference::resource)
+                        .forEach(pending::push);
+            }
+        }
+    }
+
+    /**
+     * Removes the candidates that no scanned kustomization reaches any more. A node is kept if
+     * some chain of dependents leads to a kustomization the scan finds; otherwise every node on
+     * those chains is unreachable too, and all of them are removed.
+     */
+    private int removeOrphans(Deque<GraphNode> candidates, ScanCheck scanCheck) {
+        int removed = 0;
+        while (!candidates.isEmpty()) {
+            GraphNode candidate = candidates.pop();
+            if (graph.getNode(candidate.getPath()) != candidate) {
+                continue;
+            }
+            Set<GraphNode> unreachable = identitySet();
+            Deque<GraphNode> pending = new ArrayDeque<>();
+            pending.push(candidate);
+            boolean reachable = false;
+            while (!pending.isEmpty() && !reachable) {
+                GraphNode node = pending.pop();
+                if (!unreachable.add(node)) {
+                    continue;
+                }
+                if (node instanceof Kustomization && scanCheck.isScanned(node.getPath())) {
+                    reachable = true;
+                }
+                node.getDependents().forEach(pending::push);
+            }
+            if (reachable) {
+                continue;
+            }
+            for (GraphNode node : unreachable) {
+                logger.debug("Removing node that is no longer referenced: {}", node.getPath());
+                detach(node, candidates);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void recordProbes(Kustomization kustomization) {
+        RecordingFileSource recording = new RecordingFileSource(fileSource);
+        new ResourceReferenceResolver(builder, recording).extractReferences(kustomization);
+        recordProbes(kustomization.getPath(), recording.probes());
+    }
+
+    private void recordProbes(Path kustomizationPath, Set<Path> probes) {
+        Path key = kustomizationPath.toAbsolutePath().normalize();
+        forgetProbes(key);
+        probesByKustomization.put(key, probes);
+        for (Path probe : probes) {
+            kustomizationsByProbe.computeIfAbsent(probe, k -> new LinkedHashSet<>()).add(key);
+        }
+    }
+
+    private void forgetProbes(Path kustomizationPath) {
+        Path key = kustomizationPath.toAbsolutePath().normalize();
+        Set<Path> probes = probesByKustomization.remove(key);
+        if (probes == null) {
+            return;
+        }
+        for (Path probe : probes) {
+            Set<Path> kustomizations = kustomizationsByProbe.get(probe);
+            if (kustomizations != null) {
+                kustomizations.remove(key);
+                if (kustomizations.isEmpty()) {
+                    kustomizationsByProbe.remove(probe);
+                }
+            }
+        }
+    }
+
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Decides whether the scan of the apps directory would find a kustomization file, the way
+     * the directory walk does: every directory on the way must be a real directory that the
+     * ignore rules in force there do not exclude. Results are kept for one update.
+     */
+    private final class ScanCheck {
+        private final IgnoreRules rootRules = options.ignoreRules(appsDir);
+        private final Map<Path, IgnoreRules> directoryRules = new HashMap<>();
+        private final Map<Path, Boolean> scanned = new HashMap<>();
+
+        boolean isScanned(Path path) {
+            Path normalized = path.toAbsolutePath().normalize();
+            return scanned.computeIfAbsent(normalized, this::check);
+        }
+
+        private boolean check(Path path) {
+            Path parent = path.getParent();
+            if (parent == null
+                    || !path.startsWith(appsDir)
+                    || !KustomizeFileUtil.isKustomizationFileName(path)
+                    || !fileSource.isFile(path)) {
+                return false;
+            }
+            IgnoreRules rules = rulesInside(parent);
+            return rules != null && !rules.isIgnored(path, false);
+        }
+
+        /** Returns the rules for the entries of a directory, or null if the walk skips it. */
+        private IgnoreRules rulesInside(Path directory) {
+            if (directoryRules.containsKey(directory)) {
+                return directoryRules.get(directory);
+            }
+            IgnoreRules rules;
+            if (directory.equals(appsDir)) {
+                rules = enter(rootRules, directory);
+            } else {
+                IgnoreRules parentRules = rulesInside(directory.getParent());
+                rules =
+                        parentRules == null
+                                        || Files.isSymbolicLink(directory)
+                                        || !fileSource.isDirectory(directory)
+                                        || parentRules.isIgnored(directory, true)
+                                ? null
+                                : enter(parentRules, directory);
+            }
+            directoryRules.put(directory, rules);
+            return rules;
+        }
+
+        private IgnoreRules enter(IgnoreRules rules, Path directory) {
+            if (rules.isEmpty()) {
+                return rules;
+            }
+            List<String> ignoreFiles = new ArrayList<>(2);
+            for (String name : List.of(IgnoreRules.KUSTOMTRACE_IGNORE, IgnoreRules.GITIGNORE)) {
+                if (fileSource.isFile(directory.resolve(name))) {
+                    ignoreFiles.add(name);
+                }
+            }
+            return ignoreFiles.isEmpty() ? rules : rules.enter(directory, ignoreFiles);
+        }
+    }
+
+    /** Passes every call to another source and remembers the paths that were checked. */
+    private static final class RecordingFileSource implements FileSource {
+        private final FileSource delegate;
+        private final Set<Path> probes = ConcurrentHashMap.newKeySet();
+
+        private RecordingFileSource(FileSource delegate) {
+            this.delegate = delegate;
+        }
+
+        Set<Path> probes() {
+            return Set.copyOf(probes);
+        }
+
+        @Override
+        public boolean isFile(Path path) {
+            probes.add(path.toAbsolutePath().normalize());
+            return delegate.isFile(path);
+        }
+
+        @Override
+        public boolean isDirectory(Path path) {
+            probes.add(path.toAbsolutePath().normalize());
+            return delegate.isDirectory(path);
+        }
+
+        @Override
+        public InputStream newInputStream(Path path) throws IOException {
+            probes.add(path.toAbsolutePath().normalize());
+            return delegate.newInputStream(path);
+        }
+
+        @Override
+        public WalkStats scan(
+                Path root,
+                IgnoreRules ignoreRules,
+                Predicate<Path> fileFilter,
+                Consumer<Path> consumer)
+                throws IOException {
+            return delegate.scan(root, ignoreRules, fileFilter, consumer);
+        }
+    }
+}
@@ -16,19 +16,35 @@
 package dev.zucca_ops.kustomtrace.graph;
 
 import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.git.GitRepository;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
 import dev.zucca_ops.kustomtrace.model.KustomFile;
 import dev.zucca_ops.kustomtrace.model.KustomGraph;
 import dev.zucca_ops.kustomtrace.model.Kustomization;
 import dev.zucca_ops.kustomtrace.model.ResourceReference;
 import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.parser.ParseCache;
+import dev.zucca_ops.kustomtrace.parser.ReferenceResolutionCache;
+import dev.zucca_ops.kustomtrace.scan.FileAttributeCache;
+import dev.zucca_ops.kustomtrace.scan.FileListScanner;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.ParallelDirectoryWalker;
+import dev.zucca_ops.kustomtrace.scan.WalkStats;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,9 +54,21 @@ import org.slf4j.LoggerFactory;
  */
 public class KustomGraphBuilder {
     private final Path appsDir;
-    private final KustomGraph graph;
+    private final BuildOptions options;
+    private final FileSource fileSource;
+    // What the build reads through; emptied when a build or an update is done.
+    private final FileAttributeCache attributeCache;
+    private final ReferenceResolutionCache resolutionCache = new ReferenceResolutionCache();
+    // How nodes are parsed: through the attribute cache, as the options say.
+    private final ResolverContext resolverContext;
+    private final ParseCache parseCache;
+    // Replaced when an update falls back to a full build.
+    private KustomGraph graph;
     private final ResourceReferenceResolver dependencyResolver;
-    private final Map<Path, Object> nodeLocks = new ConcurrentHashMap<>();
+    private IncrementalUpdate incrementalUpdate;
+    // Nodes being resolved right now; entries are removed as soon as the node is published.
+    private final Map<Path, CompletableFuture<GraphNode>> pendingNodes = new ConcurrentHashMap<>();
+    private volatile WalkStats walkStats;
     private static final Logger logger = LoggerFactory.getLogger(KustomGraphBuilder.class);
 
     /**
@@ -49,19 +77,59 @@ public class KustomGraphBuilder {
      * @param appsDir The root directory to scan for Kustomize applications.
      */
     public KustomGraphBuilder(Path appsDir) {
+        this(appsDir, new BuildOptions());
+    }
+
+    /**
+     * Constructs a KustomGraphBuilder with explicit {@link BuildOptions}.
+     *
+     * @param appsDir The root directory to scan for Kustomize applications.
+     * @param options The options controlling the scan.
+     */
+    public KustomGraphBuilder(Path appsDir, BuildOptions options) {
+        this(appsDir, options, new KustomGraph(options.getFileSource()));
+    }
+
+    /**
+     * Constructs a KustomGraphBuilder that continues from a graph built earlier with the same
+     * directory and options, e.g. one loaded from a {@link GraphSnapshot}, so that it can be
+     * {@link #update updated}.
+     *
+     * @param appsDir The root directory the graph was built from.
+     * @param options The options the graph was built with.
+     * @param graph   The graph.
+     */
+    public KustomGraphBuilder(Path appsDir, BuildOptions options, KustomGraph graph) {
         this.appsDir = appsDir;
-        this.graph = new KustomGraph();
+        this.options = options;
+        this.fileSource = options.getFileSource();
+        this.attributeCache = new FileAttributeCache(fileSource);
+        this.resolverContext = ResolverContext.of(attributeCache, options);
+        this.parseCache = options.getParseCache();
+        this.graph = graph;
         // Pass 'this' builder instance to the resolver, allowing the resolver to call
         // buildKustomization/buildKustomFile for discovered references.
-        this.dependencyResolver = new ResourceReferenceResolver(this);
-        logger.info("KustomGraphBuilder initialized with apps directory: {}", this.appsDir);
+        this.dependencyResolver =
+                new ResourceReferenceResolver(this, attributeCache, resolutionCache);
+        logger.info(
+                "KustomGraphBuilder initialized with apps directory: {} (source: {})",
+                this.appsDir,
+                fileSource);
     }
 
     /**
      * Scans the configured {@code appsDir}, builds all found Kustomizations and their
      * referenced resources, and populates the internal {@link KustomGraph}.
      * <p>
-     * Uses a parallel stream to process kustomization files found by {@link Files#walk(Path, java.nio.file.FileVisitOption...)}.
+     * The directory tree is walked by a {@link ParallelDirectoryWalker}, which builds each
+     * kustomization file on a fork-join worker as soon as the file is found. Directories
+     * ignored by the configured {@link BuildOptions} are pruned and never listed. With
+     * {@link BuildOptions#useGitIndex} the candidates are read from {@code .git/index} instead.
+     * When the options name another {@link FileSource}, that source is scanned and every file
+     * is read from it. With {@link BuildOptions#twoPhaseBuild} every file is parsed first and
+     * the references are linked afterwards, instead of building each kustomization's
+     * dependencies recursively. Once the graph is complete, each of its cycles is logged once
+     * (see {@link KustomGraph#findCycles()}).
      *
      * @return The populated {@link KustomGraph}.
      * @throws IOException If an I/O error occurs when walking the appsDir.
@@ -70,20 +138,24 @@ public class KustomGraphBuilder {
         logger.info("Starting to build Kustom Graph from: {}", appsDir);
         AtomicInteger kustomizationCount = new AtomicInteger(0);
 
-        if (!Files.exists(appsDir) || !Files.isDirectory(appsDir)) {
+        if (!attributeCache.isDirectory(appsDir)) {
             logger.error("Apps directory does not exist or is not a directory: {}", appsDir);
             throw new FileNotFoundException(
                     "Apps directory not found or is not a directory: " + appsDir);
         }
 
-        try (Stream<Path> stream = Files.walk(appsDir)) {
-            stream.filter(KustomizeFileUtil::isKustomizationFileName)
-                    .filter(
-                            KustomizeFileUtil
-                                    ::isFile) // Ensure they are actual files, not directories named
-                    // like kustomization.yaml
-                    .parallel() // Process kustomization files in parallel
-                    .forEach(
+        if (options.isTwoPhaseBuild()) {
+            TwoPhaseGraphBuild twoPhaseBuild =
+                    new TwoPhaseGraphBuild(
+                            graph,
+                            resolverContext,
+                            dependencyResolver,
+                            ForkJoinPool.commonPool());
+            walkStats = scanKustomizationFiles(twoPhaseBuild::submit);
+            kustomizationCount.set(twoPhaseBuild.link());
+        } else {
+            walkStats =
+                    scanKustomizationFiles(
                             path -> {
                                 try {
                                     buildKustomization(path);
@@ -103,16 +175,172 @@ public class KustomGraphBuilder {
                             });
         }
         logger.info(
-                "Finished directory walk. Attempted to build {} kustomization file(s).",
+                "Finished scan over {} directories and {} files ({} pruned). Attempted to build {} kustomization file(s).",
+                walkStats.directories(),
+                walkStats.files(),
+                walkStats.pruned(),
                 kustomizationCount.get());
+        if (parseCache != null) {
+            parseCache.trim();
+            ParseCache.Stats stats = parseCache.getStats();
+            logger.info(
+                    "Parse cache {}: {} hit(s), {} miss(es), {} write(s), {} eviction(s).",
+                    parseCache.getDirectory(),
+                    stats.hits(),
+                    stats.misses(),
+                    stats.writes(),
+                    stats.evictions());
+        }
+        releaseBuildCaches();
+        reportCycles(graph.findCycles(), Set.of());
+
+        return graph;
+    }
+
+    /**
+     * Brings the graph up to date with changed, added and deleted files. Only the changed
+     * files are parsed again, and only the kustomizations whose references they can affect
+     * are relinked; nodes no longer referenced are removed. The result is the graph that
+     * {@link #build()} would produce now.
+     * <p>
+     * A changed directory stands for every file in it, or every node below it once it is
+     * deleted. When an ignore file changed, or the graph was built from the git index or a
+     * commit, the graph is built again from scratch and {@link #getGraph()} returns the new
+     * one. Updates must not run concurrently with each other or with queries on the graph.
+     * Cycles the update creates are logged once.
+     *
+     * @param changed The paths of the changed, added or deleted files.
+     * @return The {@link UpdateStats} of the update.
+     * @throws IOException If a full build was needed and failed.
+     */
+    public UpdateStats update(Collection<Path> changed) throws IOException {
+        if (incrementalUpdate == null) {
+            incrementalUpdate =
+                    new IncrementalUpdate(this, graph, appsDir, options, dependencyResolver);
+        }
+        if (!incrementalUpdate.supports(changed)) {
+            logger.info(
+                    "Rebuilding the graph of {} for {} changed path(s).", appsDir, changed.size());
+            graph = new KustomGraph(fileSource);
+            incrementalUpdate = null;
+            build();
+            return new UpdateStats(0, 0, 0, true);
+        }
+        Set<List<Path>> reported = Set.copyOf(graph.getCycles());
+        UpdateStats stats;
+        try {
+            stats = incrementalUpdate.apply(changed);
+        } finally {
+            releaseBuildCaches();
+        }
+        // Cycles only change with the references; a file that was only reparsed is in none.
+        Set<Path> changedNodes = incrementalUpdate.changedNodes();
+        if (!changedNodes.isEmpty()) {
+            reportCycles(graph.findCycles(changedNodes), reported);
+        }
+        return stats;
+    }
+
+    /**
+     * Logs what the attribute and resolution caches saved, and empties them, since the files
+     * may change before the next build or update.
+     */
+    private void releaseBuildCaches() {
+        FileAttributeCache.Stats stats = attributeCache.getStats();
+        logger.info(
+                "File attribute cache: {} lookup(s) answered from the cache, {} passed to the {},"
+                        + " {} entr(ies) recorded by the walk.",
+                stats.hits(),
+                stats.misses(),
+                fileSource,
+                stats.recorded());
+        attributeCache.clear();
+        ReferenceResolutionCache.Stats resolutions = resolutionCache.getStats();
+        logger.info(
+                "Reference resolution cache: {} reference(s) resolved, {} taken from the cache.",
+                resolutions.misses(),
+                resolutions.hits());
+        resolutionCache.clear();
+    }
+
+    /**
+     * Logs each cycle just found that is not among those already reported. Queries running
+     * into a cycle found here do not log it again.
+     */
+    private void reportCycles(List<List<Path>> cycles, Set<List<Path>> reported) {
+        for (List<Path> cycle : cycles) {
+            if (!reported.contains(cycle)) {
+                logger.error(
+                        "Circular dependency detected among {} node(s): {}", cycle.size(), cycle);
+            }
+        }
+    }
 
+    /**
+     * @return The graph being built, or updated.
+     */
+    public KustomGraph getGraph() {
         return graph;
     }
 
+    /**
+     * Finds the kustomization files under {@code appsDir} and passes each one to
+     * {@code consumer}. Candidates come from the git index when {@link BuildOptions#useGitIndex}
+     * is set and an index is available, and from a directory walk otherwise.
+     */
+    private WalkStats scanKustomizationFiles(Consumer<Path> consumer) throws IOException {
+        IgnoreRules ignoreRules = options.ignoreRules(appsDir);
+
+        if (options.isUseGitIndex() && fileSource == FileSource.fileSystem()) {
+            Optional<List<String>> trackedFiles = listTrackedFiles();
+            if (trackedFiles.isPresent()) {
+                logger.info("Listing kustomization files from the git index.");
+                return new FileListScanner()
+                        .scan(
+                                appsDir,
+                                trackedFiles.get(),
+                                ignoreRules,
+                                KustomizeFileUtil::isKustomizationFileName,
+                                consumer);
+            }
+            logger.info("No usable git index for {}; walking the directory instead.", appsDir);
+        }
+
+        return attributeCache.scan(
+                appsDir, ignoreRules, KustomizeFileUtil::isKustomizationFileName, consumer);
+    }
+
+    private Optional<List<String>> listTrackedFiles() {
+        try {
+            Optional<GitRepository> repository = GitRepository.find(appsDir);
+            if (repository.isEmpty()) {
+                return Optional.empty();
+            }
+            return repository.get().trackedFiles(appsDir);
+        } catch (IOException e) {
+            logger.warn("Could not read the git index for {}: {}", appsDir, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the statistics of the directory walk, or git index scan, performed by the last
+     * {@link #build()}.
+     *
+     * @return The {@link WalkStats}, or {@code null} if {@link #build()} has not run yet.
+     */
+    public WalkStats getWalkStats() {
+        return walkStats;
+    }
+
     /**
      * Resolves and builds a {@link Kustomization} node for the given path.
      * If the node already exists in the graph, it's returned. Otherwise, it's resolved,
      * added to the graph, and its dependencies are processed.
+     * <p>
+     * Only one thread resolves a given path; others asking for it meanwhile wait on its
+     * {@link CompletableFuture}, which completes as soon as the node is in the graph and before
+     * its dependencies are processed.
      *
      * @param path The {@link Path} to the kustomization file.
      * @return The resolved or existing {@link Kustomization} node from the graph.
@@ -123,20 +351,39 @@ public class KustomGraphBuilder {
             throws InvalidContentException, FileNotFoundException {
         logger.debug("Building Kustomization for: {}", path);
         Path normalizedPath = normalizePath(path);
-        Kustomization kustomization;
 
-        synchronized (lockFor(normalizedPath)) {
+        if (graph.containsNode(normalizedPath)) {
+            logger.debug("Kustomization node already exists in graph for: {}", normalizedPath);
+            return graph.getKustomization(normalizedPath);
+        }
+        CompletableFuture<GraphNode> claim = new CompletableFuture<>();
+        CompletableFuture<GraphNode> pending = pendingNodes.putIfAbsent(normalizedPath, claim);
+        if (pending != null) {
+            logger.debug("Waiting for Kustomization resolved by another thread: {}", normalizedPath);
+            return asType(await(pending), Kustomization.class, normalizedPath);
+        }
+
+        Kustomization kustomization;
+        try {
             if (graph.containsNode(normalizedPath)) {
-                logger.debug("Kustomization node already exists in graph for: {}", normalizedPath);
-                return graph.getKustomization(normalizedPath);
+                // Published by another thread between the lookup and the claim.
+                kustomization = graph.getKustomization(normalizedPath);
+                claim.complete(kustomization);
+                return kustomization;
             }
 
             logger.debug("Resolving Kustomization using GraphNodeResolver for: {}", path);
-            kustomization = GraphNodeResolver.resolveKustomization(path);
+            kustomization = GraphNodeResolver.resolveKustomization(path, resolverContext);
 
             logger.debug("Adding Kustomization node to graph: {}", kustomization.getPath());
             graph.addNode(
                     kustomization); // Add to graph before resolving dependencies to handle cycles
+            claim.complete(kustomization);
+        } catch (InvalidContentException | FileNotFoundException | RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingNodes.remove(normalizedPath, claim);
         }
 
         logger.debug("Resolving dependencies for Kustomization: {}", kustomization.getPath());
@@ -150,7 +397,7 @@ public class KustomGraphBuilder {
     /**
      * Resolves and builds a {@link KustomFile} node for the given path.
      * If the node already exists in the graph, it's returned. Otherwise, it's resolved
-     * and added to the graph.
+     * and added to the graph, by one thread only, as for {@link #buildKustomization(Path)}.
      *
      * @param path The {@link Path} to the resource file.
      * @return The resolved or existing {@link KustomFile} node from the graph.
@@ -160,22 +407,71 @@ public class KustomGraphBuilder {
     KustomFile buildKustomFile(Path path) throws InvalidContentException, FileNotFoundException {
         logger.debug("Building KustomFile for: {}", path);
         Path normalizedPath = normalizePath(path);
-        KustomFile file;
 
-        synchronized (lockFor(normalizedPath)) {
+        if (graph.containsNode(normalizedPath)) {
+            logger.debug("KustomFile node already exists in graph for: {}", normalizedPath);
+            return graph.getKustomFile(normalizedPath);
+        }
+        CompletableFuture<GraphNode> claim = new CompletableFuture<>();
+        CompletableFuture<GraphNode> pending = pendingNodes.putIfAbsent(normalizedPath, claim);
+        if (pending != null) {
+            logger.debug("Waiting for KustomFile resolved by another thread: {}", normalizedPath);
+            return asType(await(pending), KustomFile.class, normalizedPath);
+        }
+
+        try {
             if (graph.containsNode(normalizedPath)) {
-                logger.debug("KustomFile node already exists in graph for: {}", normalizedPath);
-                return graph.getKustomFile(normalizedPath);
+                // Published by another thread between the lookup and the claim.
+                KustomFile file = graph.getKustomFile(normalizedPath);
+                claim.complete(file);
+                return file;
             }
 
             logger.debug("Resolving KustomFile using GraphNodeResolver for: {}", path);
-            file = GraphNodeResolver.resolveKustomFile(path);
+            KustomFile file = GraphNodeResolver.resolveKustomFile(path, resolverContext);
 
             logger.debug("Adding KustomFile node to graph: {}", file.getPath());
             graph.addNode(file);
+            claim.complete(file);
+            return file;
+        } catch (InvalidContentException | FileNotFoundException | RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingNodes.remove(normalizedPath, claim);
         }
+    }
 
-        return file;
+    /**
+     * Waits for a node being resolved by another thread. The wait lasts one parse at most, and
+     * {@link CompletableFuture#join()} lets a fork-join pool compensate for the waiting worker.
+     * Failures are rethrown as the resolving thread saw them.
+     */
+    private static GraphNode await(CompletableFuture<GraphNode> pending)
+            throws InvalidContentException, FileNotFoundException {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InvalidContentException invalidContent) {
+                throw invalidContent;
+            }
+            if (cause instanceof FileNotFoundException notFound) {
+                throw notFound;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static <T extends GraphNode> T asType(GraphNode node, Class<T> type, Path path) {
+        if (type.isInstance(node)) {
+            return type.cast(node);
+        }
+        logger.warn("Attempted to get a non {} at {}", type.getSimpleName(), path);
+        return null;
     }
 
     /**
@@ -197,8 +493,4 @@ public class KustomGraphBuilder {
     private Path normalizePath(Path path) {
         return path.toAbsolutePath().normalize();
     }
-
-    private Object lockFor(Path path) {
-        return nodeLocks.computeIfAbsent(path, ignored -> new Object());
-    }
 }
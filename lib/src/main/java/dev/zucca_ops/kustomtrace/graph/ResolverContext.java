@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.parser.KustomizationSpec;
+import dev.zucca_ops.kustomtrace.parser.ParseCache;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+
+/**
+ * What {@link GraphNodeResolver} needs to turn a path into a node, taken from the
+ * {@link BuildOptions} of a build once instead of being passed argument by argument.
+ *
+ * @param source          The {@link FileSource} files are read from.
+ * @param resourceParsing When the content of resource files is parsed.
+ * @param retainContent   Whether kustomizations keep the whole parsed file instead of their
+ *                        {@link KustomizationSpec}.
+ * @param parseCache      The {@link ParseCache} to take parsed content from, or {@code null}
+ *                        for none.
+ */
+record ResolverContext(
+        FileSource source,
+        ResourceParsing resourceParsing,
+        boolean retainContent,
+        ParseCache parseCache) {
+
+    /**
+     * @param source  The {@link FileSource} files are read from, e.g. the build's
+     *                {@code FileAttributeCache} in front of the options' source.
+     * @param options The options of the build.
+     * @return The context of a build with these options.
+     */
+    static ResolverContext of(FileSource source, BuildOptions options) {
+        return new ResolverContext(
+                source,
+                options.getResourceParsing(),
+                options.isRetainContent(),
+                options.getParseCache());
+    }
+
+    /**
+     * @return The context of a build with the default {@link BuildOptions}: files read from
+     *     the file system and parsed eagerly, specs only, no parse cache.
+     */
+    static ResolverContext fileSystem() {
+        return of(FileSource.fileSystem(), new BuildOptions());
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+
+/**
+ * When the content of referenced resource files is parsed into the {@link KustomFile}'s
+ * resources. Only {@link KustomFile#getResources()} and {@link KustomFile#getResource()} need
+ * it; the graph's nodes and edges are the same in every mode, except for invalid files.
+ */
+public enum ResourceParsing {
+    /**
+     * Parse every resource file while building. Files with invalid content are logged and left
+     * out of the graph.
+     */
+    EAGER,
+    /**
+     * Create file nodes without reading them, and parse each file the first time its resources
+     * are asked for. Files with invalid content stay in the graph, with no resources.
+     */
+    LAZY,
+    /** Create file nodes without reading them and never parse them; they have no resources. */
+    NONE
+}
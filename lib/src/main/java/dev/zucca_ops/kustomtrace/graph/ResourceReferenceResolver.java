@@ -19,9 +19,14 @@ import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
 import dev.zucca_ops.kustomtrace.model.Kustomization;
 import dev.zucca_ops.kustomtrace.model.ResourceReference;
 import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.parser.ReferenceResolutionCache;
+import dev.zucca_ops.kustomtrace.parser.ReferenceSink;
 import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
@@ -37,16 +42,43 @@ public class ResourceReferenceResolver {
 
     private static final Logger logger = LoggerFactory.getLogger(ResourceReferenceResolver.class);
     private final KustomGraphBuilder builder;
+    private final FileSource source;
+    // Null unless the resolver belongs to a build; see KustomGraphBuilder.
+    private final ReferenceResolutionCache resolutionCache;
 
     /**
-     * Constructs a ResourceReferenceResolver.
+     * Constructs a ResourceReferenceResolver that resolves references on the file system.
      *
      * @param kustomGraphBuilder The {@link KustomGraphBuilder} instance used to build
      * or retrieve graph nodes for resolved references.
      */
     public ResourceReferenceResolver(KustomGraphBuilder kustomGraphBuilder) {
+        this(kustomGraphBuilder, FileSource.fileSystem());
+    }
+
+    /**
+     * Constructs a ResourceReferenceResolver.
+     *
+     * @param kustomGraphBuilder The {@link KustomGraphBuilder} instance used to build
+     * or retrieve graph nodes for resolved references.
+     * @param source The {@link FileSource} references are resolved in.
+     */
+    public ResourceReferenceResolver(KustomGraphBuilder kustomGraphBuilder, FileSource source) {
+        this(kustomGraphBuilder, source, null);
+    }
+
+    /**
+     * Constructs a ResourceReferenceResolver that takes the outcome of each reference from
+     * {@code resolutionCache} when its target was resolved before.
+     */
+    ResourceReferenceResolver(
+            KustomGraphBuilder kustomGraphBuilder,
+            FileSource source,
+            ReferenceResolutionCache resolutionCache) {
         this.builder =
                 Objects.requireNonNull(kustomGraphBuilder, "KustomGraphBuilder cannot be null.");
+        this.source = Objects.requireNonNull(source, "FileSource cannot be null.");
+        this.resolutionCache = resolutionCache;
     }
 
     /**
@@ -105,14 +137,29 @@ public class ResourceReferenceResolver {
      * kustomization is null, has null content, or no valid references are found.
      */
     public Stream<ResourceReference> resolveDependencies(Kustomization kustomization) {
-        if (kustomization == null || kustomization.getContent() == null) {
+        return extractReferences(kustomization).stream()
+                .map(reference -> resolveDependency(reference.type(), reference.path()))
+                .filter(Objects::nonNull); // Filter out any nulls from failed resolveDependency calls
+    }
+
+    /**
+     * Extracts the files referenced by a {@link Kustomization} without building their nodes.
+     * Invalid references are logged and left out, as in {@link #resolveDependencies}. The raw
+     * values are walked with plain loops, and each extractor pushes its paths to a single
+     * {@link ReferenceSink}, so no stream is created per key or per reference.
+     *
+     * @param kustomization The {@link Kustomization} object whose content is to be processed.
+     * @return The references, in declaration order.
+     */
+    List<UnresolvedReference> extractReferences(Kustomization kustomization) {
+        if (kustomization == null || kustomization.getSpec() == null) {
             logger.warn(
                     "Attempted to resolve dependencies for a null Kustomization or Kustomization with null content.");
-            return Stream.empty();
+            return List.of();
         }
 
         logger.debug("Resolving dependencies for Kustomization: {}", kustomization.getPath());
-        Map<String, Object> fileContent = kustomization.getContent();
+        Map<String, Object> fileContent = kustomization.getSpec().getReferenceFields();
         Path baseDir = kustomization.getPath().getParent();
         if (baseDir == null) {
             // This might happen if the kustomization path is a root path itself (e.g.
@@ -125,31 +172,36 @@ public class ResourceReferenceResolver {
                     baseDir);
         }
 
-        final Path finalBaseDir = baseDir;
+        // Normalized once here rather than for each reference.
+        baseDir = baseDir.normalize();
 
-        return fileContent.keySet().stream()
-                .filter(ReferenceType::isReferenceKey) // Find keys that match known reference types
-                .map(ReferenceType::fromYamlKey) // Convert key string to ReferenceType enum
-                .peek(
-                        referenceType ->
-                                logger.debug(
-                                        "Processing Kustomization key: '{}' as ReferenceType: {}",
-                                        referenceType.getYamlKey(),
-                                        referenceType))
-                .flatMap(
-                        referenceType -> {
-                            // Get the raw values (e.g., list of strings) for this key
-                            return referenceType
-                                    .getRawReferences(fileContent)
-                                    .flatMap(
-                                            rawReferenceValue ->
-                                                    referenceType.extract(
-                                                            rawReferenceValue, finalBaseDir))
-                                    .map(
-                                            resolvedPath ->
-                                                    resolveDependency(referenceType, resolvedPath))
-                                    .filter(Objects::nonNull); // Filter out any nulls from failed
-                            // resolveDependency calls
-                        });
+        // The spec holds only keys that match known reference types.
+        ReferenceCollector references = new ReferenceCollector();
+        for (String key : fileContent.keySet()) {
+            ReferenceType referenceType = ReferenceType.fromYamlKey(key);
+            logger.debug(
+                    "Processing Kustomization key: '{}' as ReferenceType: {}", key, referenceType);
+            references.type = referenceType;
+            for (Object rawReferenceValue : referenceType.getRawReferenceList(fileContent)) {
+                if (resolutionCache != null) {
+                    resolutionCache.extract(
+                            referenceType, rawReferenceValue, baseDir, source, references);
+                } else {
+                    referenceType.extract(rawReferenceValue, baseDir, source, references);
+                }
+            }
+        }
+        return references.found;
+    }
+
+    /** Collects the paths extracted for the reference type being processed. */
+    private static final class ReferenceCollector implements ReferenceSink {
+        private final List<UnresolvedReference> found = new ArrayList<>();
+        private ReferenceType type;
+
+        @Override
+        public void accept(Path path) {
+            found.add(new UnresolvedReference(type, path));
+        }
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.model.ResourceReference;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a {@link KustomGraph} in two phases instead of recursively.
+ * <p>
+ * In the first phase every kustomization handed to {@link #submit(Path)}, and every file it
+ * references, is parsed by its own task on the pool; a parsed kustomization submits the files
+ * it references, so discovery spreads across the pool regardless of how deep the overlays
+ * are. Nodes are added to the graph as they are parsed, but no edges are created. In the
+ * second phase, {@link #link()} walks the recorded references once and sets the
+ * {@link ResourceReference}s and dependents, with no recursion. The graph is the same as the
+ * one built by {@link KustomGraphBuilder#buildKustomization(Path)}.
+ */
+final class TwoPhaseGraphBuild {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoPhaseGraphBuild.class);
+
+    private final KustomGraph graph;
+    private final ResolverContext context;
+    private final ResourceReferenceResolver resolver;
+    private final ForkJoinPool pool;
+    private final Set<Path> claimed = ConcurrentHashMap.newKeySet();
+    private final Map<Kustomization, List<UnresolvedReference>> references =
+            new ConcurrentHashMap<>();
+    // One count per running task, plus one held by the caller until discovery is finished.
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CompletableFuture<Void> parsed = new CompletableFuture<>();
+
+    TwoPhaseGraphBuild(
+            KustomGraph graph,
+            ResolverContext context,
+            ResourceReferenceResolver resolver,
+            ForkJoinPool pool) {
+        this.graph = graph;
+        this.context = context;
+        this.resolver = resolver;
+        this.pool = pool;
+    }
+
+    /**
+     * Schedules a kustomization found by the scan, and transitively everything it references,
+     * for parsing. Safe to call from any thread until {@link #link()} is called.
+     *
+     * @param path The kustomization file.
+     */
+    void submit(Path path) {
+        submit(path, null);
+    }
+
+    private void submit(Path path, ReferenceType referencedAs) {
+        if (!claimed.add(path.toAbsolutePath().normalize())) {
+            return;
+        }
+        pending.incrementAndGet();
+        pool.execute(
+                () -> {
+                    try {
+                        parse(path, referencedAs);
+                    } finally {
+                        release();
+                    }
+                });
+    }
+
+    private void release() {
+        if (pending.decrementAndGet() == 0) {
+            parsed.complete(null);
+        }
+    }
+
+    private void parse(Path path, ReferenceType referencedAs) {
+        try {
+            if (KustomizeFileUtil.isKustomizationFileName(path)) {
+                Kustomization kustomization =
+                        GraphNodeResolver.resolveKustomization(path, context);
+                graph.addNode(kustomization);
+                List<UnresolvedReference> found = resolver.extractReferences(kustomization);
+                references.put(kustomization, found);
+                found.forEach(reference -> submit(reference.path(), reference.type()));
+            } else {
+                graph.addNode(GraphNodeResolver.resolveKustomFile(path, context));
+            }
+        } catch (InvalidContentException | FileNotFoundException e) {
+            if (referencedAs == null) {
+                logger.error(
+                        "Skipping invalid or unreadable kustomization file at {}: {}",
+                        path,
+                        e.getMessage());
+            } else {
+                logger.error(
+                        "Error parsing content for dependency type '{}' at {}: {}",
+                        referencedAs,
+                        path,
+                        e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error building node for path {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Waits for the first phase to finish, then links every recorded reference to its node.
+     * References to files that could not be parsed are dropped.
+     *
+     * @return The number of kustomizations parsed.
+     */
+    int link() {
+        release();
+        parsed.join();
+
+        long start = System.currentTimeMillis();
+        int edges = 0;
+        for (Map.Entry<Kustomization, List<UnresolvedReference>> entry : references.entrySet()) {
+            Kustomization dependent = entry.getKey();
+            for (UnresolvedReference reference : entry.getValue()) {
+                GraphNode target = graph.getNode(reference.path());
+                if (target != null) {
+                    dependent.addReference(new ResourceReference(reference.type(), target));
+                    target.addDependent(dependent);
+                    edges++;
+                }
+            }
+        }
+        logger.debug(
+                "Linked {} reference(s) of {} kustomization(s) in {} ms.",
+                edges,
+                references.size(),
+                System.currentTimeMillis() - start);
+        return references.size();
+    }
+}
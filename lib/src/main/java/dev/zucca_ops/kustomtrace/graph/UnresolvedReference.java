@@ -0,0 +1,27 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import java.nio.file.Path;
+
+/**
+ * A reference read from a kustomization whose target node has not been built yet.
+ *
+ * @param type The {@link ReferenceType} of the reference.
+ * @param path The referenced file, as resolved by the reference extractor.
+ */
+record UnresolvedReference(ReferenceType type, Path path) {}
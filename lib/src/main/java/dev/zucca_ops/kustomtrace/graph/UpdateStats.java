@@ -0,0 +1,28 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.graph;
+
+/**
+ * Summary of a {@link KustomGraphBuilder#update} call.
+ *
+ * @param reparsed The number of changed files that were parsed again and are in the graph.
+ * @param relinked The number of kustomizations whose references were resolved again.
+ * @param removed  The number of nodes removed: changed files that are gone or invalid, and
+ *                 nodes that are no longer referenced.
+ * @param rebuilt  {@code true} if the graph was rebuilt from scratch instead, e.g. because an
+ *                 ignore file changed.
+ */
+public record UpdateStats(int reparsed, int relinked, int removed, boolean rebuilt) {}
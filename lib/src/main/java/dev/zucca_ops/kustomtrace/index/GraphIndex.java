@@ -0,0 +1,436 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.index;
+
+import dev.zucca_ops.kustomtrace.exceptions.KustomException;
+import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.model.FrozenGraph;
+import dev.zucca_ops.kustomtrace.model.GraphView;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.scan.AtomicFiles;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only index of a {@link KustomGraph}, laid out so that queries run directly against a
+ * memory-mapped file, with no deserialization.
+ * <p>
+ * The file holds a path dictionary sorted by the UTF-8 bytes of each node's absolute path, a
+ * flag byte per node (kustomization, root), and the references and dependents as compressed
+ * sparse row arrays: per node, the start of its run of node ids in one shared array. Opening an
+ * index maps the file and checks its header; a lookup is a binary search over the dictionary,
+ * and a traversal allocates one bit per node to mark the nodes it visited.
+ * <p>
+ * Indexes are immutable and safe for concurrent queries. The mapping is released when the
+ * instance is garbage collected.
+ */
+public final class GraphIndex implements GraphView {
+
+    // Bumped whenever the layout changes.
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4B54_4749; // "KTGI"
+    private static final int HEADER_BYTES = 20;
+
+    private static final byte KUSTOMIZATION = 1;
+    private static final byte ROOT = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphIndex.class);
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    // Byte offsets of the sections, in file order.
+    private final int pathStarts;
+    private final int referenceStarts;
+    private final int references;
+    private final int dependentStarts;
+    private final int dependents;
+    private final int flags;
+    private final int paths;
+
+    private GraphIndex(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException(file + " is not a graph index of version " + FORMAT_VERSION);
+        }
+        nodeCount = buffer.getInt(8);
+        int referenceCount = buffer.getInt(12);
+        int dependentCount = buffer.getInt(16);
+        if (nodeCount < 0 || referenceCount < 0 || dependentCount < 0) {
+            throw new IOException("Malformed graph index " + file);
+        }
+        pathStarts = HEADER_BYTES;
+        referenceStarts = pathStarts + 4 * (nodeCount + 1);
+        references = referenceStarts + 4 * (nodeCount + 1);
+        dependentStarts = references + 4 * referenceCount;
+        dependents = dependentStarts + 4 * (nodeCount + 1);
+        flags = dependents + 4 * dependentCount;
+        paths = flags + nodeCount;
+        if (paths < 0 || paths > buffer.capacity()
+                || paths + (long) buffer.getInt(pathStarts + 4 * nodeCount) != buffer.capacity()) {
+            throw new IOException("Malformed graph index " + file);
+        }
+    }
+
+    /**
+     * Maps an index file written by {@link #write(KustomGraph, Path)}.
+     *
+     * @param file The index file.
+     * @return The {@link GraphIndex}.
+     * @throws IOException If the file cannot be mapped, or is not an index of this version.
+     */
+    public static GraphIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Graph index " + file + " is larger than 2 GiB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            GraphIndex index = new GraphIndex(file, mapped);
+            logger.debug("Mapped graph index {} with {} node(s).", file, index.nodeCount);
+            return index;
+        }
+    }
+
+    /**
+     * Writes the index of a graph to a temporary file next to {@code file} and moves it into
+     * place atomically.
+     *
+     * @param graph The graph to index.
+     * @param file  The index file.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalStateException If an edge leads to a node that is not in the graph.
+     */
+    public static void write(KustomGraph graph, Path file) throws IOException {
+        write(graph.freeze(), file);
+    }
+
+    /**
+     * Writes the index of a frozen graph like {@link #write(KustomGraph, Path)}. The index
+     * keeps the node ids, path order and edge arrays of the {@link FrozenGraph} as they are.
+     *
+     * @param graph The frozen graph to index.
+     * @param file  The index file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(FrozenGraph graph, Path file) throws IOException {
+        long start = System.currentTimeMillis();
+        Path target = file.toAbsolutePath().normalize();
+        AtomicFiles.write(target, out -> writeSections(new DataOutputStream(out), graph));
+        logger.debug(
+                "Wrote graph index {} with {} node(s) in {} ms.",
+                target,
+                graph.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    private static void writeSections(DataOutputStream out, FrozenGraph graph)
+            throws IOException {
+        int nodeCount = graph.size();
+        int referenceCount = graph.referenceStart(nodeCount);
+        int dependentCount = graph.dependentStart(nodeCount);
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(nodeCount);
+        out.writeInt(referenceCount);
+        out.writeInt(dependentCount);
+
+        byte[][] encodedPaths = new byte[nodeCount][];
+        int offset = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            encodedPaths[id] = graph.getPathBytes(id);
+            out.writeInt(offset);
+            offset += encodedPaths[id].length;
+        }
+        out.writeInt(offset);
+
+        for (int id = 0; id <= nodeCount; id++) {
+            out.writeInt(graph.referenceStart(id));
+        }
+        for (int edge = 0; edge < referenceCount; edge++) {
+            out.writeInt(graph.referenceTarget(edge));
+        }
+
+        for (int id = 0; id <= nodeCount; id++) {
+            out.writeInt(graph.dependentStart(id));
+        }
+        for (int edge = 0; edge < dependentCount; edge++) {
+            out.writeInt(graph.dependent(edge));
+        }
+
+        for (int id = 0; id < nodeCount; id++) {
+            byte flag = 0;
+            if (graph.isKustomization(id)) {
+                flag |= KUSTOMIZATION;
+                if (graph.isRoot(id)) {
+                    flag |= ROOT;
+                }
+            }
+            out.writeByte(flag);
+        }
+
+        for (byte[] encodedPath : encodedPaths) {
+            out.write(encodedPath);
+        }
+    }
+
+    /**
+     * @return The kustomization files of the root applications, in path order.
+     */
+    @Override
+    public List<Path> getRootAppPaths() {
+        List<Path> apps = new ArrayList<>();
+        for (int id = 0; id < nodeCount; id++) {
+            if ((flag(id) & ROOT) != 0) {
+                apps.add(path(id));
+            }
+        }
+        return apps;
+    }
+
+    /**
+     * Finds the root applications that directly or indirectly include a file, following the
+     * dependents of its node.
+     *
+     * @param file The file.
+     * @return The kustomization files of the root applications, each once.
+     * @throws UnreferencedFileException If the file is not a node of the graph.
+     */
+    @Override
+    public List<Path> getRootAppPathsWithFile(Path file) throws UnreferencedFileException {
+        if (file == null) {
+            throw new IllegalArgumentException("Path cannot be null for getRootAppPathsWithFile.");
+        }
+        Path normalized = file.toAbsolutePath().normalize();
+        int id = find(normalized);
+        if (id < 0) {
+            throw new UnreferencedFileException(normalized);
+        }
+        List<Path> apps = new ArrayList<>();
+        BitSet visited = new BitSet(nodeCount);
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = id;
+        while (size > 0) {
+            int current = stack[--size];
+            if (visited.get(current)) {
+                continue;
+            }
+            visited.set(current);
+            if ((flag(current) & ROOT) != 0) {
+                apps.add(path(current));
+                continue;
+            }
+            int start = dependentStart(current);
+            int end = dependentStart(current + 1);
+            for (int edge = end - 1; edge >= start; edge--) {
+                if (size == stack.length) {
+                    stack = Arrays.copyOf(stack, size * 2);
+                }
+                stack[size++] = buffer.getInt(dependents + 4 * edge);
+            }
+        }
+        return apps;
+    }
+
+    /**
+     * Lists every file an application uses, including its own kustomization file, in the order
+     * a depth-first walk of its references meets them.
+     *
+     * @param app The application directory.
+     * @return The files, each once.
+     * @throws NotAnAppException If the directory holds no kustomization file.
+     * @throws UnreferencedFileException If its kustomization file is not in the index.
+     * @throws KustomException If the kustomization file is not a kustomization node.
+     */
+    @Override
+    public List<Path> getAllAppFiles(Path app) throws KustomException {
+        if (app == null) {
+            throw new IllegalArgumentException("Path cannot be null for getAllAppFiles.");
+        }
+        return filesOf(findKustomization(app));
+    }
+
+    /**
+     * Lists the files of every root application, walking each app in turn.
+     *
+     * @return The files of each root application, including its kustomization file, keyed by
+     *     that kustomization file; apps and files are in path order.
+     */
+    @Override
+    public Map<Path, List<Path>> getAllAppFiles() {
+        Map<Path, List<Path>> apps = new LinkedHashMap<>();
+        for (int id = 0; id < nodeCount; id++) {
+            if ((flag(id) & ROOT) != 0) {
+                apps.put(path(id), filesOf(id).stream().sorted().toList());
+            }
+        }
+        return apps;
+    }
+
+    /** The files met by a depth-first walk of the references from node {@code id}. */
+    private List<Path> filesOf(int id) {
+        List<Path> files = new ArrayList<>();
+        BitSet visited = new BitSet(nodeCount);
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = id;
+        while (size > 0) {
+            int current = stack[--size];
+            if (visited.get(current)) {
+                continue;
+            }
+            visited.set(current);
+            files.add(path(current));
+            int start = referenceStart(current);
+            int end = referenceStart(current + 1);
+            for (int edge = end - 1; edge >= start; edge--) {
+                if (size == stack.length) {
+                    stack = Arrays.copyOf(stack, size * 2);
+                }
+                stack[size++] = buffer.getInt(references + 4 * edge);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param path A file path.
+     * @return {@code true} if the file is a node of the indexed graph.
+     */
+    @Override
+    public boolean containsNode(Path path) {
+        return path != null && find(path.toAbsolutePath().normalize()) >= 0;
+    }
+
+    /**
+     * @return The number of nodes in the index.
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphIndex[" + file + ", " + nodeCount + " nodes]";
+    }
+
+    /**
+     * Finds an application's kustomization node. The candidate file names are looked up in the
+     * index first; the file system is only asked when none of them is indexed, to tell a
+     * missing kustomization from an unindexed one.
+     */
+    private int findKustomization(Path app) throws KustomException {
+        Path normalized = app.toAbsolutePath().normalize();
+        for (String name : KustomizeFileUtil.KUSTOMIZATION_FILE_NAMES) {
+            int id = find(normalized.resolve(name));
+            if (id >= 0) {
+                if ((flag(id) & KUSTOMIZATION) == 0) {
+                    throw new NotAnAppException(app);
+                }
+                return id;
+            }
+        }
+        Path kustomizationFile =
+                KustomizeFileUtil.getKustomizationFileFromAppDirectory(
+                        app, FileSource.fileSystem());
+        throw new UnreferencedFileException(kustomizationFile.toAbsolutePath().normalize());
+    }
+
+    /** Binary search of the path dictionary; returns the node id, or -1. */
+    private int find(Path normalizedPath) {
+        byte[] key = encode(normalizedPath);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compare(mid, key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Compares the path of node {@code id} with {@code key}, as unsigned bytes. */
+    private int compare(int id, byte[] key) {
+        int start = paths + pathStart(id);
+        int length = pathStart(id + 1) - pathStart(id);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = Byte.toUnsignedInt(buffer.get(start + i)) - Byte.toUnsignedInt(key[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private Path path(int id) {
+        int start = pathStart(id);
+        byte[] bytes = new byte[pathStart(id + 1) - start];
+        buffer.get(paths + start, bytes);
+        return Path.of(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private int pathStart(int id) {
+        return buffer.getInt(pathStarts + 4 * id);
+    }
+
+    private int referenceStart(int id) {
+        return buffer.getInt(referenceStarts + 4 * id);
+    }
+
+    private int dependentStart(int id) {
+        return buffer.getInt(dependentStarts + 4 * id);
+    }
+
+    private byte flag(int id) {
+        return buffer.get(flags + id);
+    }
+
+    private static byte[] encode(Path path) {
+        return path.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Precomputed answer to "which root apps include this file" for every node of a graph,
+ * created by {@link FrozenGraph#getAffectedAppsIndex()}, or by
+ * {@link KustomGraph#computeAffectedAppsIndex()} without freezing the graph.
+ * <p>
+ * Root apps are numbered in path order, and each node holds the set of root apps that
+ * transitively include it, as a compressed bitmap. The sets are computed once, in topological
+ * order over the graph's strongly connected components: a component gets the union of the
+ * sets of the kustomizations outside it that reference its members, plus itself if it is a
+ * root app. Identical sets, such as those of all files of one app, are stored once. A query
+ * is then a lookup, and a query over many files one bitmap OR per file; the paths of the root
+ * apps are decoded once, when the index is built.
+ * <p>
+ * Instances are immutable and safe for concurrent queries.
+ */
+public final class AffectedAppsIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AffectedAppsIndex.class);
+
+    private final IntGraph graph;
+    // Kustomization file of each root app, in path order.
+    private final Path[] rootPaths;
+    private final int[] setOfNode;
+    private final CompressedBitmap[] sets;
+
+    private AffectedAppsIndex(
+            IntGraph graph, Path[] rootPaths, int[] setOfNode, CompressedBitmap[] sets) {
+        this.graph = graph;
+        this.rootPaths = rootPaths;
+        this.setOfNode = setOfNode;
+        this.sets = sets;
+    }
+
+    static AffectedAppsIndex of(IntGraph graph) {
+        long start = System.currentTimeMillis();
+        int n = graph.size();
+        // Root apps are numbered in the path order of their kustomization files.
+        List<Root> roots = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            if (graph.isRoot(id)) {
+                roots.add(new Root(graph.getPath(id), id));
+            }
+        }
+        roots.sort(Comparator.comparing(Root::path));
+        int rootCount = roots.size();
+        int[] rootOrdinal = new int[n];
+        Arrays.fill(rootOrdinal, -1);
+        Path[] rootPaths = new Path[rootCount];
+        for (int ordinal = 0; ordinal < rootCount; ordinal++) {
+            rootOrdinal[roots.get(ordinal).id()] = ordinal;
+            rootPaths[ordinal] = roots.get(ordinal).path();
+        }
+
+        // The dependents of each node, as compressed sparse rows over the reversed references.
+        int[] dependentStarts = new int[n + 1];
+        int edges = graph.referenceStart(n);
+        for (int edge = 0; edge < edges; edge++) {
+            dependentStarts[graph.referenceTarget(edge) + 1]++;
+        }
+        for (int id = 0; id < n; id++) {
+            dependentStarts[id + 1] += dependentStarts[id];
+        }
+        int[] dependents = new int[edges];
+        int[] next = Arrays.copyOf(dependentStarts, n);
+        for (int id = 0; id < n; id++) {
+            for (int edge = graph.referenceStart(id); edge < graph.referenceStart(id + 1); edge++) {
+                dependents[next[graph.referenceTarget(edge)]++] = id;
+            }
+        }
+
+        Condensation condensation = Condensation.of(graph);
+        int components = condensation.componentCount();
+        int[] setOfComponent = new int[components];
+        List<CompressedBitmap> sets = new ArrayList<>();
+        Map<CompressedBitmap, Integer> interned = new HashMap<>();
+        long[] scratch = new long[(rootCount + 63) >>> 6];
+        int[] touched = new int[scratch.length];
+        // Highest first: every referencing component is done before the ones it references.
+        for (int component = components - 1; component >= 0; component--) {
+            int touchedCount = 0;
+            for (int m = condensation.memberStart(component);
+                    m < condensation.memberStart(component + 1);
+                    m++) {
+                int member = condensation.member(m);
+                if (rootOrdinal[member] >= 0) {
+                    int ordinal = rootOrdinal[member];
+                    if (scratch[ordinal >>> 6] == 0) {
+                        touched[touchedCount++] = ordinal >>> 6;
+                    }
+                    scratch[ordinal >>> 6] |= 1L << ordinal;
+                }
+                for (int edge = dependentStarts[member];
+                        edge < dependentStarts[member + 1];
+                        edge++) {
+                    int dependentComponent = condensation.componentOf(dependents[edge]);
+                    if (dependentComponent != component) {
+                        touchedCount =
+                                sets.get(setOfComponent[dependentComponent])
+                                        .orInto(scratch, touched, touchedCount);
+                    }
+                }
+            }
+            CompressedBitmap set = CompressedBitmap.of(scratch, touched, touchedCount);
+            for (int i = 0; i < touchedCount; i++) {
+                scratch[touched[i]] = 0;
+            }
+            Integer index = interned.get(set);
+            if (index == null) {
+                index = sets.size();
+                sets.add(set);
+                interned.put(set, index);
+            }
+            setOfComponent[component] = index;
+        }
+
+        int[] setOfNode = new int[n];
+        for (int id = 0; id < n; id++) {
+            setOfNode[id] = setOfComponent[condensation.componentOf(id)];
+        }
+        AffectedAppsIndex index =
+                new AffectedAppsIndex(
+                        graph, rootPaths, setOfNode, sets.toArray(CompressedBitmap[]::new));
+        logger.debug(
+                "Indexed the root apps of {} node(s) in {} ms: {} root app(s), {} distinct"
+                        + " set(s), {} byte(s).",
+                n,
+                System.currentTimeMillis() - start,
+                rootCount,
+                index.getDistinctSetCount(),
+                index.getMemoryBytes());
+        return index;
+    }
+
+    /**
+     * Finds the root applications that directly or indirectly include a file.
+     *
+     * @param path The file.
+     * @return The kustomization files of the root applications, in path order.
+     * @throws UnreferencedFileException If the file is not a node of the graph.
+     */
+    public List<Path> getRootAppsWithFile(Path path) throws UnreferencedFileException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null for getRootAppsWithFile.");
+        }
+        int id = graph.idOf(path);
+        if (id < 0) {
+            throw new UnreferencedFileException(path.toAbsolutePath().normalize());
+        }
+        return toPaths(sets[setOfNode[id]].toArray());
+    }
+
+    /**
+     * Finds the root applications that directly or indirectly include a file, like
+     * {@link #getRootAppsWithFile(Path)}, without throwing for files outside the graph.
+     *
+     * @param path The file.
+     * @return The kustomization files of the root applications, in path order, or empty if
+     *     the file is not a node of the graph.
+     */
+    public Optional<List<Path>> findRootAppsWithFile(Path path) {
+        int id = path != null ? graph.idOf(path) : -1;
+        return id >= 0 ? Optional.of(toPaths(sets[setOfNode[id]].toArray())) : Optional.empty();
+    }
+
+    /**
+     * Finds the root applications that directly or indirectly include any of the files, with
+     * one bitmap OR per file. Files that are not nodes of the graph are skipped, as no app
+     * includes them.
+     *
+     * @param paths The files.
+     * @return The kustomization files of the root applications, each once, in path order.
+     */
+    public List<Path> getRootAppsWithAnyFile(Collection<Path> paths) {
+        long[] union = new long[(rootPaths.length + 63) >>> 6];
+        int[] touched = new int[union.length];
+        int touchedCount = 0;
+        for (Path path : paths) {
+            int id = graph.idOf(path);
+            if (id >= 0) {
+                touchedCount = sets[setOfNode[id]].orInto(union, touched, touchedCount);
+            }
+        }
+        return toPaths(CompressedBitmap.of(union, touched, touchedCount).toArray());
+    }
+
+    /**
+     * @return The number of distinct sets of root apps; nodes with the same set share it.
+     */
+    public int getDistinctSetCount() {
+        return sets.length;
+    }
+
+    /**
+     * @return The approximate heap taken by the index, not counting the graph or the
+     *     {@link Path} of each root app.
+     */
+    public long getMemoryBytes() {
+        long bytes =
+                16 + 8L * rootPaths.length + 16 + 4L * setOfNode.length + 16 + 8L * sets.length;
+        for (CompressedBitmap set : sets) {
+            bytes += 16 + set.getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "AffectedAppsIndex["
+                + rootPaths.length
+                + " root apps, "
+                + sets.length
+                + " distinct sets, "
+                + getMemoryBytes()
+                + " bytes]";
+    }
+
+    private List<Path> toPaths(int[] ordinals) {
+        List<Path> apps = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            apps.add(rootPaths[ordinal]);
+        }
+        return apps;
+    }
+
+    private record Root(Path path, int id) {}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the files of every root app of an {@link IntGraph} in one pass, for
+ * {@link FrozenGraph#getAllAppFiles()} and {@link KustomGraph#getAllAppFiles()}.
+ * <p>
+ * Each kustomization's transitive file set is computed once, as a compressed bitmap of node
+ * ids, in reverse topological order over the graph's strongly connected components: a
+ * component's set holds its members, the files they reference, and the sets of the
+ * kustomizations outside it that they reference. A base shared by many apps is therefore
+ * walked once and its set OR-ed into each parent, instead of being walked again for every
+ * app. A set is dropped as soon as every component referencing it is done, and the sets of
+ * root apps, which nothing references, are turned into paths without being kept.
+ */
+final class AppFileClosures {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppFileClosures.class);
+
+    private AppFileClosures() {}
+
+    /**
+     * @param graph The graph.
+     * @return The files of each root app, including its kustomization file, keyed by that
+     *     kustomization file; apps and files are in path order.
+     */
+    static Map<Path, List<Path>> of(IntGraph graph) {
+        long start = System.currentTimeMillis();
+        int n = graph.size();
+        Condensation condensation = Condensation.of(graph);
+        int components = condensation.componentCount();
+
+        // How many reference edges from other components still need each component's set.
+        int[] pendingReferrers = new int[components];
+        for (int id = 0; id < n; id++) {
+            for (int edge = graph.referenceStart(id); edge < graph.referenceStart(id + 1); edge++) {
+                int target = graph.referenceTarget(edge);
+                if (condensation.componentOf(target) != condensation.componentOf(id)) {
+                    pendingReferrers[condensation.componentOf(target)]++;
+                }
+            }
+        }
+
+        CompressedBitmap[] closures = new CompressedBitmap[components];
+        Path[] paths = new Path[n];
+        int[][] appFiles = new int[n][];
+        long[] scratch = new long[(n + 63) >>> 6];
+        int[] touched = new int[scratch.length];
+        int kept = 0;
+        int maxKept = 0;
+        // Lowest first: every referenced component is done before the ones referencing it.
+        for (int component = 0; component < components; component++) {
+            int touchedCount = 0;
+            boolean hasKustomization = false;
+            for (int m = condensation.memberStart(component);
+                    m < condensation.memberStart(component + 1);
+                    m++) {
+                int member = condensation.member(m);
+                hasKustomization |= graph.isKustomization(member);
+                touchedCount = set(scratch, touched, touchedCount, member);
+                for (int edge = graph.referenceStart(member);
+                        edge < graph.referenceStart(member + 1);
+                        edge++) {
+                    int target = graph.referenceTarget(edge);
+                    int targetComponent = condensation.componentOf(target);
+                    if (targetComponent == component) {
+                        continue;
+                    }
+                    if (graph.isKustomization(target)) {
+                        touchedCount =
+                                closures[targetComponent].orInto(scratch, touched, touchedCount);
+                    } else {
+                        touchedCount = set(scratch, touched, touchedCount, target);
+                    }
+                    if (--pendingReferrers[targetComponent] == 0
+                            && closures[targetComponent] != null) {
+                        closures[targetComponent] = null;
+                        kept--;
+                    }
+                }
+            }
+            if (!hasKustomization) {
+                // A file: referencing kustomizations set its bit directly.
+                clear(scratch, touched, touchedCount);
+                continue;
+            }
+            CompressedBitmap closure = CompressedBitmap.of(scratch, touched, touchedCount);
+            clear(scratch, touched, touchedCount);
+            int first = condensation.member(condensation.memberStart(component));
+            if (graph.isRoot(first)) {
+                // A root has no dependents, so it is alone in its component.
+                appFiles[first] = closure.toArray();
+            } else if (pendingReferrers[component] > 0) {
+                closures[component] = closure;
+                maxKept = Math.max(maxKept, ++kept);
+            }
+        }
+
+        Map<Path, List<Path>> apps = new TreeMap<>();
+        for (int id = 0; id < n; id++) {
+            if (appFiles[id] != null) {
+                List<Path> files = new ArrayList<>(appFiles[id].length);
+                for (int file : appFiles[id]) {
+                    if (paths[file] == null) {
+                        paths[file] = graph.getPath(file);
+                    }
+                    files.add(paths[file]);
+                }
+                // Already sorted when the ids are in path order, as in a FrozenGraph.
+                files.sort(null);
+                apps.put(paths[id] != null ? paths[id] : graph.getPath(id), files);
+            }
+        }
+        logger.debug(
+                "Collected the files of {} root app(s) over {} node(s) in {} ms, keeping at most"
+                        + " {} shared set(s) at once.",
+                apps.size(),
+                n,
+                System.currentTimeMillis() - start,
+                maxKept);
+        return new LinkedHashMap<>(apps);
+    }
+
+    private static int set(long[] scratch, int[] touched, int touchedCount, int id) {
+        if (scratch[id >>> 6] == 0) {
+            touched[touchedCount++] = id >>> 6;
+        }
+        scratch[id >>> 6] |= 1L << id;
+        return touchedCount;
+    }
+
+    private static void clear(long[] scratch, int[] touched, int touchedCount) {
+        for (int i = 0; i < touchedCount; i++) {
+            scratch[touched[i]] = 0;
+        }
+    }
+}
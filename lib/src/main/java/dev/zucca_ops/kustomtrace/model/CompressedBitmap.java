@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of small non-negative ints, stored either as a sorted array of its values
+ * or as bitmap words, whichever is smaller. Equal sets are equal objects, so that a map can
+ * intern them.
+ */
+final class CompressedBitmap {
+
+    static final CompressedBitmap EMPTY = new CompressedBitmap(new int[0], null);
+
+    // Exactly one of these is non-null.
+    private final int[] values;
+    private final long[] words;
+
+    private CompressedBitmap(int[] values, long[] words) {
+        this.values = values;
+        this.words = words;
+    }
+
+    /**
+     * Copies the set bits of {@code scratch}; only the words listed in {@code touched} may be
+     * non-zero.
+     *
+     * @param scratch      Bitmap words.
+     * @param touched      The indexes of the words that may be non-zero, in any order.
+     * @param touchedCount The number of entries of {@code touched} in use.
+     */
+    static CompressedBitmap of(long[] scratch, int[] touched, int touchedCount) {
+        if (touchedCount == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(touched, 0, touchedCount);
+        int cardinality = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            cardinality += Long.bitCount(scratch[touched[i]]);
+        }
+        int wordCount = touched[touchedCount - 1] + 1;
+        // An int per value against two ints per word.
+        if (cardinality <= 2 * wordCount) {
+            int[] values = new int[cardinality];
+            int next = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int word = touched[i];
+                long bits = scratch[word];
+                while (bits != 0) {
+                    values[next++] = word * 64 + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+            return new CompressedBitmap(values, null);
+        }
+        return new CompressedBitmap(null, Arrays.copyOf(scratch, wordCount));
+    }
+
+    /**
+     * Sets this set's bits in {@code target}, recording each word that was zero before in
+     * {@code touched}.
+     *
+     * @return The new number of entries of {@code touched} in use.
+     */
+    int orInto(long[] target, int[] touched, int touchedCount) {
+        if (values != null) {
+            for (int value : values) {
+                int word = value >>> 6;
+                if (target[word] == 0) {
+                    touched[touchedCount++] = word;
+                }
+                target[word] |= 1L << value;
+            }
+        } else {
+            for (int word = 0; word < words.length; word++) {
+                if (words[word] != 0) {
+                    if (target[word] == 0) {
+                        touched[touchedCount++] = word;
+                    }
+                    target[word] |= words[word];
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    /**
+     * @return The values of the set, in ascending order.
+     */
+    int[] toArray() {
+        if (values != null) {
+            return values.clone();
+        }
+        int[] result = new int[cardinality()];
+        int next = 0;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                result[next++] = word * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    int cardinality() {
+        if (values != null) {
+            return values.length;
+        }
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return The bytes of the array holding the set, with its header.
+     */
+    long getMemoryBytes() {
+        return 16 + (values != null ? 4L * values.length : 8L * words.length);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CompressedBitmap bitmap
+                && Arrays.equals(values, bitmap.values)
+                && Arrays.equals(words, bitmap.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return values != null ? Arrays.hashCode(values) : 31 * Arrays.hashCode(words);
+    }
+}
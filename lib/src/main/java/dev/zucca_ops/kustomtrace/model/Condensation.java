@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.util.Arrays;
+
+/**
+ * The strongly connected components of an {@link IntGraph}, following reference edges,
+ * found with an iterative version of Tarjan's algorithm so that deep overlay chains cannot
+ * overflow the stack.
+ * <p>
+ * Components are numbered in the order Tarjan's algorithm completes them: a component is
+ * numbered after every component its members reference, so iterating from the highest number
+ * down visits each component before everything it references, which is a topological order
+ * of the condensed graph. A component of more than one node, or of one node referencing
+ * itself, is a cycle.
+ */
+final class Condensation {
+
+    private final int[] componentOfNode;
+    // The members of component c are members[memberStarts[c]..memberStarts[c + 1]).
+    private final int[] memberStarts;
+    private final int[] members;
+
+    private Condensation(int[] componentOfNode, int[] memberStarts, int[] members) {
+        this.componentOfNode = componentOfNode;
+        this.memberStarts = memberStarts;
+        this.members = members;
+    }
+
+    static Condensation of(IntGraph graph) {
+        int n = graph.size();
+        int[] order = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        Arrays.fill(order, -1);
+        Arrays.fill(component, -1);
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // The explicit call stack: a node, and the next of its reference edges to follow.
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int visited = 0;
+        int components = 0;
+
+        for (int start = 0; start < n; start++) {
+            if (order[start] >= 0) {
+                continue;
+            }
+            order[start] = low[start] = visited++;
+            stack[stackSize++] = start;
+            callNode[0] = start;
+            callEdge[0] = graph.referenceStart(start);
+            int depth = 1;
+            while (depth > 0) {
+                int node = callNode[depth - 1];
+                int edge = callEdge[depth - 1];
+                if (edge < graph.referenceStart(node + 1)) {
+                    callEdge[depth - 1]++;
+                    int target = graph.referenceTarget(edge);
+                    if (order[target] < 0) {
+                        order[target] = low[target] = visited++;
+                        stack[stackSize++] = target;
+                        callNode[depth] = target;
+                        callEdge[depth] = graph.referenceStart(target);
+                        depth++;
+                    } else if (component[target] < 0) {
+                        // Still on the stack: part of the component being explored.
+                        low[node] = Math.min(low[node], order[target]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        component[member] = components;
+                    } while (member != node);
+                    components++;
+                }
+                if (depth > 0) {
+                    int caller = callNode[depth - 1];
+                    low[caller] = Math.min(low[caller], low[node]);
+                }
+            }
+        }
+
+        int[] memberStarts = new int[components + 1];
+        for (int node = 0; node < n; node++) {
+            memberStarts[component[node] + 1]++;
+        }
+        for (int c = 0; c < components; c++) {
+            memberStarts[c + 1] += memberStarts[c];
+        }
+        int[] next = Arrays.copyOf(memberStarts, components);
+        int[] members = new int[n];
+        for (int node = 0; node < n; node++) {
+            members[next[component[node]]++] = node;
+        }
+        return new Condensation(component, memberStarts, members);
+    }
+
+    int componentCount() {
+        return memberStarts.length - 1;
+    }
+
+    int componentOf(int node) {
+        return componentOfNode[node];
+    }
+
+    int memberStart(int component) {
+        return memberStarts[component];
+    }
+
+    int member(int index) {
+        return members[index];
+    }
+}
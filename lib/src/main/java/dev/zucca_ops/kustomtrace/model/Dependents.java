@@ -0,0 +1,159 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The dependents of a {@link GraphNode}: a set many build threads add to at once, read as an
+ * immutable array in the order the dependents were added.
+ * <p>
+ * A set of up to {@link #SMALL} dependents, which is what nearly every node has, is kept in
+ * the array alone and replaced under the lock on each add. A larger set, such as the parents
+ * of a base shared by thousands of overlays, moves its membership to a concurrent hash set
+ * and its additions to a lock-free queue: an add is then a hash lookup and a queue append,
+ * with no copy, and the queued dependents are appended to the array in a single copy the next
+ * time it is read. Reads of an unchanged set return the same array without locking.
+ * <p>
+ * {@link #remove(Kustomization)} must not race with an add of the same dependent.
+ */
+final class Dependents {
+
+    static final int SMALL = 8;
+
+    private static final Kustomization[] EMPTY = {};
+
+    private volatile Kustomization[] array = EMPTY;
+    // Null until the set outgrows SMALL; written once, under the lock.
+    private volatile Large large;
+
+    private record Large(Set<Kustomization> members, Queue<Kustomization> pending) {}
+
+    /**
+     * Adds a dependent unless it is already present.
+     *
+     * @param dependent The dependent to add.
+     * @return {@code true} if it was added.
+     */
+    boolean add(Kustomization dependent) {
+        Large current = large;
+        if (current == null) {
+            synchronized (this) {
+                current = large;
+                if (current == null) {
+                    Kustomization[] members = array;
+                    for (Kustomization member : members) {
+                        if (member == dependent) {
+                            return false;
+                        }
+                    }
+                    if (members.length < SMALL) {
+                        Kustomization[] grown = Arrays.copyOf(members, members.length + 1);
+                        grown[members.length] = dependent;
+                        array = grown;
+                        return true;
+                    }
+                    Set<Kustomization> set = ConcurrentHashMap.newKeySet(members.length * 4);
+                    Collections.addAll(set, members);
+                    current = new Large(set, new ConcurrentLinkedQueue<>());
+                    large = current;
+                }
+            }
+        }
+        if (!current.members().add(dependent)) {
+            return false;
+        }
+        current.pending().add(dependent);
+        return true;
+    }
+
+    /**
+     * Removes a dependent.
+     *
+     * @param dependent The dependent to remove.
+     * @return {@code true} if it was present.
+     */
+    synchronized boolean remove(Kustomization dependent) {
+        Kustomization[] members = toArray();
+        Large current = large;
+        if (current != null && !current.members().remove(dependent)) {
+            return false;
+        }
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] == dependent) {
+                Kustomization[] shrunk = new Kustomization[members.length - 1];
+                System.arraycopy(members, 0, shrunk, 0, i);
+                System.arraycopy(members, i + 1, shrunk, i, members.length - i - 1);
+                array = shrunk;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if there is no dependent.
+     */
+    boolean isEmpty() {
+        if (array.length > 0) {
+            return false;
+        }
+        Large current = large;
+        return current == null || current.pending().isEmpty();
+    }
+
+    /**
+     * @return The dependents, as an immutable snapshot.
+     */
+    List<Kustomization> toList() {
+        return Collections.unmodifiableList(Arrays.asList(toArray()));
+    }
+
+    /**
+     * @return The dependents, as an array that is never modified; callers must not modify it
+     *     either.
+     */
+    Kustomization[] toArray() {
+        Kustomization[] members = array;
+        Large current = large;
+        if (current == null || current.pending().isEmpty()) {
+            return members;
+        }
+        synchronized (this) {
+            List<Kustomization> drained = new ArrayList<>();
+            Kustomization next;
+            while ((next = current.pending().poll()) != null) {
+                drained.add(next);
+            }
+            if (drained.isEmpty()) {
+                return array;
+            }
+            Kustomization[] compacted = Arrays.copyOf(array, array.length + drained.size());
+            for (int i = 0; i < drained.size(); i++) {
+                compacted[array.length + i] = drained.get(i);
+            }
+            array = compacted;
+            return compacted;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.exceptions.KustomException;
+import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable, compact form of a {@link KustomGraph}, created by {@link KustomGraph#freeze()}.
+ * <p>
+ * Each node gets a dense int id, in path order. Paths are kept once, as UTF-8 bytes in a single
+ * array looked up through an open-addressing table of ids, and turned back into {@link Path}s
+ * only for the results of a query; the references and dependents are stored as
+ * compressed sparse rows: per node, the start of its run in one shared int array of target
+ * ids, with a byte per reference holding its {@link ReferenceType}. Queries walk these
+ * primitive arrays and mark visited nodes in a {@link BitSet}, so they allocate no node
+ * objects and follow no per-edge pointers.
+ * <p>
+ * The ids and edge accessors are public so that traversals can run on the arrays directly:
+ * the references of node {@code id} are the edges {@link #referenceStart(int) referenceStart(id)}
+ * (inclusive) to {@code referenceStart(id + 1)} (exclusive), and the same holds for the
+ * dependents. A {@code GraphIndex} is these arrays written to a file as they are.
+ * <p>
+ * Instances are immutable and safe for concurrent queries.
+ */
+public final class FrozenGraph implements IntGraph, GraphView {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrozenGraph.class);
+
+    private static final byte KUSTOMIZATION = 1;
+    private static final byte ROOT = 2;
+    private static final ReferenceType[] REFERENCE_TYPES = ReferenceType.values();
+
+    private final FileSource fileSource;
+    private final int nodeCount;
+    // The UTF-8 bytes of node id's path are pathBytes[pathStarts[id]..pathStarts[id + 1]).
+    private final byte[] pathBytes;
+    private final int[] pathStarts;
+    private final byte[] flags;
+    // Open addressing over the path hashes; holds id + 1, 0 marks a free slot.
+    private final int[] slots;
+    private final int[] referenceStarts;
+    private final int[] referenceTargets;
+    private final byte[] referenceTypes;
+    private final int[] dependentStarts;
+    private final int[] dependentIds;
+    private volatile AffectedAppsIndex affectedAppsIndex;
+
+    private FrozenGraph(
+            FileSource fileSource,
+            byte[] pathBytes,
+            int[] pathStarts,
+            byte[] flags,
+            int[] referenceStarts,
+            int[] referenceTargets,
+            byte[] referenceTypes,
+            int[] dependentStarts,
+            int[] dependentIds) {
+        this.fileSource = fileSource;
+        this.nodeCount = flags.length;
+        this.pathBytes = pathBytes;
+        this.pathStarts = pathStarts;
+        this.flags = flags;
+        this.referenceStarts = referenceStarts;
+        this.referenceTargets = referenceTargets;
+        this.referenceTypes = referenceTypes;
+        this.dependentStarts = dependentStarts;
+        this.dependentIds = dependentIds;
+        this.slots = new int[Integer.highestOneBit(Math.max(nodeCount, 1) * 2 - 1) << 1];
+        int mask = slots.length - 1;
+        for (int id = 0; id < nodeCount; id++) {
+            int slot = hash(pathBytes, pathStarts[id], pathStarts[id + 1]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Copies a graph into its frozen form. The graph must not be modified meanwhile.
+     *
+     * @param graph The graph to freeze.
+     * @return The {@link FrozenGraph}.
+     * @throws IllegalStateException If an edge leads to a node that is not in the graph.
+     */
+    static FrozenGraph of(KustomGraph graph) {
+        long start = System.currentTimeMillis();
+        GraphNode[] nodes = graph.getNodes().toArray(GraphNode[]::new);
+        byte[][] encodedPaths = new byte[nodes.length][];
+        Integer[] order = new Integer[nodes.length];
+        int pathLength = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            encodedPaths[i] = encode(nodes[i].getPath());
+            pathLength += encodedPaths[i].length;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(encodedPaths[a], encodedPaths[b]));
+        Map<GraphNode, Integer> ids = new IdentityHashMap<>(nodes.length);
+        for (int id = 0; id < order.length; id++) {
+            ids.put(nodes[order[id]], id);
+        }
+
+        int referenceCount = 0;
+        int dependentCount = 0;
+        for (GraphNode node : nodes) {
+            if (node instanceof Kustomization kustomization) {
+                referenceCount += kustomization.getReferences().size();
+            }
+            dependentCount += node.getDependents().size();
+        }
+
+        byte[] pathBytes = new byte[pathLength];
+        int[] pathStarts = new int[nodes.length + 1];
+        byte[] flags = new byte[nodes.length];
+        int[] referenceStarts = new int[nodes.length + 1];
+        int[] referenceTargets = new int[referenceCount];
+        byte[] referenceTypes = new byte[referenceCount];
+        int[] dependentStarts = new int[nodes.length + 1];
+        int[] dependentIds = new int[dependentCount];
+        int pathOffset = 0;
+        int reference = 0;
+        int dependent = 0;
+        for (int id = 0; id < order.length; id++) {
+            GraphNode node = nodes[order[id]];
+            byte[] encoded = encodedPaths[order[id]];
+            System.arraycopy(encoded, 0, pathBytes, pathOffset, encoded.length);
+            pathStarts[id] = pathOffset;
+            pathOffset += encoded.length;
+            referenceStarts[id] = reference;
+            dependentStarts[id] = dependent;
+            if (node instanceof Kustomization kustomization) {
+                flags[id] = kustomization.isRoot() ? KUSTOMIZATION | ROOT : KUSTOMIZATION;
+                for (ResourceReference edge : kustomization.getReferences()) {
+                    referenceTargets[reference] = id(ids, edge.resource());
+                    referenceTypes[reference] = (byte) edge.referenceType().ordinal();
+                    reference++;
+                }
+            }
+            for (Kustomization edge : node.getDependents()) {
+                dependentIds[dependent++] = id(ids, edge);
+            }
+        }
+        pathStarts[nodes.length] = pathOffset;
+        referenceStarts[nodes.length] = reference;
+        dependentStarts[nodes.length] = dependent;
+
+        FrozenGraph frozen =
+                new FrozenGraph(
+                        graph.getFileSource(),
+                        pathBytes,
+                        pathStarts,
+                        flags,
+                        referenceStarts,
+                        referenceTargets,
+                        referenceTypes,
+                        dependentStarts,
+                        dependentIds);
+        logger.debug(
+                "Froze {} node(s) and {} reference(s) into {} byte(s) of arrays in {} ms.",
+                nodes.length,
+                referenceCount,
+                frozen.getArrayBytes(),
+                System.currentTimeMillis() - start);
+        return frozen;
+    }
+
+    private static int id(Map<GraphNode, Integer> ids, GraphNode node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new IllegalStateException(
+                    "Edge to a node that is not in the graph: " + node.getPath());
+        }
+        return id;
+    }
+
+    /**
+     * @return The number of nodes.
+     */
+    @Override
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * @param path A file path.
+     * @return The id of the file's node, or {@code -1} if it is not in the graph.
+     */
+    @Override
+    public int idOf(Path path) {
+        if (path == null) {
+            return -1;
+        }
+        byte[] encoded = encode(path);
+        int mask = slots.length - 1;
+        int slot = hash(encoded, 0, encoded.length) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (Arrays.equals(
+                    pathBytes, pathStarts[id], pathStarts[id + 1], encoded, 0, encoded.length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsNode(Path path) {
+        return idOf(path) >= 0;
+    }
+
+    /**
+     * @param id A node id.
+     * @return The absolute, normalized path of the node.
+     */
+    @Override
+    public Path getPath(int id) {
+        return Path.of(
+                new String(
+                        pathBytes,
+                        pathStarts[id],
+                        pathStarts[id + 1] - pathStarts[id],
+                        StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param id A node id.
+     * @return The UTF-8 bytes of the node's absolute, normalized path; ids are in the unsigned
+     *     order of these bytes.
+     */
+    public byte[] getPathBytes(int id) {
+        return Arrays.copyOfRange(pathBytes, pathStarts[id], pathStarts[id + 1]);
+    }
+
+    /**
+     * @param id A node id.
+     * @return {@code true} if the node is a kustomization.
+     */
+    @Override
+    public boolean isKustomization(int id) {
+        return (flags[id] & KUSTOMIZATION) != 0;
+    }
+
+    /**
+     * @param id A node id.
+     * @return {@code true} if the node is a kustomization no other kustomization references.
+     */
+    @Override
+    public boolean isRoot(int id) {
+        return (flags[id] & ROOT) != 0;
+    }
+
+    /**
+     * @param id A node id, or {@link #size()} for the end of the last node's references.
+     * @return The index of the node's first reference edge.
+     */
+    @Override
+    public int referenceStart(int id) {
+        return referenceStarts[id];
+    }
+
+    /**
+     * @param edge A reference edge index.
+     * @return The id of the node the reference points to.
+     */
+    @Override
+    public int referenceTarget(int edge) {
+        return referenceTargets[edge];
+    }
+
+    /**
+     * @param edge A reference edge index.
+     * @return The {@link ReferenceType} of the reference.
+     */
+    public ReferenceType referenceType(int edge) {
+        return REFERENCE_TYPES[referenceTypes[edge]];
+    }
+
+    /**
+     * @param id A node id, or {@link #size()} for the end of the last node's dependents.
+     * @return The index of the node's first dependent edge.
+     */
+    public int dependentStart(int id) {
+        return dependentStarts[id];
+    }
+
+    /**
+     * @param edge A dependent edge index.
+     * @return The id of the kustomization that references the node.
+     */
+    public int dependent(int edge) {
+        return dependentIds[edge];
+    }
+
+    /**
+     * @return The kustomization files of the root applications, in path order.
+     */
+    @Override
+    public List<Path> getRootAppPaths() {
+        List<Path> apps = new ArrayList<>();
+        for (int id = 0; id < nodeCount; id++) {
+            if (isRoot(id)) {
+                apps.add(getPath(id));
+            }
+        }
+        return apps;
+    }
+
+    /**
+     * Finds the root applications that directly or indirectly include a file, like
+     * {@link KustomGraph#getRootAppsWithFile(Path)}.
+     *
+     * @param path The file.
+     * @return The kustomization files of the root applications, each once.
+     * @throws UnreferencedFileException If the file is not a node of the graph.
+     */
+    @Override
+    public List<Path> getRootAppPathsWithFile(Path path) throws UnreferencedFileException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null for getRootAppPathsWithFile.");
+        }
+        int id = idOf(path);
+        if (id < 0) {
+            throw new UnreferencedFileException(path.toAbsolutePath().normalize());
+        }
+        List<Path> apps = new ArrayList<>();
+        BitSet visited = new BitSet(nodeCount);
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = id;
+        while (size > 0) {
+            int current = stack[--size];
+            if (visited.get(current)) {
+                continue;
+            }
+            visited.set(current);
+            if (isRoot(current)) {
+                apps.add(getPath(current));
+                continue;
+            }
+            int start = dependentStarts[current];
+            int end = dependentStarts[current + 1];
+            if (size + end - start > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + end - start));
+            }
+            for (int edge = end - 1; edge >= start; edge--) {
+                stack[size++] = dependentIds[edge];
+            }
+        }
+        return apps;
+    }
+
+    /**
+     * Lists every file an application uses, including its own kustomization file, in the same
+     * order as {@link KustomGraph#getAllAppFiles(Path)}.
+     *
+     * @param appPath The application directory.
+     * @return The files, each once.
+     * @throws NotAnAppException If the path does not lead to a kustomization file, or its node
+     *     is not a kustomization.
+     * @throws UnreferencedFileException If the kustomization file is not in the graph.
+     */
+    @Override
+    public List<Path> getAllAppFiles(Path appPath) throws KustomException {
+        if (appPath == null) {
+            throw new IllegalArgumentException(
+                    "Input application path for getAllAppFiles cannot be null.");
+        }
+        int id = findKustomization(appPath);
+        List<Path> files = new ArrayList<>();
+        BitSet visited = new BitSet(nodeCount);
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = id;
+        while (size > 0) {
+            int current = stack[--size];
+            if (visited.get(current)) {
+                continue;
+            }
+            visited.set(current);
+            files.add(getPath(current));
+            int start = referenceStarts[current];
+            int end = referenceStarts[current + 1];
+            if (size + end - start > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + end - start));
+            }
+            for (int edge = end - 1; edge >= start; edge--) {
+                stack[size++] = referenceTargets[edge];
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Lists the files of every root application in one pass. Each kustomization's files are
+     * collected once and shared by every kustomization referencing it, so the time grows with
+     * the size of the graph and of the result, not with the number of apps times the depth of
+     * their overlays.
+     *
+     * @return The files of each root application, including its kustomization file, keyed by
+     *     that kustomization file; apps and files are in path order.
+     */
+    @Override
+    public Map<Path, List<Path>> getAllAppFiles() {
+        return AppFileClosures.of(this);
+    }
+
+    /**
+     * Returns the {@link AffectedAppsIndex} of this graph, computing it on the first call.
+     *
+     * @return The index.
+     */
+    public AffectedAppsIndex getAffectedAppsIndex() {
+        AffectedAppsIndex index = affectedAppsIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = affectedAppsIndex;
+                if (index == null) {
+                    index = AffectedAppsIndex.of(this);
+                    affectedAppsIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return {@code true} if {@link #getAffectedAppsIndex()} has been computed.
+     */
+    public boolean hasAffectedAppsIndex() {
+        return affectedAppsIndex != null;
+    }
+
+    /**
+     * Finds an application's kustomization node. The candidate file names are looked up in
+     * the graph first; the file source is only asked when none of them is a node, to tell a
+     * missing kustomization from one the graph does not hold.
+     */
+    private int findKustomization(Path appPath) throws KustomException {
+        for (String name : KustomizeFileUtil.KUSTOMIZATION_FILE_NAMES) {
+            int id = idOf(appPath.resolve(name));
+            if (id >= 0) {
+                if (!isKustomization(id)) {
+                    throw new NotAnAppException(appPath);
+                }
+                return id;
+            }
+        }
+        Path kustomizationFile =
+                KustomizeFileUtil.getKustomizationFileFromAppDirectory(appPath, fileSource);
+        throw new UnreferencedFileException(kustomizationFile.toAbsolutePath().normalize());
+    }
+
+    /**
+     * @return The {@link FileSource} the graph was built from.
+     */
+    public FileSource getFileSource() {
+        return fileSource;
+    }
+
+    /**
+     * @return The bytes taken by the path, flag, lookup and edge arrays, which is all the
+     *     graph holds besides its file source.
+     */
+    public long getArrayBytes() {
+        return pathBytes.length
+                + 4L * pathStarts.length
+                + flags.length
+                + 4L * slots.length
+                + 4L * (referenceStarts.length + referenceTargets.length)
+                + referenceTypes.length
+                + 4L * (dependentStarts.length + dependentIds.length);
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenGraph["
+                + nodeCount
+                + " nodes, "
+                + referenceTargets.length
+                + " references]";
+    }
+
+    private static byte[] encode(Path path) {
+        return path.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spreads the high bits into the low bits used for the slot.
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -16,10 +16,7 @@
 package dev.zucca_ops.kustomtrace.model;
 
 import java.nio.file.Path;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
 /**
@@ -28,7 +25,9 @@ import java.util.stream.Stream;
  */
 public abstract class GraphNode {
     protected Path path; // Path to the file system entity this node represents.
-    protected final CopyOnWriteArrayList<Kustomization> dependents = new CopyOnWriteArrayList<>();
+    private final Dependents dependents = new Dependents();
+    // The sorted paths of the cycle this node was in when KustomGraph last looked; else null.
+    volatile List<Path> cycle;
 
     /**
      * Constructor to set the path for the graph node.
@@ -46,10 +45,25 @@ public abstract class GraphNode {
     }
 
     /**
-     * @return An unmodifiable list of Kustomizations that depend on this node.
+     * @return An unmodifiable snapshot of the Kustomizations that depend on this node, in the
+     *     order they were added.
      */
     public List<Kustomization> getDependents() {
-        return Collections.unmodifiableList(dependents); // Return read-only view
+        return dependents.toList();
+    }
+
+    /**
+     * @return The dependents, as an array callers must not modify.
+     */
+    Kustomization[] dependentArray() {
+        return dependents.toArray();
+    }
+
+    /**
+     * @return {@code true} if any Kustomization depends on this node.
+     */
+    boolean hasDependents() {
+        return !dependents.isEmpty();
     }
 
     /**
@@ -63,15 +77,25 @@ public abstract class GraphNode {
     }
 
     /**
-     * Adds a Kustomization that depends on this node.
+     * Adds a Kustomization that depends on this node, unless it already does. Safe to call
+     * from many threads at once, without copying the dependents on each call.
      * @param dependent The Kustomization that depends on this node.
      */
     public void addDependent(Kustomization dependent) {
         if (dependent != null) {
-            dependents.addIfAbsent(dependent);
+            dependents.add(dependent);
         }
     }
 
+    /**
+     * Removes a Kustomization that no longer depends on this node.
+     * @param dependent The Kustomization to remove.
+     * @return {@code true} if it was a dependent.
+     */
+    public boolean removeDependent(Kustomization dependent) {
+        return dependents.remove(dependent);
+    }
+
     // --- Abstract methods to be implemented by subclasses ---
 
     /**
@@ -92,14 +116,6 @@ public abstract class GraphNode {
      */
     abstract Stream<Path> getDependencies();
 
-    /**
-     * Gets all file paths this node directly or indirectly depends on (including itself),
-     * using a provided set to detect and prevent cycles.
-     * @param visited A set of already visited nodes in the current traversal.
-     * @return A stream of {@link Path}s.
-     */
-    abstract Stream<Path> getDependencies(Set<GraphNode> visited);
-
     /**
      * @return {@code true} if this node represents a Kustomization file.
      */
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Depth-first traversal of the {@link GraphNode}s reachable from a node, following either the
+ * references of kustomizations or the dependents of nodes, with an explicit work stack instead
+ * of recursion, so that deep overlay chains cannot overflow the stack.
+ * <p>
+ * Each node is visited once, in pre-order, and its edges are followed in order, so nodes come
+ * out in the order of the former recursive walk. A node reached again through another path,
+ * as in a diamond where two overlays share a base, is skipped silently; only an edge back to a
+ * node still on the current path is a cycle, and the first one found is returned so that the
+ * caller reports it once.
+ * <p>
+ * Each traversal keeps its own marks and stack, so traversals on other threads, or started
+ * from a visitor, neither wait for nor disturb one another.
+ */
+final class GraphTraversal {
+
+    /** The edges to follow. */
+    enum Direction {
+        REFERENCES,
+        DEPENDENTS
+    }
+
+    private GraphTraversal() {}
+
+    /**
+     * Visits every node reachable from {@code start}, including itself, in pre-order.
+     *
+     * @param start     The node to start from.
+     * @param direction The edges to follow.
+     * @param visitor   Called once per node.
+     * @return The paths of the first cycle found, starting and ending with the same node, or
+     *     {@code null} if there is none.
+     */
+    static List<Path> traverse(GraphNode start, Direction direction, Consumer<GraphNode> visitor) {
+        return walk(start, direction, visitor).cycle;
+    }
+
+    private static Walk walk(GraphNode start, Direction direction, Consumer<GraphNode> visitor) {
+        Walk walk = new Walk(direction);
+        walk.run(start, visitor);
+        return walk;
+    }
+
+    /**
+     * @param start The kustomization or file to start from.
+     * @return The paths of {@code start} and of everything it references, directly or
+     *     indirectly, each once.
+     */
+    static Result<Path> dependencies(GraphNode start) {
+        List<Path> paths = new ArrayList<>();
+        Walk walk = walk(start, Direction.REFERENCES, node -> paths.add(node.path));
+        return new Result<>(paths, walk.cycle, walk.cycleKnown);
+    }
+
+    /**
+     * @param start The kustomization or file to start from.
+     * @return The root kustomizations that reference {@code start}, directly or indirectly,
+     *     each once; {@code start} itself if it is a root.
+     */
+    static Result<Kustomization> apps(GraphNode start) {
+        List<Kustomization> apps = new ArrayList<>();
+        Walk walk =
+                walk(
+                        start,
+                        Direction.DEPENDENTS,
+                        node -> {
+                            if (node instanceof Kustomization kustomization && node.isRoot()) {
+                                apps.add(kustomization);
+                            }
+                        });
+        return new Result<>(apps, walk.cycle, walk.cycleKnown);
+    }
+
+    /**
+     * What a traversal collected, and the first cycle it found.
+     *
+     * @param values The values, in visiting order.
+     * @param cycle  The paths of the cycle, starting and ending with the same node, or
+     *     {@code null}.
+     * @param cycleKnown {@code true} if the cycle is part of one that
+     *     {@link KustomGraph#findCycles()} already found, and so was already reported.
+     */
+    record Result<T>(List<T> values, List<Path> cycle, boolean cycleKnown) {}
+
+    private static final class Walk {
+        private final Direction direction;
+        // The visited nodes: FALSE while on the current path, TRUE once done.
+        private final Map<GraphNode, Boolean> marks = new IdentityHashMap<>();
+        // The current path: a node, and the index of its next edge to follow.
+        private GraphNode[] nodes = new GraphNode[16];
+        private int[] edges = new int[16];
+        private List<Path> cycle;
+        private boolean cycleKnown;
+
+        Walk(Direction direction) {
+            this.direction = direction;
+        }
+
+        void run(GraphNode start, Consumer<GraphNode> visitor) {
+            int depth = 0;
+            enter(start, 0, visitor);
+            while (depth >= 0) {
+                GraphNode node = nodes[depth];
+                GraphNode next = edge(node, edges[depth]++);
+                if (next == null) {
+                    if (edges[depth] > edgeCount(node)) {
+                        marks.put(node, Boolean.TRUE);
+                        nodes[depth--] = null;
+                    }
+                    continue;
+                }
+                Boolean done = marks.get(next);
+                if (done == null) {
+                    enter(next, ++depth, visitor);
+                } else if (!done && cycle == null) {
+                    cycle = cycle(depth, next);
+                    cycleKnown = next.cycle != null;
+                }
+            }
+        }
+
+        private void enter(GraphNode node, int depth, Consumer<GraphNode> visitor) {
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                edges = Arrays.copyOf(edges, depth * 2);
+            }
+            nodes[depth] = node;
+            edges[depth] = 0;
+            marks.put(node, Boolean.FALSE);
+            visitor.accept(node);
+        }
+
+        /** The paths from the node's position on the current path down to the top, and back. */
+        private List<Path> cycle(int depth, GraphNode target) {
+            int from = depth;
+            while (nodes[from] != target) {
+                from--;
+            }
+            List<Path> paths = new ArrayList<>(depth - from + 2);
+            for (int i = from; i <= depth; i++) {
+                paths.add(nodes[i].path);
+            }
+            paths.add(target.path);
+            return paths;
+        }
+
+        private int edgeCount(GraphNode node) {
+            if (direction == Direction.DEPENDENTS) {
+                return node.dependentArray().length;
+            }
+            return node instanceof Kustomization kustomization
+                    ? kustomization.references().size()
+                    : 0;
+        }
+
+        /** The node at edge {@code index}, or {@code null} past the end or for a dangling one. */
+        private GraphNode edge(GraphNode node, int index) {
+            if (direction == Direction.DEPENDENTS) {
+                Kustomization[] dependents = node.dependentArray();
+                return index < dependents.length ? dependents[index] : null;
+            }
+            if (node instanceof Kustomization kustomization) {
+                List<ResourceReference> references = kustomization.references();
+                if (index < references.size()) {
+                    ResourceReference reference = references.get(index);
+                    return reference != null ? reference.resource() : null;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.exceptions.KustomException;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The read-only queries over a built graph, whichever form it is held in: a
+ * {@link KustomGraph} of node objects, its {@link FrozenGraph}, or a memory-mapped
+ * {@code GraphIndex}. Applications are named by their kustomization file, and every returned
+ * path is absolute and normalized.
+ */
+public interface GraphView {
+
+    /**
+     * @param path A file path.
+     * @return {@code true} if the file is a node of the graph.
+     */
+    boolean containsNode(Path path);
+
+    /**
+     * @return The kustomization files of the root applications.
+     */
+    List<Path> getRootAppPaths();
+
+    /**
+     * Finds the root applications that directly or indirectly include a file.
+     *
+     * @param path The file.
+     * @return The kustomization files of the root applications, each once.
+     * @throws UnreferencedFileException If the file is not a node of the graph.
+     */
+    List<Path> getRootAppPathsWithFile(Path path) throws UnreferencedFileException;
+
+    /**
+     * Lists every file an application uses, including its own kustomization file, in the
+     * order a depth-first walk of its references meets them.
+     *
+     * @param appPath The application directory.
+     * @return The files, each once.
+     * @throws KustomException If the path does not lead to a kustomization of the graph.
+     */
+    List<Path> getAllAppFiles(Path appPath) throws KustomException;
+
+    /**
+     * Lists the files of every root application.
+     *
+     * @return The files of each root application, including its kustomization file, keyed by
+     *     that kustomization file; apps and files are in path order.
+     */
+    Map<Path, List<Path>> getAllAppFiles();
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.nio.file.Path;
+
+/**
+ * A graph whose nodes are numbered from 0 to {@link #size()} - 1, with each
+ * node's reference edges numbered {@code referenceStart(id)} up to
+ * {@code referenceStart(id + 1)}, as in compressed sparse rows. The algorithms over whole
+ * graphs, such as {@link Condensation}, run on it.
+ */
+interface IntGraph {
+
+    int size();
+
+    /** Returns the id of the node of a file, or {@code -1} if it is not in the graph. */
+    int idOf(Path path);
+
+    Path getPath(int id);
+
+    boolean isKustomization(int id);
+
+    boolean isRoot(int id);
+
+    int referenceStart(int id);
+
+    int referenceTarget(int edge);
+}
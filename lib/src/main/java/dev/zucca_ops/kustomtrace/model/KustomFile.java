@@ -18,18 +18,28 @@ package dev.zucca_ops.kustomtrace.model;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Represents a regular Kubernetes manifest file (e.g., YAML or JSON)
  * as a node in the Kustomize dependency graph. It can contain one or more
  * Kubernetes resources.
+ * <p>
+ * The resources are either added while the file is parsed, or loaded on the first call to
+ * {@link #getResources()} when the node is created with a loader.
  */
 public class KustomFile extends GraphNode {
 
-    // List of Kubernetes resources parsed from this file.
-    private final List<KustomResource> resources = new ArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(KustomFile.class);
+
+    // List of Kubernetes resources parsed from this file; null until the loader has run.
+    private volatile List<KustomResource> resources;
+    // Guarded by this; cleared once the resources are loaded.
+    private Supplier<List<KustomResource>> loader;
 
     /**
      * Constructs a KustomFile node.
@@ -37,16 +47,39 @@ public class KustomFile extends GraphNode {
      */
     public KustomFile(Path path) {
         super(path);
+        this.resources = new ArrayList<>();
+    }
+
+    /**
+     * Constructs a KustomFile node whose resources are loaded on first access.
+     * <p>
+     * The loader runs at most once, on the first thread to ask for the resources; other
+     * threads asking meanwhile wait for it. Each loaded resource is linked back to this file.
+     *
+     * @param path   The file system path to this file.
+     * @param loader Reads the file's resources. It should not throw.
+     */
+    public KustomFile(Path path, Supplier<List<KustomResource>> loader) {
+        super(path);
+        this.loader = Objects.requireNonNull(loader, "Resource loader cannot be null.");
     }
 
     /**
      * Retrieves the root Kustomizations that ultimately reference this file.
-     * This is determined by traversing up through its dependents.
-     * @return A stream of root {@link Kustomization}s that depend on this file.
+     * This is determined by traversing up through its dependents, iteratively; a cycle among
+     * them is logged once, unless {@link KustomGraph#findCycles()} already found it.
+     * @return A stream of root {@link Kustomization}s that depend on this file, each once.
      */
     @Override
     Stream<Kustomization> getApps() {
-        return getDependents().stream().flatMap(Kustomization::getApps);
+        GraphTraversal.Result<Kustomization> apps = GraphTraversal.apps(this);
+        if (apps.cycle() != null && !apps.cycleKnown()) {
+            logger.error(
+                    "Circular dependency detected while getting apps for file: {} (cycle: {})",
+                    path,
+                    apps.cycle());
+        }
+        return apps.values().stream();
     }
 
     /**
@@ -65,14 +98,6 @@ public class KustomFile extends GraphNode {
         return Stream.of(path);
     }
 
-    /**
-     * @return A stream containing only the path of this KustomFile.
-     */
-    @Override
-    Stream<Path> getDependencies(Set<GraphNode> visited) {
-        return getDependencies();
-    }
-
     /**
      * Indicates that this node is not a Kustomization.
      * @return Always {@code false}.
@@ -102,7 +127,7 @@ public class KustomFile extends GraphNode {
      * @return The first {@link KustomResource}, or an "Undefined" resource if none exist.
      */
     public KustomResource getResource() {
-        return resources.stream()
+        return getResources().stream()
                 .findAny()
                 .orElseGet(() -> new KustomResource("Undefined", "Undefined", this));
     }
@@ -112,13 +137,31 @@ public class KustomFile extends GraphNode {
      * @return An unmodifiable list of {@link KustomResource}s.
      */
     public List<KustomResource> getResources() {
-        return resources;
+        List<KustomResource> loaded = resources;
+        return loaded != null ? loaded : loadResources();
+    }
+
+    /**
+     * @return {@code false} if the file was created with a loader that has not run yet.
+     */
+    public boolean isLoaded() {
+        return resources != null;
     }
 
     /**
      * Adds a parsed Kubernetes resource to this file.
      */
     public void addResource(KustomResource resource) {
-        resources.add(resource);
+        getResources().add(resource);
+    }
+
+    private synchronized List<KustomResource> loadResources() {
+        if (resources == null) {
+            List<KustomResource> loaded = new ArrayList<>(loader.get());
+            loaded.forEach(resource -> resource.setFile(this));
+            loader = null;
+            resources = loaded;
+        }
+        return resources;
     }
 }
@@ -19,10 +19,20 @@ import dev.zucca_ops.kustomtrace.exceptions.KustomException;
 import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
 import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
 import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,11 +40,35 @@ import org.slf4j.LoggerFactory;
  * Represents the complete graph of Kustomize resources and their relationships.
  * It maintains an index of all discovered {@link GraphNode}s (Kustomizations and KustomFiles).
  */
-public class KustomGraph {
+public class KustomGraph implements GraphView {
     private static final Logger logger = LoggerFactory.getLogger(KustomGraph.class);
 
     // Using ConcurrentHashMap for thread-safe access if nodes are added from parallel streams.
     private final Map<Path, GraphNode> nodeIndex = new ConcurrentHashMap<>();
+    // The same nodes keyed by path string, so that the nodes below a directory are one key
+    // range. Built by the first range query and kept up to date by addNode and removeNode after
+    // that, so builds that never ask do not pay for it.
+    private volatile NavigableMap<String, GraphNode> sortedIndex;
+    private final FileSource fileSource;
+    // Found by the last findCycles(); null until it first runs.
+    private volatile List<List<Path>> cycles;
+
+    /**
+     * Constructs an empty graph of files on the file system.
+     */
+    public KustomGraph() {
+        this(FileSource.fileSystem());
+    }
+
+    /**
+     * Constructs an empty graph of files read from {@code fileSource}. The source is used to
+     * locate an app's kustomization file in {@link #getAllAppFiles(Path)}.
+     *
+     * @param fileSource The {@link FileSource} the graph was built from.
+     */
+    public KustomGraph(FileSource fileSource) {
+        this.fileSource = fileSource;
+    }
 
     /**
      * Adds a {@link GraphNode} (like a {@link Kustomization} or {@link KustomFile}) to the graph.
@@ -48,7 +82,34 @@ public class KustomGraph {
             logger.error("Attempted to add a null node or node with a null path to KustomGraph.");
             return;
         }
-        nodeIndex.put(node.getPath().toAbsolutePath().normalize(), node);
+        Path path = node.getPath().toAbsolutePath().normalize();
+        nodeIndex.put(path, node);
+        NavigableMap<String, GraphNode> sorted = sortedIndex;
+        if (sorted != null) {
+            sorted.put(path.toString(), node);
+        }
+    }
+
+    /**
+     * Removes a node from the graph, unless another node has replaced it since. Its edges are
+     * left to the caller.
+     *
+     * @param node The {@link GraphNode} to remove.
+     * @return {@code true} if the node was in the graph.
+     */
+    public boolean removeNode(GraphNode node) {
+        if (node == null || node.getPath() == null) {
+            return false;
+        }
+        Path path = node.getPath().toAbsolutePath().normalize();
+        if (!nodeIndex.remove(path, node)) {
+            return false;
+        }
+        NavigableMap<String, GraphNode> sorted = sortedIndex;
+        if (sorted != null) {
+            sorted.remove(path.toString(), node);
+        }
+        return true;
     }
 
     /**
@@ -68,11 +129,102 @@ public class KustomGraph {
      * @param path The path to check.
      * @return {@code true} if a node with the path exists, {@code false} otherwise.
      */
+    @Override
     public boolean containsNode(Path path) {
         if (path == null) return false;
         return nodeIndex.containsKey(path.toAbsolutePath().normalize());
     }
 
+    /**
+     * @return An unmodifiable view of every node in the graph, in no particular order.
+     */
+    public Collection<GraphNode> getNodes() {
+        return Collections.unmodifiableCollection(nodeIndex.values());
+    }
+
+    /**
+     * Finds the nodes below a directory with a range lookup on the paths in sorted order,
+     * instead of a scan of every node. The sorted index is built by the first call.
+     *
+     * @param directory The directory.
+     * @return The nodes whose path starts with {@code directory}, in path order.
+     */
+    public List<GraphNode> getNodesUnder(Path directory) {
+        String[] range = directoryRange(directory);
+        return List.copyOf(sortedIndex().subMap(range[0], range[1]).values());
+    }
+
+    /**
+     * Finds the nodes outside a directory: the nodes before and after its key range.
+     *
+     * @param directory The directory.
+     * @return The nodes whose path does not start with {@code directory}, in path order.
+     */
+    public List<GraphNode> getNodesOutside(Path directory) {
+        String[] range = directoryRange(directory);
+        NavigableMap<String, GraphNode> sorted = sortedIndex();
+        List<GraphNode> nodes = new ArrayList<>(sorted.headMap(range[0]).values());
+        nodes.addAll(sorted.tailMap(range[1]).values());
+        return nodes;
+    }
+
+    /**
+     * The key range of the paths below {@code directory}: from the directory followed by the
+     * separator, inclusive, to the directory followed by the character after the separator.
+     */
+    private static String[] directoryRange(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        String separator = normalized.getFileSystem().getSeparator();
+        String name = normalized.toString();
+        String base = name.endsWith(separator) ? name.substring(0, name.length() - 1) : name;
+        return new String[] {base + separator, base + (char) (separator.charAt(0) + 1)};
+    }
+
+    private NavigableMap<String, GraphNode> sortedIndex() {
+        NavigableMap<String, GraphNode> sorted = sortedIndex;
+        if (sorted == null) {
+            synchronized (nodeIndex) {
+                sorted = sortedIndex;
+                if (sorted == null) {
+                    sorted = new ConcurrentSkipListMap<>();
+                    for (Map.Entry<Path, GraphNode> entry : nodeIndex.entrySet()) {
+                        sorted.put(entry.getKey().toString(), entry.getValue());
+                    }
+                    sortedIndex = sorted;
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * @return The {@link FileSource} the graph was built from.
+     */
+    public FileSource getFileSource() {
+        return fileSource;
+    }
+
+    /**
+     * Copies the graph into a {@link FrozenGraph}: int node ids, and references and dependents
+     * as primitive arrays, for queries on a graph that no longer changes. The graph must not
+     * be modified while it is frozen; later changes are not seen by the copy.
+     *
+     * @return The {@link FrozenGraph}.
+     */
+    public FrozenGraph freeze() {
+        return FrozenGraph.of(this);
+    }
+
+    /**
+     * Computes the {@link AffectedAppsIndex} of the graph as it is now, without freezing it.
+     * The graph must not be modified meanwhile, and later changes are not seen by the index.
+     *
+     * @return The {@link AffectedAppsIndex}.
+     */
+    public AffectedAppsIndex computeAffectedAppsIndex() {
+        return AffectedAppsIndex.of(NumberedGraph.of(this));
+    }
+
     /**
      * Gets all Kustomizations in the graph that are considered "root" applications
      * (i.e., not depended upon by any other Kustomization).
@@ -86,6 +238,11 @@ public class KustomGraph {
                 .toList();
     }
 
+    @Override
+    public List<Path> getRootAppPaths() {
+        return getRootApps().stream().map(Kustomization::getPath).toList();
+    }
+
     /**
      * Gets all root Kustomizations that directly or indirectly reference the given file path.
      *
@@ -106,6 +263,11 @@ public class KustomGraph {
         throw new UnreferencedFileException(normalizedPath);
     }
 
+    @Override
+    public List<Path> getRootAppPathsWithFile(Path path) throws UnreferencedFileException {
+        return getRootAppsWithFile(path).stream().map(Kustomization::getPath).toList();
+    }
+
     /**
      * Retrieves all file dependencies for a given application path.
      * The input path can be a directory containing a kustomization file or a direct
@@ -116,6 +278,7 @@ public class KustomGraph {
      * @throws KustomException If the appPath is not a valid Kustomize application or other processing errors occur.
      * @throws IllegalArgumentException if appPath is null.
      */
+    @Override
     public List<Path> getAllAppFiles(Path appPath) throws KustomException {
         if (appPath == null) {
             throw new IllegalArgumentException(
@@ -123,7 +286,7 @@ public class KustomGraph {
         }
 
         Path actualKustomizationFilePath =
-                KustomizeFileUtil.getKustomizationFileFromAppDirectory(appPath);
+                KustomizeFileUtil.getKustomizationFileFromAppDirectory(appPath, fileSource);
         Path normalizedKeyPath = actualKustomizationFilePath.toAbsolutePath().normalize();
 
         GraphNode appNode = nodeIndex.get(normalizedKeyPath);
@@ -142,6 +305,137 @@ public class KustomGraph {
         throw new UnreferencedFileException(normalizedKeyPath);
     }
 
+    /**
+     * Retrieves the file dependencies of every root application in one pass, sharing the
+     * files of each kustomization among everything that references it, as
+     * {@link FrozenGraph#getAllAppFiles()} does, but without freezing the graph. The graph
+     * must not be modified meanwhile.
+     *
+     * @return The files of each root application, keyed by its kustomization file, in path
+     *     order.
+     */
+    @Override
+    public Map<Path, List<Path>> getAllAppFiles() {
+        return AppFileClosures.of(NumberedGraph.of(this));
+    }
+
+    /**
+     * Finds the cycles of the graph: its strongly connected components over references, found
+     * with an iterative version of Tarjan's algorithm, that have more than one node or a node
+     * referencing itself. Each node remembers the cycle it is in, so that traversals running
+     * into it afterwards do not report it again. {@code KustomGraphBuilder} runs it, and logs
+     * each cycle, when a build is done, and runs {@link #findCycles(Collection)} after an
+     * update. The graph must not be modified meanwhile.
+     *
+     * @return The paths of each cycle, sorted, with the cycles in the order of their first
+     *     path.
+     */
+    public synchronized List<List<Path>> findCycles() {
+        NumberedGraph numbered = NumberedGraph.of(this);
+        List<List<Path>> found = cyclesOf(numbered);
+        found.sort(Comparator.comparing(cycle -> cycle.get(0)));
+        cycles = List.copyOf(found);
+        return cycles;
+    }
+
+    /**
+     * Finds the cycles again after the references of some nodes changed, or nodes were
+     * removed, like {@link #findCycles()} but only over the nodes that the changed ones, and
+     * the rest of the cycles they were in, reach over references. A cycle outside that part
+     * of the graph cannot have changed, and is kept as it was found last.
+     *
+     * @param changed The paths of the nodes whose references changed, of those added, and of
+     *     those removed.
+     * @return The paths of each cycle, sorted, with the cycles in the order of their first
+     *     path.
+     */
+    public synchronized List<List<Path>> findCycles(Collection<Path> changed) {
+        List<List<Path>> previous = cycles;
+        if (previous == null) {
+            return findCycles();
+        }
+        Set<Path> changedPaths = new HashSet<>(changed);
+        List<GraphNode> start = new ArrayList<>();
+        changedPaths.stream().map(this::getNode).filter(Objects::nonNull).forEach(start::add);
+        for (List<Path> cycle : previous) {
+            if (cycle.stream().anyMatch(changedPaths::contains)) {
+                cycle.stream().map(this::getNode).filter(Objects::nonNull).forEach(start::add);
+            }
+        }
+        NumberedGraph numbered = NumberedGraph.reachableFrom(this, start);
+        Set<Path> visited = new HashSet<>(numbered.size());
+        for (int id = 0; id < numbered.size(); id++) {
+            visited.add(numbered.getPath(id));
+        }
+        List<List<Path>> found = cyclesOf(numbered);
+        for (List<Path> cycle : previous) {
+            if (cycle.stream()
+                    .noneMatch(path -> changedPaths.contains(path) || visited.contains(path))) {
+                found.add(cycle);
+            }
+        }
+        found.sort(Comparator.comparing(cycle -> cycle.get(0)));
+        cycles = List.copyOf(found);
+        return cycles;
+    }
+
+    /**
+     * The cycles among the numbered nodes, each of which remembers the cycle it is in, or
+     * none.
+     */
+    private static List<List<Path>> cyclesOf(NumberedGraph numbered) {
+        Condensation condensation = Condensation.of(numbered);
+        List<List<Path>> found = new ArrayList<>();
+        for (int id = 0; id < numbered.size(); id++) {
+            numbered.node(id).cycle = null;
+        }
+        for (int component = 0; component < condensation.componentCount(); component++) {
+            int start = condensation.memberStart(component);
+            int end = condensation.memberStart(component + 1);
+            if (end - start == 1 && !referencesItself(numbered, condensation.member(start))) {
+                continue;
+            }
+            List<Path> paths = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                paths.add(numbered.getPath(condensation.member(i)));
+            }
+            paths.sort(null);
+            List<Path> cycle = List.copyOf(paths);
+            for (int i = start; i < end; i++) {
+                numbered.node(condensation.member(i)).cycle = cycle;
+            }
+            found.add(cycle);
+        }
+        logger.debug(
+                "Found {} cycle(s) among {} strongly connected components of {} nodes.",
+                found.size(),
+                condensation.componentCount(),
+                numbered.size());
+        return found;
+    }
+
+    /**
+     * Lists each cycle of the graph once, as {@link #findCycles()} found it last, or finds
+     * them first if it never ran. Changes made to the graph since are not seen until it runs
+     * again.
+     *
+     * @return The paths of each cycle, sorted, with the cycles in the order of their first
+     *     path.
+     */
+    public List<List<Path>> getCycles() {
+        List<List<Path>> found = cycles;
+        return found != null ? found : findCycles();
+    }
+
+    private static boolean referencesItself(IntGraph graph, int id) {
+        for (int edge = graph.referenceStart(id); edge < graph.referenceStart(id + 1); edge++) {
+            if (graph.referenceTarget(edge) == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Retrieves a {@link KustomFile} from the graph, ensuring type safety.
      *
@@ -15,7 +15,7 @@
  */
 package dev.zucca_ops.kustomtrace.model;
 
-import dev.zucca_ops.kustomtrace.parser.YamlParser;
+import dev.zucca_ops.kustomtrace.parser.KustomizationSpec;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Stream;
@@ -24,14 +24,16 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Represents a Kustomization (typically a kustomization.yaml file) as a node
- * in the Kustomize dependency graph. It holds its own content and references
- * to other graph nodes.
+ * in the Kustomize dependency graph. It holds the reference-bearing part of its content, as a
+ * {@link KustomizationSpec}, and references to other graph nodes. The full parsed content is
+ * only kept when the node is created from it.
  */
 public class Kustomization extends GraphNode {
     // List of resources/bases/components etc., that this kustomization references.
     private final List<ResourceReference> references = new ArrayList<>();
-    // The parsed content (YAML map) of the kustomization file.
+    // The parsed content (YAML map) of the kustomization file; null when only the spec is kept.
     private final Map<String, Object> content;
+    private final KustomizationSpec spec;
 
     private final String kind;
 
@@ -43,20 +45,55 @@ public class Kustomization extends GraphNode {
      * @param content The parsed YAML content of this kustomization file.
      */
     public Kustomization(Path path, Map<String, Object> content) {
+        this(
+                path,
+                Objects.requireNonNull(content, "Kustomization content cannot be null."),
+                KustomizationSpec.of(content));
+    }
+
+    /**
+     * Constructs a Kustomization node that keeps only the reference-bearing fields of its
+     * file.
+     * @param path The file system path to this kustomization file.
+     * @param spec The {@link KustomizationSpec} of this kustomization file.
+     */
+    public Kustomization(Path path, KustomizationSpec spec) {
+        this(path, null, Objects.requireNonNull(spec, "Kustomization spec cannot be null."));
+    }
+
+    private Kustomization(Path path, Map<String, Object> content, KustomizationSpec spec) {
         super(path);
-        this.content = Objects.requireNonNull(content, "Kustomization content cannot be null.");
-        this.kind = Objects.requireNonNullElse(YamlParser.getKind(content), "Kustomization");
+        this.content = content;
+        this.spec = spec;
+        this.kind = Objects.requireNonNullElse(spec.getKind(), "Kustomization");
         if (Stream.of("Kustomization", "Component").noneMatch(this.kind::equals)) {
             logger.warn("Incorrect kind on kustomization file " + this.path);
         }
     }
 
     /**
-     * Returns the parsed content (YAML map) of this kustomization file.
+     * Returns the parsed content (YAML map) of this kustomization file. When the node was
+     * created from a {@link KustomizationSpec}, only {@code kind} and the reference fields are
+     * available; see {@link #hasFullContent()}.
      * @return The raw content map.
      */
     public Map<String, Object> getContent() {
-        return Map.copyOf(content);
+        return content != null ? Map.copyOf(content) : spec.toContent();
+    }
+
+    /**
+     * @return {@code true} if {@link #getContent()} returns the whole parsed file.
+     */
+    public boolean hasFullContent() {
+        return content != null;
+    }
+
+    /**
+     * Returns the reference-bearing fields of this kustomization file.
+     * @return The immutable {@link KustomizationSpec}.
+     */
+    public KustomizationSpec getSpec() {
+        return spec;
     }
 
     /**
@@ -69,6 +106,16 @@ public class Kustomization extends GraphNode {
         }
     }
 
+    /**
+     * Replaces the resolved references, e.g. after the file's references were resolved again.
+     * Dependents of the old and new targets are left to the caller.
+     * @param references The new {@link ResourceReference}s, in declaration order.
+     */
+    public void setReferences(List<ResourceReference> references) {
+        this.references.clear();
+        references.stream().filter(Objects::nonNull).forEach(this.references::add);
+    }
+
     /**
      * Gets the list of resolved references to other graph nodes.
      * @return An unmodifiable list of {@link ResourceReference}s.
@@ -91,7 +138,7 @@ public class Kustomization extends GraphNode {
      */
     @Override
     public boolean isRoot() {
-        return dependents.isEmpty();
+        return !hasDependents();
     }
 
     /**
@@ -102,33 +149,6 @@ public class Kustomization extends GraphNode {
         return getKind() + " " + path.toString().replace(java.io.File.separator, "/");
     }
 
-    /**
-     * Recursively collects all file path dependencies for this Kustomization,
-     * including its own path and the paths of all unique resources it references,
-     * handling circular dependencies.
-     * @param visited A set of already visited {@link GraphNode}s to prevent infinite loops
-     * in circular dependencies.
-     * @return A stream of unique {@link Path}s this Kustomization depends on.
-     */
-    @Override
-    Stream<Path> getDependencies(Set<GraphNode> visited) {
-        if (!visited.add(this)) {
-            logger.error(
-                    "Circular dependency detected while getting dependencies for kustomization: {}",
-                    this.getPath());
-            return Stream.empty();
-        }
-
-        Stream<Path> referencedDependencies =
-                references.stream()
-                        .map(ResourceReference::resource)
-                        .filter(Objects::nonNull)
-                        .flatMap(resourceNode -> resourceNode.getDependencies(visited));
-
-        // This Kustomization file itself is also part of its "dependencies" or "files involved".
-        return Stream.concat(Stream.of(this.path), referencedDependencies).distinct();
-    }
-
     /**
      * Indicates that this node is a Kustomization.
      * @return Always {@code true}.
@@ -148,44 +168,49 @@ public class Kustomization extends GraphNode {
     }
 
     /**
-     * Retrieves all file dependencies for this Kustomization.
+     * Retrieves all file dependencies for this Kustomization: its own path and the paths of
+     * everything it references, directly or indirectly, each once. The references are
+     * followed iteratively; a kustomization reached through several paths is not a cycle,
+     * and a real cycle is logged once, unless {@link KustomGraph#findCycles()} already found it.
      * @return A stream of unique {@link Path}s this Kustomization depends on.
      */
     @Override
     public Stream<Path> getDependencies() {
-        return getDependencies(new HashSet<>());
+        GraphTraversal.Result<Path> dependencies = GraphTraversal.dependencies(this);
+        if (dependencies.cycle() != null && !dependencies.cycleKnown()) {
+            logger.error(
+                    "Circular dependency detected while getting dependencies for kustomization: {}"
+                            + " (cycle: {})",
+                    this.getPath(),
+                    dependencies.cycle());
+        }
+        return dependencies.values().stream();
     }
 
     /**
-     * Recursively finds all "root" Kustomizations that this Kustomization is part of
-     * or contributes to. If this Kustomization itself is a root, it returns itself.
-     * Otherwise, it traverses up through its dependents.
-     * Handles circular dependencies.
-     * @param visited A set of already visited {@link GraphNode}s to prevent infinite loops.
-     * @return A stream of root {@link Kustomization}s.
+     * Retrieves all "root" Kustomizations that this Kustomization is part of or contributes
+     * to: itself if it is a root, otherwise the roots found by following its dependents,
+     * iteratively. A real cycle among them is logged once, unless
+     * {@link KustomGraph#findCycles()} already found it.
+     * @return A stream of root {@link Kustomization}s, each once.
      */
-    private Stream<Kustomization> getApps(Set<GraphNode> visited) {
-        if (!visited.add(this)) {
+    @Override
+    public Stream<Kustomization> getApps() {
+        GraphTraversal.Result<Kustomization> apps = GraphTraversal.apps(this);
+        if (apps.cycle() != null && !apps.cycleKnown()) {
             logger.error(
-                    "Circular dependency detected while getting apps for kustomization: {}",
-                    this.getPath());
-            return Stream.empty();
+                    "Circular dependency detected while getting apps for kustomization: {}"
+                            + " (cycle: {})",
+                    this.getPath(),
+                    apps.cycle());
         }
-
-        if (this.isRoot()) {
-            return Stream.of(this);
-        }
-
-        return getDependents().stream()
-                .flatMap(dependentKustomization -> dependentKustomization.getApps(visited));
+        return apps.values().stream();
     }
 
     /**
-     * Retrieves all "root" Kustomizations that this Kustomization contributes to.
-     * @return A stream of root {@link Kustomization}s.
+     * @return The live list of resolved references, for traversals; not to be modified.
      */
-    @Override
-    public Stream<Kustomization> getApps() {
-        return getApps(new HashSet<>());
+    List<ResourceReference> references() {
+        return references;
     }
 }
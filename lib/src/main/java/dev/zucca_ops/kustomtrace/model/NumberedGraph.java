@@ -0,0 +1,151 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nodes of a {@link KustomGraph} numbered in no particular order, with their references
+ * as compressed sparse rows. Unlike {@link FrozenGraph}, it neither sorts nor encodes the
+ * paths, and looks paths up through the graph's own index, so it is cheap to create for a
+ * single pass over the whole graph.
+ * Referenced nodes that are not in the graph's index are numbered too. The graph must not be
+ * modified meanwhile.
+ * <p>
+ * It can also number only the nodes some nodes reach over references. No reference leaves
+ * that part of the graph, so its strongly connected components are those of the whole graph.
+ */
+final class NumberedGraph implements IntGraph {
+
+    private final KustomGraph graph;
+    private final Map<GraphNode, Integer> ids;
+    private final GraphNode[] nodes;
+    private final int[] referenceStarts;
+    private final int[] referenceTargets;
+
+    private NumberedGraph(
+            KustomGraph graph,
+            Map<GraphNode, Integer> ids,
+            GraphNode[] nodes,
+            int[] referenceStarts,
+            int[] referenceTargets) {
+        this.graph = graph;
+        this.ids = ids;
+        this.nodes = nodes;
+        this.referenceStarts = referenceStarts;
+        this.referenceTargets = referenceTargets;
+    }
+
+    static NumberedGraph of(KustomGraph graph) {
+        return reachableFrom(graph, graph.getNodes());
+    }
+
+    /**
+     * Numbers {@code start} and every node it references, directly or indirectly.
+     */
+    static NumberedGraph reachableFrom(KustomGraph graph, Collection<? extends GraphNode> start) {
+        Map<GraphNode, Integer> ids = new IdentityHashMap<>(start.size());
+        List<GraphNode> found = new ArrayList<>(start.size());
+        for (GraphNode node : start) {
+            if (ids.putIfAbsent(node, found.size()) == null) {
+                found.add(node);
+            }
+        }
+        for (int i = 0; i < found.size(); i++) {
+            if (found.get(i) instanceof Kustomization kustomization) {
+                for (ResourceReference reference : kustomization.getReferences()) {
+                    GraphNode target = reference.resource();
+                    if (target != null && ids.putIfAbsent(target, found.size()) == null) {
+                        found.add(target);
+                    }
+                }
+            }
+        }
+        GraphNode[] nodes = found.toArray(GraphNode[]::new);
+
+        int[] referenceStarts = new int[nodes.length + 1];
+        int edges = 0;
+        for (int id = 0; id < nodes.length; id++) {
+            referenceStarts[id] = edges;
+            if (nodes[id] instanceof Kustomization kustomization) {
+                for (ResourceReference reference : kustomization.getReferences()) {
+                    if (reference.resource() != null) {
+                        edges++;
+                    }
+                }
+            }
+        }
+        referenceStarts[nodes.length] = edges;
+        int[] referenceTargets = new int[edges];
+        int edge = 0;
+        for (GraphNode node : nodes) {
+            if (node instanceof Kustomization kustomization) {
+                for (ResourceReference reference : kustomization.getReferences()) {
+                    if (reference.resource() != null) {
+                        referenceTargets[edge++] = ids.get(reference.resource());
+                    }
+                }
+            }
+        }
+        return new NumberedGraph(graph, ids, nodes, referenceStarts, referenceTargets);
+    }
+
+    GraphNode node(int id) {
+        return nodes[id];
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+
+    @Override
+    public int idOf(Path path) {
+        GraphNode node = graph.getNode(path);
+        Integer id = node != null ? ids.get(node) : null;
+        return id != null ? id : -1;
+    }
+
+    @Override
+    public Path getPath(int id) {
+        return nodes[id].getPath();
+    }
+
+    @Override
+    public boolean isKustomization(int id) {
+        return nodes[id].isKustomization();
+    }
+
+    @Override
+    public boolean isRoot(int id) {
+        return nodes[id].isRoot();
+    }
+
+    @Override
+    public int referenceStart(int id) {
+        return referenceStarts[id];
+    }
+
+    @Override
+    public int referenceTarget(int edge) {
+        return referenceTargets[edge];
+    }
+}
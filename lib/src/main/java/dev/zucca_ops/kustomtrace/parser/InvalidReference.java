@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidReferenceException;
+import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import java.nio.file.Path;
+
+/**
+ * Why a reference could not be extracted, as a plain value: what an
+ * {@link InvalidReferenceException} carries, without filling in a stack trace. The extractors
+ * of {@link ReferenceExtractors} return it, and only the public {@link ReferenceExtractor}
+ * methods turn it into an exception.
+ *
+ * @param message         The detail message.
+ * @param path            The path of the reference, or a placeholder when there is none.
+ * @param error           {@code true} if it is logged as an error rather than a warning.
+ * @param noKustomization {@code true} if the reference is a directory without a
+ *                        kustomization file; its exception has a {@link NotAnAppException}
+ *                        cause.
+ */
+record InvalidReference(String message, Path path, boolean error, boolean noKustomization) {
+
+    // The path InvalidReferenceException reports when it is given none.
+    private static final Path NO_PATH = Path.of("invalid");
+
+    InvalidReference(String message) {
+        this(message, NO_PATH, false, false);
+    }
+
+    InvalidReference(String message, Path path, boolean error) {
+        this(message, path, error, false);
+    }
+
+    static InvalidReference of(InvalidReferenceException e) {
+        return new InvalidReference(e.getMessage(), e.getPath(), e.isError(), false);
+    }
+
+    InvalidReferenceException toException() {
+        return noKustomization
+                ? new InvalidReferenceException(message, path, new NotAnAppException(path))
+                : new InvalidReferenceException(message, path, error);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The parts of a kustomization file the dependency graph needs: its {@code kind} and the
+ * fields that reference other files, one per {@link ReferenceType}. Everything else (inline
+ * patches, {@code images}, {@code replacements}, labels...) is dropped.
+ * <p>
+ * Reference fields keep their raw YAML values, in declaration order, so they can be passed to
+ * {@link ReferenceType#getRawReferences(Map)} as before. Entries of {@code patches} keep only
+ * their {@code path}, and generator entries only their {@code envs} and {@code files}.
+ * Instances are immutable.
+ */
+public final class KustomizationSpec {
+
+    private static final List<String> PATCH_FIELDS = List.of("path");
+    private static final List<String> GENERATOR_FIELDS = List.of("envs", "files");
+
+    private final String kind;
+    private final Map<String, Object> referenceFields;
+
+    KustomizationSpec(String kind, Map<String, Object> referenceFields) {
+        this.kind = kind;
+        this.referenceFields = Collections.unmodifiableMap(referenceFields);
+    }
+
+    /**
+     * Builds the spec of an already parsed kustomization file.
+     *
+     * @param content The parsed YAML content of a kustomization file.
+     * @return The {@link KustomizationSpec} of {@code content}.
+     */
+    public static KustomizationSpec of(Map<String, Object> content) {
+        Objects.requireNonNull(content, "Kustomization content cannot be null.");
+        Map<String, Object> referenceFields = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : content.entrySet()) {
+            if (entry.getKey() instanceof String key) {
+                ReferenceType type = ReferenceType.fromYamlKey(key);
+                if (type != null) {
+                    referenceFields.put(key, compact(type, entry.getValue()));
+                }
+            }
+        }
+        return new KustomizationSpec(YamlParser.getKind(content), referenceFields);
+    }
+
+    /**
+     * @return The {@code kind} of the kustomization, or {@code null} if absent or not a string.
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The reference-bearing fields, keyed by their YAML key, in declaration order.
+     */
+    public Map<String, Object> getReferenceFields() {
+        return referenceFields;
+    }
+
+    /**
+     * Rebuilds a content map holding only what this spec keeps: {@code kind} and the
+     * reference fields.
+     *
+     * @return An unmodifiable map in the shape of the parsed kustomization content.
+     */
+    public Map<String, Object> toContent() {
+        Map<String, Object> content = new LinkedHashMap<>();
+        if (kind != null) {
+            content.put("kind", kind);
+        }
+        content.putAll(referenceFields);
+        return Collections.unmodifiableMap(content);
+    }
+
+    /**
+     * Writes this spec in the binary form used by {@link ParseCache} entries and graph
+     * snapshots.
+     *
+     * @param out The stream to write to.
+     * @return {@code false} if a value has a type the binary form cannot hold, such as a set
+     *         loaded from an explicit tag; the stream is then left incomplete.
+     * @throws IOException If writing to {@code out} fails.
+     */
+    public boolean write(DataOutputStream out) throws IOException {
+        ValueCodec.writeNullableString(out, kind);
+        return ValueCodec.writeValue(out, referenceFields);
+    }
+
+    /**
+     * Reads a spec written by {@link #write(DataOutputStream)}. The stream must be backed by
+     * the whole encoded input, as a {@link java.io.ByteArrayInputStream} is.
+     *
+     * @param in The stream to read from.
+     * @return The decoded {@link KustomizationSpec}.
+     * @throws IOException If the input is malformed.
+     */
+    @SuppressWarnings("unchecked")
+    public static KustomizationSpec read(DataInputStream in) throws IOException {
+        String kind = ValueCodec.readNullableString(in);
+        Object fields = ValueCodec.readValue(in);
+        if (!(fields instanceof Map<?, ?>)) {
+            throw new IOException("Malformed kustomization spec");
+        }
+        return new KustomizationSpec(kind, (Map<String, Object>) fields);
+    }
+
+    /**
+     * Drops the fields of list entries that no {@link ReferenceExtractor} reads for
+     * {@code type}, and makes the value unmodifiable. Values other than lists are kept as they
+     * are; {@link ReferenceType#getRawReferences(Map)} ignores them.
+     */
+    static Object compact(ReferenceType type, Object value) {
+        if (!(value instanceof List<?> entries)) {
+            return value;
+        }
+        List<String> keptFields = keptEntryFields(type);
+        List<Object> compacted = new ArrayList<>(entries.size());
+        for (Object entry : entries) {
+            if (keptFields != null && entry instanceof Map<?, ?> fields) {
+                Map<String, Object> kept = new LinkedHashMap<>();
+                for (String field : keptFields) {
+                    if (fields.containsKey(field)) {
+                        Object fieldValue = fields.get(field);
+                        kept.put(
+                                field,
+                                fieldValue instanceof List<?> list
+                                        ? Collections.unmodifiableList(new ArrayList<>(list))
+                                        : fieldValue);
+                    }
+                }
+                compacted.add(Collections.unmodifiableMap(kept));
+            } else {
+                compacted.add(entry);
+            }
+        }
+        return Collections.unmodifiableList(compacted);
+    }
+
+    /**
+     * @return The fields read from map entries of {@code type}, or {@code null} if its entries
+     *         are kept whole.
+     */
+    static List<String> keptEntryFields(ReferenceType type) {
+        return switch (type) {
+            case PATCH -> PATCH_FIELDS;
+            case CONFIG_MAP, SECRET -> GENERATOR_FIELDS;
+            default -> null;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof KustomizationSpec other
+                && Objects.equals(kind, other.kind)
+                && referenceFields.equals(other.referenceFields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, referenceFields);
+    }
+
+    @Override
+    public String toString() {
+        return "KustomizationSpec" + toContent();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+/**
+ * Builds a {@link KustomizationSpec} from a stream of SnakeYAML parser events. Only the
+ * top-level {@code kind} and reference fields are turned into values, and within
+ * {@code patches} and generator entries only the fields {@link KustomizationSpec} keeps; inline
+ * patches and every other field are skipped without being built.
+ */
+final class KustomizationSpecReader extends YamlEventReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(KustomizationSpecReader.class);
+
+    private final Path path;
+
+    private KustomizationSpecReader(Iterable<Event> events, Path path) {
+        super(events);
+        this.path = path;
+    }
+
+    /**
+     * Reads the spec of the single document in an event stream.
+     *
+     * @param events The events of a whole YAML stream.
+     * @param path   The file the events were read from, for error reporting.
+     * @return The spec, or {@code null} if the stream uses a construct, or a reference value,
+     *         that needs the composer to be interpreted like
+     *         {@link YamlParser#parseKustomizationFile} does.
+     * @throws InvalidContentException If the stream does not hold exactly one map document.
+     */
+    static KustomizationSpec read(Iterable<Event> events, Path path)
+            throws InvalidContentException {
+        try {
+            return new KustomizationSpecReader(events, path).readStream();
+        } catch (RequiresComposer e) {
+            logger.debug("{} needs a full load to be interpreted", path);
+            return null;
+        }
+    }
+
+    private KustomizationSpec readStream() throws InvalidContentException {
+        KustomizationSpec spec = null;
+        int documentCount = 0;
+        while (true) {
+            Event event = next();
+            if (event.is(Event.ID.StreamEnd)) {
+                break;
+            }
+            if (!event.is(Event.ID.DocumentStart)) {
+                continue;
+            }
+            Event root = next();
+            if (root.is(Event.ID.MappingStart)) {
+                documentCount++;
+                if (documentCount == 1) {
+                    spec = readDocument();
+                } else {
+                    skip(root);
+                }
+            } else if (!(root instanceof ScalarEvent scalar && isNull(scalar))) {
+                logger.error(
+                        "Document in {} is not a Map (key-value structure), actual event: {}",
+                        path,
+                        root.getEventId());
+                throw new InvalidContentException(path);
+            }
+        }
+
+        if (documentCount == 0) {
+            logger.warn(
+                    "Kustomization file at {} is effectively empty or contains no valid YAML map documents.",
+                    path);
+            throw new InvalidContentException(path);
+        }
+        if (documentCount > 1) {
+            logger.error(
+                    "Kustomization file at {} contains {} documents, but exactly one was expected.",
+                    path,
+                    documentCount);
+            throw new InvalidContentException(path);
+        }
+        return spec;
+    }
+
+    /** Reads the entries of the root mapping, whose start has been consumed. */
+    private KustomizationSpec readDocument() {
+        String kind = null;
+        Map<String, Object> referenceFields = new LinkedHashMap<>();
+        for (Event key = next(); !key.is(Event.ID.MappingEnd); key = next()) {
+            String keyName = readString(key);
+            Event value = next();
+            ReferenceType type = keyName == null ? null : ReferenceType.fromYamlKey(keyName);
+            if ("kind".equals(keyName)) {
+                kind = readString(value);
+            } else if (type != null) {
+                Object raw = readReferences(value, KustomizationSpec.keptEntryFields(type));
+                referenceFields.put(keyName, KustomizationSpec.compact(type, raw));
+            } else {
+                skip(value);
+            }
+        }
+        return new KustomizationSpec(kind, referenceFields);
+    }
+
+    /** Reads a reference field's value, keeping only {@code keptFields} of map entries. */
+    private Object readReferences(Event event, List<String> keptFields) {
+        if (keptFields == null || !event.is(Event.ID.SequenceStart)) {
+            return readValue(event);
+        }
+        List<Object> entries = new ArrayList<>();
+        for (Event entry = next(); !entry.is(Event.ID.SequenceEnd); entry = next()) {
+            entries.add(
+                    entry.is(Event.ID.MappingStart)
+                            ? readFields(keptFields)
+                            : readValue(entry));
+        }
+        return entries;
+    }
+
+    /** Reads the given fields of a mapping whose start has been consumed. */
+    private Map<String, Object> readFields(List<String> keptFields) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (Event key = next(); !key.is(Event.ID.MappingEnd); key = next()) {
+            String keyName = readString(key);
+            Event value = next();
+            if (keptFields.contains(keyName)) {
+                fields.put(keyName, readValue(value));
+            } else {
+                skip(value);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Builds the value of a node starting at {@code event} from strings, nulls, lists and maps.
+     * Other scalars are left to the constructor, which types them.
+     */
+    private Object readValue(Event event) {
+        if (event instanceof ScalarEvent scalar) {
+            if (isString(scalar)) {
+                return scalar.getValue();
+            }
+            if (isNull(scalar)) {
+                return null;
+            }
+            throw RequiresComposer.INSTANCE;
+        }
+        if (event.is(Event.ID.SequenceStart)) {
+            List<Object> list = new ArrayList<>();
+            for (Event item = next(); !item.is(Event.ID.SequenceEnd); item = next()) {
+                list.add(readValue(item));
+            }
+            return list;
+        }
+        Map<Object, Object> map = new LinkedHashMap<>();
+        for (Event key = next(); !key.is(Event.ID.MappingEnd); key = next()) {
+            Object keyValue = readValue(key);
+            map.put(keyValue, readValue(next()));
+        }
+        return map;
+    }
+}
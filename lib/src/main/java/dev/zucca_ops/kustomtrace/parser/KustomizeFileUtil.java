@@ -16,10 +16,9 @@
 package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
-import java.nio.file.Files;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,7 +27,14 @@ import org.slf4j.LoggerFactory;
  */
 public class KustomizeFileUtil {
 
+    /**
+     * The names of a kustomization file, in the order Kustomize looks for them in a directory.
+     */
+    public static final List<String> KUSTOMIZATION_FILE_NAMES =
+            List.of("kustomization.yaml", "kustomization.yml", "Kustomization");
+
     private static final Logger logger = LoggerFactory.getLogger(KustomizeFileUtil.class);
+    private static final List<String> RESOURCE_EXTENSIONS = List.of(".yaml", ".yml", ".json");
 
     /**
      * Checks if the path exists and is a regular file.
@@ -36,7 +42,7 @@ public class KustomizeFileUtil {
      * @return {@code true} if the path exists and is a regular file, {@code false} otherwise.
      */
     public static boolean isFile(Path path) {
-        return Files.exists(path) && Files.isRegularFile(path);
+        return FileSource.fileSystem().isFile(path);
     }
 
     /**
@@ -45,7 +51,7 @@ public class KustomizeFileUtil {
      * @return {@code true} if the path exists and is a directory, {@code false} otherwise.
      */
     public static boolean isDirectory(Path path) {
-        return Files.exists(path) && Files.isDirectory(path);
+        return FileSource.fileSystem().isDirectory(path);
     }
 
     /**
@@ -59,9 +65,7 @@ public class KustomizeFileUtil {
         if (fileNamePath == null) {
             return false;
         }
-        String fileNameStr = fileNamePath.toString();
-        return List.of("kustomization.yaml", "kustomization.yml", "Kustomization")
-                .contains(fileNameStr);
+        return KUSTOMIZATION_FILE_NAMES.contains(fileNamePath.toString());
     }
 
     /**
@@ -76,9 +80,16 @@ public class KustomizeFileUtil {
             return false;
         }
         String fileNameStr = fileNamePath.toString();
-        return !isKustomizationFileName(path)
-                && Stream.of(".yaml", ".yml", ".json")
-                        .anyMatch(fileNameStr.toLowerCase()::endsWith);
+        if (KUSTOMIZATION_FILE_NAMES.contains(fileNameStr)) {
+            return false;
+        }
+        for (String extension : RESOURCE_EXTENSIONS) {
+            int start = fileNameStr.length() - extension.length();
+            if (fileNameStr.regionMatches(true, start, extension, 0, extension.length())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -91,25 +102,50 @@ public class KustomizeFileUtil {
      * @throws NotAnAppException if no valid kustomization file is found.
      */
     public static Path getKustomizationFileFromAppDirectory(Path appPath) throws NotAnAppException {
-        logger.debug("Finding kustomization file for app path: {}", appPath);
+        return getKustomizationFileFromAppDirectory(appPath, FileSource.fileSystem());
+    }
 
-        Path[] potentialFiles = {
-            appPath.resolve("kustomization.yaml"),
-            appPath.resolve("kustomization.yml"),
-            appPath.resolve("Kustomization")
-        };
+    /**
+     * Resolves an application path to its Kustomization definition file, checking candidates
+     * against the given {@link FileSource}, which may remember the answer per directory.
+     *
+     * @param appPath The application path (directory or kustomization file).
+     * @param source  The {@link FileSource} to look the candidates up in.
+     * @return The resolved {@link Path} to the kustomization file.
+     * @throws NotAnAppException if no valid kustomization file is found.
+     */
+    public static Path getKustomizationFileFromAppDirectory(Path appPath, FileSource source)
+            throws NotAnAppException {
+        Path found = findKustomizationFile(appPath, source);
+        if (found == null) {
+            throw new NotAnAppException(appPath);
+        }
+        return found;
+    }
 
-        for (Path potentialFile : potentialFiles) {
-            if (isFile(potentialFile)) {
-                logger.trace(
-                        "Found kustomization file '{}' in app directory '{}'",
-                        potentialFile.getFileName(),
-                        appPath);
-                return potentialFile;
-            }
+    /**
+     * Resolves an application path to its Kustomization definition file like
+     * {@link #getKustomizationFileFromAppDirectory(Path, FileSource)}, without throwing when
+     * there is none, for callers that expect to meet such paths often.
+     *
+     * @param appPath The application path (directory or kustomization file).
+     * @param source  The {@link FileSource} to look the candidates up in.
+     * @return The resolved {@link Path} to the kustomization file, or {@code null} if no valid
+     * kustomization file is found.
+     */
+    public static Path findKustomizationFile(Path appPath, FileSource source) {
+        logger.debug("Finding kustomization file for app path: {}", appPath);
+
+        Path found = source.findFile(appPath, KUSTOMIZATION_FILE_NAMES);
+        if (found != null) {
+            logger.trace(
+                    "Found kustomization file '{}' in app directory '{}'",
+                    found.getFileName(),
+                    appPath);
+            return found;
         }
 
         logger.warn("No valid kustomization file found for app path: {}", appPath);
-        throw new NotAnAppException(appPath);
+        return null;
     }
 }
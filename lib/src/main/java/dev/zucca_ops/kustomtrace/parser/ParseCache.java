@@ -0,0 +1,367 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.scan.AtomicFiles;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of what the graph builder extracts from YAML files: the
+ * {@link KustomizationSpec} of kustomizations and the {@link ResourceHeader}s of resource
+ * files. Entries are keyed by the SHA-256 of the file content, not by its path, so a cache
+ * directory restored between CI runs, or shared by checkouts of different commits, serves
+ * every file whose content did not change.
+ * <p>
+ * Entries are written to a temporary file and moved into place atomically, so concurrent
+ * builders, in this or other processes, can share a directory: readers see either no entry or
+ * a complete one. A hit refreshes the entry's modification time, and {@link #trim()} evicts
+ * the least recently used entries once the directory exceeds its size bound. Unreadable or
+ * outdated entries are treated as misses. Files with invalid content are never cached.
+ * <p>
+ * Instances are thread-safe and hold no open resources.
+ */
+public final class ParseCache {
+
+    /** Default bound on the total size of the cache directory: 256 MiB. */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    // Bumped whenever the entry layout, or what the parser extracts, changes.
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4B54_5043; // "KTPC"
+    private static final String SPEC_SUFFIX = ".spec";
+    private static final String HEADERS_SUFFIX = ".headers";
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final Logger logger = LoggerFactory.getLogger(ParseCache.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache in {@code directory}, bounded to {@link #DEFAULT_MAX_BYTES}.
+     *
+     * @param directory The cache directory; created on the first write.
+     */
+    public ParseCache(Path directory) {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a cache in {@code directory}.
+     *
+     * @param directory The cache directory; created on the first write.
+     * @param maxBytes  The size {@link #trim()} reduces the directory to.
+     */
+    public ParseCache(Path directory, long maxBytes) {
+        this.directory =
+                Objects.requireNonNull(directory, "Cache directory cannot be null.")
+                        .toAbsolutePath()
+                        .normalize();
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes cannot be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the resource headers of a file, from the cache when its content was seen before
+     * and from {@link YamlParser#parseResourceHeaders(Path, FileSource)} otherwise.
+     *
+     * @param path   The {@link Path} to the YAML file.
+     * @param source The {@link FileSource} to read the file from.
+     * @return One {@link ResourceHeader} per non-null document, in order.
+     * @throws FileNotFoundException If the file does not exist in the source or cannot be read.
+     * @throws InvalidContentException If the file is not valid YAML or any document is not a map.
+     */
+    public List<ResourceHeader> parseResourceHeaders(Path path, FileSource source)
+            throws FileNotFoundException, InvalidContentException {
+        byte[] content = YamlParser.readContent(path, source);
+        Path entry = entryPath(content, HEADERS_SUFFIX);
+        byte[] cached = read(entry);
+        if (cached != null) {
+            try {
+                List<ResourceHeader> headers = decodeHeaders(cached);
+                hits.incrementAndGet();
+                logger.trace("Parse cache hit for {}", path);
+                return headers;
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Ignoring unreadable parse cache entry {}: {}", entry, e.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        List<ResourceHeader> headers = YamlParser.parseResourceHeaders(path, content);
+        write(entry, encodeHeaders(headers));
+        return headers;
+    }
+
+    /**
+     * Returns the {@link KustomizationSpec} of a kustomization file, from the cache when its
+     * content was seen before and from
+     * {@link YamlParser#parseKustomizationSpec(Path, FileSource)} otherwise.
+     *
+     * @param path   The {@link Path} to the Kustomization file.
+     * @param source The {@link FileSource} to read the file from.
+     * @return The {@link KustomizationSpec} of the file.
+     * @throws FileNotFoundException If the file does not exist in the source or cannot be read.
+     * @throws InvalidContentException If the file is not valid YAML, is empty, contains multiple
+     * YAML documents, or if the document is not a map.
+     */
+    public KustomizationSpec parseKustomizationSpec(Path path, FileSource source)
+            throws FileNotFoundException, InvalidContentException {
+        byte[] content = YamlParser.readContent(path, source);
+        Path entry = entryPath(content, SPEC_SUFFIX);
+        byte[] cached = read(entry);
+        if (cached != null) {
+            try {
+                KustomizationSpec spec = decodeSpec(cached);
+                hits.incrementAndGet();
+                logger.trace("Parse cache hit for {}", path);
+                return spec;
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Ignoring unreadable parse cache entry {}: {}", entry, e.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        KustomizationSpec spec = YamlParser.parseKustomizationSpec(path, content);
+        byte[] encoded = encodeSpec(spec);
+        if (encoded != null) {
+            write(entry, encoded);
+        }
+        return spec;
+    }
+
+    /**
+     * Evicts the least recently used entries until the directory holds at most the size
+     * bound, and removes temporary files abandoned by crashed writers. Entries removed
+     * concurrently by other builders are skipped.
+     *
+     * @return The number of entries evicted.
+     */
+    public int trim() {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<CachedEntry> entries = new ArrayList<>();
+        long totalBytes = 0;
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        BasicFileAttributes attributes =
+                                Files.readAttributes(file, BasicFileAttributes.class);
+                        long modified = attributes.lastModifiedTime().toMillis();
+                        if (file.getFileName().toString().endsWith(AtomicFiles.TEMP_SUFFIX)) {
+                            if (modified < staleBefore) {
+                                Files.deleteIfExists(file);
+                            }
+                            continue;
+                        }
+                        entries.add(new CachedEntry(file, attributes.size(), modified));
+                        totalBytes += attributes.size();
+                    }
+                } catch (NoSuchFileException e) {
+                    // Removed by another builder's trim.
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not trim parse cache {}: {}", directory, e.getMessage());
+            return 0;
+        }
+        if (totalBytes <= maxBytes) {
+            return 0;
+        }
+
+        entries.sort(Comparator.comparingLong(CachedEntry::lastModified));
+        int evicted = 0;
+        for (CachedEntry entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            try {
+                if (Files.deleteIfExists(entry.path())) {
+                    evicted++;
+                }
+                totalBytes -= entry.size();
+            } catch (IOException e) {
+                logger.debug("Could not evict {}: {}", entry.path(), e.getMessage());
+            }
+        }
+        evictions.addAndGet(evicted);
+        logger.debug("Evicted {} parse cache entr(ies) from {}", evicted, directory);
+        return evicted;
+    }
+
+    /**
+     * @return The hit, miss, write and eviction counts since this instance was created.
+     */
+    public Stats getStats() {
+        return new Stats(hits.get(), misses.get(), writes.get(), evictions.get());
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCache[" + directory + "]";
+    }
+
+    /**
+     * Counters of a {@link ParseCache}.
+     *
+     * @param hits      Lookups answered from the cache.
+     * @param misses    Lookups that parsed the file.
+     * @param writes    Entries written after a miss.
+     * @param evictions Entries removed by {@link #trim()}.
+     */
+    public record Stats(long hits, long misses, long writes, long evictions) {}
+
+    private record CachedEntry(Path path, long size, long lastModified) {}
+
+    private Path entryPath(byte[] content, String suffix) {
+        String key = HEX.formatHex(sha256(content));
+        return directory.resolve(key.substring(0, 2)).resolve(key + suffix);
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Reads an entry and marks it as recently used; returns {@code null} on a miss. */
+    private static byte[] read(Path entry) {
+        try {
+            byte[] data = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return data;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.debug("Could not read parse cache entry {}: {}", entry, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Writes an entry atomically; failures only cost a later miss. */
+    private void write(Path entry, byte[] data) {
+        try {
+            AtomicFiles.write(entry, data);
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            logger.debug("Could not write parse cache entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private static byte[] encodeHeaders(List<ResourceHeader> headers) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writePreamble(out);
+            out.writeInt(headers.size());
+            for (ResourceHeader header : headers) {
+                ValueCodec.writeNullableString(out, header.kind());
+                ValueCodec.writeNullableString(out, header.name());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<ResourceHeader> decodeHeaders(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        readPreamble(in);
+        int count = in.readInt();
+        List<ResourceHeader> headers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            headers.add(
+                    new ResourceHeader(
+                            ValueCodec.readNullableString(in), ValueCodec.readNullableString(in)));
+        }
+        return List.copyOf(headers);
+    }
+
+    /** @return The encoded spec, or {@code null} if a value has a type entries cannot hold. */
+    private static byte[] encodeSpec(KustomizationSpec spec) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writePreamble(out);
+            if (!spec.write(out)) {
+                return null;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static KustomizationSpec decodeSpec(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        readPreamble(in);
+        return KustomizationSpec.read(in);
+    }
+
+    private static void writePreamble(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+    }
+
+    private static void readPreamble(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a parse cache entry of version " + FORMAT_VERSION);
+        }
+    }
+}
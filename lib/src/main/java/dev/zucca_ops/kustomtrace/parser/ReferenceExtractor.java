@@ -16,6 +16,7 @@
 package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.InvalidReferenceException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.nio.file.Path;
 import java.util.stream.Stream;
 
@@ -40,11 +41,16 @@ import java.util.stream.Stream;
  * </li>
  * <li>Ultimately, streaming {@link Path} objects that point to the individual, resolved *files*.</li>
  * </ol>
+ * The extractors of {@link ReferenceExtractors} make every existence check through the
+ * {@link FileSource} given to {@link #extract(Object, Path, FileSource)}, so they work for the
+ * file system and for sources such as a git commit. An extractor that only implements
+ * {@link #extract(Object, Path)} checks the default file system.
  */
 @FunctionalInterface
 public interface ReferenceExtractor {
     /**
-     * Extracts and resolves file paths from a given YAML field value.
+     * Extracts and resolves file paths from a given YAML field value against the default file
+     * system.
      *
      * @param yamlFieldValue The value of the field from the parsed YAML content
      * (e.g., a String, List, or Map).
@@ -59,4 +65,40 @@ public interface ReferenceExtractor {
      * according to the extractor's specific logic.
      */
     Stream<Path> extract(Object yamlFieldValue, Path baseDir) throws InvalidReferenceException;
+
+    /**
+     * Extracts and resolves file paths like {@link #extract(Object, Path)}, checking what the
+     * paths point to in {@code source}. By default the source is ignored and
+     * {@link #extract(Object, Path)} is called; extractors that can resolve against other
+     * sources override it.
+     *
+     * @param yamlFieldValue The value of the field from the parsed YAML content.
+     * @param baseDir        The base directory against which relative paths in the
+     * {@code yamlFieldValue} should be resolved.
+     * @param source         The {@link FileSource} used to check what the paths point to.
+     * @return A {@link Stream} of resolved {@link Path} objects.
+     * @throws InvalidReferenceException As {@link #extract(Object, Path)}.
+     */
+    default Stream<Path> extract(Object yamlFieldValue, Path baseDir, FileSource source)
+            throws InvalidReferenceException {
+        return extract(yamlFieldValue, baseDir);
+    }
+
+    /**
+     * Extracts and resolves file paths like {@link #extract(Object, Path, FileSource)}, handing
+     * each one to {@code sink} as it is found. The extractors of {@link ReferenceExtractors}
+     * push their paths directly, and their stream form collects them; other extractors get
+     * their stream drained into the sink.
+     *
+     * @param yamlFieldValue The value of the field from the parsed YAML content.
+     * @param baseDir        The base directory against which relative paths in the
+     * {@code yamlFieldValue} should be resolved.
+     * @param source         The {@link FileSource} used to check what the paths point to.
+     * @param sink           Receives each resolved {@link Path}.
+     * @throws InvalidReferenceException As {@link #extract(Object, Path, FileSource)}.
+     */
+    default void extract(Object yamlFieldValue, Path baseDir, FileSource source, ReferenceSink sink)
+            throws InvalidReferenceException {
+        extract(yamlFieldValue, baseDir, source).forEach(sink::accept);
+    }
 }
@@ -15,11 +15,10 @@
  */
 package dev.zucca_ops.kustomtrace.parser;
 
-import static dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil.isDirectory;
-
 import dev.zucca_ops.kustomtrace.exceptions.InvalidReferenceException;
-import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -32,20 +31,91 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Each factory method returns a functional interface that takes the reference value
  * (e.g., a string or a list from the Kustomization map) and the base directory
- * of the current Kustomization file, and returns a Stream of resolved {@link Path}s.
+ * of the current Kustomization file, and returns a Stream of resolved {@link Path}s. Existence
+ * checks are made against the {@link FileSource} passed to the extractor.
+ * <p>
+ * The extractors are written against {@link ReferenceSink}: with
+ * {@link ReferenceExtractor#extract(Object, Path, FileSource, ReferenceSink)} each path is
+ * pushed to the sink from a plain loop, and the stream form only collects what they push.
  */
 public class ReferenceExtractors {
 
     private static final Logger logger = LoggerFactory.getLogger(ReferenceExtractors.class);
 
+    /**
+     * An extractor that pushes the paths it finds to a {@link ReferenceSink}, and returns why
+     * the reference is invalid instead of throwing.
+     */
+    @FunctionalInterface
+    private interface PushExtractor {
+        /**
+         * @return {@code null}, or why the reference is invalid.
+         */
+        InvalidReference extract(
+                Object referenceValue, Path baseDir, FileSource source, ReferenceSink sink);
+    }
+
+    /**
+     * A {@link ReferenceExtractor} backed by a {@link PushExtractor}: sinks are passed
+     * straight to it, its stream form collects the paths it pushes, and an invalid reference
+     * only becomes an {@link InvalidReferenceException} at these public methods.
+     * {@link ReferenceType} calls {@link #tryExtract} instead, which never throws.
+     */
+    static final class Pushing implements ReferenceExtractor {
+        private final PushExtractor extractor;
+
+        private Pushing(PushExtractor extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public Stream<Path> extract(Object referenceValue, Path baseDir)
+                throws InvalidReferenceException {
+            return extract(referenceValue, baseDir, FileSource.fileSystem());
+        }
+
+        @Override
+        public Stream<Path> extract(Object referenceValue, Path baseDir, FileSource source)
+                throws InvalidReferenceException {
+            List<Path> paths = new ArrayList<>(1);
+            extract(referenceValue, baseDir, source, paths::add);
+            return paths.stream();
+        }
+
+        @Override
+        public void extract(
+                Object referenceValue, Path baseDir, FileSource source, ReferenceSink sink)
+                throws InvalidReferenceException {
+            InvalidReference invalid = tryExtract(referenceValue, baseDir, source, sink);
+            if (invalid != null) {
+                throw invalid.toException();
+            }
+        }
+
+        /**
+         * Extracts like {@link #extract(Object, Path, FileSource, ReferenceSink)}.
+         *
+         * @return {@code null}, or why the reference is invalid.
+         */
+        InvalidReference tryExtract(
+                Object referenceValue, Path baseDir, FileSource source, ReferenceSink sink) {
+            return extractor.extract(referenceValue, baseDir, source, sink);
+        }
+    }
+
+    private static ReferenceExtractor pushing(PushExtractor extractor) {
+        return new Pushing(extractor);
+    }
+
     /**
      * Helper method to check if a path is a valid file, with logging.
      * Primarily used by {@link #generatorFiles()}.
      * @param path The path to check.
+     * @param source The {@link FileSource} to check against.
      * @return True if the path represents an existing, regular file.
      */
-    private static boolean isValidFile(Path path) {
-        if (KustomizeFileUtil.isFile(path)) {
+    private static boolean isValidFile(Path path, FileSource source) {
+        if (source.isFile(path)) {
             return true;
         }
         logger.warn("Invalid reference: path is not a valid file: {}", path);
@@ -69,66 +139,70 @@ public class ReferenceExtractors {
     }
 
     /**
-     * Validates that the provided reference value is a non-null, single-line string.
+     * Checks that the provided reference value is a non-null, single-line string.
      * Used to ensure path strings are not accidentally multi-line.
-     * @param referenceValue The object to validate.
-     * @return The validated string value.
-     * @throws InvalidReferenceException if the value is not a string or contains newlines.
+     * @param referenceValue The object to check.
+     * @return {@code null} if the value is a single-line string, or why it is invalid.
      */
-    private static String validateNonMultilineString(Object referenceValue)
-            throws InvalidReferenceException {
+    private static InvalidReference checkNonMultilineString(Object referenceValue) {
         if (!(referenceValue instanceof String valueString)) {
-            throw new InvalidReferenceException("Non-string value found for reference.");
+            return new InvalidReference("Non-string value found for reference.");
         }
 
         if (valueString.contains("\n")) {
-            throw new InvalidReferenceException("Multiline value found in reference.");
+            return new InvalidReference("Multiline value found in reference.");
         }
-        return valueString;
+        return null;
     }
 
     /**
-     * Validates if a given path points to an existing, regular Kubernetes resource file.
+     * Checks if a given path points to an existing, regular Kubernetes resource file, and
+     * pushes it to the sink if so.
      * It checks if the file is a valid Kubernetes resource type (by extension, not a Kustomization file)
      * and if it actually exists as a regular file.
-     * @param path The path to validate.
-     * @return The validated path if it's a valid and existing resource file.
-     * @throws InvalidReferenceException if the path is not a valid Kubernetes resource or does not exist as a file.
+     * @param path The path to check.
+     * @param source The {@link FileSource} to check against.
+     * @param sink Receives the path if it's a valid and existing resource file.
+     * @return {@code null}, or why the path is not a valid Kubernetes resource or does not exist
+     * as a file.
      */
-    private static Path validateKubernetesResource(Path path) throws InvalidReferenceException {
+    private static InvalidReference acceptKubernetesResource(
+            Path path, FileSource source, ReferenceSink sink) {
         if (!KustomizeFileUtil.isValidKubernetesResource(path)) {
-            throw new InvalidReferenceException("Not a valid Kubernetes resource", path);
+            return new InvalidReference("Not a valid Kubernetes resource", path, false);
         }
         // isValidKubernetesResource only checks name patterns. Now check existence.
-        if (!KustomizeFileUtil.isFile(path)) {
-            throw new InvalidReferenceException(
+        if (!source.isFile(path)) {
+            return new InvalidReference(
                     "Non-existing or non-regular file referenced as a Kubernetes resource.",
                     path,
                     true);
         }
         logger.trace("Found valid Kubernetes resource file reference: {}", path);
-        return path;
+        sink.accept(path);
+        return null;
     }
 
     /**
-     * Helper to resolve a path to a canonical Kustomization file.
-     * @throws InvalidReferenceException if path doesn't lead to a valid Kustomization.
+     * Helper to resolve a path to a canonical Kustomization file, pushed to the sink.
+     * @return {@code null}, or why the path doesn't lead to a valid Kustomization.
      */
-    private static Path extractKustomization(Path path, Path baseDir)
-            throws InvalidReferenceException {
+    private static InvalidReference acceptKustomization(
+            Path path, Path baseDir, FileSource source, ReferenceSink sink) {
         if (path.equals(baseDir.normalize())) {
-            throw new InvalidReferenceException(
+            return new InvalidReference(
                     "Self reference to kustomization directory not allowed: " + path.getFileName(),
                     path,
                     true);
         }
 
-        try {
-            return KustomizeFileUtil.getKustomizationFileFromAppDirectory(path);
-        } catch (NotAnAppException e) {
-            throw new InvalidReferenceException(
-                    "Expected directory with Kustomization inside: " + path, path, e);
+        Path kustomizationFile = KustomizeFileUtil.findKustomizationFile(path, source);
+        if (kustomizationFile == null) {
+            return new InvalidReference(
+                    "Expected directory with Kustomization inside: " + path, path, false, true);
         }
+        sink.accept(kustomizationFile);
+        return null;
     }
 
     /**
@@ -144,15 +218,20 @@ public class ReferenceExtractors {
      * if no valid kustomization definition is found, or if a self-reference is detected.
      */
     public static ReferenceExtractor directory() {
-        return (referenceValue, baseDir) -> {
-            Path path = baseDir.resolve(validateNonMultilineString(referenceValue)).normalize();
+        return pushing(
+                (referenceValue, baseDir, source, sink) -> {
+                    InvalidReference invalid = checkNonMultilineString(referenceValue);
+                    if (invalid != null) {
+                        return invalid;
+                    }
+                    Path path = baseDir.resolve((String) referenceValue).normalize();
 
-            if (!isDirectory(path)) {
-                throw new InvalidReferenceException("Expected a directory", path, true);
-            }
+                    if (!source.isDirectory(path)) {
+                        return new InvalidReference("Expected a directory", path, true);
+                    }
 
-            return Stream.of(extractKustomization(path, baseDir));
-        };
+                    return acceptKustomization(path, baseDir, source, sink);
+                });
     }
 
     /**
@@ -167,17 +246,23 @@ public class ReferenceExtractors {
      * target nor a valid, existing Kubernetes resource file.
      */
     public static ReferenceExtractor resourceOrDirectory() {
-        return (referenceValue, baseDir) -> {
-            Path path = baseDir.resolve(validateNonMultilineString(referenceValue)).normalize();
+        return pushing(
+                (referenceValue, baseDir, source, sink) -> {
+                    InvalidReference invalid = checkNonMultilineString(referenceValue);
+                    if (invalid != null) {
+                        return invalid;
+                    }
+                    Path path = baseDir.resolve((String) referenceValue).normalize();
 
-            if (isDirectory(path)) {
-                logger.trace("Path '{}' is a directory. finding kustomization within.", path);
-                return Stream.of(extractKustomization(path, baseDir));
-            }
+                    if (source.isDirectory(path)) {
+                        logger.trace(
+                                "Path '{}' is a directory. finding kustomization within.", path);
+                        return acceptKustomization(path, baseDir, source, sink);
+                    }
 
-            logger.trace("Path '{}' is a file.", path);
-            return Stream.of(validateKubernetesResource(path));
-        };
+                    logger.trace("Path '{}' is a file.", path);
+                    return acceptKubernetesResource(path, source, sink);
+                });
     }
 
     /**
@@ -185,10 +270,15 @@ public class ReferenceExtractors {
      * must be direct Kubernetes resource files (not directories).
      */
     public static ReferenceExtractor resource() {
-        return (referenceValue, baseDir) -> {
-            Path path = baseDir.resolve(validateNonMultilineString(referenceValue)).normalize();
-            return Stream.of(validateKubernetesResource(path));
-        };
+        return pushing(
+                (referenceValue, baseDir, source, sink) -> {
+                    InvalidReference invalid = checkNonMultilineString(referenceValue);
+                    if (invalid != null) {
+                        return invalid;
+                    }
+                    Path path = baseDir.resolve((String) referenceValue).normalize();
+                    return acceptKubernetesResource(path, source, sink);
+                });
     }
 
     /**
@@ -202,39 +292,45 @@ public class ReferenceExtractors {
      * or an empty stream if the pathField is not found or the referenceValue is not a map.
      */
     public static ReferenceExtractor inlinePathValue(String pathField) {
-        return (referenceValue, baseDir) -> {
-            logger.debug(
-                    "Applying inlinePathValue extractor for field '{}', baseDir: {}",
-                    pathField,
-                    baseDir);
-
-            if (referenceValue instanceof Map) {
-                Map<String, Object> valueMap = ((Map<String, Object>) referenceValue);
-                Object pathValue = valueMap.get(pathField);
-                if (pathValue == null) {
-                    logger.warn("Path field '{}' not found in inline map: {}", pathField, valueMap);
-                    return Stream.empty();
-                }
-                String valueStr = validateNonMultilineString(pathValue);
-                Path path = baseDir.resolve(valueStr).normalize();
-                return Stream.of(validateKubernetesResource(path));
-            }
+        return pushing(
+                (referenceValue, baseDir, source, sink) -> {
+                    logger.debug(
+                            "Applying inlinePathValue extractor for field '{}', baseDir: {}",
+                            pathField,
+                            baseDir);
 
-            return Stream.empty();
-        };
+                    if (referenceValue instanceof Map) {
+                        Map<String, Object> valueMap = ((Map<String, Object>) referenceValue);
+                        Object pathValue = valueMap.get(pathField);
+                        if (pathValue == null) {
+                            logger.warn(
+                                    "Path field '{}' not found in inline map: {}",
+                                    pathField,
+                                    valueMap);
+                            return null;
+                        }
+                        InvalidReference invalid = checkNonMultilineString(pathValue);
+                        if (invalid != null) {
+                            return invalid;
+                        }
+                        Path path = baseDir.resolve((String) pathValue).normalize();
+                        return acceptKubernetesResource(path, source, sink);
+                    }
+                    return null;
+                });
     }
 
-    private static Stream<String> generatorStringListField(
+    private static List<?> generatorListField(
             Map<String, Object> generatorEntry, String fieldName) {
         Object fieldValue = generatorEntry.get(fieldName);
         if (fieldValue instanceof List<?> fieldValues) {
-            return fieldValues.stream().filter(String.class::isInstance).map(String.class::cast);
+            return fieldValues;
         }
 
         if (generatorEntry.containsKey(fieldName)) {
             logger.warn("Generator '{}' field is not a List in: {}", fieldName, generatorEntry);
         }
-        return Stream.empty();
+        return List.of();
     }
 
     private static String generatorFilePath(String fileEntry) {
@@ -252,26 +348,42 @@ public class ReferenceExtractors {
      * Handles parsing of {@code key=path} format in the {@code files} list.
      */
     public static ReferenceExtractor generatorFiles() {
-        return (referenceValue, baseDir) -> {
-            logger.debug("Applying generatorFiles extractor, baseDir: {}", baseDir);
-
-            if (referenceValue instanceof Map<?, ?> rawValueMap) {
-                Map<String, Object> valueMap = (Map<String, Object>) rawValueMap;
-                return Stream.concat(
-                                generatorStringListField(valueMap, "envs"),
-                                generatorStringListField(valueMap, "files")
-                                        .map(ReferenceExtractors::generatorFilePath))
-                        .filter(s -> !s.isEmpty())
-                        .map(f -> baseDir.resolve(f).normalize())
-                        .filter(ReferenceExtractors::isValidFile)
-                        .filter(ReferenceExtractors::isNotKustomizationFile);
-            }
-            logger.warn(
-                    "Invalid reference value for generatorFiles: expected Map, got {}. Value: {}",
-                    (referenceValue == null ? "null" : referenceValue.getClass().getName()),
-                    referenceValue);
-            return Stream.empty();
-        };
+        return pushing(
+                (referenceValue, baseDir, source, sink) -> {
+                    logger.debug("Applying generatorFiles extractor, baseDir: {}", baseDir);
+
+                    if (referenceValue instanceof Map<?, ?> rawValueMap) {
+                        Map<String, Object> valueMap = (Map<String, Object>) rawValueMap;
+                        for (Object env : generatorListField(valueMap, "envs")) {
+                            if (env instanceof String file) {
+                                acceptGeneratorFile(file, baseDir, source, sink);
+                            }
+                        }
+                        for (Object entry : generatorListField(valueMap, "files")) {
+                            if (entry instanceof String fileEntry) {
+                                acceptGeneratorFile(
+                                        generatorFilePath(fileEntry), baseDir, source, sink);
+                            }
+                        }
+                        return null;
+                    }
+                    logger.warn(
+                            "Invalid reference value for generatorFiles: expected Map, got {}. Value: {}",
+                            (referenceValue == null ? "null" : referenceValue.getClass().getName()),
+                            referenceValue);
+                    return null;
+                });
+    }
+
+    private static void acceptGeneratorFile(
+            String file, Path baseDir, FileSource source, ReferenceSink sink) {
+        if (file.isEmpty()) {
+            return;
+        }
+        Path path = baseDir.resolve(file).normalize();
+        if (isValidFile(path, source) && isNotKustomizationFile(path)) {
+            sink.accept(path);
+        }
     }
 
     /**
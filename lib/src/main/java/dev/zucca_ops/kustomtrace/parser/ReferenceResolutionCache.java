@@ -0,0 +1,202 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.WalkStats;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Remembers how each reference was resolved, for the length of a build, so that a target
+ * named by many kustomizations, such as the {@code ../../base} of every overlay, is validated
+ * once: whether it is a directory, which kustomization file it holds, or whether it is an
+ * existing resource file.
+ * <p>
+ * A reference is resolved against the directory of its kustomization and normalized, and the
+ * file it leads to, or that it is invalid and whether its target is a directory, is kept per
+ * {@link ReferenceType} and normalized target: different spellings of the same target from
+ * different directories share one entry. Invalid references are logged each time they are
+ * met, as without the cache, with the message the extractor gives for the kustomization at
+ * hand: it is extracted again against the remembered state of the target, not the
+ * {@link FileSource}. Only plain path entries are cached; inline patches, generators,
+ * multi-line values and references of a kustomization to its own directory are always
+ * extracted again.
+ * <p>
+ * Nothing is ever invalidated: the cache may only be used with one {@link FileSource}, while
+ * the files do not change, and must be {@link #clear() cleared} before they might have. Safe
+ * for concurrent use.
+ */
+public final class ReferenceResolutionCache {
+
+    // The types whose extractor turns a path string into exactly one checked file.
+    private static final Set<ReferenceType> CACHED_TYPES =
+            EnumSet.of(
+                    ReferenceType.RESOURCE,
+                    ReferenceType.BASE,
+                    ReferenceType.COMPONENT,
+                    ReferenceType.PATCH_MERGE);
+
+    private final Map<Target, Resolution> resolutions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Extracts the files referenced by {@code yamlValue}, reusing the outcome of an earlier
+     * reference to the same target.
+     *
+     * @param type      The {@link ReferenceType} of the entry.
+     * @param yamlValue The raw entry.
+     * @param baseDir   The directory of the kustomization the entry is in, normalized.
+     * @param source    The {@link FileSource} the references are resolved in.
+     * @return A {@link Stream} of the resolved {@link Path}s; empty if the reference is invalid.
+     */
+    public Stream<Path> extract(
+            ReferenceType type, Object yamlValue, Path baseDir, FileSource source) {
+        List<Path> paths = new ArrayList<>(1);
+        extract(type, yamlValue, baseDir, source, paths::add);
+        return paths.stream();
+    }
+
+    /**
+     * Extracts the files referenced by {@code yamlValue} like
+     * {@link #extract(ReferenceType, Object, Path, FileSource)}, handing each one to
+     * {@code sink}.
+     *
+     * @param type      The {@link ReferenceType} of the entry.
+     * @param yamlValue The raw entry.
+     * @param baseDir   The directory of the kustomization the entry is in, normalized.
+     * @param source    The {@link FileSource} the references are resolved in.
+     * @param sink      Receives each resolved {@link Path}; nothing if the reference is invalid.
+     */
+    public void extract(
+            ReferenceType type,
+            Object yamlValue,
+            Path baseDir,
+            FileSource source,
+            ReferenceSink sink) {
+        if (!CACHED_TYPES.contains(type)
+                || !(yamlValue instanceof String value)
+                || value.contains("\n")) {
+            type.extract(yamlValue, baseDir, source, sink);
+            return;
+        }
+        Path path = baseDir.resolve(value).normalize();
+        if (path.equals(baseDir)) {
+            type.extract(yamlValue, baseDir, source, sink);
+            return;
+        }
+
+        Target target = new Target(type, path);
+        Resolution resolution = resolutions.get(target);
+        if (resolution == null) {
+            misses.increment();
+            Path[] found = new Path[1];
+            InvalidReference invalid =
+                    type.tryExtract(value, baseDir, source, file -> found[0] = file);
+            resolutions.putIfAbsent(
+                    target,
+                    new Resolution(found[0], invalid != null && source.isDirectory(path)));
+            if (invalid != null) {
+                type.reportFailure(baseDir, invalid);
+            } else {
+                sink.accept(found[0]);
+            }
+            return;
+        }
+
+        hits.increment();
+        if (resolution.path() != null) {
+            sink.accept(resolution.path());
+        } else {
+            type.extract(yamlValue, baseDir, new InvalidTarget(path, resolution.directory()), sink);
+        }
+    }
+
+    /**
+     * Forgets every reference, and resets the counters.
+     */
+    public void clear() {
+        resolutions.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return The counters since this cache was created or last cleared.
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum());
+    }
+
+    /**
+     * Counters of a {@link ReferenceResolutionCache}.
+     *
+     * @param hits   References whose outcome was taken from the cache.
+     * @param misses References resolved and validated against the {@link FileSource}.
+     */
+    public record Stats(long hits, long misses) {}
+
+    private record Target(ReferenceType type, Path path) {}
+
+    /**
+     * The file a reference leads to, or {@code null} if it is invalid, and whether the target
+     * of an invalid one is a directory.
+     */
+    private record Resolution(Path path, boolean directory) {}
+
+    /**
+     * The target of an invalid reference, as it was found: a directory or not, holding no file
+     * the reference accepts. Nothing else can be looked up.
+     */
+    private record InvalidTarget(Path target, boolean directory) implements FileSource {
+
+        @Override
+        public boolean isFile(Path path) {
+            return false;
+        }
+
+        @Override
+        public boolean isDirectory(Path path) {
+            return directory && path.equals(target);
+        }
+
+        @Override
+        public InputStream newInputStream(Path path) {
+            throw new UnsupportedOperationException("Not a file: " + path);
+        }
+
+        @Override
+        public WalkStats scan(
+                Path root,
+                IgnoreRules ignoreRules,
+                Predicate<Path> fileFilter,
+                Consumer<Path> consumer) {
+            throw new UnsupportedOperationException("Cannot scan " + root);
+        }
+    }
+}
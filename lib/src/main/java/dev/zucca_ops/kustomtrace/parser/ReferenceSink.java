@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import java.nio.file.Path;
+
+/**
+ * Receives the paths a {@link ReferenceExtractor} resolves, one at a time and in declaration
+ * order, so that no stream is created per reference.
+ */
+@FunctionalInterface
+public interface ReferenceSink {
+    /**
+     * Accepts a resolved path.
+     *
+     * @param path The resolved {@link Path}, pointing to a specific file.
+     */
+    void accept(Path path);
+}
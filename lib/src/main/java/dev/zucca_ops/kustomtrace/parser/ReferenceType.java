@@ -16,7 +16,9 @@
 package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.InvalidReferenceException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -67,8 +69,7 @@ public enum ReferenceType {
     /**
      * Extracts and resolves file paths from the given YAML value using the
      * {@link ReferenceExtractor} associated with this reference type.
-     * Handles {@link InvalidReferenceException} from the extractor by logging
-     * and returning an empty stream.
+     * An invalid reference is logged, and an empty stream is returned for it.
      *
      * @param yamlValue The raw value associated with this reference type's key,
      * obtained from the parsed Kustomization YAML content.
@@ -77,24 +78,93 @@ public enum ReferenceType {
      * stream if extraction fails or no valid references are found.
      */
     public Stream<Path> extract(Object yamlValue, Path baseDir) {
+        return extract(yamlValue, baseDir, FileSource.fileSystem());
+    }
+
+    /**
+     * Extracts and resolves file paths like {@link #extract(Object, Path)}, checking them
+     * against the given {@link FileSource}.
+     *
+     * @param yamlValue The raw value associated with this reference type's key.
+     * @param baseDir   The base directory for resolving relative paths found in the yamlValue.
+     * @param source    The {@link FileSource} the references are resolved in.
+     * @return A {@link Stream} of resolved {@link Path} objects.
+     */
+    public Stream<Path> extract(Object yamlValue, Path baseDir, FileSource source) {
         logger.debug(
                 "Extracting references for type '{}' using key '{}' with baseDir: {}",
                 this.name(),
                 this.yamlKey,
                 baseDir);
 
+        List<Path> paths = new ArrayList<>(1);
+        extract(yamlValue, baseDir, source, paths::add);
+        return paths.stream();
+    }
+
+    /**
+     * Extracts and resolves file paths like {@link #extract(Object, Path, FileSource)}, handing
+     * each one to {@code sink} instead of returning a stream. An invalid reference is logged
+     * and nothing is passed to the sink for it.
+     *
+     * @param yamlValue The raw value associated with this reference type's key.
+     * @param baseDir   The base directory for resolving relative paths found in the yamlValue.
+     * @param source    The {@link FileSource} the references are resolved in.
+     * @param sink      Receives each resolved {@link Path}.
+     */
+    public void extract(Object yamlValue, Path baseDir, FileSource source, ReferenceSink sink) {
+        InvalidReference invalid = tryExtract(yamlValue, baseDir, source, sink);
+        if (invalid != null) {
+            reportFailure(baseDir, invalid);
+        }
+    }
+
+    /**
+     * Extracts and resolves file paths like {@link #extract(Object, Path, FileSource)}, taking
+     * the outcome of a reference from {@code cache} when the same target was resolved before.
+     *
+     * @param yamlValue The raw value associated with this reference type's key.
+     * @param baseDir   The base directory for resolving relative paths found in the yamlValue.
+     * @param source    The {@link FileSource} the references are resolved in; always the same
+     *                  one for a given cache.
+     * @param cache     The {@link ReferenceResolutionCache} of the build.
+     * @return A {@link Stream} of resolved {@link Path} objects.
+     */
+    public Stream<Path> extract(
+            Object yamlValue, Path baseDir, FileSource source, ReferenceResolutionCache cache) {
+        return cache.extract(this, yamlValue, baseDir, source);
+    }
+
+    /**
+     * Extracts like {@link #extract(Object, Path, FileSource, ReferenceSink)}, but returns an
+     * invalid reference instead of logging it. The built-in extractors report it as a value;
+     * only a custom {@link ReferenceExtractor} still throws {@link InvalidReferenceException}.
+     *
+     * @return {@code null}, or why the reference is invalid.
+     */
+    InvalidReference tryExtract(
+            Object yamlValue, Path baseDir, FileSource source, ReferenceSink sink) {
+        if (extractor instanceof ReferenceExtractors.Pushing pushing) {
+            return pushing.tryExtract(yamlValue, baseDir, source, sink);
+        }
         try {
-            return extractor.extract(yamlValue, baseDir);
+            extractor.extract(yamlValue, baseDir, source, sink);
+            return null;
         } catch (InvalidReferenceException e) {
-            String errorMessage =
-                    "Extraction failed for path '%s' and type '%s': %s: %s"
-                            .formatted(baseDir, this, e.getMessage(), e.getPath().getFileName());
-            if (e.isError()) {
-                logger.error(errorMessage);
-            } else {
-                logger.warn(errorMessage);
-            }
-            return Stream.empty(); // Gracefully return empty stream on handled extraction issues.
+            return InvalidReference.of(e);
+        }
+    }
+
+    /** Logs a reference that could not be extracted, as an error or a warning. */
+    void reportFailure(Path baseDir, InvalidReference invalid) {
+        String errorMessage =
+                "Extraction failed for path '%s' and type '%s': %s: %s"
+                        .formatted(
+                                baseDir, this, invalid.message(), invalid.path().getFileName());
+        if (invalid.error()) {
+            logger.error(errorMessage);
+        } else {
+            logger.warn(errorMessage);
         }
     }
 
@@ -107,6 +177,18 @@ public enum ReferenceType {
      * or its value is not a list.
      */
     public Stream<Object> getRawReferences(Map<String, Object> kustomizationContentMap) {
+        return (Stream<Object>)
+                getRawReferenceList(kustomizationContentMap)
+                        .stream(); // Cast to Stream<Object> for broader compatibility
+    }
+
+    /**
+     * Retrieves raw reference values like {@link #getRawReferences(Map)}, as the list itself.
+     *
+     * @param kustomizationContentMap The parsed content of a Kustomization file.
+     * @return The list, or an empty list if the key is absent or its value is not a list.
+     */
+    public List<?> getRawReferenceList(Map<String, Object> kustomizationContentMap) {
         logger.debug(
                 "Getting raw reference values for type '{}' (key: '{}')",
                 this.name(),
@@ -125,11 +207,10 @@ public enum ReferenceType {
                         "Key '{}' not found or value is null in Kustomization content.",
                         this.yamlKey);
             }
-            return Stream.empty();
+            return List.of();
         }
 
-        return (Stream<Object>)
-                referencesList.stream(); // Cast to Stream<Object> for broader compatibility
+        return referencesList;
     }
 
     // Static lookup map for YAML key → enum, initialized once.
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The identifying fields of a Kubernetes resource document: its top-level {@code kind} and
+ * {@code metadata.name}. Either is {@code null} when absent or not a string.
+ *
+ * @param kind The resource kind, e.g. {@code Deployment}.
+ * @param name The resource name from {@code metadata.name}.
+ */
+public record ResourceHeader(String kind, String name) {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceHeader.class);
+
+    /**
+     * Reads the header fields of an already parsed YAML document.
+     *
+     * @param document A Map representing a single parsed YAML document.
+     * @return The document's {@link ResourceHeader}.
+     */
+    public static ResourceHeader of(Map<String, Object> document) {
+        String name = null;
+        Object metadataObj = document.get("metadata");
+        if (metadataObj instanceof Map<?, ?> metadata) {
+            Object nameObj = metadata.get("name");
+            if (nameObj instanceof String nameString) {
+                name = nameString;
+            } else if (metadata.containsKey("name")) {
+                logger.debug(
+                        "Resource metadata 'name' is present but not a String. Found: {}. Metadata keys: {}",
+                        nameObj != null ? nameObj.getClass().getName() : "null",
+                        metadata.keySet());
+            }
+        } else if (document.containsKey("metadata")) {
+            logger.debug(
+                    "Resource 'metadata' is present but not a Map. Found: {}. Document snippet: {}",
+                    metadataObj != null ? metadataObj.getClass().getName() : "null",
+                    document.keySet());
+        }
+        return new ResourceHeader(YamlParser.getKind(document), name);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+/**
+ * Extracts {@link ResourceHeader}s from a stream of SnakeYAML parser events, without composing
+ * nodes or constructing objects. Only the top-level {@code kind} and {@code metadata.name}
+ * scalars are kept; every other value is skipped.
+ */
+final class ResourceHeaderReader extends YamlEventReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceHeaderReader.class);
+
+    private final Path path;
+
+    private ResourceHeaderReader(Iterable<Event> events, Path path) {
+        super(events);
+        this.path = path;
+    }
+
+    /**
+     * Reads the header of every document in an event stream.
+     *
+     * @param events The events of a whole YAML stream.
+     * @param path   The file the events were read from, for error reporting.
+     * @return One header per non-null document, or {@code null} if the stream uses a construct
+     *         that needs the composer to be interpreted like {@link YamlParser#parseFile} does.
+     * @throws InvalidContentException If a document root is not a map.
+     */
+    static List<ResourceHeader> read(Iterable<Event> events, Path path)
+            throws InvalidContentException {
+        try {
+            return new ResourceHeaderReader(events, path).readStream();
+        } catch (RequiresComposer e) {
+            logger.debug("{} uses aliases, tags or merge keys; loading it fully", path);
+            return null;
+        }
+    }
+
+    private List<ResourceHeader> readStream() throws InvalidContentException {
+        List<ResourceHeader> headers = new ArrayList<>();
+        while (true) {
+            Event event = next();
+            switch (event.getEventId()) {
+                case StreamEnd -> {
+                    return headers;
+                }
+                case DocumentStart -> {
+                    Event root = next();
+                    if (root.is(Event.ID.MappingStart)) {
+                        headers.add(readDocument());
+                    } else if (root instanceof ScalarEvent scalar && isNull(scalar)) {
+                        logger.warn("Found and skipped a null YAML document in: {}", path);
+                    } else {
+                        logger.error(
+                                "Document in {} is not a Map (key-value structure), actual event: {}",
+                                path,
+                                root.getEventId());
+                        throw new InvalidContentException(path);
+                    }
+                }
+                default -> {
+                    // StreamStart and DocumentEnd carry nothing of interest.
+                }
+            }
+        }
+    }
+
+    /** Reads the entries of a document's root mapping, whose start has been consumed. */
+    private ResourceHeader readDocument() {
+        String kind = null;
+        String name = null;
+        for (Event key = next(); !key.is(Event.ID.MappingEnd); key = next()) {
+            String keyName = readString(key);
+            Event value = next();
+            // Later duplicates win, as they do in the loaded map.
+            if ("kind".equals(keyName)) {
+                kind = readString(value);
+            } else if ("metadata".equals(keyName)) {
+                if (value.is(Event.ID.MappingStart)) {
+                    name = readName();
+                } else {
+                    skip(value);
+                    name = null;
+                }
+            } else {
+                skip(value);
+            }
+        }
+        return new ResourceHeader(kind, name);
+    }
+
+    /** Reads {@code name} from a metadata mapping, whose start has been consumed. */
+    private String readName() {
+        String name = null;
+        for (Event key = next(); !key.is(Event.ID.MappingEnd); key = next()) {
+            String keyName = readString(key);
+            Event value = next();
+            if ("name".equals(keyName)) {
+                name = readString(value);
+            } else {
+                skip(value);
+            }
+        }
+        return name;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of the values a {@link KustomizationSpec} holds: strings, scalars, lists
+ * and maps, as loaded by SnakeYAML. Shared by the {@link ParseCache} entries and the spec's
+ * own {@link KustomizationSpec#write} form. Decoding expects the whole input in memory, so
+ * lengths can be checked against {@link DataInputStream#available()}.
+ */
+final class ValueCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte BIG_INTEGER = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+
+    private ValueCodec() {}
+
+    static void writeNullableString(DataOutputStream out, String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    /** @return {@code false} if {@code value} holds a type the codec cannot hold. */
+    static boolean writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            writeString(out, string);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(bool);
+        } else if (value instanceof Integer integer) {
+            out.writeByte(INTEGER);
+            out.writeInt(integer);
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG);
+            out.writeLong(number);
+        } else if (value instanceof BigInteger number) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, number.toString());
+        } else if (value instanceof Double number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(number);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                if (!writeValue(out, element)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!writeValue(out, entry.getKey()) || !writeValue(out, entry.getValue())) {
+                    return false;
+                }
+            }
+        } else {
+            // Sets, binary and timestamps only come from explicit tags; parse those files.
+            return false;
+        }
+        return true;
+    }
+
+    static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case NULL -> null;
+            case STRING -> readString(in);
+            case BOOLEAN -> in.readBoolean();
+            case INTEGER -> in.readInt();
+            case LONG -> in.readLong();
+            case BIG_INTEGER -> new BigInteger(readString(in));
+            case DOUBLE -> in.readDouble();
+            case LIST -> {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield Collections.unmodifiableList(list);
+            }
+            case MAP -> {
+                int size = in.readInt();
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                yield Collections.unmodifiableMap(map);
+            }
+            default -> throw new IOException("Unknown value type " + type);
+        };
+    }
+
+    // DataOutput#writeUTF is limited to 64 KB, which an embedded value can exceed.
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Malformed string of length " + length);
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
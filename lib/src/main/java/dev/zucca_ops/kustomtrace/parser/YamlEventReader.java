@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import java.util.Iterator;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+
+/**
+ * Base for readers that pick a few values out of a stream of SnakeYAML parser events, without
+ * composing nodes or constructing objects.
+ * <p>
+ * Values that are not needed are skipped by counting collection starts and ends. Scalars are
+ * typed with the loaders' {@link YamlLoaders#RESOLVER}, so a value such as {@code kind: 1} is
+ * not a string here either. Aliases, explicit tags and merge keys can only be interpreted
+ * after composition: {@link #next()} throws {@link RequiresComposer} on any of them, and the
+ * caller falls back to a full load.
+ */
+abstract class YamlEventReader {
+
+    private final Iterator<Event> events;
+
+    YamlEventReader(Iterable<Event> events) {
+        this.events = events.iterator();
+    }
+
+    /**
+     * @return The next event.
+     * @throws RequiresComposer If the event is an alias, has an explicit tag or is a merge key.
+     */
+    final Event next() {
+        Event event = events.next();
+        if (event instanceof AliasEvent) {
+            throw RequiresComposer.INSTANCE;
+        }
+        if (event instanceof ScalarEvent scalar) {
+            if (hasExplicitTag(scalar.getTag())
+                    || (scalar.getImplicit().canOmitTagInPlainScalar()
+                            && "<<".equals(scalar.getValue()))) {
+                throw RequiresComposer.INSTANCE;
+            }
+        } else if (event instanceof CollectionStartEvent collection
+                && hasExplicitTag(collection.getTag())) {
+            throw RequiresComposer.INSTANCE;
+        }
+        return event;
+    }
+
+    /**
+     * Consumes a node starting at {@code event}.
+     *
+     * @return The node's value if it is a scalar resolving to a string, otherwise {@code null}.
+     */
+    final String readString(Event event) {
+        if (event instanceof ScalarEvent scalar) {
+            return isString(scalar) ? scalar.getValue() : null;
+        }
+        skip(event);
+        return null;
+    }
+
+    /** Consumes the rest of a node starting at {@code event}, counting nested collections. */
+    final void skip(Event event) {
+        if (!(event instanceof CollectionStartEvent)) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            Event nested = next();
+            if (nested instanceof CollectionStartEvent) {
+                depth++;
+            } else if (nested.is(Event.ID.MappingEnd) || nested.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        }
+    }
+
+    static boolean isNull(ScalarEvent scalar) {
+        return Tag.NULL.equals(resolve(scalar));
+    }
+
+    static boolean isString(ScalarEvent scalar) {
+        return Tag.STR.equals(resolve(scalar));
+    }
+
+    private static Tag resolve(ScalarEvent scalar) {
+        // Mirrors the composer: untagged scalars are typed by their value and style.
+        return YamlLoaders.RESOLVER.resolve(
+                NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar());
+    }
+
+    private static boolean hasExplicitTag(String tag) {
+        return tag != null && !"!".equals(tag);
+    }
+
+    /** Signals a construct whose meaning is only known after composition; carries no trace. */
+    static final class RequiresComposer extends RuntimeException {
+        static final RequiresComposer INSTANCE = new RequiresComposer();
+
+        private RequiresComposer() {
+            super(null, null, false, false);
+        }
+    }
+}
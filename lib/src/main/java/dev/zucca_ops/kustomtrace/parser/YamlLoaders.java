@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.parser;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * The SnakeYAML loaders used by {@link YamlParser}, configured once and reused.
+ * <p>
+ * A {@link Yaml} instance is not thread-safe but is cheap to reuse, so each thread keeps its
+ * own. All of them share the same {@link LoaderOptions} and {@link Resolver}, which the event
+ * readers also use to type scalars.
+ */
+final class YamlLoaders {
+
+    /**
+     * Largest stream accepted, in code points. Rendered bundles and vendored CRDs regularly
+     * exceed SnakeYAML's default of 3M.
+     */
+    static final int CODE_POINT_LIMIT = 64 * 1024 * 1024;
+
+    /** Aliases allowed for collections, SnakeYAML's default; guards against alias bombs. */
+    static final int MAX_ALIASES_FOR_COLLECTIONS = 50;
+
+    /** Deepest collection nesting accepted, SnakeYAML's default. */
+    static final int NESTING_DEPTH_LIMIT = 50;
+
+    static final Resolver RESOLVER = new KustomizeResolver();
+
+    private static final LoaderOptions LOADER_OPTIONS = loaderOptions();
+
+    private static final ThreadLocal<Yaml> LOADER = ThreadLocal.withInitial(YamlLoaders::newYaml);
+
+    private YamlLoaders() {}
+
+    /**
+     * @return The calling thread's loader. It must not be handed to other threads, and each
+     *         returned iterable must be fully consumed before the loader is used again.
+     */
+    static Yaml loader() {
+        return LOADER.get();
+    }
+
+    /**
+     * @return A new loader with the shared options, for callers that cannot use
+     *         {@link #loader()}.
+     */
+    static Yaml newYaml() {
+        DumperOptions dumperOptions = new DumperOptions();
+        return new Yaml(
+                new SafeConstructor(LOADER_OPTIONS),
+                new Representer(dumperOptions),
+                dumperOptions,
+                LOADER_OPTIONS,
+                RESOLVER);
+    }
+
+    private static LoaderOptions loaderOptions() {
+        LoaderOptions options = new LoaderOptions();
+        options.setCodePointLimit(CODE_POINT_LIMIT);
+        options.setMaxAliasesForCollections(MAX_ALIASES_FOR_COLLECTIONS);
+        options.setNestingDepthLimit(NESTING_DEPTH_LIMIT);
+        options.setAllowRecursiveKeys(false);
+        options.setAllowDuplicateKeys(true);
+        return options;
+    }
+
+    /**
+     * SnakeYAML's implicit resolvers without the timestamp and {@code yaml} tags. No graph
+     * value is ever a timestamp, and matching every digit-led scalar against the timestamp
+     * pattern is the most expensive check; such values load as strings instead.
+     */
+    private static final class KustomizeResolver extends Resolver {
+
+        @Override
+        protected void addImplicitResolvers() {
+            addImplicitResolver(Tag.BOOL, BOOL, "yYnNtTfFoO", 10);
+            addImplicitResolver(Tag.INT, INT, "-+0123456789");
+            addImplicitResolver(Tag.FLOAT, FLOAT, "-+0123456789.");
+            addImplicitResolver(Tag.MERGE, MERGE, "<", 10);
+            addImplicitResolver(Tag.NULL, NULL, "~nN\0", 10);
+            addImplicitResolver(Tag.NULL, EMPTY, null, 10);
+        }
+    }
+}
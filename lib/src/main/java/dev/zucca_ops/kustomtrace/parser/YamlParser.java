@@ -16,13 +16,16 @@
 package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.reader.UnicodeReader;
 
 /**
  * Utility class for parsing YAML files, particularly Kubernetes manifests and Kustomization files,
@@ -46,19 +49,31 @@ public class YamlParser {
      */
     public static List<Map<String, Object>> parseFile(Path path)
             throws FileNotFoundException, InvalidContentException {
+        return parseFile(path, FileSource.fileSystem());
+    }
+
+    /**
+     * Parses a YAML file read from the given {@link FileSource}.
+     *
+     * @param path   The {@link Path} to the YAML file to be parsed.
+     * @param source The {@link FileSource} to read the file from.
+     * @return A list of maps, where each map represents a YAML document in the file.
+     * @throws FileNotFoundException If the file does not exist in the source or cannot be read.
+     * @throws InvalidContentException If any document in the YAML file is not a map.
+     * @see #parseFile(Path)
+     */
+    public static List<Map<String, Object>> parseFile(Path path, FileSource source)
+            throws FileNotFoundException, InvalidContentException {
+        return parseFile(path, () -> open(path, source));
+    }
+
+    private static List<Map<String, Object>> parseFile(Path path, Opener opener)
+            throws FileNotFoundException, InvalidContentException {
         logger.debug("Starting to parse YAML file: {}", path);
-        Yaml parser = new Yaml();
         List<Map<String, Object>> documents = new ArrayList<>();
 
-        if (!Files.exists(path) || !Files.isRegularFile(path)) {
-            logger.error("YAML file does not exist or is not a regular file: {}", path);
-            throw new FileNotFoundException("File not found or is not a regular file: " + path);
-        }
-
-        try (InputStream inputStream =
-                new FileInputStream(
-                        path.toAbsolutePath().toFile())) { // Using toFile() for FileInputStream
-            Iterable<Object> parsedDocs = parser.loadAll(inputStream);
+        try (InputStream inputStream = opener.open()) {
+            Iterable<Object> parsedDocs = YamlLoaders.loader().loadAll(inputStream);
             int documentCount = 0;
 
             for (Object doc : parsedDocs) {
@@ -83,23 +98,174 @@ public class YamlParser {
             logger.debug(
                     "Successfully parsed {} YAML map document(s) from: {}", documentCount, path);
             return documents;
-        } catch (
-                FileNotFoundException
-                        fnfe) { // Catch specific first if FileInputStream throws it due to
-            // concurrent deletion/permission change
-            logger.error("Error opening YAML file (FileNotFoundException): {}", path, fnfe);
-            throw fnfe;
+        } catch (InvalidContentException | FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw readFailure(path, e);
+        } catch (Exception e) { // SnakeYAML scanner, parser and constructor errors
+            if (e instanceof YAMLException && e.getCause() instanceof IOException cause) {
+                // Read errors surface wrapped, e.g. for a directory, which opens on Linux.
+                throw readFailure(path, cause);
+            }
+            logger.error("Error parsing YAML content in file: {}", path);
+            throw new InvalidContentException(path, e);
+        }
+    }
+
+    /**
+     * Reads the {@code kind} and {@code metadata.name} of every document in a YAML file from
+     * the parser's event stream, skipping all other content without building it.
+     * <p>
+     * Accepts and rejects the same files as {@link #parseFile(Path, FileSource)}, and returns
+     * the same values as applying {@link ResourceHeader#of} to its result. Files that use
+     * aliases, explicit tags or merge keys are loaded with {@link #parseFile} instead.
+     *
+     * @param path   The {@link Path} to the YAML file.
+     * @param source The {@link FileSource} to read the file from.
+     * @return One {@link ResourceHeader} per non-null document, in order.
+     * @throws FileNotFoundException If the file does not exist in the source or cannot be read.
+     * @throws InvalidContentException If the file is not valid YAML or any document is not a map.
+     */
+    public static List<ResourceHeader> parseResourceHeaders(Path path, FileSource source)
+            throws FileNotFoundException, InvalidContentException {
+        return parseResourceHeaders(path, () -> open(path, source));
+    }
+
+    /**
+     * Reads the resource headers of a file whose content has already been read.
+     *
+     * @see #parseResourceHeaders(Path, FileSource)
+     */
+    static List<ResourceHeader> parseResourceHeaders(Path path, byte[] content)
+            throws FileNotFoundException, InvalidContentException {
+        return parseResourceHeaders(path, () -> new ByteArrayInputStream(content));
+    }
+
+    private static List<ResourceHeader> parseResourceHeaders(Path path, Opener opener)
+            throws FileNotFoundException, InvalidContentException {
+        logger.debug("Reading resource headers from YAML file: {}", path);
+        List<ResourceHeader> headers =
+                readEvents(path, opener, events -> ResourceHeaderReader.read(events, path));
+        if (headers != null) {
+            logger.debug("Read {} resource header(s) from: {}", headers.size(), path);
+            return headers;
+        }
+        return parseFile(path, opener).stream().map(ResourceHeader::of).toList();
+    }
+
+    /**
+     * Reads the {@link KustomizationSpec} of a Kustomization file from the parser's event
+     * stream. Only the {@code kind} and reference fields are built; inline patches and other
+     * fields are skipped.
+     * <p>
+     * Accepts and rejects the same files as {@link #parseKustomizationFile(Path, FileSource)},
+     * and returns the same spec as {@link KustomizationSpec#of} applied to its result. Files
+     * that use aliases, explicit tags or merge keys, or non-string reference values, are loaded
+     * with {@link #parseKustomizationFile} instead.
+     *
+     * @param path   The {@link Path} to the Kustomization file.
+     * @param source The {@link FileSource} to read the file from.
+     * @return The {@link KustomizationSpec} of the file.
+     * @throws FileNotFoundException If the file does not exist in the source or cannot be read.
+     * @throws InvalidContentException If the file is not valid YAML, is empty, contains multiple
+     * YAML documents, or if the document is not a map.
+     */
+    public static KustomizationSpec parseKustomizationSpec(Path path, FileSource source)
+            throws InvalidContentException, FileNotFoundException {
+        return parseKustomizationSpec(path, () -> open(path, source));
+    }
+
+    /**
+     * Reads the spec of a Kustomization file whose content has already been read.
+     *
+     * @see #parseKustomizationSpec(Path, FileSource)
+     */
+    static KustomizationSpec parseKustomizationSpec(Path path, byte[] content)
+            throws InvalidContentException, FileNotFoundException {
+        return parseKustomizationSpec(path, () -> new ByteArrayInputStream(content));
+    }
+
+    private static KustomizationSpec parseKustomizationSpec(Path path, Opener opener)
+            throws InvalidContentException, FileNotFoundException {
+        logger.debug("Reading kustomization spec from: {}", path);
+        KustomizationSpec spec =
+                readEvents(path, opener, events -> KustomizationSpecReader.read(events, path));
+        if (spec != null) {
+            return spec;
+        }
+        return KustomizationSpec.of(parseKustomizationFile(path, opener));
+    }
+
+    /**
+     * Streams the parser events of a file to {@code reader}, translating failures as
+     * {@link #parseFile(Path, FileSource)} does.
+     *
+     * @return The reader's result, which is {@code null} when the file needs a full load.
+     */
+    private static <T> T readEvents(Path path, Opener opener, EventReader<T> reader)
+            throws FileNotFoundException, InvalidContentException {
+        try (InputStream inputStream = opener.open()) {
+            return reader.read(YamlLoaders.loader().parse(new UnicodeReader(inputStream)));
+        } catch (InvalidContentException | FileNotFoundException e) {
+            throw e;
         } catch (IOException e) {
-            logger.error("Error reading YAML file: {}", path);
-            throw new FileNotFoundException(
-                    "Could not read YAML file: " + path + ". Reason: " + e.getMessage());
-        } catch (Exception e) { // Catch potential SnakeYAML runtime parsing exceptions (e.g.,
-            // YAMLException)
+            throw readFailure(path, e);
+        } catch (Exception e) { // SnakeYAML scanner, parser and constructor errors
+            if (e instanceof YAMLException && e.getCause() instanceof IOException cause) {
+                // Read errors surface wrapped, e.g. for a directory, which opens on Linux.
+                throw readFailure(path, cause);
+            }
             logger.error("Error parsing YAML content in file: {}", path);
             throw new InvalidContentException(path, e);
         }
     }
 
+    /**
+     * Opens a file with a single call to the source instead of checking that it is a regular
+     * file first; the open fails for missing files anyway.
+     */
+    private static InputStream open(Path path, FileSource source) throws FileNotFoundException {
+        try {
+            return source.newInputStream(path);
+        } catch (NoSuchFileException e) {
+            logger.error("YAML file does not exist or is not a regular file: {}", path);
+            throw new FileNotFoundException("File not found or is not a regular file: " + path);
+        } catch (IOException e) {
+            throw readFailure(path, e);
+        }
+    }
+
+    /**
+     * Reads the whole content of a file, failing as {@link #parseFile(Path, FileSource)} does.
+     */
+    static byte[] readContent(Path path, FileSource source) throws FileNotFoundException {
+        try (InputStream inputStream = open(path, source)) {
+            return inputStream.readAllBytes();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw readFailure(path, e);
+        }
+    }
+
+    private static FileNotFoundException readFailure(Path path, IOException e) {
+        logger.error("Error reading YAML file: {}", path);
+        return new FileNotFoundException(
+                "Could not read YAML file: " + path + ". Reason: " + e.getMessage());
+    }
+
+    /** Opens the content being parsed; may be called more than once. */
+    @FunctionalInterface
+    private interface Opener {
+        InputStream open() throws FileNotFoundException;
+    }
+
+    /** Consumes the parser events of a whole YAML stream. */
+    @FunctionalInterface
+    private interface EventReader<T> {
+        T read(Iterable<Event> events) throws InvalidContentException;
+    }
+
     /**
      * Parses a Kustomization file, which is expected to be a single YAML document
      * representing a map.
@@ -112,10 +278,31 @@ public class YamlParser {
      */
     public static Map<String, Object> parseKustomizationFile(Path path)
             throws InvalidContentException, FileNotFoundException {
+        return parseKustomizationFile(path, FileSource.fileSystem());
+    }
+
+    /**
+     * Parses a Kustomization file read from the given {@link FileSource}.
+     *
+     * @param path   The {@link Path} to the Kustomization file.
+     * @param source The {@link FileSource} to read the file from.
+     * @return A map representing the parsed Kustomization content.
+     * @throws FileNotFoundException If the file does not exist in the source or cannot be read.
+     * @throws InvalidContentException If the file is empty, contains multiple YAML documents,
+     * or if the document is not a map.
+     * @see #parseKustomizationFile(Path)
+     */
+    public static Map<String, Object> parseKustomizationFile(Path path, FileSource source)
+            throws InvalidContentException, FileNotFoundException {
+        return parseKustomizationFile(path, () -> open(path, source));
+    }
+
+    private static Map<String, Object> parseKustomizationFile(Path path, Opener opener)
+            throws InvalidContentException, FileNotFoundException {
         logger.debug("Attempting to parse kustomization file: {}", path);
 
         // parseFile will handle FileNotFoundException and issues with non-map documents.
-        List<Map<String, Object>> fileContent = YamlParser.parseFile(path);
+        List<Map<String, Object>> fileContent = YamlParser.parseFile(path, opener);
 
         if (fileContent.isEmpty()) {
             // This case means parseFile returned an empty list (e.g., file was empty,
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files that other processes may be reading: the content goes to a temporary file next
+ * to the target, which is then moved into place, atomically where the file system supports
+ * it, so readers see either the previous file or the new one, never a partial one.
+ */
+public final class AtomicFiles {
+
+    /** The suffix of the temporary files, which a failed write may leave behind. */
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {}
+
+    /** Writes the content of a file to a stream. */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Replaces a file with {@code data}, creating its parent directories if needed.
+     *
+     * @param file The file.
+     * @param data The new content.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, byte[] data) throws IOException {
+        write(file, out -> out.write(data));
+    }
+
+    /**
+     * Replaces a file with what {@code content} writes to a buffered stream, creating its
+     * parent directories if needed. The temporary file is deleted whether the write succeeds
+     * or not.
+     *
+     * @param file    The file.
+     * @param content Writes the new content.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, Content content) throws IOException {
+        Path target = file.toAbsolutePath().normalize();
+        Files.createDirectories(target.getParent());
+        Path temp =
+                Files.createTempFile(
+                        target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (OutputStream out =
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                content.writeTo(out);
+            }
+            try {
+                Files.move(
+                        temp,
+                        target,
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // Left behind, with TEMP_SUFFIX, for the owner of the directory to clean up.
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link FileSource} that remembers the type of every path it is asked about, for the
+ * length of a build, so that each path is looked up in the underlying source at most once.
+ * <p>
+ * Over the file system, a path that is not known yet costs a single stat, which answers both
+ * {@link #isFile} and {@link #isDirectory}; paths that do not exist are remembered as well. A
+ * {@link #scan} of the file system also records the attributes the
+ * {@link ParallelDirectoryWalker} reads while listing each directory, so that the files it
+ * finds, and most paths referenced from them, need no stat at all. The name found by
+ * {@link #findFile}, such as a directory's kustomization file, is remembered per directory.
+ * <p>
+ * Nothing is ever invalidated: the cache may only be used while the files do not change, and
+ * must be {@link #clear() cleared} before they might have. Safe for concurrent use.
+ */
+public final class FileAttributeCache implements FileSource {
+
+    private enum Kind {
+        FILE,
+        DIRECTORY,
+        OTHER,
+        MISSING
+    }
+
+    private final FileSource delegate;
+    private final Map<Path, Kind> kinds = new ConcurrentHashMap<>();
+    private final Map<FileLookup, Optional<String>> lookups = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder recorded = new LongAdder();
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param delegate The {@link FileSource} to look paths up in, and read files from.
+     */
+    public FileAttributeCache(FileSource delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "FileSource cannot be null.");
+    }
+
+    @Override
+    public boolean isFile(Path path) {
+        return kind(path) == Kind.FILE;
+    }
+
+    @Override
+    public boolean isDirectory(Path path) {
+        return kind(path) == Kind.DIRECTORY;
+    }
+
+    @Override
+    public InputStream newInputStream(Path path) throws IOException {
+        return delegate.newInputStream(path);
+    }
+
+    /**
+     * Finds the first of {@code names} that is a regular file in {@code directory}, looking
+     * the candidates up only the first time a directory is asked about.
+     */
+    @Override
+    public Path findFile(Path directory, List<String> names) {
+        FileLookup lookup = new FileLookup(key(directory), names);
+        Optional<String> found = lookups.get(lookup);
+        if (found != null) {
+            hits.increment();
+        } else {
+            Path file = FileSource.super.findFile(directory, names);
+            found = Optional.ofNullable(file).map(f -> f.getFileName().toString());
+            lookups.putIfAbsent(lookup, found);
+        }
+        return found.map(directory::resolve).orElse(null);
+    }
+
+    @Override
+    public WalkStats scan(
+            Path root, IgnoreRules ignoreRules, Predicate<Path> fileFilter, Consumer<Path> consumer)
+            throws IOException {
+        if (delegate != FileSource.fileSystem()) {
+            return delegate.scan(root, ignoreRules, fileFilter, consumer);
+        }
+        return new ParallelDirectoryWalker()
+                .walk(root, ignoreRules, fileFilter, consumer, this::record);
+    }
+
+    /**
+     * Forgets every path, and resets the counters.
+     */
+    public void clear() {
+        kinds.clear();
+        lookups.clear();
+        hits.reset();
+        misses.reset();
+        recorded.reset();
+    }
+
+    /**
+     * @return The counters since this cache was created or last cleared.
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), recorded.sum());
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    private Kind kind(Path path) {
+        Path key = key(path);
+        Kind kind = kinds.get(key);
+        if (kind != null) {
+            hits.increment();
+            return kind;
+        }
+        misses.increment();
+        kind = lookUp(path);
+        Kind previous = kinds.putIfAbsent(key, kind);
+        return previous != null ? previous : kind;
+    }
+
+    private Kind lookUp(Path path) {
+        if (delegate != FileSource.fileSystem()) {
+            return delegate.isFile(path)
+                    ? Kind.FILE
+                    : delegate.isDirectory(path) ? Kind.DIRECTORY : Kind.MISSING;
+        }
+        try {
+            // Follows links, as Files.isRegularFile and Files.isDirectory do.
+            return kindOf(Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException | SecurityException e) {
+            return Kind.MISSING;
+        }
+    }
+
+    /** Records a listed entry; the attributes of a link say nothing about its target. */
+    private void record(Path path, BasicFileAttributes attributes) {
+        if (!attributes.isSymbolicLink()) {
+            kinds.put(key(path), kindOf(attributes));
+            recorded.increment();
+        }
+    }
+
+    private static Kind kindOf(BasicFileAttributes attributes) {
+        if (attributes.isRegularFile()) {
+            return Kind.FILE;
+        }
+        return attributes.isDirectory() ? Kind.DIRECTORY : Kind.OTHER;
+    }
+
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Counters of a {@link FileAttributeCache}.
+     *
+     * @param hits     Lookups answered from the cache: over the file system, each one a stat
+     *                 saved.
+     * @param misses   Lookups passed to the underlying source.
+     * @param recorded Entries taken from the attributes read by a directory walk.
+     */
+    public record Stats(long hits, long misses, long recorded) {}
+
+    private record FileLookup(Path directory, List<String> names) {}
+}
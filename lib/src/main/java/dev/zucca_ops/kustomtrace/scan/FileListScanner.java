@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans a known list of files, such as the paths tracked in the git index, instead of listing
+ * directories.
+ * <p>
+ * The same {@link IgnoreRules} as {@link ParallelDirectoryWalker} apply: ignore files are
+ * picked up from the list itself, every directory is checked once, and files under an ignored
+ * directory are dropped. Matching files are handed to the consumer in parallel on the pool.
+ */
+public class FileListScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileListScanner.class);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a scanner running the consumer on the common fork-join pool.
+     */
+    public FileListScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a scanner running the consumer on the given pool.
+     *
+     * @param pool The {@link ForkJoinPool} the consumer is called from.
+     */
+    public FileListScanner(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "ForkJoinPool cannot be null.");
+    }
+
+    /**
+     * Passes every listed file accepted by {@code fileFilter} and not ignored to
+     * {@code consumer}. Files that no longer exist as regular files are skipped.
+     *
+     * @param root          The directory the paths are relative to.
+     * @param relativePaths The files, relative to {@code root} and separated by {@code /}.
+     * @param ignoreRules   The rules used to prune the list.
+     * @param fileFilter    Decides, by path alone, whether a file is of interest.
+     * @param consumer      Receives the accepted files, concurrently.
+     * @return The {@link WalkStats} of the scan; {@code directories} counts the directories
+     *         holding a matching file, or leading to one, that were not ignored.
+     */
+    public WalkStats scan(
+            Path root,
+            Collection<String> relativePaths,
+            IgnoreRules ignoreRules,
+            Predicate<Path> fileFilter,
+            Consumer<Path> consumer) {
+        Scan scan = new Scan(root, relativePaths, ignoreRules);
+        long pruned = 0;
+        List<Path> matches = new ArrayList<>();
+
+        for (String relativePath : relativePaths) {
+            Path file = root.resolve(relativePath);
+            if (!fileFilter.test(file)) {
+                continue;
+            }
+            Directory directory = scan.directory(parentOf(relativePath));
+            if (directory.ignored()) {
+                continue;
+            }
+            if (directory.rules().isIgnored(file, false)) {
+                pruned++;
+                continue;
+            }
+            if (Files.isRegularFile(file)) {
+                matches.add(file);
+            } else {
+                logger.debug("Skipping listed file missing from the working tree: {}", file);
+            }
+        }
+
+        pool.submit(() -> matches.parallelStream().forEach(consumer)).join();
+
+        WalkStats stats =
+                new WalkStats(
+                        scan.visibleDirectories,
+                        relativePaths.size(),
+                        matches.size(),
+                        pruned + scan.prunedDirectories);
+        logger.debug(
+                "File list scan of {} saw {} directories and {} files, {} matched, {} pruned.",
+                root,
+                stats.directories(),
+                stats.files(),
+                stats.matches(),
+                stats.pruned());
+        return stats;
+    }
+
+    private static String parentOf(String relativePath) {
+        int slash = relativePath.lastIndexOf('/');
+        return slash < 0 ? "" : relativePath.substring(0, slash);
+    }
+
+    /** The rules in effect inside a directory, or whether the directory is ignored. */
+    private record Directory(IgnoreRules rules, boolean ignored) {}
+
+    /** Per-scan memo of the directories seen, so each one is checked against the rules once. */
+    private static final class Scan {
+        private final Path root;
+        private final IgnoreRules rootRules;
+        private final Map<String, List<String>> ignoreFiles = new HashMap<>();
+        private final Map<String, Directory> directories = new HashMap<>();
+        private long visibleDirectories;
+        private long prunedDirectories;
+
+        private Scan(Path root, Collection<String> relativePaths, IgnoreRules rules) {
+            this.root = root;
+            this.rootRules = rules;
+            if (!rules.isEmpty()) {
+                for (String relativePath : relativePaths) {
+                    int slash = relativePath.lastIndexOf('/');
+                    String name = relativePath.substring(slash + 1);
+                    if (name.equals(IgnoreRules.KUSTOMTRACE_IGNORE)
+                            || name.equals(IgnoreRules.GITIGNORE)) {
+                        ignoreFiles
+                                .computeIfAbsent(parentOf(relativePath), key -> new ArrayList<>(2))
+                                .add(name);
+                    }
+                }
+            }
+        }
+
+        private Directory directory(String relativePath) {
+            Directory directory = directories.get(relativePath);
+            if (directory != null) {
+                return directory;
+            }
+
+            Path path = relativePath.isEmpty() ? root : root.resolve(relativePath);
+            if (relativePath.isEmpty()) {
+                directory = new Directory(enter(rootRules, path, relativePath), false);
+            } else {
+                Directory parent = directory(parentOf(relativePath));
+                if (parent.ignored()) {
+                    directory = parent;
+                } else if (parent.rules().isIgnored(path, true)) {
+                    prunedDirectories++;
+                    directory = new Directory(parent.rules(), true);
+                } else {
+                    directory = new Directory(enter(parent.rules(), path, relativePath), false);
+                }
+            }
+            if (!directory.ignored()) {
+                visibleDirectories++;
+            }
+            directories.put(relativePath, directory);
+            return directory;
+        }
+
+        private IgnoreRules enter(IgnoreRules rules, Path path, String relativePath) {
+            List<String> names = ignoreFiles.get(relativePath);
+            return names == null ? rules : rules.enter(path, names);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Where the graph builder reads files from.
+ * <p>
+ * Paths are always absolute paths in the default file system. A source that is not backed by
+ * the working tree, such as a git commit, maps its content onto the paths the files would have
+ * if they were checked out, so that graphs built from different sources are comparable.
+ * Implementations must be safe for concurrent use.
+ */
+public interface FileSource {
+
+    /**
+     * Checks if the path exists and is a regular file, following symbolic links.
+     *
+     * @param path The path to check.
+     * @return {@code true} if the path is a regular file in this source.
+     */
+    boolean isFile(Path path);
+
+    /**
+     * Checks if the path exists and is a directory, following symbolic links.
+     *
+     * @param path The path to check.
+     * @return {@code true} if the path is a directory in this source.
+     */
+    boolean isDirectory(Path path);
+
+    /**
+     * Finds the first of {@code names} that is a regular file in {@code directory}.
+     *
+     * @param directory The directory to look in.
+     * @param names     The file names to try, in order.
+     * @return The path of the first one that is a regular file, resolved against
+     *     {@code directory}, or {@code null} if there is none.
+     */
+    default Path findFile(Path directory, List<String> names) {
+        for (String name : names) {
+            Path candidate = directory.resolve(name);
+            if (isFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a regular file for reading.
+     *
+     * @param path The file to open.
+     * @return A new {@link InputStream} over the file's content, to be closed by the caller.
+     * @throws IOException If the file does not exist in this source or cannot be read.
+     */
+    InputStream newInputStream(Path path) throws IOException;
+
+    /**
+     * Lists the files under {@code root}, skipping those ignored by {@code ignoreRules}, and
+     * passes the ones accepted by {@code fileFilter} to {@code consumer}, possibly concurrently.
+     *
+     * @param root        The directory to scan.
+     * @param ignoreRules The rules used to prune the scan.
+     * @param fileFilter  Decides, by path alone, whether a file is of interest.
+     * @param consumer    Receives the accepted files.
+     * @return The {@link WalkStats} of the scan.
+     * @throws IOException If {@code root} cannot be read or is not a directory.
+     */
+    WalkStats scan(
+            Path root, IgnoreRules ignoreRules, Predicate<Path> fileFilter, Consumer<Path> consumer)
+            throws IOException;
+
+    /**
+     * @return The source reading the default file system.
+     */
+    static FileSource fileSystem() {
+        return FileSystemSource.INSTANCE;
+    }
+}
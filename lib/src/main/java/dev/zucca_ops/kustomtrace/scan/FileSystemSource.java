@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * {@link FileSource} over the default file system, scanned with a
+ * {@link ParallelDirectoryWalker} on the common pool.
+ */
+final class FileSystemSource implements FileSource {
+
+    static final FileSystemSource INSTANCE = new FileSystemSource();
+
+    private FileSystemSource() {}
+
+    @Override
+    public boolean isFile(Path path) {
+        // One stat: a missing path is not a regular file either.
+        return Files.isRegularFile(path);
+    }
+
+    @Override
+    public boolean isDirectory(Path path) {
+        return Files.isDirectory(path);
+    }
+
+    @Override
+    public InputStream newInputStream(Path path) throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public WalkStats scan(
+            Path root, IgnoreRules ignoreRules, Predicate<Path> fileFilter, Consumer<Path> consumer)
+            throws IOException {
+        return new ParallelDirectoryWalker().walk(root, ignoreRules, fileFilter, consumer);
+    }
+
+    @Override
+    public String toString() {
+        return "file system";
+    }
+}
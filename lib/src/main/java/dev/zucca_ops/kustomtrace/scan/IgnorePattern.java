@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.util.regex.Pattern;
+
+/**
+ * A single {@code .gitignore}-style pattern compiled to a regular expression.
+ * <p>
+ * Supports comments, negation ({@code !}), directory-only patterns (trailing {@code /}),
+ * anchoring (a leading or inner {@code /}), {@code *}, {@code ?}, character classes and
+ * {@code **}. Paths are matched relative to the directory that declared the pattern and
+ * always use {@code /} as the separator.
+ */
+final class IgnorePattern {
+
+    /** Outcome of matching a path against a pattern. */
+    enum Match {
+        /** The pattern does not apply to the path. */
+        NONE,
+        /** The pattern ignores the path. */
+        IGNORED,
+        /** The pattern is a negation that re-includes the path. */
+        INCLUDED
+    }
+
+    private final Pattern regex;
+    private final boolean negated;
+    private final boolean directoryOnly;
+
+    private IgnorePattern(Pattern regex, boolean negated, boolean directoryOnly) {
+        this.regex = regex;
+        this.negated = negated;
+        this.directoryOnly = directoryOnly;
+    }
+
+    /**
+     * Compiles a line of an ignore file.
+     *
+     * @param line The raw line.
+     * @return The compiled pattern, or {@code null} for blank lines and comments.
+     */
+    static IgnorePattern compile(String line) {
+        String pattern = stripTrailingSpaces(line);
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return null;
+        }
+
+        boolean negated = pattern.startsWith("!");
+        if (negated) {
+            pattern = pattern.substring(1);
+        } else if (pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+            pattern = pattern.substring(1);
+        }
+
+        boolean directoryOnly = pattern.endsWith("/");
+        while (pattern.endsWith("/")) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+
+        // A separator anywhere but at the end anchors the pattern to its base directory.
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+
+        String regex = (anchored ? "" : "(?:.*/)?") + globToRegex(pattern);
+        return new IgnorePattern(Pattern.compile(regex), negated, directoryOnly);
+    }
+
+    /**
+     * Matches a path relative to the pattern's base directory.
+     *
+     * @param relativePath The path, relative to the base directory, using {@code /}.
+     * @param isDirectory  Whether the path is a directory.
+     * @return The {@link Match} outcome.
+     */
+    Match match(String relativePath, boolean isDirectory) {
+        if (directoryOnly && !isDirectory) {
+            return Match.NONE;
+        }
+        if (!regex.matcher(relativePath).matches()) {
+            return Match.NONE;
+        }
+        return negated ? Match.INCLUDED : Match.IGNORED;
+    }
+
+    private static String stripTrailingSpaces(String line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int length = glob.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    boolean doubleStar = i + 1 < length && glob.charAt(i + 1) == '*';
+                    boolean atSegmentStart = i == 0 || glob.charAt(i - 1) == '/';
+                    if (doubleStar && atSegmentStart) {
+                        i++;
+                        if (i + 1 < length && glob.charAt(i + 1) == '/') {
+                            // "**/" matches zero or more leading directories.
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '[' -> {
+                    int close = glob.indexOf(']', i + 2);
+                    if (close < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String body = glob.substring(i + 1, close);
+                        if (body.startsWith("!")) {
+                            body = "^" + body.substring(1);
+                        }
+                        regex.append('[').append(body.replace("\\", "\\\\")).append(']');
+                        i = close;
+                    }
+                }
+                case '\\' -> {
+                    if (i + 1 < length) {
+                        i++;
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                    }
+                }
+                default -> {
+                    if ("().+^$|{}".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                }
+            }
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable set of {@code .gitignore}-style rules used to prune a directory walk.
+ * <p>
+ * Rules come from, in increasing order of precedence:
+ * <ol>
+ * <li>The built-in excludes ({@link #DEFAULT_EXCLUDES}), unless disabled.</li>
+ * <li>{@code .gitignore} files in the directories between the repository root and the walk
+ * root, plus {@code .git/info/exclude}, when git ignore files are respected.</li>
+ * <li>{@value #KUSTOMTRACE_IGNORE} files (always) and {@code .gitignore} files (when
+ * respected) found while walking; deeper files take precedence over shallower ones.</li>
+ * <li>Explicit exclude patterns, which always win.</li>
+ * </ol>
+ * Within one source the last matching pattern wins, as in git. Directories are checked once,
+ * before they are listed, so an ignored directory's whole subtree is skipped.
+ */
+public final class IgnoreRules {
+
+    /** Name of the KustomTrace-specific ignore file read from every walked directory. */
+    public static final String KUSTOMTRACE_IGNORE = ".kustomtraceignore";
+
+    /** Name of the git ignore file, read from walked directories when respected. */
+    public static final String GITIGNORE = ".gitignore";
+
+    /** Directories skipped unless the built-in excludes are disabled. */
+    public static final List<String> DEFAULT_EXCLUDES =
+            List.of(".git/", ".hg/", ".svn/", "node_modules/");
+
+    private static final Logger logger = LoggerFactory.getLogger(IgnoreRules.class);
+    private static final IgnoreRules NONE =
+            new IgnoreRules(null, FileSource.fileSystem(), List.of(), null, false, List.of());
+
+    private final Path root;
+    private final FileSource source;
+    // Ordered by increasing precedence; explicit excludes are kept apart because they
+    // must outrank ignore files discovered later in the walk.
+    private final List<Group> groups;
+    private final Group explicitExcludes;
+    private final boolean respectGitignore;
+    // The ignore files above the walk root that load() looked for.
+    private final List<Path> ancestorIgnoreFiles;
+
+    private IgnoreRules(
+            Path root,
+            FileSource source,
+            List<Group> groups,
+            Group explicitExcludes,
+            boolean respectGitignore,
+            List<Path> ancestorIgnoreFiles) {
+        this.root = root;
+        this.source = source;
+        this.groups = groups;
+        this.explicitExcludes = explicitExcludes;
+        this.respectGitignore = respectGitignore;
+        this.ancestorIgnoreFiles = ancestorIgnoreFiles;
+    }
+
+    /**
+     * Rules that ignore nothing and read no ignore files.
+     *
+     * @return An empty {@link IgnoreRules}.
+     */
+    public static IgnoreRules none() {
+        return NONE;
+    }
+
+    /**
+     * Compiles the rules for a walk of {@code root}.
+     *
+     * @param root             The walk root. Explicit excludes are relative to it.
+     * @param excludes         Additional patterns, in {@code .gitignore} syntax.
+     * @param defaultExcludes  Whether to apply {@link #DEFAULT_EXCLUDES}.
+     * @param respectGitignore Whether to read {@code .gitignore} files.
+     * @return The compiled {@link IgnoreRules}.
+     */
+    public static IgnoreRules load(
+            Path root, Collection<String> excludes, boolean defaultExcludes, boolean respectGitignore) {
+        return load(root, excludes, defaultExcludes, respectGitignore, FileSource.fileSystem());
+    }
+
+    /**
+     * Compiles the rules for a walk of {@code root}, reading ignore files from {@code source}.
+     * {@code .git/info/exclude} is local configuration and is always read from disk.
+     *
+     * @param root             The walk root. Explicit excludes are relative to it.
+     * @param excludes         Additional patterns, in {@code .gitignore} syntax.
+     * @param defaultExcludes  Whether to apply {@link #DEFAULT_EXCLUDES}.
+     * @param respectGitignore Whether to read {@code .gitignore} files.
+     * @param source           The {@link FileSource} ignore files are read from.
+     * @return The compiled {@link IgnoreRules}.
+     */
+    public static IgnoreRules load(
+            Path root,
+            Collection<String> excludes,
+            boolean defaultExcludes,
+            boolean respectGitignore,
+            FileSource source) {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        List<Group> groups = new ArrayList<>();
+        List<Path> ancestorIgnoreFiles = new ArrayList<>();
+
+        if (defaultExcludes) {
+            groups.add(Group.compile("", "", DEFAULT_EXCLUDES));
+        }
+        if (respectGitignore) {
+            groups.addAll(ancestorGitignores(normalizedRoot, source, ancestorIgnoreFiles));
+        }
+
+        Group explicit = null;
+        if (excludes != null && !excludes.isEmpty()) {
+            explicit = Group.compile("", "", excludes);
+        }
+        return new IgnoreRules(
+                normalizedRoot,
+                source,
+                List.copyOf(groups),
+                explicit,
+                respectGitignore,
+                List.copyOf(ancestorIgnoreFiles));
+    }
+
+    /**
+     * Returns the rules that apply inside {@code directory}, adding the patterns of any ignore
+     * file it contains. Returns {@code this} when there is nothing to add. Scanners call this
+     * once per directory, before checking its entries.
+     *
+     * @param directory The directory being listed.
+     * @param fileNames The names of the regular files found in {@code directory}.
+     * @return The rules for the directory's entries.
+     */
+    public IgnoreRules enter(Path directory, Collection<String> fileNames) {
+        if (root == null) {
+            return this;
+        }
+        boolean hasKustomTraceIgnore = fileNames.contains(KUSTOMTRACE_IGNORE);
+        boolean hasGitignore = respectGitignore && fileNames.contains(GITIGNORE);
+        if (!hasKustomTraceIgnore && !hasGitignore) {
+            return this;
+        }
+
+        List<Group> extended = new ArrayList<>(groups);
+        String prefix = relativePrefix(root.relativize(directory.toAbsolutePath().normalize()));
+        // .kustomtraceignore outranks .gitignore in the same directory.
+        if (hasGitignore) {
+            readGroup(source, directory.resolve(GITIGNORE), prefix, "").ifPresent(extended::add);
+        }
+        if (hasKustomTraceIgnore) {
+            readGroup(source, directory.resolve(KUSTOMTRACE_IGNORE), prefix, "")
+                    .ifPresent(extended::add);
+        }
+        return new IgnoreRules(
+                root,
+                source,
+                List.copyOf(extended),
+                explicitExcludes,
+                respectGitignore,
+                ancestorIgnoreFiles);
+    }
+
+    /**
+     * Checks whether a path below the walk root is ignored.
+     *
+     * @param path        The path to check.
+     * @param isDirectory Whether the path is a directory.
+     * @return {@code true} if the path, and for directories its whole subtree, is ignored.
+     */
+    public boolean isIgnored(Path path, boolean isDirectory) {
+        if (root == null) {
+            return false;
+        }
+        String relativePath = relativize(path);
+        if (relativePath.isEmpty()) {
+            return false;
+        }
+
+        if (explicitExcludes != null) {
+            IgnorePattern.Match match = explicitExcludes.match(relativePath, isDirectory);
+            if (match != IgnorePattern.Match.NONE) {
+                return match == IgnorePattern.Match.IGNORED;
+            }
+        }
+        for (int i = groups.size() - 1; i >= 0; i--) {
+            IgnorePattern.Match match = groups.get(i).match(relativePath, isDirectory);
+            if (match != IgnorePattern.Match.NONE) {
+                return match == IgnorePattern.Match.IGNORED;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the ignore files outside the walk that these rules were compiled from, or looked
+     * for: {@code .git/info/exclude} and the {@code .gitignore} of each directory from the
+     * repository root down to the walk root's parent. Editing or creating one changes the
+     * rules, though no walked directory changes.
+     *
+     * @return The paths, whether the files exist or not; empty unless git ignore files are
+     *     respected inside a repository.
+     */
+    public List<Path> getAncestorIgnoreFiles() {
+        return ancestorIgnoreFiles;
+    }
+
+    /**
+     * @return {@code true} if these rules never ignore anything and read no ignore files.
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    private String relativize(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        if (!absolute.startsWith(root)) {
+            return "";
+        }
+        return root.relativize(absolute).toString().replace(File.separatorChar, '/');
+    }
+
+    private static List<Group> ancestorGitignores(Path root, FileSource source, List<Path> read) {
+        Path repositoryRoot = root;
+        while (repositoryRoot != null && !Files.exists(repositoryRoot.resolve(".git"))) {
+            repositoryRoot = repositoryRoot.getParent();
+        }
+        if (repositoryRoot == null) {
+            // Not inside a repository: only the walk itself reads .gitignore files.
+            return List.of();
+        }
+
+        List<Group> groups = new ArrayList<>();
+        Path exclude = repositoryRoot.resolve(".git").resolve("info").resolve("exclude");
+        String excludePrefix = relativePrefix(repositoryRoot.relativize(root));
+        read.add(exclude);
+        readGroup(FileSource.fileSystem(), exclude, "", excludePrefix).ifPresent(groups::add);
+
+        // From the repository root down; the walk root's own file is read by the walk.
+        for (Path directory = repositoryRoot;
+                !directory.equals(root);
+                directory = directory.resolve(root.getName(directory.getNameCount()))) {
+            read.add(directory.resolve(GITIGNORE));
+            readGroup(
+                            source,
+                            directory.resolve(GITIGNORE),
+                            "",
+                            relativePrefix(directory.relativize(root)))
+                    .ifPresent(groups::add);
+        }
+        return groups;
+    }
+
+    private static String relativePrefix(Path relative) {
+        String prefix = relative.toString().replace(File.separatorChar, '/');
+        return prefix.isEmpty() ? "" : prefix + "/";
+    }
+
+    private static Optional<Group> readGroup(
+            FileSource source, Path file, String strip, String prepend) {
+        if (!source.isFile(file)) {
+            return Optional.empty();
+        }
+        try (InputStream in = source.newInputStream(file);
+                BufferedReader reader =
+                        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().toList();
+            logger.debug("Loaded {} ignore line(s) from {}", lines.size(), file);
+            return Optional.of(Group.compile(strip, prepend, lines));
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not read ignore file {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Patterns declared together, sharing a base directory. Paths reach a group relative to
+     * the walk root and are translated to the group's base by stripping or prepending a
+     * prefix.
+     */
+    private record Group(String strip, String prepend, List<IgnorePattern> patterns) {
+
+        static Group compile(String strip, String prepend, Collection<String> lines) {
+            List<IgnorePattern> patterns =
+                    lines.stream().map(IgnorePattern::compile).filter(Objects::nonNull).toList();
+            return new Group(strip, prepend, patterns);
+        }
+
+        IgnorePattern.Match match(String relativeToRoot, boolean isDirectory) {
+            if (!relativeToRoot.startsWith(strip)) {
+                return IgnorePattern.Match.NONE;
+            }
+            String relative = prepend + relativeToRoot.substring(strip.length());
+            if (relative.isEmpty()) {
+                return IgnorePattern.Match.NONE;
+            }
+            for (int i = patterns.size() - 1; i >= 0; i--) {
+                IgnorePattern.Match match = patterns.get(i).match(relative, isDirectory);
+                if (match != IgnorePattern.Match.NONE) {
+                    return match;
+                }
+            }
+            return IgnorePattern.Match.NONE;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Walks a directory tree in parallel using one fork-join task per directory.
+ * <p>
+ * Each task lists its directory once, reading every entry together with its
+ * {@link BasicFileAttributes}, forks a subtask for each subdirectory and hands matching
+ * files to the consumer as soon as they are seen. Idle workers steal pending directories,
+ * so wide and deep trees are spread across the pool instead of being listed by a single
+ * iterator. Symbolic links to directories are not followed, matching {@link Files#walk}.
+ * <p>
+ * When walking with {@link IgnoreRules}, each subdirectory is checked once, before its task
+ * is forked, and ignored subdirectories are never listed. Ignore files are picked up from
+ * every directory as it is listed and apply to that directory's subtree.
+ */
+public class ParallelDirectoryWalker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelDirectoryWalker.class);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a walker running on the common fork-join pool.
+     */
+    public ParallelDirectoryWalker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a walker running on the given pool.
+     *
+     * @param pool The {@link ForkJoinPool} executing the per-directory tasks.
+     */
+    public ParallelDirectoryWalker(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "ForkJoinPool cannot be null.");
+    }
+
+    /**
+     * Walks {@code root} and passes every regular file accepted by {@code fileFilter} to
+     * {@code consumer}. The consumer is called concurrently from the pool's worker threads.
+     * <p>
+     * Subdirectories that cannot be listed are logged and skipped; the walk continues.
+     *
+     * @param root       The directory to walk.
+     * @param fileFilter Decides, by path alone, whether a file is of interest.
+     * @param consumer   Receives the accepted files while the walk is still running.
+     * @return The {@link WalkStats} of the completed walk.
+     * @throws IOException If {@code root} cannot be read or is not a directory.
+     */
+    public WalkStats walk(Path root, Predicate<Path> fileFilter, Consumer<Path> consumer)
+            throws IOException {
+        return walk(root, IgnoreRules.none(), fileFilter, consumer);
+    }
+
+    /**
+     * Walks {@code root} like {@link #walk(Path, Predicate, Consumer)}, skipping the
+     * subdirectories and files ignored by {@code ignoreRules}. Files are only checked against
+     * the rules once they have been accepted by {@code fileFilter}.
+     *
+     * @param root        The directory to walk.
+     * @param ignoreRules The rules used to prune the walk.
+     * @param fileFilter  Decides, by path alone, whether a file is of interest.
+     * @param consumer    Receives the accepted files while the walk is still running.
+     * @return The {@link WalkStats} of the completed walk.
+     * @throws IOException If {@code root} cannot be read or is not a directory.
+     */
+    public WalkStats walk(
+            Path root, IgnoreRules ignoreRules, Predicate<Path> fileFilter, Consumer<Path> consumer)
+            throws IOException {
+        return walk(root, ignoreRules, fileFilter, consumer, (path, attributes) -> {});
+    }
+
+    /**
+     * Walks {@code root} like {@link #walk(Path, IgnoreRules, Predicate, Consumer)}, also
+     * passing {@code listed} the root and every entry of every directory listed, with the
+     * attributes read while listing it, which are those of the link itself for a symbolic link.
+     * Ignored entries are passed too, though ignored subdirectories are not listed.
+     *
+     * @param root        The directory to walk.
+     * @param ignoreRules The rules used to prune the walk.
+     * @param fileFilter  Decides, by path alone, whether a file is of interest.
+     * @param consumer    Receives the accepted files while the walk is still running.
+     * @param listed      Receives every listed entry; called concurrently, like the consumer.
+     * @return The {@link WalkStats} of the completed walk.
+     * @throws IOException If {@code root} cannot be read or is not a directory.
+     */
+    public WalkStats walk(
+            Path root,
+            IgnoreRules ignoreRules,
+            Predicate<Path> fileFilter,
+            Consumer<Path> consumer,
+            BiConsumer<Path, BasicFileAttributes> listed)
+            throws IOException {
+        Objects.requireNonNull(ignoreRules, "IgnoreRules cannot be null.");
+        BasicFileAttributes rootAttributes = Files.readAttributes(root, BasicFileAttributes.class);
+        if (!rootAttributes.isDirectory()) {
+            throw new NotDirectoryException(root.toString());
+        }
+        listed.accept(root, rootAttributes);
+
+        Walk walk = new Walk(fileFilter, consumer, listed);
+        logger.debug("Starting parallel walk of {} on {}", root, pool);
+        pool.invoke(new DirectoryTask(walk, root, ignoreRules));
+
+        WalkStats stats = walk.stats();
+        logger.debug(
+                "Parallel walk of {} visited {} directories and {} files, {} matched, {} pruned.",
+                root,
+                stats.directories(),
+                stats.files(),
+                stats.matches(),
+                stats.pruned());
+        return stats;
+    }
+
+    /** State shared by all the tasks of a single walk. */
+    private static final class Walk {
+        private final Predicate<Path> fileFilter;
+        private final Consumer<Path> consumer;
+        private final BiConsumer<Path, BasicFileAttributes> listed;
+        private final LongAdder directories = new LongAdder();
+        private final LongAdder files = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder pruned = new LongAdder();
+
+        private Walk(
+                Predicate<Path> fileFilter,
+                Consumer<Path> consumer,
+                BiConsumer<Path, BasicFileAttributes> listed) {
+            this.fileFilter = fileFilter;
+            this.consumer = consumer;
+            this.listed = listed;
+        }
+
+        private void visitFile(Path file, BasicFileAttributes attributes, IgnoreRules rules) {
+            if (!fileFilter.test(file)) {
+                return;
+            }
+            if (rules.isIgnored(file, false)) {
+                pruned.increment();
+                return;
+            }
+            // Links are not followed for directories, but a link to a regular file still counts
+            // as that file, the same as Files.isRegularFile would report it.
+            if (attributes.isRegularFile()
+                    || (attributes.isSymbolicLink() && Files.isRegularFile(file))) {
+                matches.increment();
+                consumer.accept(file);
+            }
+        }
+
+        private WalkStats stats() {
+            return new WalkStats(directories.sum(), files.sum(), matches.sum(), pruned.sum());
+        }
+    }
+
+    /**
+     * Lists a single directory, then forks one task per subdirectory that is not ignored.
+     * Files are only handed to the walk once the directory's own ignore files are loaded.
+     */
+    private static final class DirectoryTask extends RecursiveAction {
+        private final transient Walk walk;
+        private final transient Path directory;
+        private final transient IgnoreRules rules;
+
+        private DirectoryTask(Walk walk, Path directory, IgnoreRules rules) {
+            this.walk = walk;
+            this.directory = directory;
+            this.rules = rules;
+        }
+
+        @Override
+        protected void compute() {
+            walk.directories.increment();
+            List<Path> subdirectories = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            List<BasicFileAttributes> fileAttributes = new ArrayList<>();
+            List<String> ignoreFiles = new ArrayList<>(2);
+
+            try {
+                // A depth of one reports every entry through visitFile, directories included,
+                // together with the attributes read while listing.
+                Files.walkFileTree(
+                        directory,
+                        EnumSet.noneOf(FileVisitOption.class),
+                        1,
+                        new SimpleFileVisitor<>() {
+                            @Override
+                            public FileVisitResult visitFile(
+                                    Path entry, BasicFileAttributes attributes) {
+                                walk.listed.accept(entry, attributes);
+                                if (attributes.isDirectory()) {
+                                    subdirectories.add(entry);
+                                    return FileVisitResult.CONTINUE;
+                                }
+                                files.add(entry);
+                                fileAttributes.add(attributes);
+                                if (!rules.isEmpty()) {
+                                    String name = entry.getFileName().toString();
+                                    if (name.equals(IgnoreRules.KUSTOMTRACE_IGNORE)
+                                            || name.equals(IgnoreRules.GITIGNORE)) {
+                                        ignoreFiles.add(name);
+                                    }
+                                }
+                                return FileVisitResult.CONTINUE;
+                            }
+
+                            @Override
+                            public FileVisitResult visitFileFailed(Path entry, IOException e) {
+                                logger.warn("Skipping unreadable path {}: {}", entry, e.toString());
+                                return FileVisitResult.CONTINUE;
+                            }
+                        });
+            } catch (IOException e) {
+                logger.warn("Could not list directory {}: {}", directory, e.toString());
+            }
+
+            IgnoreRules directoryRules =
+                    ignoreFiles.isEmpty() ? rules : rules.enter(directory, ignoreFiles);
+
+            walk.files.add(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                walk.visitFile(files.get(i), fileAttributes.get(i), directoryRules);
+            }
+
+            List<DirectoryTask> tasks = new ArrayList<>(subdirectories.size());
+            for (Path subdirectory : subdirectories) {
+                if (directoryRules.isIgnored(subdirectory, true)) {
+                    logger.trace("Pruning ignored directory {}", subdirectory);
+                    walk.pruned.increment();
+                } else {
+                    tasks.add(new DirectoryTask(walk, subdirectory, directoryRules));
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.scan;
+
+/**
+ * Summary of a directory walk performed by {@link ParallelDirectoryWalker}.
+ *
+ * @param directories The number of directories listed, including the walk root.
+ * @param files       The number of non-directory entries seen while listing those directories.
+ * @param matches     The number of files that were handed to the walk's consumer.
+ * @param pruned      The number of entries skipped by {@link IgnoreRules}: subdirectories that
+ *                    were never listed, and matching files that were ignored.
+ */
+public record WalkStats(long directories, long files, long matches, long pruned) {}
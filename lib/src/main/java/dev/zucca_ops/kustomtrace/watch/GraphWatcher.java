@@ -0,0 +1,382 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.watch;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.graph.UpdateStats;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the graph of a {@link KustomTrace} up to date while files change, and reports which
+ * root applications each change affects.
+ * <p>
+ * Every directory under the apps directory that a scan would enter is registered with a
+ * {@link WatchService}, and so is the directory of every file the graph holds outside it.
+ * Directories created later are registered as their creation is seen, and directories of
+ * files an update brings into the graph outside the apps directory after it is applied. When
+ * an update rebuilds the graph, e.g. because an ignore file changed, the whole tree is
+ * registered again with fresh ignore rules. Events are collected
+ * on a daemon thread until none arrives for the debounce interval, or for at most ten
+ * intervals in a continuous stream; the batch is applied with {@link KustomTrace#update} and
+ * handed to the listener, on the same thread.
+ * <p>
+ * The trace must not be queried from other threads while it is watched; the listener may
+ * query it freely.
+ */
+public final class GraphWatcher implements Closeable {
+
+    /** The debounce interval used when none is given. */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(50);
+
+    // Bursts are cut after this many debounce intervals, so that a steady stream of events
+    // still produces batches.
+    private static final int MAX_BATCH_INTERVALS = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphWatcher.class);
+
+    private final KustomTrace trace;
+    private final Path appsDir;
+    private final long debounceNanos;
+    private final Consumer<WatchBatch> listener;
+    private final WatchService watchService;
+    private final IgnoreRules rules;
+    // Owned by the watch thread once it has started.
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, IgnoreRules> rulesByDirectory = new HashMap<>();
+    // Watched directories whose key became invalid since the last batch, i.e. deleted ones;
+    // kept until the batch is applied so that the nodes that were below them are found.
+    private final Set<Path> goneDirectories = new HashSet<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private GraphWatcher(
+            KustomTrace trace,
+            Path appsDir,
+            IgnoreRules rules,
+            Duration debounce,
+            Consumer<WatchBatch> listener,
+            WatchService watchService) {
+        this.trace = trace;
+        this.appsDir = appsDir.toAbsolutePath().normalize();
+        this.rules = rules;
+        this.debounceNanos = debounce.toNanos();
+        this.listener = listener;
+        this.watchService = watchService;
+        this.thread = new Thread(this::run, "kustomtrace-watch");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Registers the watches and starts applying changes to {@code trace}.
+     *
+     * @param trace    The trace to keep up to date, built from {@code appsDir}.
+     * @param appsDir  The apps directory.
+     * @param rules    The ignore rules of the build; ignored directories are not watched.
+     * @param debounce How long to wait for more events before applying a batch.
+     * @param listener Receives every applied batch, on the watch thread.
+     * @return The running {@link GraphWatcher}.
+     * @throws IOException If the watch service cannot be created or the apps directory cannot
+     *     be registered.
+     */
+    public static GraphWatcher start(
+            KustomTrace trace,
+            Path appsDir,
+            IgnoreRules rules,
+            Duration debounce,
+            Consumer<WatchBatch> listener)
+            throws IOException {
+        Objects.requireNonNull(listener, "Listener cannot be null.");
+        if (debounce.isNegative()) {
+            throw new IllegalArgumentException("Debounce interval cannot be negative.");
+        }
+        WatchService watchService = appsDir.getFileSystem().newWatchService();
+        GraphWatcher watcher =
+                new GraphWatcher(trace, appsDir, rules, debounce, listener, watchService);
+        try {
+            long start = System.currentTimeMillis();
+            watcher.registerTree(watcher.appsDir, rules);
+            watcher.registerOutsideDirectories();
+            logger.info(
+                    "Watching {} director(ies) under {}, registered in {} ms.",
+                    watcher.directories.size(),
+                    watcher.appsDir,
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /**
+     * @return The number of directories currently watched.
+     */
+    public int getWatchedDirectoryCount() {
+        return directories.size();
+    }
+
+    /**
+     * Waits until the watcher is closed.
+     *
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops watching. A batch being applied is finished first.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        if (Thread.currentThread() != thread) {
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+                long deadline = System.nanoTime() + MAX_BATCH_INTERVALS * debounceNanos;
+                while (true) {
+                    long wait = Math.min(debounceNanos, deadline - System.nanoTime());
+                    WatchKey next = wait > 0 ? watchService.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    collect(next, changed);
+                }
+                if (!changed.isEmpty()) {
+                    apply(changed);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting for events.
+        } finally {
+            stopped.countDown();
+            logger.info("Stopped watching {}.", appsDir);
+        }
+    }
+
+    /** Adds the paths of a key's events to the batch, and watches directories created since. */
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("Lost file events under {}; updating the whole directory.", directory);
+                changed.add(directory);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            changed.add(path);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                IgnoreRules rules = rulesByDirectory.get(directory);
+                if (rules != null && !rules.isIgnored(path, true)) {
+                    try {
+                        registerTree(path, rules);
+                    } catch (IOException e) {
+                        logger.warn("Could not watch new directory {}: {}", path, e.getMessage());
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+            if (directory != null) {
+                goneDirectories.add(directory);
+            }
+        }
+    }
+
+    private void apply(Set<Path> changed) {
+        long start = System.nanoTime();
+        try {
+            Set<Path> affectedApps = new TreeSet<>();
+            collectApps(changed, affectedApps);
+            UpdateStats stats = trace.update(changed);
+            collectApps(changed, affectedApps);
+            if (!goneDirectories.isEmpty()) {
+                // A directory created again in the batch is watched under a new key.
+                goneDirectories.removeAll(new HashSet<>(directories.values()));
+                rulesByDirectory.keySet().removeAll(goneDirectories);
+                goneDirectories.clear();
+            }
+            if (stats.rebuilt()) {
+                registerAgain();
+            } else {
+                registerOutsideDirectories();
+            }
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.debug(
+                    "Applied {} changed path(s) in {} ms: {}.", changed.size(), durationMillis, stats);
+            listener.accept(
+                    new WatchBatch(
+                            List.copyOf(changed), List.copyOf(affectedApps), stats, durationMillis));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not apply changes to {}: {}", changed, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds the root apps using each path, or any node below it when the path is, or was, a
+     * directory. The nodes below a directory are one range of the graph's sorted path index.
+     */
+    private void collectApps(Collection<Path> changed, Set<Path> apps) {
+        for (Path path : changed) {
+            Optional<List<Path>> pathApps = trace.findAppsWith(path);
+            if (pathApps.isPresent()) {
+                apps.addAll(pathApps.get());
+                continue;
+            }
+            if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)
+                    && !rulesByDirectory.containsKey(path)) {
+                continue;
+            }
+            for (GraphNode node : trace.getGraph().getNodesUnder(path)) {
+                trace.findAppsWith(node.getPath()).ifPresent(apps::addAll);
+            }
+        }
+    }
+
+    /**
+     * Watches a directory and every subdirectory a scan would enter, the way the directory
+     * walk applies ignore rules: ignore files are read as each directory is entered, and
+     * symbolic links are not followed.
+     */
+    private void registerTree(Path directory, IgnoreRules parentRules) throws IOException {
+        List<Path> subdirectories = new ArrayList<>();
+        List<String> ignoreFiles = new ArrayList<>(2);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    subdirectories.add(entry);
+                } else if (!parentRules.isEmpty()) {
+                    String name = entry.getFileName().toString();
+                    if (name.equals(IgnoreRules.KUSTOMTRACE_IGNORE)
+                            || name.equals(IgnoreRules.GITIGNORE)) {
+                        ignoreFiles.add(name);
+                    }
+                }
+            }
+        }
+        IgnoreRules rules =
+                ignoreFiles.isEmpty() ? parentRules : parentRules.enter(directory, ignoreFiles);
+        register(directory, rules);
+        for (Path subdirectory : subdirectories) {
+            if (!rules.isIgnored(subdirectory, true)) {
+                registerTree(subdirectory, rules);
+            }
+        }
+    }
+
+    /**
+     * Watches the directories of files the graph holds outside the apps directory that are
+     * not watched yet.
+     */
+    private void registerOutsideDirectories() {
+        Set<Path> outside = new LinkedHashSet<>();
+        for (GraphNode node : trace.getGraph().getNodesOutside(appsDir)) {
+            Path parent = node.getPath().toAbsolutePath().normalize().getParent();
+            if (parent != null && !parent.startsWith(appsDir)) {
+                outside.add(parent);
+            }
+        }
+        outside.removeAll(rulesByDirectory.keySet());
+        for (Path directory : outside) {
+            try {
+                register(directory, IgnoreRules.none());
+            } catch (IOException e) {
+                logger.warn("Could not watch {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registers the tree and the outside directories again after a rebuild, so that the ignore
+     * rules of every directory are read anew, and stops watching the directories that are no
+     * longer registered, e.g. because they are ignored now.
+     */
+    private void registerAgain() {
+        Set<WatchKey> previous = new HashSet<>(directories.keySet());
+        directories.clear();
+        rulesByDirectory.clear();
+        try {
+            registerTree(appsDir, rules);
+        } catch (IOException e) {
+            logger.warn("Could not watch {} again: {}", appsDir, e.getMessage());
+        }
+        registerOutsideDirectories();
+        previous.removeAll(directories.keySet());
+        previous.forEach(WatchKey::cancel);
+        logger.debug("Registered {} director(ies) again after a rebuild.", directories.size());
+    }
+
+    private void register(Path directory, IgnoreRules rules) throws IOException {
+        WatchKey key =
+                directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, directory);
+        rulesByDirectory.put(directory, rules);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2025 GuidoZuccarelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.zucca_ops.kustomtrace.watch;
+
+import dev.zucca_ops.kustomtrace.graph.UpdateStats;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * One coalesced burst of file system events, as applied by a {@link GraphWatcher}.
+ *
+ * @param changed        The paths reported changed, created or deleted, each once, in the
+ *                       order they were first reported.
+ * @param affectedApps   The root application directories that used any of those files before
+ *                       the update or use them after it, in path order.
+ * @param stats          The {@link UpdateStats} of the graph update.
+ * @param durationMillis The time taken to update the graph and find the affected apps.
+ */
+public record WatchBatch(
+        List<Path> changed, List<Path> affectedApps, UpdateStats stats, long durationMillis) {}
@@ -0,0 +1,236 @@
+package dev.zucca_ops.kustomtrace.git;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.ResourceParsing;
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.WalkStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitCommitSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fromCommit_buildsGraphWithoutWorkingTree() throws Exception {
+        String app =
+                tree(
+                        Map.of(
+                                "kustomization.yaml",
+                                blob("resources:\n  - deployment.yaml\n"),
+                                "deployment.yaml",
+                                blob("kind: Deployment\nmetadata:\n  name: app\n")));
+        commitOnMain(tree(Map.of("apps", tree(Map.of("app", app)))), null);
+
+        Path appsDir = tempDir.resolve("apps");
+        KustomTrace trace = KustomTrace.fromCommit(appsDir, "HEAD");
+
+        assertFalse(Files.exists(appsDir));
+        assertEquals(List.of(appsDir.resolve("app")), trace.getRootApps());
+        assertEquals(
+                Set.of(
+                        appsDir.resolve("app/kustomization.yaml"),
+                        appsDir.resolve("app/deployment.yaml")),
+                Set.copyOf(trace.getDependenciesFor(appsDir.resolve("app"))));
+    }
+
+    @Test
+    void fromCommit_closeReleasesTheCommit() throws Exception {
+        String app =
+                tree(
+                        Map.of(
+                                "kustomization.yaml",
+                                blob("resources:\n  - deployment.yaml\n  - service.yaml\n"),
+                                "deployment.yaml",
+                                blob("kind: Deployment\nmetadata:\n  name: app\n"),
+                                "service.yaml",
+                                blob("kind: Service\nmetadata:\n  name: app\n")));
+        commitOnMain(tree(Map.of("apps", tree(Map.of("app", app)))), null);
+        Path appsDir = tempDir.resolve("apps");
+        BuildOptions lazy = new BuildOptions().resourceParsing(ResourceParsing.LAZY);
+
+        KustomFile deployment;
+        KustomFile service;
+        try (KustomTrace trace = KustomTrace.fromCommit(appsDir, "HEAD", lazy)) {
+            deployment = (KustomFile) trace.getGraph().getNode(appsDir.resolve("app/deployment.yaml"));
+            service = (KustomFile) trace.getGraph().getNode(appsDir.resolve("app/service.yaml"));
+            assertEquals(1, deployment.getResources().size(), "Readable while the trace is open");
+        }
+
+        assertEquals(List.of(), service.getResources(), "The commit is no longer read once closed");
+        GitCommitSource source = GitCommitSource.open(tempDir, "HEAD");
+        source.close();
+        assertThrows(IOException.class, () -> source.newInputStream(tempDir.resolve("apps/app/service.yaml")));
+    }
+
+    @Test
+    void open_readsContentOfRequestedRevision() throws Exception {
+        String first = commitOnMain(tree(Map.of("a.yaml", blob("first\n"))), null);
+        String second = commitOnMain(tree(Map.of("a.yaml", blob("second\n"))), first);
+        Files.writeString(
+                tempDir.resolve(".git/packed-refs"),
+                "# pack-refs with: peeled fully-peeled sorted\n" + first + " refs/tags/v1\n");
+
+        Path file = tempDir.resolve("a.yaml");
+        try (GitCommitSource head = GitCommitSource.open(tempDir, "HEAD");
+                GitCommitSource parent = GitCommitSource.open(tempDir, "main~1");
+                GitCommitSource tag = GitCommitSource.open(tempDir, "v1");
+                GitCommitSource abbreviated =
+                        GitCommitSource.open(tempDir, second.substring(0, 7))) {
+            assertEquals(second, head.getCommitId());
+            assertEquals("second\n", read(head, file));
+            assertEquals(first, parent.getCommitId());
+            assertEquals("first\n", read(parent, file));
+            assertEquals(first, tag.getCommitId());
+            assertEquals(second, abbreviated.getCommitId());
+        }
+        assertThrows(IOException.class, () -> GitCommitSource.open(tempDir, "main~2"));
+        assertThrows(IOException.class, () -> GitCommitSource.open(tempDir, "unknown"));
+    }
+
+    @Test
+    void isFile_followsSymbolicLinksInsideTheCommit() throws Exception {
+        String base = tree(Map.of("kustomization.yaml", blob("resources: []\n")));
+        commitOnMain(
+                tree(
+                        Map.of(
+                                "base", base,
+                                "linked", symlink("base"),
+                                "escape", symlink("../outside.yaml"))),
+                null);
+
+        try (GitCommitSource source = GitCommitSource.open(tempDir, "HEAD")) {
+            assertTrue(source.isDirectory(tempDir.resolve("linked")));
+            assertTrue(source.isFile(tempDir.resolve("linked/kustomization.yaml")));
+            assertEquals(
+                    "resources: []\n", read(source, tempDir.resolve("linked/kustomization.yaml")));
+            assertFalse(source.isFile(tempDir.resolve("escape")));
+            assertFalse(source.isFile(tempDir.resolve("base")));
+            assertFalse(source.isDirectory(tempDir.resolve("base/kustomization.yaml")));
+            assertThrows(
+                    NoSuchFileException.class,
+                    () -> source.newInputStream(tempDir.resolve("missing.yaml")));
+        }
+    }
+
+    @Test
+    void scan_prunesDirectoriesIgnoredInTheCommit() throws Exception {
+        String app = tree(Map.of("kustomization.yaml", blob("resources: []\n")));
+        commitOnMain(
+                tree(
+                        Map.of(
+                                IgnoreRules.KUSTOMTRACE_IGNORE, blob("legacy/\n"),
+                                "app", app,
+                                "legacy", app,
+                                "node_modules", tree(Map.of("pkg", app)))),
+                null);
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        try (GitCommitSource source = GitCommitSource.open(tempDir, "HEAD")) {
+            WalkStats stats =
+                    source.scan(
+                            tempDir,
+                            IgnoreRules.load(tempDir, List.of(), true, false, source),
+                            KustomizeFileUtil::isKustomizationFileName,
+                            found::add);
+
+            assertEquals(Set.of(tempDir.resolve("app/kustomization.yaml")), found);
+            assertEquals(2, stats.pruned());
+            // tempDir, app
+            assertEquals(2, stats.directories());
+        }
+    }
+
+    private String read(GitCommitSource source, Path file) throws IOException {
+        try (InputStream in = source.newInputStream(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String commitOnMain(String treeId, String parent) throws Exception {
+        String content =
+                "tree " + treeId + "\n"
+                        + (parent == null ? "" : "parent " + parent + "\n")
+                        + "author A <a@example.com> 1700000000 +0000\n"
+                        + "committer A <a@example.com> 1700000000 +0000\n\nmessage\n";
+        String id = writeObject("commit", content.getBytes(StandardCharsets.UTF_8));
+        Path gitDir = tempDir.resolve(".git");
+        Files.createDirectories(gitDir.resolve("refs/heads"));
+        Files.writeString(gitDir.resolve("HEAD"), "ref: refs/heads/main\n");
+        Files.writeString(gitDir.resolve("refs/heads/main"), id + "\n");
+        return id;
+    }
+
+    private String blob(String content) throws Exception {
+        return writeObject("blob", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Marks a blob id as a symbolic link for {@link #tree(Map)}. */
+    private String symlink(String target) throws Exception {
+        return "link:" + blob(target);
+    }
+
+    private String tree(Map<String, String> entries) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> entry : new LinkedHashMap<>(entries).entrySet()) {
+            String id = entry.getValue();
+            String mode;
+            if (id.startsWith("link:")) {
+                mode = "120000";
+                id = id.substring("link:".length());
+            } else {
+                mode = isTree(id) ? "40000" : "100644";
+            }
+            content.write((mode + " " + entry.getKey() + "\0").getBytes(StandardCharsets.UTF_8));
+            content.write(HexFormat.of().parseHex(id));
+        }
+        return writeObject("tree", content.toByteArray());
+    }
+
+    private boolean isTree(String id) throws IOException {
+        Path object = tempDir.resolve(".git/objects/" + id.substring(0, 2) + "/" + id.substring(2));
+        try (InputStream in =
+                new InflaterInputStream(Files.newInputStream(object))) {
+            return new String(in.readNBytes(4), StandardCharsets.US_ASCII).equals("tree");
+        }
+    }
+
+    private String writeObject(String type, byte[] content) throws Exception {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        raw.write((type + " " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+        raw.write(content);
+        String id =
+                HexFormat.of()
+                        .formatHex(MessageDigest.getInstance("SHA-1").digest(raw.toByteArray()));
+
+        Path object = tempDir.resolve(".git/objects/" + id.substring(0, 2) + "/" + id.substring(2));
+        Files.createDirectories(object.getParent());
+        try (DeflaterOutputStream out = new DeflaterOutputStream(Files.newOutputStream(object))) {
+            out.write(raw.toByteArray());
+        }
+        return id;
+    }
+}
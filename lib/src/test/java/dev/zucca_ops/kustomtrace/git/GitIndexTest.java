@@ -0,0 +1,239 @@
+package dev.zucca_ops.kustomtrace.git;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitIndexTest {
+
+    private static final String BLOB = "e69de29bb2d1d6434b8b29ae775ad8c2e48c5391";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_decodesVersion2Entries() throws Exception {
+        Path indexFile =
+                writeIndex(
+                        2,
+                        entry("apps/a/kustomization.yaml", 0100644),
+                        entry("apps/b/deployment.yaml", 0100755),
+                        entry("link.yaml", 0120000));
+
+        GitIndex index = GitIndex.read(indexFile);
+
+        assertEquals(2, index.version());
+        assertEquals(3, index.entries().size());
+        GitIndexEntry first = index.entries().get(0);
+        assertEquals("apps/a/kustomization.yaml", first.path());
+        assertEquals(BLOB, first.objectId());
+        assertEquals(42, first.size());
+        assertTrue(first.isRegularFile());
+        assertTrue(index.entries().get(2).isSymbolicLink());
+        assertFalse(index.isSparse());
+    }
+
+    @Test
+    void read_decodesVersion3ExtendedFlags() throws Exception {
+        Path indexFile =
+                writeIndex(
+                        3,
+                        entry("apps/a/kustomization.yaml", 0100644),
+                        entry("apps/b/kustomization.yaml", 0100644).withSkipWorktree());
+
+        List<GitIndexEntry> entries = GitIndex.read(indexFile).entries();
+
+        assertFalse(entries.get(0).skipWorktree());
+        assertTrue(entries.get(1).skipWorktree());
+        assertEquals("apps/b/kustomization.yaml", entries.get(1).path());
+    }
+
+    @Test
+    void read_decodesVersion4PrefixCompressedPaths() throws Exception {
+        String longName = "x".repeat(5000) + ".yaml";
+        Path indexFile =
+                writeIndex(
+                        4,
+                        entry("apps/team/a/kustomization.yaml", 0100644),
+                        entry("apps/team/a/service.yaml", 0100644),
+                        entry("apps/team/b/kustomization.yaml", 0100644),
+                        entry("apps/" + longName, 0100644),
+                        entry("zz.yaml", 0100644));
+
+        List<String> paths =
+                GitIndex.read(indexFile).entries().stream().map(GitIndexEntry::path).toList();
+
+        assertEquals(
+                List.of(
+                        "apps/team/a/kustomization.yaml",
+                        "apps/team/a/service.yaml",
+                        "apps/team/b/kustomization.yaml",
+                        "apps/" + longName,
+                        "zz.yaml"),
+                paths);
+    }
+
+    @Test
+    void read_rejectsCorruptChecksum() throws Exception {
+        Path indexFile = writeIndex(2, entry("kustomization.yaml", 0100644));
+        byte[] data = Files.readAllBytes(indexFile);
+        data[20] ^= 1;
+        Files.write(indexFile, data);
+
+        IOException e = assertThrows(IOException.class, () -> GitIndex.read(indexFile));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void trackedFiles_listsStageZeroFilesUnderDirectory() throws Exception {
+        Files.createDirectories(tempDir.resolve(".git"));
+        writeIndex(
+                2,
+                entry("README.md", 0100644),
+                entry("deploy/apps/a/kustomization.yaml", 0100644),
+                entry("deploy/apps/a/kustomization.yaml", 0100644).withStage(2),
+                entry("deploy/apps/module", 0160000),
+                entry("deploy/apps/b/service.yaml", 0100644),
+                entry("deploy/other/kustomization.yaml", 0100644));
+        Path appsDir = Files.createDirectories(tempDir.resolve("deploy/apps"));
+
+        GitRepository repository = GitRepository.find(appsDir.resolve("a")).orElseThrow();
+        Optional<List<String>> tracked = repository.trackedFiles(appsDir);
+
+        assertEquals(tempDir.toAbsolutePath().normalize(), repository.getWorkTree());
+        assertEquals(Optional.of(List.of("a/kustomization.yaml", "b/service.yaml")), tracked);
+    }
+
+    @Test
+    void trackedFiles_isEmptyWithoutIndex() throws Exception {
+        Files.createDirectories(tempDir.resolve(".git"));
+
+        GitRepository repository = GitRepository.find(tempDir).orElseThrow();
+
+        assertTrue(repository.trackedFiles(tempDir).isEmpty());
+    }
+
+    @Test
+    void trackedFiles_isEmptyForASplitIndex() throws Exception {
+        ByteArrayOutputStream link = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(link);
+        out.writeBytes("link");
+        out.writeInt(20);
+        out.write(HexFormat.of().parseHex(BLOB));
+        writeIndex(2, link.toByteArray(), entry("apps/a/kustomization.yaml", 0100644));
+
+        GitRepository repository = GitRepository.find(tempDir).orElseThrow();
+
+        assertTrue(GitIndex.read(tempDir.resolve(".git/index")).isSplit());
+        assertTrue(repository.trackedFiles(tempDir).isEmpty());
+    }
+
+    @Test
+    void find_followsGitFileOfLinkedWorktree() throws Exception {
+        Path gitDir = Files.createDirectories(tempDir.resolve("main/.git/worktrees/wt"));
+        Files.writeString(gitDir.resolve("commondir"), "../..\n");
+        Path workTree = Files.createDirectories(tempDir.resolve("wt"));
+        Files.writeString(workTree.resolve(".git"), "gitdir: " + gitDir + "\n");
+
+        GitRepository repository = GitRepository.find(workTree).orElseThrow();
+
+        assertEquals(gitDir.normalize(), repository.getGitDir());
+        assertEquals(tempDir.resolve("main/.git").normalize(), repository.getCommonDir());
+    }
+
+    private Path writeIndex(int version, Entry... entries) throws Exception {
+        return writeIndex(version, new byte[0], entries);
+    }
+
+    private Path writeIndex(int version, byte[] extensions, Entry... entries) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("DIRC");
+        out.writeInt(version);
+        out.writeInt(entries.length);
+
+        byte[] previous = new byte[0];
+        for (Entry entry : entries) {
+            int start = out.size();
+            byte[] path = entry.path.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < 6; i++) {
+                out.writeInt(i); // ctime, mtime, dev, ino
+            }
+            out.writeInt(entry.mode);
+            out.writeInt(1000);
+            out.writeInt(1000);
+            out.writeInt(42);
+            out.write(HexFormat.of().parseHex(BLOB));
+            boolean extended = entry.skipWorktree;
+            out.writeShort(
+                    (extended ? 0x4000 : 0) | (entry.stage << 12) | Math.min(path.length, 0xFFF));
+            if (extended) {
+                out.writeShort(0x4000);
+            }
+            if (version == 4) {
+                int common = 0;
+                while (common < previous.length
+                        && common < path.length
+                        && previous[common] == path[common]) {
+                    common++;
+                }
+                writeOffset(out, previous.length - common);
+                out.write(path, common, path.length - common);
+                out.write(0);
+                previous = path;
+            } else {
+                out.write(path);
+                int length = out.size() - start;
+                int padded = (length + 8) & ~7;
+                out.write(new byte[padded - length]);
+            }
+        }
+
+        out.write(extensions);
+        byte[] content = bytes.toByteArray();
+        Path indexFile = Files.createDirectories(tempDir.resolve(".git")).resolve("index");
+        Files.write(indexFile, content);
+        Files.write(
+                indexFile,
+                MessageDigest.getInstance("SHA-1").digest(content),
+                StandardOpenOption.APPEND);
+        return indexFile;
+    }
+
+    private static void writeOffset(DataOutputStream out, int value) throws IOException {
+        byte[] buffer = new byte[16];
+        int position = buffer.length - 1;
+        buffer[position] = (byte) (value & 0x7F);
+        while ((value >>= 7) != 0) {
+            buffer[--position] = (byte) (0x80 | (--value & 0x7F));
+        }
+        out.write(buffer, position, buffer.length - position);
+    }
+
+    private static Entry entry(String path, int mode) {
+        return new Entry(path, mode, 0, false);
+    }
+
+    private record Entry(String path, int mode, int stage, boolean skipWorktree) {
+        Entry withSkipWorktree() {
+            return new Entry(path, mode, stage, true);
+        }
+
+        Entry withStage(int stage) {
+            return new Entry(path, mode, stage, skipWorktree);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package dev.zucca_ops.kustomtrace.git;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackFileTest {
+
+    private static final String BASE = "apiVersion: v1\nkind: ConfigMap\nmetadata:\n  name: base\n";
+    private static final String TARGET = BASE + "data:\n  key: value\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_resolvesOffsetDeltasAgainstTheirBase() throws Exception {
+        Files.createDirectories(tempDir.resolve(".git/objects/pack"));
+        writePack(tempDir.resolve(".git/objects/pack/pack-test"));
+        GitRepository repository = GitRepository.find(tempDir).orElseThrow();
+
+        try (GitObjectStore store = GitObjectStore.open(repository)) {
+            GitObject base = store.read(blobId(BASE));
+            GitObject target = store.read(blobId(TARGET));
+
+            assertEquals(GitObject.Type.BLOB, target.type());
+            assertEquals(BASE, new String(base.data(), StandardCharsets.UTF_8));
+            assertEquals(TARGET, new String(target.data(), StandardCharsets.UTF_8));
+            assertEquals(List.of(blobId(TARGET)), store.resolvePrefix(blobId(TARGET).substring(0, 8)));
+            assertThrows(NoSuchFileException.class, () -> store.read("0".repeat(40)));
+        }
+    }
+
+    @Test
+    void applyDelta_copiesAndInsertsRanges() throws IOException {
+        byte[] base = "hello, world".getBytes(StandardCharsets.US_ASCII);
+        byte[] delta = {
+            12, 14, // base and result sizes
+            (byte) 0x91, 0, 5, // copy 5 bytes from offset 0
+            3, ' ', 't', 'o', // insert " to"
+            (byte) 0x91, 6, 6 // copy 6 bytes from offset 6
+        };
+
+        assertEquals(
+                "hello to world", new String(PackFile.applyDelta(base, delta), StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> PackFile.applyDelta(new byte[3], delta));
+    }
+
+    /** Writes a version 2 pack holding {@link #BASE} and {@link #TARGET} as a delta of it. */
+    private void writePack(Path prefix) throws Exception {
+        byte[] base = BASE.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        delta.write(base.length);
+        delta.write(TARGET.length());
+        delta.write(0x90); // copy the whole base from offset 0
+        delta.write(base.length);
+        byte[] suffix = TARGET.substring(BASE.length()).getBytes(StandardCharsets.UTF_8);
+        delta.write(suffix.length);
+        delta.write(suffix);
+
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(pack);
+        out.writeBytes("PACK");
+        out.writeInt(2);
+        out.writeInt(2);
+        int baseOffset = pack.size();
+        writeObjectHeader(out, 3, base.length);
+        out.write(deflate(base));
+        int deltaOffset = pack.size();
+        writeObjectHeader(out, 6, delta.size());
+        out.write(deltaOffset - baseOffset); // fits in one byte of the offset encoding
+        out.write(deflate(delta.toByteArray()));
+        out.write(MessageDigest.getInstance("SHA-1").digest(pack.toByteArray()));
+        Files.write(prefix.resolveSibling(prefix.getFileName() + ".pack"), pack.toByteArray());
+
+        String[] ids = {blobId(BASE), blobId(TARGET)};
+        int[] offsets = {baseOffset, deltaOffset};
+        Integer[] order = {0, 1};
+        Arrays.sort(order, (a, b) -> ids[a].compareTo(ids[b]));
+
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        indexOut.writeInt(0xFF744F63);
+        indexOut.writeInt(2);
+        for (int bucket = 0; bucket < 256; bucket++) {
+            int count = 0;
+            for (String id : ids) {
+                if (Integer.parseInt(id.substring(0, 2), 16) <= bucket) {
+                    count++;
+                }
+            }
+            indexOut.writeInt(count);
+        }
+        for (int i : order) {
+            indexOut.write(HexFormat.of().parseHex(ids[i]));
+        }
+        for (int i : order) {
+            indexOut.writeInt(0); // CRC32, not checked
+        }
+        for (int i : order) {
+            indexOut.writeInt(offsets[i]);
+        }
+        indexOut.write(new byte[40]);
+        Files.write(prefix.resolveSibling(prefix.getFileName() + ".idx"), index.toByteArray());
+    }
+
+    private static void writeObjectHeader(DataOutputStream out, int type, int size)
+            throws IOException {
+        int header = (type << 4) | (size & 0x0F);
+        size >>>= 4;
+        while (size != 0) {
+            out.write(header | 0x80);
+            header = size & 0x7F;
+            size >>>= 7;
+        }
+        out.write(header);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static String blobId(String content) throws Exception {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        sha1.update(("blob " + data.length + "\0").getBytes(StandardCharsets.US_ASCII));
+        return HexFormat.of().formatHex(sha1.digest(data));
+    }
+}
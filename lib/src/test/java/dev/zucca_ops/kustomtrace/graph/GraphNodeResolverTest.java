@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedStatic;
 import dev.zucca_ops.kustomtrace.parser.YamlParser;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -20,6 +21,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mockStatic;
 
 public class GraphNodeResolverTest {
+    private static final ResolverContext RETAINING_CONTENT =
+            new ResolverContext(FileSource.fileSystem(), ResourceParsing.EAGER, true, null);
+
     @TempDir
     Path tempDir;
 
@@ -39,7 +43,7 @@ public class GraphNodeResolverTest {
 
         Files.writeString(filePath, yaml);
 
-        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath);
+        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath, ResolverContext.fileSystem());
         List<KustomResource> resources = file.getResources();
 
         assertEquals(2, resources.size());
@@ -59,7 +63,7 @@ public class GraphNodeResolverTest {
         Path filePath = tempDir.resolve("script.sh");
         Files.writeString(filePath, "echo hello");
 
-        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath);
+        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath, ResolverContext.fileSystem());
 
         assertTrue(file.getResources().isEmpty());
     }
@@ -70,9 +74,9 @@ public class GraphNodeResolverTest {
         Map<String, Object> mockContent = Map.of("apiVersion", "kustomize.config.k8s.io/v1beta1");
 
         try (MockedStatic<YamlParser> mockedParser = mockStatic(YamlParser.class)) {
-            mockedParser.when(() -> YamlParser.parseKustomizationFile(dummyPath)).thenReturn(mockContent);
+            mockedParser.when(() -> YamlParser.parseKustomizationFile(dummyPath, FileSource.fileSystem())).thenReturn(mockContent);
 
-            Kustomization kustomization = GraphNodeResolver.resolveKustomization(dummyPath);
+            Kustomization kustomization = GraphNodeResolver.resolveKustomization(dummyPath, RETAINING_CONTENT);
 
             assertNotNull(kustomization);
             assertEquals(dummyPath, kustomization.getPath());
@@ -85,11 +89,49 @@ public class GraphNodeResolverTest {
         InvalidContentException expectedException = new InvalidContentException(dummyPath);
 
         try (MockedStatic<YamlParser> mockedParser = mockStatic(YamlParser.class)) {
-            mockedParser.when(() -> YamlParser.parseKustomizationFile(dummyPath)).thenThrow(expectedException);
+            mockedParser.when(() -> YamlParser.parseKustomizationFile(dummyPath, FileSource.fileSystem())).thenThrow(expectedException);
 
-            InvalidContentException actualException = assertThrows(InvalidContentException.class, () -> GraphNodeResolver.resolveKustomization(dummyPath));
+            InvalidContentException actualException = assertThrows(InvalidContentException.class, () -> GraphNodeResolver.resolveKustomization(dummyPath, RETAINING_CONTENT));
             assertSame(expectedException, actualException);
         }
     }
 
+    @Test
+    void resolveKustomFile_lazyParsesOnFirstAccess() throws IOException, InvalidContentException {
+        Path filePath = tempDir.resolve("lazy.yaml");
+        Files.writeString(filePath, "kind: ConfigMap\nmetadata:\n  name: before\n");
+
+        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath, parsing(ResourceParsing.LAZY));
+        Files.writeString(filePath, "kind: Secret\nmetadata:\n  name: after\n");
+
+        assertEquals("Secret", file.getResource().getKind());
+        assertEquals("after", file.getResource().getName());
+        assertSame(file, file.getResource().getFile());
+    }
+
+    @Test
+    void resolveKustomFile_lazyKeepsInvalidFileWithoutResources() throws IOException, InvalidContentException {
+        Path filePath = tempDir.resolve("invalid.yaml");
+        Files.writeString(filePath, "- not\n- a map\n");
+
+        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath, parsing(ResourceParsing.LAZY));
+
+        assertTrue(file.getResources().isEmpty());
+        assertThrows(InvalidContentException.class,
+                () -> GraphNodeResolver.resolveKustomFile(filePath, parsing(ResourceParsing.EAGER)));
+    }
+
+    @Test
+    void resolveKustomFile_noneNeverReadsFile() throws InvalidContentException, FileNotFoundException {
+        Path filePath = tempDir.resolve("missing.yaml");
+
+        KustomFile file = GraphNodeResolver.resolveKustomFile(filePath, parsing(ResourceParsing.NONE));
+
+        assertEquals(filePath, file.getPath());
+        assertTrue(file.getResources().isEmpty());
+    }
+
+    private static ResolverContext parsing(ResourceParsing resourceParsing) {
+        return new ResolverContext(FileSource.fileSystem(), resourceParsing, false, null);
+    }
 }
@@ -0,0 +1,214 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path appsDir;
+    private Path snapshotFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        appsDir = tempDir.resolve("apps");
+        snapshotFile = tempDir.resolve("cache/graph.bin");
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n  - missing.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n---\nkind: Service\n");
+        write(
+                "overlays/prod/kustomization.yaml",
+                "kind: Kustomization\nresources:\n  - ../../base\npatches:\n  - path: patch.yaml\n"
+                        + "configMapGenerator:\n  - name: cm\n    files:\n      - app.properties\n");
+        write("overlays/prod/patch.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("overlays/prod/app.properties", "key=value\n");
+        write("cycle-a/kustomization.yaml", "resources:\n  - ../cycle-b\n");
+        write("cycle-b/kustomization.yaml", "resources:\n  - ../cycle-a\n");
+    }
+
+    @Test
+    void readWrite_roundTripsNodesEdgesAndResources() throws IOException {
+        BuildOptions options = new BuildOptions();
+        KustomGraph built = new KustomGraphBuilder(appsDir, options).build();
+
+        GraphSnapshot.of(built, appsDir, options).write(snapshotFile);
+        GraphSnapshot loaded = GraphSnapshot.read(snapshotFile);
+
+        assertEquals(describe(built), describe(loaded.getGraph()));
+        assertEquals(appsDir.toAbsolutePath().normalize(), loaded.getAppsDir());
+        Kustomization prod = loaded.getGraph().getKustomization(appsDir.resolve("overlays/prod/kustomization.yaml"));
+        assertEquals(built.getKustomization(prod.getPath()).getSpec(), prod.getSpec());
+        assertEquals(1, loaded.getGraph().getRootApps().size());
+    }
+
+    @Test
+    void read_keepsUnloadedFilesLazy() throws IOException {
+        BuildOptions options = new BuildOptions().resourceParsing(ResourceParsing.LAZY);
+        KustomGraph built = new KustomGraphBuilder(appsDir, options).build();
+
+        GraphSnapshot.of(built, appsDir, options).write(snapshotFile);
+        KustomFile file = GraphSnapshot.read(snapshotFile).getGraph().getKustomFile(appsDir.resolve("base/deployment.yaml"));
+
+        assertFalse(file.isLoaded());
+        assertEquals(2, file.getResources().size());
+    }
+
+    @Test
+    void isReusableFor_detectsChangedFilesAndOptions() throws IOException {
+        BuildOptions options = new BuildOptions();
+        GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options).write(snapshotFile);
+        GraphSnapshot snapshot = GraphSnapshot.read(snapshotFile);
+
+        assertTrue(snapshot.isReusableFor(appsDir, options));
+        assertFalse(snapshot.isReusableFor(appsDir, new BuildOptions().exclude("cycle-a/")));
+        assertFalse(snapshot.isReusableFor(tempDir, options));
+
+        write("overlays/prod/patch.yaml", "kind: Deployment\nmetadata:\n  name: other\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+    }
+
+    @Test
+    void isReusableFor_detectsNewAppsAndIgnoreFiles() throws IOException {
+        BuildOptions options = new BuildOptions();
+        GraphSnapshot snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+
+        write(".kustomtraceignore", "cycle-*/\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+
+        Files.delete(appsDir.resolve(".kustomtraceignore"));
+        snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+        write("overlays/dev/kustomization.yaml", "resources:\n  - ../../base\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+    }
+
+    @Test
+    void isReusableFor_detectsNewAppsUnderDirectoriesWithoutNodes() throws IOException {
+        BuildOptions options = new BuildOptions();
+        Files.createDirectories(appsDir.resolve("teams/payments"));
+        write("docs/README.md", "no apps here\n");
+        GraphSnapshot snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+        assertTrue(snapshot.isReusableFor(appsDir, options));
+
+        write("teams/payments/kustomization.yaml", "resources:\n  - ../../base\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+
+        Files.delete(appsDir.resolve("teams/payments/kustomization.yaml"));
+        snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+        write("docs/guide/kustomization.yaml", "resources:\n  - ../../base\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+    }
+
+    @Test
+    void isReusableFor_detectsEditedIgnoreFilesAboveTheAppsDirectory() throws IOException {
+        BuildOptions options = new BuildOptions().respectGitignore(true);
+        Files.createDirectories(tempDir.resolve(".git/info"));
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\n");
+        GraphSnapshot snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+        assertTrue(snapshot.isReusableFor(appsDir, options));
+
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\napps/cycle-a/\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+
+        snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+        Files.writeString(tempDir.resolve(".git/info/exclude"), "apps/cycle-b/\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+    }
+
+    @Test
+    void isReusableFor_detectsCreatedTargetsOutsideTheAppsDirectory() throws IOException {
+        BuildOptions options = new BuildOptions();
+        Files.createDirectories(tempDir.resolve("shared"));
+        write("remote/kustomization.yaml", "resources:\n  - ../../shared/extra\n");
+        GraphSnapshot snapshot = GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options);
+        assertTrue(snapshot.isReusableFor(appsDir, options));
+
+        Files.createDirectories(tempDir.resolve("shared/extra"));
+        Files.writeString(tempDir.resolve("shared/extra/kustomization.yaml"), "resources: []\n");
+        assertFalse(snapshot.isReusableFor(appsDir, options));
+    }
+
+    @Test
+    void read_rejectsFilesThatAreNotSnapshots() throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        Files.writeString(snapshotFile, "not a snapshot");
+
+        assertThrows(IOException.class, () -> GraphSnapshot.read(snapshotFile));
+
+        BuildOptions options = new BuildOptions();
+        GraphSnapshot.of(new KustomGraphBuilder(appsDir, options).build(), appsDir, options).write(snapshotFile);
+        byte[] truncated = Files.readAllBytes(snapshotFile);
+        Files.write(snapshotFile, java.util.Arrays.copyOf(truncated, truncated.length / 2));
+
+        assertThrows(IOException.class, () -> GraphSnapshot.read(snapshotFile));
+    }
+
+    @Test
+    void fromDirectory_reusesCacheFileUntilAFileChanges() throws IOException, UnreferencedFileException {
+        BuildOptions options = new BuildOptions().cacheFile(snapshotFile);
+
+        KustomTrace built = KustomTrace.fromDirectory(appsDir, options);
+        assertTrue(Files.isRegularFile(snapshotFile));
+
+        KustomTrace loaded = KustomTrace.fromDirectory(appsDir, options);
+        assertEquals(describe(built.getGraph()), describe(loaded.getGraph()));
+        assertEquals(built.getAppsWith(appsDir.resolve("base/deployment.yaml")), loaded.getAppsWith(appsDir.resolve("base/deployment.yaml")));
+
+        write("overlays/prod/kustomization.yaml", "resources:\n  - patch.yaml\n");
+        KustomTrace rebuilt = KustomTrace.fromDirectory(appsDir, options);
+        assertTrue(rebuilt.getGraph().getKustomization(appsDir.resolve("base/kustomization.yaml")).getDependents().isEmpty());
+    }
+
+    @Test
+    void saveAndLoad_roundTripTheFacade() throws IOException {
+        KustomTrace built = KustomTrace.fromDirectory(appsDir);
+
+        built.save(snapshotFile);
+        KustomTrace loaded = KustomTrace.load(snapshotFile);
+
+        assertEquals(built.getRootApps().stream().sorted().toList(), loaded.getRootApps().stream().sorted().toList());
+        assertEquals(describe(built.getGraph()), describe(loaded.getGraph()));
+    }
+
+    /** Renders every node with its type, references, dependents and resources. */
+    private Map<String, String> describe(KustomGraph graph) {
+        Map<String, String> nodes = new TreeMap<>();
+        for (GraphNode node : graph.getNodes()) {
+            String details =
+                    node instanceof Kustomization kustomization
+                            ? kustomization.getReferences().stream()
+                                    .map(ref -> ref.referenceType() + " " + ref.resource().getPath())
+                                    .toList()
+                                    .toString()
+                            : ((KustomFile) node).getResources().stream()
+                                    .map(resource -> resource.getKind() + "/" + resource.getName())
+                                    .toList()
+                                    .toString();
+            String dependents =
+                    node.getDependents().stream().map(GraphNode::getPath).sorted().toList().toString();
+            nodes.put(node.getPath().toString(), node.getClass().getSimpleName() + details + dependents);
+        }
+        return nodes;
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = appsDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
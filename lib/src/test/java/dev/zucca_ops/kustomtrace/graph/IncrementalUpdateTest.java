@@ -0,0 +1,293 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.model.ResourceReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalUpdateTest {
+
+    private static final List<String> DIRECTORIES =
+            List.of("apps/a0", "apps/a1", "apps/a2", "apps/a3", "lib/b0", "lib/b1", "lib/b2", "vendor/v0", "vendor/v1");
+    private static final List<String> FILES = List.of("f0.yaml", "f1.yaml", "f2.yaml", "props.env");
+
+    @TempDir
+    Path tempDir;
+
+    private Path appsDir;
+
+    @BeforeEach
+    void setUp() {
+        appsDir = tempDir.resolve("repo");
+    }
+
+    @Test
+    void update_matchesAFullBuildAfterRandomChanges() throws IOException {
+        BuildOptions options = new BuildOptions().exclude("vendor/");
+        for (long seed = 1; seed <= 8; seed++) {
+            Random random = new Random(seed);
+            SyntheticRepoWriter repo = new SyntheticRepoWriter(appsDir, random);
+            repo.reset();
+            KustomTrace trace = KustomTrace.fromDirectory(appsDir, options);
+
+            for (int step = 0; step < 25; step++) {
+                List<Path> changed = new ArrayList<>();
+                int changes = 1 + random.nextInt(3);
+                for (int i = 0; i < changes; i++) {
+                    changed.add(repo.mutate());
+                }
+
+                UpdateStats stats = trace.update(changed);
+
+                assertFalse(stats.rebuilt());
+                KustomGraph expected = KustomTrace.fromDirectory(appsDir, options).getGraph();
+                assertEquals(describe(expected), describe(trace.getGraph()), "seed " + seed + ", step " + step + ", changed " + changed);
+                assertConsistent(trace.getGraph());
+                assertEquals(expected.getCycles(), trace.getGraph().getCycles(), "seed " + seed + ", step " + step);
+            }
+        }
+    }
+
+    @Test
+    void update_relinksDependentsOfAChangedBase() throws Exception {
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("prod/kustomization.yaml", "resources:\n  - ../base\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+
+        write("base/service.yaml", "kind: Service\nmetadata:\n  name: app\n");
+        write("base/kustomization.yaml", "resources:\n  - service.yaml\n");
+        UpdateStats stats = trace.update(List.of(appsDir.resolve("base/kustomization.yaml"), appsDir.resolve("base/service.yaml")));
+
+        assertEquals(List.of(appsDir.resolve("prod")), trace.getAppsWith(appsDir.resolve("base/service.yaml")));
+        assertFalse(trace.getGraph().containsNode(appsDir.resolve("base/deployment.yaml")));
+        assertEquals(1, stats.relinked());
+        assertEquals(1, stats.removed());
+        assertEquals(describe(KustomTrace.fromDirectory(appsDir).getGraph()), describe(trace.getGraph()));
+    }
+
+    @Test
+    void update_handlesDeletedDirectoriesAndNewApps() throws Exception {
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("prod/kustomization.yaml", "resources:\n  - ../base\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+
+        deleteRecursively(appsDir.resolve("base"));
+        write("dev/kustomization.yaml", "resources:\n  - ../prod\n");
+        trace.update(List.of(appsDir.resolve("base"), appsDir.resolve("dev")));
+
+        assertEquals(List.of(appsDir.resolve("dev")), trace.getRootApps());
+        assertEquals(describe(KustomTrace.fromDirectory(appsDir).getGraph()), describe(trace.getGraph()));
+    }
+
+    @Test
+    void update_rebuildsWhenAnIgnoreFileChanges() throws Exception {
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+
+        write(".kustomtraceignore", "base/\n");
+        UpdateStats stats = trace.update(List.of(appsDir.resolve(".kustomtraceignore")));
+
+        assertTrue(stats.rebuilt());
+        assertTrue(trace.getGraph().getNodes().isEmpty());
+    }
+
+    @Test
+    void update_isNotAvailableOnLoadedSnapshots() throws Exception {
+        write("base/kustomization.yaml", "resources: []\n");
+        Path snapshotFile = tempDir.resolve("graph.bin");
+        KustomTrace.fromDirectory(appsDir).save(snapshotFile);
+
+        KustomTrace loaded = KustomTrace.load(snapshotFile);
+
+        assertThrows(IllegalStateException.class, () -> loaded.update(List.of(appsDir.resolve("base/kustomization.yaml"))));
+    }
+
+    /** Checks that every edge points at the node the graph holds for its path, both ways. */
+    private static void assertConsistent(KustomGraph graph) {
+        for (GraphNode node : graph.getNodes()) {
+            if (node instanceof Kustomization kustomization) {
+                for (ResourceReference reference : kustomization.getReferences()) {
+                    assertSame(graph.getNode(reference.resource().getPath()), reference.resource(), "stale target of " + node.getPath());
+                    assertTrue(reference.resource().getDependents().contains(kustomization), "missing dependent on " + reference.resource().getPath());
+                }
+            }
+            for (Kustomization dependent : node.getDependents()) {
+                assertSame(graph.getNode(dependent.getPath()), dependent, "stale dependent of " + node.getPath());
+                assertTrue(dependent.getReferences().stream().anyMatch(reference -> reference.resource() == node));
+            }
+        }
+    }
+
+    /** Renders every node with its type, references, dependents and resources. */
+    private static Map<String, String> describe(KustomGraph graph) {
+        Map<String, String> nodes = new TreeMap<>();
+        for (GraphNode node : graph.getNodes()) {
+            String details =
+                    node instanceof Kustomization kustomization
+                            ? kustomization.getKind() + kustomization.getReferences().stream()
+                                    .map(ref -> ref.referenceType() + " " + ref.resource().getPath())
+                                    .toList()
+                            : ((KustomFile) node).getResources().stream()
+                                    .map(resource -> resource.getKind() + "/" + resource.getName())
+                                    .toList()
+                                    .toString();
+            String dependents =
+                    node.getDependents().stream().map(GraphNode::getPath).sorted().toList().toString();
+            nodes.put(node.getPath().toString(), node.getClass().getSimpleName() + details + dependents);
+        }
+        return nodes;
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = appsDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Writes a small repository of apps, shared bases and excluded vendor bases that reference
+     * each other at random, and changes it one file or directory at a time.
+     */
+    private static final class SyntheticRepoWriter {
+        private final Path root;
+        private final Random random;
+
+        SyntheticRepoWriter(Path root, Random random) {
+            this.root = root;
+            this.random = random;
+        }
+
+        void reset() throws IOException {
+            deleteRecursively(root);
+            for (String directory : DIRECTORIES) {
+                for (String file : FILES) {
+                    writeFile(root.resolve(directory).resolve(file));
+                }
+                writeKustomization(root.resolve(directory).resolve("kustomization.yaml"));
+            }
+        }
+
+        /** Applies one random change and returns the path it touched. */
+        Path mutate() throws IOException {
+            Path directory = root.resolve(pick(DIRECTORIES));
+            switch (random.nextInt(8)) {
+                case 0, 1 -> {
+                    Path file = directory.resolve(random.nextBoolean() ? "kustomization.yaml" : "kustomization.yml");
+                    writeKustomization(file);
+                    return file;
+                }
+                case 2 -> {
+                    Path file = directory.resolve(pick(FILES));
+                    writeFile(file);
+                    return file;
+                }
+                case 3 -> {
+                    Path file = directory.resolve(random.nextBoolean() ? pick(FILES) : "kustomization.yaml");
+                    Files.deleteIfExists(file);
+                    return file;
+                }
+                case 4 -> {
+                    Path file = directory.resolve(random.nextBoolean() ? pick(FILES) : "kustomization.yaml");
+                    Files.createDirectories(directory);
+                    Files.writeString(file, "resources: [unclosed\n");
+                    return file;
+                }
+                case 5 -> {
+                    deleteRecursively(directory);
+                    return directory;
+                }
+                case 6 -> {
+                    Path kustomization = directory.resolve("kustomization.yaml");
+                    Path renamed = directory.resolve("kustomization.yml");
+                    if (Files.exists(kustomization) && !Files.exists(renamed)) {
+                        Files.move(kustomization, renamed);
+                    }
+                    return directory;
+                }
+                default -> {
+                    for (String file : FILES) {
+                        writeFile(directory.resolve(file));
+                    }
+                    Path file = directory.resolve("kustomization.yaml");
+                    writeKustomization(file);
+                    return directory;
+                }
+            }
+        }
+
+        private void writeKustomization(Path file) throws IOException {
+            StringBuilder content = new StringBuilder();
+            if (random.nextInt(6) == 0) {
+                content.append("kind: Component\n");
+            }
+            content.append("resources:\n");
+            for (String resource : FILES.subList(0, 3)) {
+                if (random.nextBoolean()) {
+                    content.append("  - ").append(resource).append('\n');
+                }
+            }
+            int bases = random.nextInt(3);
+            for (int i = 0; i < bases; i++) {
+                content.append("  - ../../").append(pick(DIRECTORIES)).append('\n');
+            }
+            if (random.nextInt(4) == 0) {
+                content.append("  - missing.yaml\n");
+            }
+            if (random.nextBoolean()) {
+                content.append("patches:\n  - path: ").append(pick(FILES.subList(0, 3))).append('\n');
+            }
+            if (random.nextBoolean()) {
+                content.append("configMapGenerator:\n  - name: config\n    envs:\n      - props.env\n");
+            }
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, content.toString());
+        }
+
+        private void writeFile(Path file) throws IOException {
+            Files.createDirectories(file.getParent());
+            if (file.getFileName().toString().endsWith(".env")) {
+                Files.writeString(file, "KEY=" + random.nextInt(100) + "\n");
+            } else {
+                String kind = pick(List.of("Deployment", "Service", "ConfigMap"));
+                Files.writeString(file, "kind: " + kind + "\nmetadata:\n  name: n" + random.nextInt(5) + "\n");
+            }
+        }
+
+        private <T> T pick(List<T> values) {
+            return values.get(random.nextInt(values.size()));
+        }
+    }
+
+}
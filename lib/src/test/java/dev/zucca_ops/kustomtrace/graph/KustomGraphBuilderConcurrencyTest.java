@@ -0,0 +1,149 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.model.KustomFile;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import dev.zucca_ops.kustomtrace.scan.IgnoreRules;
+import dev.zucca_ops.kustomtrace.scan.WalkStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KustomGraphBuilderConcurrencyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void buildKustomFile_parsesSharedFileOnceAcrossThreads() throws Exception {
+        Path shared = write("base/configmap.yaml", "kind: ConfigMap\nmetadata:\n  name: shared\n");
+        CountingSource source = new CountingSource();
+        KustomGraphBuilder builder =
+                new KustomGraphBuilder(tempDir, new BuildOptions().fileSource(source));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<KustomFile>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    return builder.buildKustomFile(shared);
+                                }));
+            }
+            start.countDown();
+
+            KustomFile first = futures.get(0).get();
+            for (Future<KustomFile> future : futures) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, source.reads(shared));
+        assertTrue(pendingNodes(builder).isEmpty());
+    }
+
+    @Test
+    void build_linksEveryDependentOfSharedBaseAndLeavesNoPendingNodes() throws Exception {
+        write("hub/kustomization.yaml", "resources:\n  - configmap.yaml\n");
+        write("hub/configmap.yaml", "kind: ConfigMap\nmetadata:\n  name: hub\n");
+        for (int i = 0; i < 50; i++) {
+            write("apps/app-" + i + "/kustomization.yaml", "resources:\n  - ../../hub\n");
+        }
+        CountingSource source = new CountingSource();
+        KustomGraphBuilder builder =
+                new KustomGraphBuilder(tempDir, new BuildOptions().fileSource(source));
+
+        KustomGraph graph = builder.build();
+
+        Path hubPath = tempDir.resolve("hub/kustomization.yaml");
+        Kustomization hub = graph.getKustomization(hubPath);
+        assertEquals(50, hub.getDependents().size());
+        assertEquals(50, graph.getRootApps().size());
+        assertEquals(1, source.reads(hubPath));
+        assertTrue(pendingNodes(builder).isEmpty());
+    }
+
+    @Test
+    void buildKustomization_rethrowsFailureToEveryCaller() throws Exception {
+        Path invalid = write("bad/kustomization.yaml", "resources: [");
+        KustomGraphBuilder builder = new KustomGraphBuilder(tempDir);
+
+        assertThrows(Exception.class, () -> builder.buildKustomization(invalid));
+        assertThrows(Exception.class, () -> builder.buildKustomization(invalid));
+        assertTrue(pendingNodes(builder).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Path, ?> pendingNodes(KustomGraphBuilder builder) throws Exception {
+        Field field = KustomGraphBuilder.class.getDeclaredField("pendingNodes");
+        field.setAccessible(true);
+        return (Map<Path, ?>) field.get(builder);
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    /** Reads the file system and counts how often each file is opened. */
+    private static final class CountingSource implements FileSource {
+        private final Map<Path, AtomicInteger> reads = new ConcurrentHashMap<>();
+
+        int reads(Path path) {
+            AtomicInteger count = reads.get(path.toAbsolutePath().normalize());
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public boolean isFile(Path path) {
+            return FileSource.fileSystem().isFile(path);
+        }
+
+        @Override
+        public boolean isDirectory(Path path) {
+            return FileSource.fileSystem().isDirectory(path);
+        }
+
+        @Override
+        public InputStream newInputStream(Path path) throws IOException {
+            reads.computeIfAbsent(path.toAbsolutePath().normalize(), ignored -> new AtomicInteger())
+                    .incrementAndGet();
+            return FileSource.fileSystem().newInputStream(path);
+        }
+
+        @Override
+        public WalkStats scan(
+                Path root,
+                IgnoreRules ignoreRules,
+                Predicate<Path> fileFilter,
+                Consumer<Path> consumer)
+                throws IOException {
+            return FileSource.fileSystem().scan(root, ignoreRules, fileFilter, consumer);
+        }
+    }
+}
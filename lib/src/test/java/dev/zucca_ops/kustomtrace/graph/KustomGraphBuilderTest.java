@@ -69,7 +69,7 @@ public class KustomGraphBuilderTest {
         ResourceReference ref = new ResourceReference(ReferenceType.RESOURCE, file);
 
         try (MockedStatic<GraphNodeResolver> mocked = mockStatic(GraphNodeResolver.class)) {
-            mocked.when(() -> GraphNodeResolver.resolveKustomization(rootPath)).thenReturn(root);
+            mocked.when(() -> GraphNodeResolver.resolveKustomization(eq(rootPath), any(ResolverContext.class))).thenReturn(root);
             when(dependencyResolver.resolveDependencies(root)).thenReturn(Stream.of(ref));
 
             Kustomization result = builder.buildKustomization(rootPath);
@@ -122,7 +122,7 @@ public class KustomGraphBuilderTest {
         when(graph.containsNode(normalizedFilePath)).thenReturn(false);
 
         try (MockedStatic<GraphNodeResolver> mocked = mockStatic(GraphNodeResolver.class)) {
-            mocked.when(() -> GraphNodeResolver.resolveKustomFile(filePath)).thenReturn(parsed);
+            mocked.when(() -> GraphNodeResolver.resolveKustomFile(eq(filePath), any(ResolverContext.class))).thenReturn(parsed);
 
             KustomFile result = builder.buildKustomFile(filePath);
 
@@ -0,0 +1,108 @@
+package dev.zucca_ops.kustomtrace.graph;
+
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TwoPhaseGraphBuildTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void build_producesSameGraphAsRecursiveBuild() throws IOException {
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n  - missing.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write(
+                "overlays/prod/kustomization.yaml",
+                "resources:\n  - ../../base\npatches:\n  - path: patch.yaml\n"
+                        + "configMapGenerator:\n  - name: cm\n    files:\n      - app.properties\n");
+        write("overlays/prod/patch.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("overlays/prod/app.properties", "key=value\n");
+        write("broken/kustomization.yaml", "resources: [");
+        write("cycle-a/kustomization.yaml", "resources:\n  - ../cycle-b\n");
+        write("cycle-b/kustomization.yaml", "resources:\n  - ../cycle-a\n");
+
+        KustomGraph recursive = new KustomGraphBuilder(tempDir).build();
+        KustomGraph twoPhase =
+                new KustomGraphBuilder(tempDir, new BuildOptions().twoPhaseBuild(true)).build();
+
+        assertEquals(describe(recursive), describe(twoPhase));
+        assertEquals(
+                Set.of(tempDir.resolve("overlays/prod")),
+                twoPhase.getRootApps().stream()
+                        .map(app -> app.getPath().getParent())
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void build_linksDeepOverlayChainsWithoutRecursion() throws IOException {
+        int depth = 2_000;
+        write("layer-0/kustomization.yaml", "resources:\n  - configmap.yaml\n");
+        write("layer-0/configmap.yaml", "kind: ConfigMap\nmetadata:\n  name: base\n");
+        for (int i = 1; i < depth; i++) {
+            write("layer-" + i + "/kustomization.yaml", "resources:\n  - ../layer-" + (i - 1) + "\n");
+        }
+
+        KustomGraph graph =
+                new KustomGraphBuilder(tempDir, new BuildOptions().twoPhaseBuild(true)).build();
+
+        List<Kustomization> roots = graph.getRootApps();
+        assertEquals(1, roots.size());
+        assertEquals(tempDir.resolve("layer-" + (depth - 1) + "/kustomization.yaml"), roots.get(0).getPath());
+        Kustomization base = graph.getKustomization(tempDir.resolve("layer-0/kustomization.yaml"));
+        assertEquals(1, base.getDependents().size());
+    }
+
+    /** Renders every node under tempDir with its references and dependents. */
+    private Map<String, String> describe(KustomGraph graph) throws IOException {
+        Map<String, String> nodes = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                GraphNode node = graph.getNode(file);
+                if (node == null) {
+                    continue;
+                }
+                String references =
+                        node instanceof Kustomization kustomization
+                                ? kustomization.getReferences().stream()
+                                        .map(ref -> ref.referenceType() + " " + relative(ref.resource()))
+                                        .toList()
+                                        .toString()
+                                : "";
+                String dependents =
+                        node.getDependents().stream()
+                                .map(this::relative)
+                                .sorted()
+                                .toList()
+                                .toString();
+                nodes.put(relative(node), node.getClass().getSimpleName() + references + dependents);
+            }
+        }
+        return nodes;
+    }
+
+    private String relative(GraphNode node) {
+        return tempDir.relativize(node.getPath()).toString();
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
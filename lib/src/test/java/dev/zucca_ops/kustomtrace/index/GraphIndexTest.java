@@ -0,0 +1,149 @@
+package dev.zucca_ops.kustomtrace.index;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.model.GraphNode;
+import dev.zucca_ops.kustomtrace.model.Kustomization;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path appsDir;
+    private Path indexFile;
+    private KustomTrace built;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        appsDir = tempDir.resolve("apps");
+        indexFile = tempDir.resolve("index/graph.idx");
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n  - service.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("base/service.yaml", "kind: Service\nmetadata:\n  name: app\n");
+        write("shared/kustomization.yaml", "resources:\n  - ../base\n  - config.yaml\n");
+        write("shared/config.yaml", "kind: ConfigMap\nmetadata:\n  name: config\n");
+        write(
+                "overlays/prod/kustomization.yaml",
+                "resources:\n  - ../../base\n  - ../../shared\npatches:\n  - path: patch.yaml\n");
+        write("overlays/prod/patch.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("overlays/staging/kustomization.yaml", "resources:\n  - ../../shared\n");
+        write("edge-app/kustomization.yaml", "resources:\n  - ../base/service.yaml\n");
+        write("notes/README.md", "not an app\n");
+        built = KustomTrace.fromDirectory(appsDir);
+    }
+
+    @Test
+    void queries_matchTheBuiltGraph() throws Exception {
+        built.writeIndex(indexFile);
+        GraphIndex index = GraphIndex.open(indexFile);
+
+        assertEquals(built.getGraph().getNodes().size(), index.size());
+        assertEquals(sorted(built.getRootApps()), parents(index.getRootAppPaths()));
+        for (GraphNode node : built.getGraph().getNodes()) {
+            assertTrue(index.containsNode(node.getPath()));
+            assertEquals(built.getAppsWith(node.getPath()), sorted(parents(index.getRootAppPathsWithFile(node.getPath()))));
+            if (node instanceof Kustomization) {
+                Path app = node.getPath().getParent();
+                assertEquals(built.getDependenciesFor(app), index.getAllAppFiles(app));
+            }
+        }
+    }
+
+    @Test
+    void getAppsWith_normalizesThePath() throws Exception {
+        built.writeIndex(indexFile);
+        GraphIndex index = GraphIndex.open(indexFile);
+
+        Path unnormalized = appsDir.resolve("overlays/../base/./service.yaml");
+        assertEquals(built.getAppsWith(unnormalized), sorted(parents(index.getRootAppPathsWithFile(unnormalized))));
+        assertEquals(3, index.getRootAppPathsWithFile(unnormalized).size());
+    }
+
+    @Test
+    void queries_reportMissingFilesAndApps() throws Exception {
+        built.writeIndex(indexFile);
+        GraphIndex index = GraphIndex.open(indexFile);
+
+        assertThrows(UnreferencedFileException.class, () -> index.getRootAppPathsWithFile(appsDir.resolve("notes/README.md")));
+        assertThrows(NotAnAppException.class, () -> index.getAllAppFiles(appsDir.resolve("notes")));
+        assertFalse(index.containsNode(appsDir.resolve("base")));
+    }
+
+    @Test
+    void findAppsWith_answersLikeGetAppsWith() throws Exception {
+        built.writeIndex(indexFile);
+        Path service = appsDir.resolve("overlays/../base/./service.yaml");
+        Path readme = appsDir.resolve("notes/README.md");
+
+        KustomTrace frozen = KustomTrace.fromDirectory(appsDir).freeze();
+        for (KustomTrace trace : List.of(built, frozen, KustomTrace.openIndex(indexFile))) {
+            assertEquals(Optional.of(trace.getAppsWith(service)), trace.findAppsWith(service));
+            assertEquals(Optional.empty(), trace.findAppsWith(readme));
+            assertEquals(Optional.empty(), trace.findAppsWith(appsDir.resolve("base")));
+        }
+    }
+
+    @Test
+    void openIndex_backsKustomTraceQueries() throws Exception {
+        built.writeIndex(indexFile);
+        KustomTrace opened = KustomTrace.openIndex(indexFile);
+
+        Path app = appsDir.resolve("overlays/prod");
+        assertEquals(built.getDependenciesFor(app), opened.getDependenciesFor(app));
+        assertEquals(sorted(built.getRootApps()), opened.getRootApps());
+        assertThrows(IllegalStateException.class, opened::getGraph);
+
+        Path copy = tempDir.resolve("copy.idx");
+        opened.writeIndex(copy);
+        assertEquals(opened.getRootApps(), KustomTrace.openIndex(copy).getRootApps());
+    }
+
+    @Test
+    void writeIndex_ofAFrozenGraphMatchesTheBuiltOne() throws Exception {
+        built.writeIndex(indexFile);
+        Path frozenIndexFile = tempDir.resolve("frozen.idx");
+        built.freeze().writeIndex(frozenIndexFile);
+
+        assertArrayEquals(Files.readAllBytes(indexFile), Files.readAllBytes(frozenIndexFile));
+    }
+
+    @Test
+    void open_rejectsOtherFiles() throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        Files.writeString(indexFile, "not an index");
+
+        assertThrows(IOException.class, () -> GraphIndex.open(indexFile));
+    }
+
+    private static List<Path> parents(List<Path> paths) {
+        return paths.stream().map(Path::getParent).toList();
+    }
+
+    private static List<Path> sorted(List<Path> paths) {
+        return paths.stream()
+                .sorted(Comparator.comparing(path -> path.toString().getBytes(StandardCharsets.UTF_8), Arrays::compareUnsigned))
+                .toList();
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = appsDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,191 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AffectedAppsIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void getRootAppsWithFile_matchesAWalkOfRandomGraphsWithCycles() throws Exception {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            KustomGraph graph = randomGraph(random, 40 + random.nextInt(600), 60);
+            AffectedAppsIndex index = graph.freeze().getAffectedAppsIndex();
+            AffectedAppsIndex computed = graph.computeAffectedAppsIndex();
+
+            for (GraphNode node : graph.getNodes()) {
+                assertEquals(rootsReaching(node), index.getRootAppsWithFile(node.getPath()),
+                        "seed " + seed + ", " + node.getPath());
+                assertEquals(rootsReaching(node), computed.getRootAppsWithFile(node.getPath()),
+                        "seed " + seed + ", " + node.getPath());
+            }
+
+            List<GraphNode> nodes = new ArrayList<>(graph.getNodes());
+            List<Path> changed = new ArrayList<>();
+            Set<Path> expected = new TreeSet<>();
+            for (int i = 0; i < 5; i++) {
+                GraphNode node = nodes.get(random.nextInt(nodes.size()));
+                changed.add(node.getPath());
+                expected.addAll(rootsReaching(node));
+            }
+            changed.add(Path.of("/unknown/file.yaml"));
+            assertEquals(List.copyOf(expected), index.getRootAppsWithAnyFile(changed));
+        }
+    }
+
+    @Test
+    void sets_areSharedAndMemoryIsReported() throws Exception {
+        KustomGraph graph = randomGraph(new Random(7), 200, 0);
+        AffectedAppsIndex index = graph.freeze().getAffectedAppsIndex();
+
+        assertTrue(index.getDistinctSetCount() < graph.getNodes().size());
+        assertTrue(index.getMemoryBytes() > 0);
+        assertThrows(UnreferencedFileException.class,
+                () -> index.getRootAppsWithFile(Path.of("/unknown/file.yaml")));
+        assertTrue(index.findRootAppsWithFile(Path.of("/unknown/file.yaml")).isEmpty());
+        GraphNode node = graph.getNodes().iterator().next();
+        assertEquals(Optional.of(rootsReaching(node)), index.findRootAppsWithFile(node.getPath()));
+    }
+
+    @Test
+    void frozenGraph_buildsTheIndexOnce() {
+        FrozenGraph frozen = randomGraph(new Random(3), 20, 10).freeze();
+
+        assertFalse(frozen.hasAffectedAppsIndex());
+        AffectedAppsIndex index = frozen.getAffectedAppsIndex();
+        assertTrue(frozen.hasAffectedAppsIndex());
+        assertSame(index, frozen.getAffectedAppsIndex());
+    }
+
+    @Test
+    void kustomTrace_getAppsWithAnyMatchesSingleQueries() throws Exception {
+        Path appsDir = tempDir.resolve("apps");
+        write(appsDir, "base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write(appsDir, "base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write(appsDir, "one/kustomization.yaml", "resources:\n  - ../base\n");
+        write(appsDir, "two/kustomization.yaml", "resources:\n  - ../base\n  - cm.yaml\n");
+        write(appsDir, "two/cm.yaml", "kind: ConfigMap\nmetadata:\n  name: cm\n");
+        write(appsDir, "three/kustomization.yaml", "resources: []\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        Path deployment = appsDir.resolve("base/deployment.yaml");
+        Path configMap = appsDir.resolve("two/cm.yaml");
+        Set<Path> expected = new TreeSet<>(trace.getAppsWith(deployment));
+        expected.addAll(trace.getAppsWith(configMap));
+
+        assertEquals(List.copyOf(expected),
+                trace.getAppsWithAny(List.of(deployment, configMap, appsDir.resolve("none.yaml"))));
+        assertEquals(List.of(appsDir.resolve("one").toAbsolutePath(),
+                        appsDir.resolve("two").toAbsolutePath()),
+                trace.getAppsWith(deployment));
+
+        trace.update(List.of());
+        assertEquals(List.copyOf(expected), trace.getAppsWithAny(List.of(deployment, configMap)));
+    }
+
+    @Test
+    void kustomTrace_findAppsWithEachMatchesSingleQueriesInTheSameOrder() throws Exception {
+        Path appsDir = tempDir.resolve("apps");
+        write(appsDir, "base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write(appsDir, "base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write(appsDir, "z/kustomization.yaml", "resources:\n  - ../base\n");
+        write(appsDir, "a/kustomization.yaml", "resources:\n  - ../base\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        Path deployment = appsDir.resolve("base/deployment.yaml").toAbsolutePath();
+        Path unknown = appsDir.resolve("none.yaml").toAbsolutePath();
+        List<Path> unindexed = trace.getAppsWith(deployment);
+
+        Map<Path, Optional<List<Path>>> apps =
+                trace.findAppsWithEach(List.of(unknown, deployment, deployment));
+
+        assertEquals(List.of(unknown, deployment), List.copyOf(apps.keySet()));
+        assertEquals(Optional.empty(), apps.get(unknown));
+        assertEquals(Optional.of(unindexed), apps.get(deployment));
+        assertEquals(List.of(appsDir.resolve("a").toAbsolutePath(),
+                        appsDir.resolve("z").toAbsolutePath()),
+                unindexed);
+        assertEquals(unindexed, trace.getAppsWith(deployment));
+    }
+
+    /** Random kustomizations and files with random references, some of them back edges. */
+    private static KustomGraph randomGraph(Random random, int nodes, int backEdgePercent) {
+        KustomGraph graph = new KustomGraph();
+        List<Kustomization> kustomizations = new ArrayList<>();
+        List<GraphNode> all = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            GraphNode node;
+            if (random.nextInt(3) == 0) {
+                node = new KustomFile(Path.of("/repo/files/f" + i + ".yaml"));
+            } else {
+                Kustomization kustomization =
+                        new Kustomization(Path.of("/repo/k" + i + "/kustomization.yaml"), Map.of());
+                kustomizations.add(kustomization);
+                node = kustomization;
+            }
+            graph.addNode(node);
+            all.add(node);
+        }
+        for (int i = 0; i < kustomizations.size(); i++) {
+            Kustomization from = kustomizations.get(i);
+            int references = random.nextInt(4);
+            for (int r = 0; r < references; r++) {
+                int fromIndex = all.indexOf(from);
+                boolean backwards = random.nextInt(100) < backEdgePercent / 4;
+                int targetIndex =
+                        backwards || fromIndex + 1 >= all.size()
+                                ? random.nextInt(all.size())
+                                : fromIndex + 1 + random.nextInt(all.size() - fromIndex - 1);
+                GraphNode target = all.get(targetIndex);
+                from.addReference(new ResourceReference(ReferenceType.RESOURCE, target));
+                target.addDependent(from);
+            }
+        }
+        return graph;
+    }
+
+    /** The root apps reached from a node by walking dependents, in path order. */
+    private static List<Path> rootsReaching(GraphNode start) {
+        Set<Path> roots = new TreeSet<>();
+        Set<GraphNode> visited = new HashSet<>();
+        Deque<GraphNode> pending = new ArrayDeque<>(List.of(start));
+        while (!pending.isEmpty()) {
+            GraphNode node = pending.pop();
+            if (!visited.add(node)) {
+                continue;
+            }
+            if (node instanceof Kustomization kustomization && kustomization.isRoot()) {
+                roots.add(node.getPath());
+                continue;
+            }
+            node.getDependents().forEach(pending::push);
+        }
+        return List.copyOf(roots);
+    }
+
+    private static void write(Path root, String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,129 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppFileClosuresTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void getAllAppFiles_matchesSingleAppWalksOnRandomGraphsWithCycles() throws Exception {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            KustomGraph graph = randomGraph(random, 40 + random.nextInt(600));
+            FrozenGraph frozen = graph.freeze();
+
+            Map<Path, List<Path>> all = frozen.getAllAppFiles();
+
+            assertEquals(all, graph.getAllAppFiles(), "seed " + seed);
+            assertEquals(frozen.getRootAppPaths(), List.copyOf(all.keySet()), "seed " + seed);
+            for (Map.Entry<Path, List<Path>> app : all.entrySet()) {
+                List<Path> expected =
+                        frozen.getAllAppFiles(app.getKey().getParent()).stream().sorted().toList();
+                assertEquals(expected, app.getValue(), "seed " + seed + ", " + app.getKey());
+            }
+        }
+    }
+
+    @Test
+    void getAllAppFiles_handlesDeepOverlayChains() {
+        KustomGraph graph = new KustomGraph();
+        KustomFile file = new KustomFile(Path.of("/repo/base/deployment.yaml"));
+        graph.addNode(file);
+        GraphNode previous = file;
+        for (int i = 0; i < 20_000; i++) {
+            Kustomization overlay =
+                    new Kustomization(Path.of("/repo/o" + i + "/kustomization.yaml"), Map.of());
+            reference(overlay, previous);
+            graph.addNode(overlay);
+            previous = overlay;
+        }
+
+        Map<Path, List<Path>> all = graph.getAllAppFiles();
+
+        assertEquals(List.of(previous.getPath()), List.copyOf(all.keySet()));
+        assertEquals(20_001, all.get(previous.getPath()).size());
+    }
+
+    @Test
+    void kustomTrace_getAllAppFilesMatchesGetDependenciesFor() throws Exception {
+        Path appsDir = tempDir.resolve("apps");
+        write(appsDir, "base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write(appsDir, "base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write(appsDir, "one/kustomization.yaml", "resources:\n  - ../base\n");
+        write(appsDir, "two/kustomization.yaml", "resources:\n  - ../base\n  - cm.yaml\n");
+        write(appsDir, "two/cm.yaml", "kind: ConfigMap\nmetadata:\n  name: cm\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        Path indexFile = tempDir.resolve("graph.idx");
+        trace.writeIndex(indexFile);
+
+        Map<Path, List<Path>> all = trace.getAllAppFiles();
+
+        assertEquals(trace.getRootApps().stream().sorted().toList(), List.copyOf(all.keySet()));
+        for (Map.Entry<Path, List<Path>> app : all.entrySet()) {
+            assertEquals(trace.getDependenciesFor(app.getKey()).stream().sorted().toList(),
+                    app.getValue());
+        }
+        assertEquals(4, all.get(appsDir.resolve("two").toAbsolutePath()).size());
+        assertEquals(all, KustomTrace.openIndex(indexFile).getAllAppFiles());
+        assertEquals(all, trace.freeze().getAllAppFiles());
+    }
+
+    /** Random kustomizations and files with random references, including cycles. */
+    private static KustomGraph randomGraph(Random random, int nodes) {
+        KustomGraph graph = new KustomGraph();
+        List<Kustomization> kustomizations = new ArrayList<>();
+        List<GraphNode> all = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            GraphNode node;
+            if (random.nextInt(3) == 0) {
+                node = new KustomFile(Path.of("/repo/files/f" + i + ".yaml"));
+            } else {
+                Kustomization kustomization =
+                        new Kustomization(Path.of("/repo/k" + i + "/kustomization.yaml"), Map.of());
+                kustomizations.add(kustomization);
+                node = kustomization;
+            }
+            graph.addNode(node);
+            all.add(node);
+        }
+        for (Kustomization from : kustomizations) {
+            int fromIndex = all.indexOf(from);
+            int references = random.nextInt(4);
+            for (int r = 0; r < references; r++) {
+                boolean backwards = random.nextInt(100) < 15;
+                int targetIndex =
+                        backwards || fromIndex + 1 >= all.size()
+                                ? random.nextInt(all.size())
+                                : fromIndex + 1 + random.nextInt(all.size() - fromIndex - 1);
+                reference(from, all.get(targetIndex));
+            }
+        }
+        return graph;
+    }
+
+    private static void reference(Kustomization from, GraphNode target) {
+        from.addReference(new ResourceReference(ReferenceType.RESOURCE, target));
+        target.addDependent(from);
+    }
+
+    private static void write(Path root, String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
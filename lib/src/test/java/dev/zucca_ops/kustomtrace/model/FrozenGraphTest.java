@@ -0,0 +1,158 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.exceptions.UnreferencedFileException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrozenGraphTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path appsDir;
+    private KustomGraph graph;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        appsDir = tempDir.resolve("apps");
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n  - service.yaml\n");
+        write("base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("base/service.yaml", "kind: Service\nmetadata:\n  name: app\n");
+        write("shared/kustomization.yaml", "resources:\n  - ../base\n  - config.yaml\n");
+        write("shared/config.yaml", "kind: ConfigMap\nmetadata:\n  name: config\n");
+        write(
+                "overlays/prod/kustomization.yaml",
+                "resources:\n  - ../../base\n  - ../../shared\npatches:\n  - path: patch.yaml\n");
+        write("overlays/prod/patch.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("overlays/staging/kustomization.yaml", "resources:\n  - ../../shared\n");
+        write("edge-app/kustomization.yaml", "resources:\n  - ../base/service.yaml\n");
+        write("notes/README.md", "not an app\n");
+        graph = KustomTrace.fromDirectory(appsDir).getGraph();
+    }
+
+    @Test
+    void queries_matchTheGraph() throws Exception {
+        FrozenGraph frozen = graph.freeze();
+
+        assertEquals(graph.getNodes().size(), frozen.size());
+        assertEquals(
+                new HashSet<>(graph.getRootApps().stream().map(Kustomization::getPath).toList()),
+                new HashSet<>(frozen.getRootAppPaths()));
+        for (GraphNode node : graph.getNodes()) {
+            List<Path> expectedApps =
+                    graph.getRootAppsWithFile(node.getPath()).stream()
+                            .map(Kustomization::getPath)
+                            .distinct()
+                            .toList();
+            assertEquals(expectedApps, frozen.getRootAppPathsWithFile(node.getPath()));
+            if (node instanceof Kustomization) {
+                Path app = node.getPath().getParent();
+                assertEquals(graph.getAllAppFiles(app), frozen.getAllAppFiles(app));
+            }
+        }
+    }
+
+    @Test
+    void edges_keepTargetsTypesAndOrder() {
+        FrozenGraph frozen = graph.freeze();
+
+        for (GraphNode node : graph.getNodes()) {
+            int id = frozen.idOf(node.getPath());
+            assertEquals(node.getPath(), frozen.getPath(id));
+            assertEquals(node.isKustomization(), frozen.isKustomization(id));
+
+            List<ResourceReference> expected =
+                    node instanceof Kustomization kustomization
+                            ? kustomization.getReferences()
+                            : List.of();
+            List<ResourceReference> actual = new ArrayList<>();
+            for (int edge = frozen.referenceStart(id); edge < frozen.referenceStart(id + 1); edge++) {
+                GraphNode target = graph.getNode(frozen.getPath(frozen.referenceTarget(edge)));
+                actual.add(new ResourceReference(frozen.referenceType(edge), target));
+            }
+            assertEquals(expected, actual);
+
+            List<Path> dependents = new ArrayList<>();
+            for (int edge = frozen.dependentStart(id); edge < frozen.dependentStart(id + 1); edge++) {
+                dependents.add(frozen.getPath(frozen.dependent(edge)));
+            }
+            assertEquals(node.getDependents().stream().map(GraphNode::getPath).toList(), dependents);
+        }
+    }
+
+    @Test
+    void idOf_normalizesAndRejectsUnknownPaths() {
+        FrozenGraph frozen = graph.freeze();
+
+        int id = frozen.idOf(appsDir.resolve("overlays/../base/./service.yaml"));
+        assertEquals(appsDir.resolve("base/service.yaml").toAbsolutePath(), frozen.getPath(id));
+        assertEquals(-1, frozen.idOf(appsDir.resolve("notes/README.md")));
+        assertEquals(-1, frozen.idOf(null));
+    }
+
+    @Test
+    void queries_reportMissingFilesAndApps() {
+        FrozenGraph frozen = graph.freeze();
+
+        assertThrows(UnreferencedFileException.class,
+                () -> frozen.getRootAppPathsWithFile(appsDir.resolve("notes/README.md")));
+        assertThrows(NotAnAppException.class,
+                () -> frozen.getAllAppFiles(appsDir.resolve("notes")));
+    }
+
+    @Test
+    void freeze_handlesCycles() throws Exception {
+        Path cyclic = tempDir.resolve("cyclic");
+        write(cyclic, "a/kustomization.yaml", "resources:\n  - ../b\n  - a.yaml\n");
+        write(cyclic, "a/a.yaml", "kind: ConfigMap\nmetadata:\n  name: a\n");
+        write(cyclic, "b/kustomization.yaml", "resources:\n  - ../a\n");
+        write(cyclic, "app/kustomization.yaml", "resources:\n  - ../a\n");
+        KustomGraph cyclicGraph = KustomTrace.fromDirectory(cyclic).getGraph();
+        FrozenGraph frozen = cyclicGraph.freeze();
+
+        Path app = cyclic.resolve("app");
+        assertEquals(cyclicGraph.getAllAppFiles(app), frozen.getAllAppFiles(app));
+        assertEquals(List.of(cyclic.resolve("app/kustomization.yaml").toAbsolutePath()),
+                frozen.getRootAppPathsWithFile(cyclic.resolve("a/a.yaml")));
+    }
+
+    @Test
+    void kustomTraceFreeze_answersFromTheFrozenGraph() throws Exception {
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        List<Path> rootApps = trace.getRootApps();
+        List<Path> appsWithService = trace.getAppsWith(appsDir.resolve("base/service.yaml"));
+        List<Path> prodFiles = trace.getDependenciesFor(appsDir.resolve("overlays/prod"));
+
+        trace.freeze();
+
+        assertNotNull(trace.getFrozenGraph());
+        assertEquals(new HashSet<>(rootApps), new HashSet<>(trace.getRootApps()));
+        assertEquals(new HashSet<>(appsWithService),
+                new HashSet<>(trace.getAppsWith(appsDir.resolve("base/service.yaml"))));
+        assertEquals(prodFiles, trace.getDependenciesFor(appsDir.resolve("overlays/prod")));
+        assertThrows(IllegalStateException.class, trace::getGraph);
+        assertThrows(IllegalStateException.class, () -> trace.update(List.of()));
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        write(appsDir, relativePath, content);
+    }
+
+    private static void write(Path root, String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -1,6 +1,8 @@
 package dev.zucca_ops.kustomtrace.model;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -8,9 +10,12 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GraphNodeConcurrencyTest {
@@ -30,6 +35,75 @@ class GraphNodeConcurrencyTest {
         assertTrue(sharedFile.getDependents().containsAll(List.of(app1, app2)));
     }
 
+    @Test
+    void addDependentKeepsEachOfThousandsOfConcurrentDependentsOnce() throws Exception {
+        KustomFile hub = new KustomFile(Path.of("base", "hub.yaml"));
+        List<Kustomization> overlays = kustomizations(5000);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger again = new AtomicInteger();
+
+        runConcurrently(
+                () -> hub.addDependent(overlays.get(next.getAndIncrement())),
+                () -> hub.addDependent(overlays.get(again.getAndIncrement())),
+                overlays.size());
+
+        List<Kustomization> dependents = hub.getDependents();
+        assertEquals(overlays.size(), dependents.size());
+        assertEquals(new HashSet<>(overlays), new HashSet<>(dependents));
+        assertFalse(hub.getDependents().isEmpty());
+    }
+
+    @Test
+    void dependentsKeepInsertionOrderAcrossRemovals() {
+        Kustomization hub = new Kustomization(Path.of("base", "kustomization.yaml"), Map.of());
+        List<Kustomization> overlays = kustomizations(Dependents.SMALL * 3);
+        overlays.forEach(hub::addDependent);
+        overlays.forEach(hub::addDependent);
+        assertEquals(overlays, hub.getDependents());
+
+        List<Kustomization> remaining = new ArrayList<>(overlays);
+        for (int i = 0; i < overlays.size(); i += 2) {
+            assertTrue(hub.removeDependent(overlays.get(i)));
+            assertFalse(hub.removeDependent(overlays.get(i)));
+            remaining.remove(overlays.get(i));
+        }
+        assertEquals(remaining, hub.getDependents());
+
+        remaining.forEach(hub::removeDependent);
+        assertTrue(hub.getDependents().isEmpty());
+        assertTrue(hub.isRoot());
+        hub.addDependent(overlays.get(0));
+        assertFalse(hub.isRoot());
+        assertEquals(List.of(overlays.get(0)), hub.getDependents());
+    }
+
+    @Test
+    void lazyKustomFileRunsLoaderOnceWhenReadConcurrently() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        KustomFile file =
+                new KustomFile(
+                        Path.of("base", "deployment.yaml"),
+                        () -> {
+                            loads.incrementAndGet();
+                            return List.of(new KustomResource("web", "Deployment", null));
+                        });
+
+        runConcurrently(() -> file.getResources(), () -> file.getResource(), 500);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, file.getResources().size());
+        assertSame(file, file.getResource().getFile());
+    }
+
+    private static List<Kustomization> kustomizations(int count) {
+        List<Kustomization> kustomizations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            kustomizations.add(
+                    new Kustomization(Path.of("apps", "app" + i, "kustomization.yaml"), Map.of()));
+        }
+        return kustomizations;
+    }
+
     private void runConcurrently(Runnable first, Runnable second, int repetitions) throws Exception {
         ExecutorService executor = Executors.newFixedThreadPool(8);
         try {
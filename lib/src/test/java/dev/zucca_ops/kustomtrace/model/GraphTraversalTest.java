@@ -0,0 +1,114 @@
+package dev.zucca_ops.kustomtrace.model;
+
+import dev.zucca_ops.kustomtrace.parser.ReferenceType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphTraversalTest {
+
+    @Test
+    void dependencies_visitsADiamondOnceWithoutReportingACycle() {
+        Kustomization app = kustomization("app");
+        Kustomization left = kustomization("left");
+        Kustomization right = kustomization("right");
+        Kustomization base = kustomization("base");
+        KustomFile deployment = new KustomFile(Path.of("/repo/base/deployment.yaml"));
+        reference(app, left);
+        reference(app, right);
+        reference(left, base);
+        reference(right, base);
+        reference(base, deployment);
+
+        GraphTraversal.Result<Path> dependencies = GraphTraversal.dependencies(app);
+        GraphTraversal.Result<Kustomization> apps = GraphTraversal.apps(deployment);
+
+        assertEquals(List.of(app.getPath(), left.getPath(), base.getPath(), deployment.getPath(),
+                right.getPath()), dependencies.values());
+        assertNull(dependencies.cycle());
+        assertEquals(List.of(app), apps.values());
+        assertNull(apps.cycle());
+    }
+
+    @Test
+    void dependencies_reportsTheFirstCycleWithItsPath() {
+        Kustomization app = kustomization("app");
+        Kustomization a = kustomization("a");
+        Kustomization b = kustomization("b");
+        reference(app, a);
+        reference(a, b);
+        reference(b, a);
+        reference(b, app);
+
+        GraphTraversal.Result<Path> dependencies = GraphTraversal.dependencies(app);
+
+        assertEquals(List.of(app.getPath(), a.getPath(), b.getPath()), dependencies.values());
+        assertEquals(List.of(a.getPath(), b.getPath(), a.getPath()), dependencies.cycle());
+        assertEquals(List.of(), GraphTraversal.apps(a).values());
+    }
+
+    @Test
+    void traverse_handlesDeepChainsWithoutRecursion() {
+        Kustomization top = kustomization("o0");
+        Kustomization previous = top;
+        for (int i = 1; i < 100_000; i++) {
+            Kustomization next = kustomization("o" + i);
+            reference(previous, next);
+            previous = next;
+        }
+
+        assertEquals(100_000, GraphTraversal.dependencies(top).values().size());
+        assertEquals(List.of(top), GraphTraversal.apps(previous).values());
+    }
+
+    @Test
+    void traverse_nestedAndConcurrentTraversalsDoNotShareMarks() throws Exception {
+        Kustomization app = kustomization("app");
+        List<Kustomization> bases = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Kustomization base = kustomization("base" + i);
+            reference(app, base);
+            if (i > 0) {
+                reference(bases.get(i - 1), base);
+            }
+            bases.add(base);
+        }
+        List<Path> expected = GraphTraversal.dependencies(app).values();
+
+        List<List<Path>> nested = new ArrayList<>();
+        GraphTraversal.traverse(app, GraphTraversal.Direction.REFERENCES,
+                node -> nested.add(GraphTraversal.dependencies(node).values()));
+        assertEquals(expected, nested.get(0));
+        assertEquals(expected.size(), nested.size());
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Path>>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(pool.submit(() -> GraphTraversal.dependencies(app).values()));
+            }
+            for (Future<List<Path>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Kustomization kustomization(String name) {
+        return new Kustomization(Path.of("/repo/" + name + "/kustomization.yaml"), Map.of());
+    }
+
+    private static void reference(Kustomization from, GraphNode target) {
+        from.addReference(new ResourceReference(ReferenceType.RESOURCE, target));
+        target.addDependent(from);
+    }
+}
@@ -10,7 +10,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +36,25 @@ public class KustomGraphTest {
         assertSame(k, graph.getNode(variant2));
     }
 
+    @Test
+    void getNodesUnder_returnsTheNodesBelowADirectoryOnly() {
+        KustomGraph graph = new KustomGraph();
+        KustomFile inside = new KustomFile(tempDir.resolve("app/deployment.yaml"));
+        KustomFile nested = new KustomFile(tempDir.resolve("app/nested/service.yaml"));
+        KustomFile sibling = new KustomFile(tempDir.resolve("app-2/deployment.yaml"));
+        graph.addNode(inside);
+        graph.addNode(sibling);
+
+        assertEquals(List.of(inside), graph.getNodesUnder(tempDir.resolve("app")));
+        assertEquals(List.of(sibling), graph.getNodesOutside(tempDir.resolve("app")));
+
+        // The sorted index follows later changes.
+        graph.addNode(nested);
+        graph.removeNode(inside);
+        assertEquals(List.of(nested), graph.getNodesUnder(tempDir.resolve("app")));
+        assertEquals(List.of(), graph.getNodesUnder(tempDir.resolve("app/deployment.yaml")));
+    }
+
     @Test
     void getApps_returnsOnlyRootKustomizations() {
         Kustomization root = new Kustomization(tempDir.resolve("root/kustomization.yaml"), Map.of());
@@ -116,6 +134,98 @@ public class KustomGraphTest {
         assertThrows(NotAnAppException.class, () -> graph.getAllAppFiles(path));
     }
 
+    @Test
+    void getCycles_listsEachStronglyConnectedComponentOnce() {
+        Kustomization a = kustomization("a");
+        Kustomization b = kustomization("b");
+        Kustomization c = kustomization("c");
+        Kustomization self = kustomization("self");
+        Kustomization top = kustomization("top");
+        Kustomization left = kustomization("left");
+        Kustomization right = kustomization("right");
+        Kustomization base = kustomization("base");
+        reference(a, b);
+        reference(b, c);
+        reference(c, a);
+        reference(c, base);
+        reference(self, self);
+        reference(top, left);
+        reference(top, right);
+        reference(left, base);
+        reference(right, base);
+
+        KustomGraph graph = new KustomGraph();
+        Stream.of(a, b, c, self, top, left, right, base).forEach(graph::addNode);
+
+        assertEquals(List.of(List.of(a.getPath(), b.getPath(), c.getPath()),
+                List.of(self.getPath())), graph.getCycles());
+        assertSame(graph.getCycles(), graph.getCycles());
+    }
+
+    @Test
+    void findCycles_marksTheCycleSoTraversalsDoNotReportItAgain() {
+        Kustomization app = kustomization("app");
+        Kustomization a = kustomization("a");
+        Kustomization b = kustomization("b");
+        reference(app, a);
+        reference(a, b);
+        reference(b, a);
+        KustomGraph graph = new KustomGraph();
+        Stream.of(app, a, b).forEach(graph::addNode);
+
+        assertFalse(GraphTraversal.dependencies(app).cycleKnown());
+        graph.findCycles();
+        GraphTraversal.Result<Path> dependencies = GraphTraversal.dependencies(app);
+        assertEquals(List.of(a.getPath(), b.getPath(), a.getPath()), dependencies.cycle());
+        assertTrue(dependencies.cycleKnown());
+
+        b.setReferences(List.of());
+        a.removeDependent(b);
+        assertEquals(List.of(), graph.findCycles());
+        assertNull(GraphTraversal.dependencies(app).cycle());
+    }
+
+    @Test
+    void findCycles_ofChangedNodesMatchesAFullSearch() {
+        Kustomization app = kustomization("app");
+        Kustomization a = kustomization("a");
+        Kustomization b = kustomization("b");
+        Kustomization c = kustomization("c");
+        Kustomization d = kustomization("d");
+        Kustomization e = kustomization("e");
+        Kustomization f = kustomization("f");
+        reference(app, a);
+        reference(a, b);
+        reference(b, a);
+        reference(c, d);
+        reference(d, c);
+        reference(e, f);
+        KustomGraph graph = new KustomGraph();
+        Stream.of(app, a, b, c, d, e, f).forEach(graph::addNode);
+        graph.findCycles();
+
+        b.setReferences(List.of());
+        a.removeDependent(b);
+        reference(f, e);
+        List<List<Path>> found = graph.findCycles(List.of(b.getPath(), f.getPath()));
+
+        assertEquals(List.of(List.of(c.getPath(), d.getPath()), List.of(e.getPath(), f.getPath())),
+                found);
+        assertTrue(GraphTraversal.dependencies(c).cycleKnown());
+        assertTrue(GraphTraversal.dependencies(e).cycleKnown());
+        assertNull(GraphTraversal.dependencies(app).cycle());
+        assertEquals(found, graph.findCycles());
+    }
+
+    private Kustomization kustomization(String name) {
+        return new Kustomization(tempDir.resolve(name).resolve("kustomization.yaml"), Map.of());
+    }
+
+    private static void reference(Kustomization from, GraphNode target) {
+        from.addReference(new ResourceReference(ReferenceType.RESOURCE, target));
+        target.addDependent(from);
+    }
+
     // Minimal stub node for testing references
     static class DummyNode extends GraphNode {
         DummyNode(Path path) {
@@ -126,11 +236,6 @@ public class KustomGraphTest {
         @Override public boolean isRoot() { return true; }
         @Override public Stream<Path> getDependencies() { return Stream.of(path); }
 
-        @Override
-        Stream<Path> getDependencies(Set<GraphNode> visited) {
-            return Stream.of(path);
-        }
-
         @Override
         public boolean isKustomization() {
             return false;
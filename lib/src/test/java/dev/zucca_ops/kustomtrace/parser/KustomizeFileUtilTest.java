@@ -1,6 +1,7 @@
 package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -156,6 +157,15 @@ public class KustomizeFileUtilTest {
             assertEquals(actualKustomFileInIt, KustomizeFileUtil.getKustomizationFileFromAppDirectory(dirNamedAsKustomization));
         }
 
+        @Test
+        void findKustomizationFile_returnsNullInsteadOfThrowing(@TempDir Path tempDir) throws IOException {
+            Path emptyDir = Files.createDirectory(tempDir.resolve("empty"));
+            Path kustomFile = Files.createFile(tempDir.resolve("kustomization.yaml"));
+
+            assertNull(KustomizeFileUtil.findKustomizationFile(emptyDir, FileSource.fileSystem()));
+            assertEquals(kustomFile, KustomizeFileUtil.findKustomizationFile(tempDir, FileSource.fileSystem()));
+        }
+
         @Test
         void getKustomizationFile_inputNameIsKustomization_butPathIsDirectoryAndEmpty_throws(@TempDir Path tempDir) throws IOException {
             Path dirNamedAsKustomization = Files.createDirectory(tempDir.resolve("kustomization.yaml")); // Empty directory
@@ -0,0 +1,150 @@
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.graph.BuildOptions;
+import dev.zucca_ops.kustomtrace.graph.KustomGraphBuilder;
+import dev.zucca_ops.kustomtrace.model.KustomGraph;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parseResourceHeaders_hitsForSameContentAtAnotherPath() throws IOException, InvalidContentException {
+        ParseCache cache = new ParseCache(tempDir.resolve("cache"));
+        Path first = write("a/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n---\nkind: Service\n");
+        Path second = write("b/deployment.yaml", Files.readString(first));
+
+        List<ResourceHeader> parsed = cache.parseResourceHeaders(first, FileSource.fileSystem());
+        List<ResourceHeader> cached = cache.parseResourceHeaders(second, FileSource.fileSystem());
+
+        assertEquals(List.of(new ResourceHeader("Deployment", "app"), new ResourceHeader("Service", null)), parsed);
+        assertEquals(parsed, cached);
+        assertEquals(new ParseCache.Stats(1, 1, 1, 0), cache.getStats());
+    }
+
+    @Test
+    void parseKustomizationSpec_matchesParserAcrossInstances() throws IOException, InvalidContentException {
+        Path path = write("kustomization.yaml", """
+                kind: Kustomization
+                resources:
+                  - base
+                  - 3
+                patches:
+                  - path: patch.yaml
+                    target: {kind: Deployment}
+                configMapGenerator:
+                  - name: cm
+                    files: [app.properties]
+                    envs: [""" + "x".repeat(70_000) + """
+                ]
+                """);
+        KustomizationSpec expected = YamlParser.parseKustomizationSpec(path, FileSource.fileSystem());
+
+        ParseCache writer = new ParseCache(tempDir.resolve("cache"));
+        ParseCache reader = new ParseCache(tempDir.resolve("cache"));
+
+        assertEquals(expected, writer.parseKustomizationSpec(path, FileSource.fileSystem()));
+        assertEquals(expected, reader.parseKustomizationSpec(path, FileSource.fileSystem()));
+        assertEquals(1, reader.getStats().hits());
+        assertEquals(0, reader.getStats().misses());
+    }
+
+    @Test
+    void parseKustomizationSpec_doesNotCacheInvalidContent() throws IOException {
+        ParseCache cache = new ParseCache(tempDir.resolve("cache"));
+        Path path = write("kustomization.yaml", "resources: [");
+
+        assertThrows(InvalidContentException.class, () -> cache.parseKustomizationSpec(path, FileSource.fileSystem()));
+        assertThrows(InvalidContentException.class, () -> cache.parseKustomizationSpec(path, FileSource.fileSystem()));
+        assertEquals(new ParseCache.Stats(0, 2, 0, 0), cache.getStats());
+    }
+
+    @Test
+    void parseResourceHeaders_reparsesCorruptEntry() throws IOException, InvalidContentException {
+        Path cacheDir = tempDir.resolve("cache");
+        Path path = write("configmap.yaml", "kind: ConfigMap\nmetadata:\n  name: cm\n");
+        new ParseCache(cacheDir).parseResourceHeaders(path, FileSource.fileSystem());
+        for (Path entry : entries(cacheDir)) {
+            Files.write(entry, new byte[] {1, 2, 3});
+        }
+
+        ParseCache cache = new ParseCache(cacheDir);
+        assertEquals(List.of(new ResourceHeader("ConfigMap", "cm")),
+                cache.parseResourceHeaders(path, FileSource.fileSystem()));
+        assertEquals(new ParseCache.Stats(0, 1, 1, 0), cache.getStats());
+    }
+
+    @Test
+    void trim_evictsLeastRecentlyUsedEntries() throws IOException, InvalidContentException {
+        Path cacheDir = tempDir.resolve("cache");
+        ParseCache filler = new ParseCache(cacheDir);
+        Path old = write("old.yaml", "kind: ConfigMap\nmetadata:\n  name: old\n");
+        Path recent = write("recent.yaml", "kind: ConfigMap\nmetadata:\n  name: recent\n");
+        filler.parseResourceHeaders(old, FileSource.fileSystem());
+        for (Path entry : entries(cacheDir)) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+        }
+        filler.parseResourceHeaders(recent, FileSource.fileSystem());
+        long largestEntry = 0;
+        for (Path entry : entries(cacheDir)) {
+            largestEntry = Math.max(largestEntry, Files.size(entry));
+        }
+
+        ParseCache cache = new ParseCache(cacheDir, largestEntry);
+        assertEquals(1, cache.trim());
+        assertEquals(1, entries(cacheDir).size());
+        cache.parseResourceHeaders(recent, FileSource.fileSystem());
+        assertEquals(new ParseCache.Stats(1, 0, 0, 1), cache.getStats());
+    }
+
+    @Test
+    void build_withParseCache_producesSameGraphAndHitsOnSecondRun() throws IOException {
+        write("apps/base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write("apps/base/deployment.yaml", "kind: Deployment\nmetadata:\n  name: app\n");
+        write("apps/prod/kustomization.yaml", "resources:\n  - ../base\n");
+        Path appsDir = tempDir.resolve("apps");
+        ParseCache first = new ParseCache(tempDir.resolve("cache"));
+        ParseCache second = new ParseCache(tempDir.resolve("cache"));
+
+        KustomGraph expected = new KustomGraphBuilder(appsDir).build();
+        KustomGraph cold = new KustomGraphBuilder(appsDir, new BuildOptions().parseCache(first)).build();
+        KustomGraph warm = new KustomGraphBuilder(appsDir, new BuildOptions().parseCache(second)).build();
+
+        assertEquals(new ParseCache.Stats(0, 3, 3, 0), first.getStats());
+        assertEquals(new ParseCache.Stats(3, 0, 0, 0), second.getStats());
+        for (KustomGraph graph : List.of(cold, warm)) {
+            assertEquals(expected.getRootApps().size(), graph.getRootApps().size());
+            assertEquals("Deployment",
+                    graph.getKustomFile(appsDir.resolve("base/deployment.yaml")).getResources().get(0).getKind());
+            assertEquals(expected.getKustomization(appsDir.resolve("prod/kustomization.yaml")).getSpec(),
+                    graph.getKustomization(appsDir.resolve("prod/kustomization.yaml")).getSpec());
+        }
+    }
+
+    private List<Path> entries(Path cacheDir) throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
@@ -2,6 +2,7 @@ package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.InvalidReferenceException;
 import dev.zucca_ops.kustomtrace.exceptions.NotAnAppException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -10,10 +11,12 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -261,4 +264,64 @@ public class ReferenceExtractorsTest {
         assertEquals(sharedResult, aliasResult);
         assertEquals(List.of(secretFile.toAbsolutePath().normalize()), sharedResult);
     }
+
+    @Test
+    void extract_pushesTheSamePathsToASinkAsTheStream() throws InvalidReferenceException, IOException {
+        Files.createFile(baseDir.resolve("app.env"));
+        Files.createFile(baseDir.resolve("secret.txt"));
+        Map<String, Object> input = Map.of(
+                "envs", List.of("app.env", "missing.env"),
+                "files", List.of("password=secret.txt", ""));
+        ReferenceExtractor extractor = ReferenceExtractors.generatorFiles();
+
+        List<Path> pushed = new ArrayList<>();
+        extractor.extract(input, baseDir, FileSource.fileSystem(), pushed::add);
+
+        assertEquals(List.of(baseDir.resolve("app.env"), baseDir.resolve("secret.txt")), pushed);
+        assertEquals(extractor.extract(input, baseDir).toList(), pushed);
+    }
+
+    @Test
+    void extract_throwsBeforePushingAnInvalidReference() {
+        List<Path> pushed = new ArrayList<>();
+        ReferenceExtractor extractor = ReferenceExtractors.resource();
+
+        assertThrows(InvalidReferenceException.class,
+                () -> extractor.extract("missing.yaml", baseDir, FileSource.fileSystem(), pushed::add));
+        assertTrue(pushed.isEmpty());
+
+        ReferenceType.PATCH_MERGE.extract("missing.yaml", baseDir, FileSource.fileSystem(), pushed::add);
+        assertTrue(pushed.isEmpty(), "ReferenceType logs the invalid reference instead");
+    }
+
+    @Test
+    void tryExtract_returnsWhyAReferenceIsInvalid() throws IOException {
+        Path emptyDir = Files.createDirectory(baseDir.resolve("emptyComponent"));
+        List<Path> pushed = new ArrayList<>();
+
+        InvalidReference noKustomization =
+                ReferenceType.COMPONENT.tryExtract("emptyComponent", baseDir, FileSource.fileSystem(), pushed::add);
+        assertEquals(emptyDir, noKustomization.path());
+        assertFalse(noKustomization.error());
+        assertInstanceOf(NotAnAppException.class, noKustomization.toException().getCause());
+
+        InvalidReference missing =
+                ReferenceType.RESOURCE.tryExtract("missing.yaml", baseDir, FileSource.fileSystem(), pushed::add);
+        assertEquals(baseDir.resolve("missing.yaml"), missing.path());
+        assertTrue(missing.error());
+
+        assertTrue(pushed.isEmpty());
+        assertEquals("Non-string value found for reference.",
+                ReferenceType.BASE.tryExtract(42, baseDir, FileSource.fileSystem(), pushed::add).message());
+    }
+
+    @Test
+    void extract_drainsTheStreamOfOtherExtractorsIntoTheSink() throws InvalidReferenceException {
+        ReferenceExtractor extractor = (value, dir) -> Stream.of(dir.resolve("a.yaml"), dir.resolve("b.yaml"));
+
+        List<Path> pushed = new ArrayList<>();
+        extractor.extract("ignored", baseDir, FileSource.fileSystem(), pushed::add);
+
+        assertEquals(List.of(baseDir.resolve("a.yaml"), baseDir.resolve("b.yaml")), pushed);
+    }
 }
@@ -0,0 +1,94 @@
+package dev.zucca_ops.kustomtrace.parser;
+
+import dev.zucca_ops.kustomtrace.scan.FileAttributeCache;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferenceResolutionCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void extract_resolvesEachTargetOnceAcrossSpellingsAndDirectories() throws IOException {
+        Path base = createFile("base/kustomization.yaml");
+        Path dev = Files.createDirectories(tempDir.resolve("overlays/dev"));
+        Path prod = Files.createDirectories(tempDir.resolve("overlays/prod"));
+        FileAttributeCache files = new FileAttributeCache(FileSource.fileSystem());
+        ReferenceResolutionCache cache = new ReferenceResolutionCache();
+
+        assertEquals(List.of(base), cache.extract(ReferenceType.RESOURCE, "../../base", dev, files).toList());
+        long lookups = files.getStats().misses() + files.getStats().hits();
+        assertEquals(List.of(base), cache.extract(ReferenceType.RESOURCE, "../../base", prod, files).toList());
+        assertEquals(List.of(base), cache.extract(ReferenceType.RESOURCE, "../prod/../../base/", dev, files).toList());
+
+        assertEquals(new ReferenceResolutionCache.Stats(2, 1), cache.getStats());
+        assertEquals(lookups, files.getStats().misses() + files.getStats().hits());
+    }
+
+    @Test
+    void extract_remembersInvalidReferencesUntilCleared() throws IOException {
+        Path app = Files.createDirectories(tempDir.resolve("app"));
+        ReferenceResolutionCache cache = new ReferenceResolutionCache();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(List.of(), cache.extract(ReferenceType.RESOURCE, "missing.yaml", app, FileSource.fileSystem()).toList());
+        }
+        assertEquals(new ReferenceResolutionCache.Stats(1, 1), cache.getStats());
+
+        Path created = createFile("app/missing.yaml");
+        assertEquals(List.of(), cache.extract(ReferenceType.RESOURCE, "missing.yaml", app, FileSource.fileSystem()).toList(),
+                "Nothing is invalidated before clear()");
+        cache.clear();
+        assertEquals(List.of(created), cache.extract(ReferenceType.RESOURCE, "missing.yaml", app, FileSource.fileSystem()).toList());
+        assertEquals(new ReferenceResolutionCache.Stats(0, 1), cache.getStats());
+    }
+
+    @Test
+    void extract_reportsInvalidReferencesFromTheRememberedTargetOnly() throws IOException {
+        Files.createDirectories(tempDir.resolve("empty"));
+        Path dev = Files.createDirectories(tempDir.resolve("overlays/dev"));
+        Path prod = Files.createDirectories(tempDir.resolve("overlays/prod"));
+        FileAttributeCache files = new FileAttributeCache(FileSource.fileSystem());
+        ReferenceResolutionCache cache = new ReferenceResolutionCache();
+
+        assertEquals(List.of(), cache.extract(ReferenceType.BASE, "../../empty", dev, files).toList());
+        assertEquals(List.of(), cache.extract(ReferenceType.RESOURCE, "../../empty", dev, files).toList());
+        long lookups = files.getStats().misses() + files.getStats().hits();
+        assertEquals(List.of(), cache.extract(ReferenceType.BASE, "../../empty", prod, files).toList());
+        createFile("empty/kustomization.yaml");
+        assertEquals(List.of(), cache.extract(ReferenceType.RESOURCE, "../dev/../../empty", prod, files).toList());
+
+        assertEquals(new ReferenceResolutionCache.Stats(2, 2), cache.getStats());
+        assertEquals(lookups, files.getStats().misses() + files.getStats().hits(),
+                "Each kustomization's message is built from the remembered target");
+    }
+
+    @Test
+    void extract_passesOtherEntriesToTheExtractor() throws IOException {
+        Path app = createFile("app/kustomization.yaml").getParent();
+        Path patch = createFile("app/patch.yaml");
+        ReferenceResolutionCache cache = new ReferenceResolutionCache();
+
+        assertEquals(List.of(), cache.extract(ReferenceType.BASE, ".", app, FileSource.fileSystem()).toList(),
+                "A self reference is still rejected");
+        assertEquals(List.of(patch),
+                cache.extract(ReferenceType.PATCH, Map.of("path", "patch.yaml"), app, FileSource.fileSystem()).toList());
+        assertEquals(new ReferenceResolutionCache.Stats(0, 0), cache.getStats());
+    }
+
+    private Path createFile(String relativePath) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.createFile(file);
+    }
+}
@@ -1,6 +1,7 @@
 package dev.zucca_ops.kustomtrace.parser;
 
 import dev.zucca_ops.kustomtrace.exceptions.InvalidContentException;
+import dev.zucca_ops.kustomtrace.scan.FileSource;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -111,4 +112,196 @@ public class YamlParserTest {
         assertEquals(1, docs.size());
         assertEquals(List.of("base"), docs.get(0).get("resources"));
     }
+
+    @Test
+    void parseResourceHeaders_readsKindAndNameOfEachDocument() throws IOException, InvalidContentException {
+        Path path = tempDir.resolve("bundle.yaml");
+        Files.writeString(path, """
+        apiVersion: v1
+        kind: ConfigMap
+        data:
+          nested: {kind: Secret, metadata: {name: inner}}
+          list: [a, {name: b}]
+        metadata:
+          labels: {name: label}
+          name: config
+        ---
+        ---
+        kind: 1
+        metadata: plain
+        ---
+        "kind": Service
+        metadata:
+          name: 'quoted'
+          name: last
+        """);
+
+        List<ResourceHeader> headers = YamlParser.parseResourceHeaders(path, FileSource.fileSystem());
+
+        assertEquals(List.of(
+                new ResourceHeader("ConfigMap", "config"),
+                new ResourceHeader(null, null),
+                new ResourceHeader("Service", "last")), headers);
+    }
+
+    @Test
+    void parseResourceHeaders_matchesFullParse() throws IOException, InvalidContentException {
+        List<String> contents = List.of(
+                "kind: Deployment\nmetadata:\n  name: web\n",
+                "{\"kind\": \"Service\", \"metadata\": {\"name\": \"svc\", \"labels\": {}}}",
+                "kind: null\nmetadata:\n  name: ~\n",
+                "kind: true\nmetadata:\n  name: 2024-01-01\n",
+                "kind: !!str 42\nmetadata:\n  name: !!str 7\n",
+                "base: &base\n  name: anchored\nkind: Pod\nmetadata: *base\n",
+                "kind: Pod\nmetadata:\n  <<: {name: merged}\n",
+                "? [complex, key]\n: value\nkind: Job\n",
+                "");
+
+        for (int i = 0; i < contents.size(); i++) {
+            Path path = tempDir.resolve("doc-" + i + ".yaml");
+            Files.writeString(path, contents.get(i));
+
+            List<ResourceHeader> expected =
+                    YamlParser.parseFile(path).stream().map(ResourceHeader::of).toList();
+            assertEquals(expected, YamlParser.parseResourceHeaders(path, FileSource.fileSystem()),
+                    contents.get(i));
+        }
+    }
+
+    @Test
+    void parseResourceHeaders_throwsOnNonMapDocument() throws IOException {
+        Path path = tempDir.resolve("list.yaml");
+        Files.writeString(path, "kind: Pod\n---\n- item\n");
+
+        InvalidContentException ex = assertThrows(InvalidContentException.class,
+                () -> YamlParser.parseResourceHeaders(path, FileSource.fileSystem()));
+        assertEquals(path, ex.getPath());
+    }
+
+    @Test
+    void parseResourceHeaders_throwsOnSyntaxErrorInSkippedContent() throws IOException {
+        Path path = tempDir.resolve("broken.yaml");
+        Files.writeString(path, "kind: Pod\ndata:\n  key: [unclosed\n");
+
+        assertThrows(InvalidContentException.class,
+                () -> YamlParser.parseResourceHeaders(path, FileSource.fileSystem()));
+    }
+
+    @Test
+    void parseResourceHeaders_throwsOnUndefinedAlias() throws IOException {
+        Path path = tempDir.resolve("alias.yaml");
+        Files.writeString(path, "kind: Pod\ndata: *missing\n");
+
+        assertThrows(InvalidContentException.class,
+                () -> YamlParser.parseResourceHeaders(path, FileSource.fileSystem()));
+    }
+
+    @Test
+    void parseKustomizationSpec_keepsOnlyReferenceFields() throws IOException, InvalidContentException {
+        Path path = tempDir.resolve("kustomization.yaml");
+        Files.writeString(path, """
+        kind: Component
+        resources:
+          - deployment.yaml
+          - ../base
+        images:
+          - name: app
+            newTag: "1.2"
+        patches:
+          - path: patch.yaml
+            target: {kind: Deployment}
+          - patch: |-
+              - op: replace
+                path: /spec/replicas
+                value: 3
+        configMapGenerator:
+          - name: settings
+            behavior: merge
+            files: [app.properties, key=other.properties]
+            options: {disableNameSuffixHash: true}
+        """);
+
+        KustomizationSpec spec = YamlParser.parseKustomizationSpec(path, FileSource.fileSystem());
+
+        assertEquals("Component", spec.getKind());
+        assertEquals(List.of("resources", "patches", "configMapGenerator"), List.copyOf(spec.getReferenceFields().keySet()));
+        assertEquals(List.of("deployment.yaml", "../base"), spec.getReferenceFields().get("resources"));
+        assertEquals(List.of(Map.of("path", "patch.yaml"), Map.of()), spec.getReferenceFields().get("patches"));
+        assertEquals(List.of(Map.of("files", List.of("app.properties", "key=other.properties"))),
+                spec.getReferenceFields().get("configMapGenerator"));
+        assertEquals(KustomizationSpec.of(YamlParser.parseKustomizationFile(path)), spec);
+    }
+
+    @Test
+    void parseKustomizationSpec_matchesFullParse() throws IOException, InvalidContentException {
+        List<String> contents = List.of(
+                "resources:\n  - a.yaml\n  -\n  - 'quoted'\nbases: base\n",
+                "resources: [1, true]\n",
+                "kind: 7\ncomponents:\n  - {nested: [x]}\n",
+                "defaults: &defaults\n  - a.yaml\nresources: *defaults\n",
+                "secretGenerator:\n  - envs: [.env]\n    files: single.txt\n  - plain\n",
+                "patchesStrategicMerge:\n  - p.yaml\nresources:\n  - first\npatchesStrategicMerge: []\n");
+
+        for (int i = 0; i < contents.size(); i++) {
+            Path path = tempDir.resolve("kustomization-" + i + ".yaml");
+            Files.writeString(path, contents.get(i));
+
+            assertEquals(KustomizationSpec.of(YamlParser.parseKustomizationFile(path)),
+                    YamlParser.parseKustomizationSpec(path, FileSource.fileSystem()), contents.get(i));
+        }
+    }
+
+    @Test
+    void parseKustomizationSpec_throwsOnEmptyOrMultipleDocuments() throws IOException {
+        Path empty = tempDir.resolve("empty.yaml");
+        Files.writeString(empty, "---\n");
+        Path multiple = tempDir.resolve("multiple.yaml");
+        Files.writeString(multiple, "resources: [a]\n---\nresources: [b]\n");
+
+        assertThrows(InvalidContentException.class,
+                () -> YamlParser.parseKustomizationSpec(empty, FileSource.fileSystem()));
+        assertThrows(InvalidContentException.class,
+                () -> YamlParser.parseKustomizationSpec(multiple, FileSource.fileSystem()));
+    }
+
+    @Test
+    void parseFile_loadsTimestampsAsStrings() throws IOException, InvalidContentException {
+        Path path = tempDir.resolve("dated.yaml");
+        Files.writeString(path, "kind: ConfigMap\ndata:\n  date: 2025-05-27\n  replicas: 3\n");
+
+        Map<String, Object> data = (Map<String, Object>) YamlParser.parseFile(path).get(0).get("data");
+        assertEquals("2025-05-27", data.get("date"));
+        assertEquals(3, data.get("replicas"));
+    }
+
+    @Test
+    void parseFile_throwsFileNotFoundExceptionForDirectory() throws IOException {
+        Path directory = Files.createDirectory(tempDir.resolve("dir.yaml"));
+
+        assertThrows(java.io.FileNotFoundException.class, () -> YamlParser.parseFile(directory));
+        assertThrows(java.io.FileNotFoundException.class,
+                () -> YamlParser.parseResourceHeaders(directory, FileSource.fileSystem()));
+    }
+
+    @Test
+    void parseFile_acceptsStreamsAboveDefaultCodePointLimit() throws IOException, InvalidContentException {
+        Path path = tempDir.resolve("large.yaml");
+        String document = "kind: ConfigMap\ndata:\n  blob: " + "x".repeat(1024 * 1024) + "\n";
+        Files.writeString(path, ("---\n" + document).repeat(4));
+
+        assertEquals(4, YamlParser.parseFile(path).size());
+        assertEquals(4, YamlParser.parseResourceHeaders(path, FileSource.fileSystem()).size());
+    }
+
+    @Test
+    void parseFile_throwsOnTooManyAliases() throws IOException {
+        Path path = tempDir.resolve("aliases.yaml");
+        StringBuilder yaml = new StringBuilder("kind: ConfigMap\nbase: &a [x]\nrefs:\n");
+        for (int i = 0; i <= YamlLoaders.MAX_ALIASES_FOR_COLLECTIONS; i++) {
+            yaml.append("  - *a\n");
+        }
+        Files.writeString(path, yaml);
+
+        assertThrows(InvalidContentException.class, () -> YamlParser.parseFile(path));
+    }
 }
@@ -0,0 +1,50 @@
+package dev.zucca_ops.kustomtrace.scan;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomicFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write_replacesTheFileAndLeavesNoTemporaryFile() throws IOException {
+        Path file = tempDir.resolve("a/b/index.bin");
+
+        AtomicFiles.write(file, new byte[] {1, 2});
+        AtomicFiles.write(file, out -> out.write(new byte[] {3}));
+
+        assertArrayEquals(new byte[] {3}, Files.readAllBytes(file));
+        assertEquals(1, listed(file.getParent()));
+    }
+
+    @Test
+    void write_keepsThePreviousFileWhenTheContentFails() throws IOException {
+        Path file = tempDir.resolve("snapshot.bin");
+        AtomicFiles.write(file, new byte[] {1});
+
+        IOException e =
+                assertThrows(IOException.class, () -> AtomicFiles.write(file, out -> {
+                    out.write(2);
+                    throw new IOException("boom");
+                }));
+
+        assertEquals("boom", e.getMessage());
+        assertArrayEquals(new byte[] {1}, Files.readAllBytes(file));
+        assertEquals(1, listed(tempDir));
+    }
+
+    private static long listed(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package dev.zucca_ops.kustomtrace.scan;
+
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileAttributeCacheTest {
+
+    private static final List<String> NAMES =
+            List.of("kustomization.yaml", "kustomization.yml", "Kustomization");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void isFile_looksEachPathUpOnceAndRemembersMissingOnes() throws IOException {
+        Path file = createFile("app/deployment.yaml");
+        Path missing = tempDir.resolve("app/service.yaml");
+        FileAttributeCache cache = new FileAttributeCache(FileSource.fileSystem());
+
+        assertTrue(cache.isFile(file));
+        assertFalse(cache.isDirectory(file));
+        assertTrue(cache.isDirectory(file.getParent()));
+        assertFalse(cache.isFile(missing));
+        Files.createFile(missing);
+        assertFalse(cache.isFile(missing), "Nothing is invalidated before clear()");
+
+        assertEquals(new FileAttributeCache.Stats(2, 3, 0), cache.getStats());
+
+        cache.clear();
+        assertTrue(cache.isFile(missing));
+        assertEquals(new FileAttributeCache.Stats(0, 1, 0), cache.getStats());
+    }
+
+    @Test
+    void scan_recordsTheAttributesReadByTheWalk() throws IOException {
+        Path app = createFile("team/app/kustomization.yaml");
+        Path deployment = createFile("team/app/deployment.yaml");
+        FileAttributeCache cache = new FileAttributeCache(FileSource.fileSystem());
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        cache.scan(tempDir, IgnoreRules.none(), KustomizeFileUtil::isKustomizationFileName,
+                found::add);
+
+        assertEquals(Set.of(app), found);
+        // tempDir, team, team/app and its two files
+        assertEquals(5, cache.getStats().recorded());
+        assertTrue(cache.isFile(deployment));
+        assertTrue(cache.isDirectory(tempDir.resolve("team")));
+        assertEquals(app, cache.findFile(app.getParent(), NAMES));
+        assertEquals(0, cache.getStats().misses());
+    }
+
+    @Test
+    void findFile_remembersTheNameFoundPerDirectory() throws IOException {
+        Path app = createFile("app/kustomization.yml");
+        FileAttributeCache cache = new FileAttributeCache(FileSource.fileSystem());
+
+        assertEquals(app, cache.findFile(app.getParent(), NAMES));
+        assertNull(cache.findFile(tempDir, NAMES));
+        long misses = cache.getStats().misses();
+
+        Path relative = Path.of("").toAbsolutePath().relativize(app.getParent());
+        assertEquals(relative.resolve("kustomization.yml"), cache.findFile(relative, NAMES));
+        assertNull(cache.findFile(tempDir, NAMES));
+        assertEquals(misses, cache.getStats().misses());
+    }
+
+    @Test
+    void isFile_asksOtherSourcesThroughTheirOwnChecks() {
+        Path file = tempDir.resolve("file.yaml");
+        Path directory = tempDir.resolve("dir");
+        List<Path> asked = new ArrayList<>();
+        FileSource source =
+                new FileSource() {
+                    @Override
+                    public boolean isFile(Path path) {
+                        asked.add(path);
+                        return path.equals(file);
+                    }
+
+                    @Override
+                    public boolean isDirectory(Path path) {
+                        asked.add(path);
+                        return path.equals(directory);
+                    }
+
+                    @Override
+                    public InputStream newInputStream(Path path) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public WalkStats scan(Path root, IgnoreRules ignoreRules,
+                            Predicate<Path> fileFilter, Consumer<Path> consumer) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+        FileAttributeCache cache = new FileAttributeCache(source);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cache.isFile(file));
+            assertTrue(cache.isDirectory(directory));
+            assertFalse(cache.isFile(directory));
+        }
+
+        assertEquals(List.of(file, directory, directory), asked);
+    }
+
+    private Path createFile(String relativePath) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.createFile(file);
+    }
+}
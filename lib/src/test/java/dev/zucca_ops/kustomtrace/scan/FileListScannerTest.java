@@ -0,0 +1,82 @@
+package dev.zucca_ops.kustomtrace.scan;
+
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileListScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void scan_passesListedMatchesThatExist() throws IOException {
+        Path app = createFile("apps/app/kustomization.yaml");
+        createFile("apps/app/deployment.yaml");
+        // Listed but not in the working tree any more.
+        List<String> listed =
+                List.of(
+                        "apps/app/kustomization.yaml",
+                        "apps/app/deployment.yaml",
+                        "apps/deleted/kustomization.yaml");
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        WalkStats stats =
+                new FileListScanner()
+                        .scan(
+                                tempDir,
+                                listed,
+                                IgnoreRules.none(),
+                                KustomizeFileUtil::isKustomizationFileName,
+                                found::add);
+
+        assertEquals(Set.of(app), found);
+        assertEquals(3, stats.files());
+        assertEquals(1, stats.matches());
+    }
+
+    @Test
+    void scan_appliesIgnoreRulesAndListedIgnoreFiles() throws IOException {
+        Path app = createFile("apps/app/kustomization.yaml");
+        createFile("apps/legacy/kustomization.yaml");
+        createFile("apps/legacy/nested/kustomization.yaml");
+        createFile("vendor/kustomization.yaml");
+        Files.writeString(createFile("apps/.kustomtraceignore"), "legacy/\n");
+        List<String> listed =
+                List.of(
+                        "apps/.kustomtraceignore",
+                        "apps/app/kustomization.yaml",
+                        "apps/legacy/kustomization.yaml",
+                        "apps/legacy/nested/kustomization.yaml",
+                        "vendor/kustomization.yaml");
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        WalkStats stats =
+                new FileListScanner()
+                        .scan(
+                                tempDir,
+                                listed,
+                                IgnoreRules.load(tempDir, List.of("/vendor/"), true, false),
+                                KustomizeFileUtil::isKustomizationFileName,
+                                found::add);
+
+        assertEquals(Set.of(app), found);
+        // apps/legacy and vendor, each counted once
+        assertEquals(2, stats.pruned());
+    }
+
+    private Path createFile(String relativePath) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.createFile(file);
+    }
+}
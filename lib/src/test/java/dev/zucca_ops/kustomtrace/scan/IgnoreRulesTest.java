@@ -0,0 +1,121 @@
+package dev.zucca_ops.kustomtrace.scan;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IgnoreRulesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void none_ignoresNothing() {
+        IgnoreRules rules = IgnoreRules.none();
+
+        assertTrue(rules.isEmpty());
+        assertFalse(rules.isIgnored(tempDir.resolve(".git"), true));
+    }
+
+    @Test
+    void load_appliesDefaultExcludesToDirectoriesOnly() {
+        IgnoreRules rules = IgnoreRules.load(tempDir, List.of(), true, false);
+
+        assertTrue(rules.isIgnored(tempDir.resolve(".git"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("web/node_modules"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("node_modules"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("apps"), true));
+    }
+
+    @Test
+    void load_withoutDefaultExcludes_walksVcsDirectories() {
+        IgnoreRules rules = IgnoreRules.load(tempDir, List.of(), false, false);
+
+        assertFalse(rules.isIgnored(tempDir.resolve(".git"), true));
+    }
+
+    @Test
+    void explicitExcludes_supportGlobsAnchoringAndNegation() {
+        IgnoreRules rules =
+                IgnoreRules.load(
+                        tempDir,
+                        List.of("*.tmp", "/vendor", "charts/**/rendered-*.yaml", "build/", "!keep.tmp"),
+                        false,
+                        false);
+
+        assertTrue(rules.isIgnored(tempDir.resolve("a/b/file.tmp"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("a/b/keep.tmp"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("vendor"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("apps/vendor"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("charts/rendered-0.yaml"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("charts/x/y/rendered-1.yaml"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("apps/charts/rendered-0.yaml"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("a/build"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("a/build"), false));
+    }
+
+    @Test
+    void enter_scopesIgnoreFilePatternsToTheirDirectory() throws IOException {
+        Path team = Files.createDirectories(tempDir.resolve("team"));
+        Files.writeString(team.resolve(IgnoreRules.KUSTOMTRACE_IGNORE), "# comment\n/generated\n");
+
+        IgnoreRules rules = IgnoreRules.load(tempDir, List.of(), false, false);
+        IgnoreRules teamRules = rules.enter(team, List.of(IgnoreRules.KUSTOMTRACE_IGNORE));
+
+        assertTrue(teamRules.isIgnored(team.resolve("generated"), true));
+        assertFalse(teamRules.isIgnored(team.resolve("app/generated"), true));
+        assertFalse(rules.isIgnored(team.resolve("generated"), true));
+    }
+
+    @Test
+    void enter_readsGitignoreOnlyWhenRespected() throws IOException {
+        Files.writeString(tempDir.resolve(IgnoreRules.GITIGNORE), "out/\n");
+
+        IgnoreRules ignoring =
+                IgnoreRules.load(tempDir, List.of(), false, false)
+                        .enter(tempDir, List.of(IgnoreRules.GITIGNORE));
+        IgnoreRules respecting =
+                IgnoreRules.load(tempDir, List.of(), false, true)
+                        .enter(tempDir, List.of(IgnoreRules.GITIGNORE));
+
+        assertFalse(ignoring.isIgnored(tempDir.resolve("out"), true));
+        assertTrue(respecting.isIgnored(tempDir.resolve("out"), true));
+    }
+
+    @Test
+    void deeperIgnoreFiles_overrideShallowerOnes_butExplicitExcludesWin() throws IOException {
+        Path app = Files.createDirectories(tempDir.resolve("app"));
+        Files.writeString(tempDir.resolve(IgnoreRules.KUSTOMTRACE_IGNORE), "*.yaml\n");
+        Files.writeString(app.resolve(IgnoreRules.KUSTOMTRACE_IGNORE), "!kustomization.yaml\n");
+
+        IgnoreRules rules =
+                IgnoreRules.load(tempDir, List.of("app/legacy/"), false, false)
+                        .enter(tempDir, List.of(IgnoreRules.KUSTOMTRACE_IGNORE))
+                        .enter(app, List.of(IgnoreRules.KUSTOMTRACE_IGNORE));
+
+        assertTrue(rules.isIgnored(app.resolve("deployment.yaml"), false));
+        assertFalse(rules.isIgnored(app.resolve("kustomization.yaml"), false));
+        assertTrue(rules.isIgnored(app.resolve("legacy"), true));
+    }
+
+    @Test
+    void load_readsGitignoresAboveTheWalkRoot() throws IOException {
+        Files.createDirectories(tempDir.resolve(".git/info"));
+        Files.writeString(tempDir.resolve(".git/info/exclude"), "scratch/\n");
+        Files.writeString(tempDir.resolve(IgnoreRules.GITIGNORE), "deploy/apps/tmp/\n*.bak\n");
+        Path appsDir = Files.createDirectories(tempDir.resolve("deploy/apps"));
+
+        IgnoreRules rules = IgnoreRules.load(appsDir, List.of(), false, true);
+
+        assertTrue(rules.isIgnored(appsDir.resolve("tmp"), true));
+        assertTrue(rules.isIgnored(appsDir.resolve("x/old.bak"), false));
+        assertTrue(rules.isIgnored(appsDir.resolve("a/scratch"), true));
+        assertFalse(rules.isIgnored(appsDir.resolve("a/tmp"), true));
+    }
+}
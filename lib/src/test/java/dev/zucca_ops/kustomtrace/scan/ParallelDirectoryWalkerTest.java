@@ -0,0 +1,115 @@
+package dev.zucca_ops.kustomtrace.scan;
+
+import dev.zucca_ops.kustomtrace.parser.KustomizeFileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelDirectoryWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void walk_findsMatchingFilesAtEveryDepth() throws IOException {
+        Path rootApp = createFile("kustomization.yaml");
+        Path nestedApp = createFile("team/app/overlays/prod/kustomization.yml");
+        Path upperCaseApp = createFile("team/other/Kustomization");
+        createFile("team/app/deployment.yaml");
+        createFile("team/app/overlays/prod/patch.yaml");
+        Files.createDirectories(tempDir.resolve("empty/dir"));
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        WalkStats stats =
+                new ParallelDirectoryWalker()
+                        .walk(tempDir, KustomizeFileUtil::isKustomizationFileName, found::add);
+
+        assertEquals(Set.of(rootApp, nestedApp, upperCaseApp), found);
+        assertEquals(3, stats.matches());
+        assertEquals(5, stats.files());
+        // tempDir, team, team/app, team/app/overlays, team/app/overlays/prod, team/other, empty, empty/dir
+        assertEquals(8, stats.directories());
+    }
+
+    @Test
+    void walk_ignoresDirectoriesNamedLikeKustomizationFiles() throws IOException {
+        Files.createDirectories(tempDir.resolve("kustomization.yaml"));
+        Path nested = createFile("kustomization.yaml/kustomization.yaml");
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        new ParallelDirectoryWalker()
+                .walk(tempDir, KustomizeFileUtil::isKustomizationFileName, found::add);
+
+        assertEquals(Set.of(nested), found);
+    }
+
+    @Test
+    void walk_producesSameResultOnSingleThreadedPool() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            createFile("apps/app-" + i + "/kustomization.yaml");
+            createFile("apps/app-" + i + "/base/kustomization.yaml");
+            createFile("apps/app-" + i + "/base/service.yaml");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            Set<Path> found = ConcurrentHashMap.newKeySet();
+            WalkStats stats =
+                    new ParallelDirectoryWalker(pool)
+                            .walk(tempDir, KustomizeFileUtil::isKustomizationFileName, found::add);
+
+            assertEquals(40, found.size());
+            assertEquals(60, stats.files());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void walk_prunesIgnoredDirectoriesWithoutListingThem() throws IOException {
+        Path app = createFile("apps/app/kustomization.yaml");
+        createFile("apps/app/vendor/kustomization.yaml");
+        createFile("node_modules/pkg/kustomization.yaml");
+        createFile("apps/legacy/kustomization.yaml");
+        Files.writeString(createFile("apps/.kustomtraceignore"), "legacy/\n");
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        WalkStats stats =
+                new ParallelDirectoryWalker()
+                        .walk(
+                                tempDir,
+                                IgnoreRules.load(tempDir, List.of("vendor"), true, false),
+                                KustomizeFileUtil::isKustomizationFileName,
+                                found::add);
+
+        assertEquals(Set.of(app), found);
+        assertEquals(3, stats.pruned());
+        // tempDir, apps, apps/app
+        assertEquals(3, stats.directories());
+    }
+
+    @Test
+    void walk_throwsIfRootIsNotADirectory() throws IOException {
+        Path file = createFile("kustomization.yaml");
+
+        assertThrows(
+                NotDirectoryException.class,
+                () -> new ParallelDirectoryWalker().walk(file, path -> true, path -> {}));
+    }
+
+    private Path createFile(String relativePath) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.createFile(file);
+    }
+}
@@ -0,0 +1,161 @@
+package dev.zucca_ops.kustomtrace.watch;
+
+import dev.zucca_ops.kustomtrace.KustomTrace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphWatcherTest {
+
+    private static final Duration DEBOUNCE = Duration.ofMillis(50);
+
+    @TempDir
+    Path tempDir;
+
+    private Path appsDir;
+    private final BlockingQueue<WatchBatch> batches = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        appsDir = tempDir.resolve("repo");
+        write("base/kustomization.yaml", "resources:\n  - deployment.yaml\n");
+        write("base/deployment.yaml", "apiVersion: apps/v1\nkind: Deployment\n");
+        write("app1/kustomization.yaml", "resources:\n  - ../base\n");
+        write("app2/kustomization.yaml", "resources:\n  - service.yaml\n");
+        write("app2/service.yaml", "apiVersion: v1\nkind: Service\n");
+    }
+
+    @Test
+    void watch_reportsTheAppsAffectedByAModifiedFile() throws Exception {
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        try (GraphWatcher watcher = trace.watch(DEBOUNCE, batches::add)) {
+            assertTrue(watcher.getWatchedDirectoryCount() >= 4);
+
+            write("base/deployment.yaml", "apiVersion: apps/v1\nkind: Deployment\n# edited\n");
+
+            WatchBatch batch = nextBatchWith(appsDir.resolve("base/deployment.yaml"));
+            assertEquals(1, batch.affectedApps().size());
+            assertEquals(appsDir.resolve("app1").toAbsolutePath().normalize(),
+                    batch.affectedApps().get(0).toAbsolutePath().normalize());
+            assertFalse(batch.stats().rebuilt());
+        }
+    }
+
+    @Test
+    void watch_reportsAppsThatLoseAFile() throws Exception {
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        try (GraphWatcher watcher = trace.watch(DEBOUNCE, batches::add)) {
+            write("app2/kustomization.yaml", "resources: []\n");
+
+            WatchBatch batch = nextBatchWith(appsDir.resolve("app2/kustomization.yaml"));
+            assertTrue(batch.affectedApps().stream()
+                    .anyMatch(app -> app.endsWith("app2")));
+            assertFalse(trace.getGraph().containsNode(appsDir.resolve("app2/service.yaml")));
+        }
+    }
+
+    @Test
+    void watch_picksUpAppsInNewDirectories() throws Exception {
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        try (GraphWatcher watcher = trace.watch(DEBOUNCE, batches::add)) {
+            // Written elsewhere and moved in, so the app appears in one event.
+            Path staged = tempDir.resolve("staged");
+            Files.createDirectories(staged.resolve("nested"));
+            Files.writeString(staged.resolve("nested/kustomization.yaml"), "resources:\n  - ../../base\n");
+            Files.move(staged, appsDir.resolve("app3"));
+
+            nextBatchWith(appsDir.resolve("app3"));
+            assertTrue(trace.getRootApps().stream()
+                    .anyMatch(app -> app.endsWith("app3/nested")));
+
+            // The new directory is watched too.
+            write("app3/nested/extra.yaml", "apiVersion: v1\nkind: ConfigMap\n");
+            write("app3/nested/kustomization.yaml", "resources:\n  - extra.yaml\n");
+            WatchBatch batch = nextBatchWith(appsDir.resolve("app3/nested/kustomization.yaml"));
+            assertTrue(batch.affectedApps().stream()
+                    .anyMatch(app -> app.endsWith("app3/nested")));
+            assertTrue(trace.getGraph().containsNode(appsDir.resolve("app3/nested/extra.yaml")));
+        }
+    }
+
+    @Test
+    void watch_watchesDirectoriesNewlyReferencedOutsideTheAppsDirectory() throws Exception {
+        Path shared = Files.createDirectories(tempDir.resolve("shared"));
+        Files.writeString(shared.resolve("config.yaml"), "apiVersion: v1\nkind: ConfigMap\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        try (GraphWatcher watcher = trace.watch(DEBOUNCE, batches::add)) {
+            write("app2/kustomization.yaml", "resources:\n  - ../../shared/config.yaml\n");
+            nextBatchWith(appsDir.resolve("app2/kustomization.yaml"));
+
+            Files.writeString(shared.resolve("config.yaml"), "apiVersion: v1\nkind: Secret\n");
+            WatchBatch batch = nextBatchWith(shared.resolve("config.yaml"));
+            assertTrue(batch.affectedApps().stream().anyMatch(app -> app.endsWith("app2")));
+        }
+    }
+
+    @Test
+    void watch_readsIgnoreFilesAgainAfterARebuild() throws Exception {
+        write(".kustomtraceignore", "app3/\n");
+        write("app3/kustomization.yaml", "resources:\n  - ../base\n");
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        try (GraphWatcher watcher = trace.watch(DEBOUNCE, batches::add)) {
+            int watched = watcher.getWatchedDirectoryCount();
+
+            write(".kustomtraceignore", "# nothing ignored\n");
+            assertTrue(nextBatchWith(appsDir.resolve(".kustomtraceignore")).stats().rebuilt());
+            assertEquals(watched + 1, watcher.getWatchedDirectoryCount());
+
+            write("app3/kustomization.yaml", "resources:\n  - ../app2\n");
+            WatchBatch batch = nextBatchWith(appsDir.resolve("app3/kustomization.yaml"));
+            assertTrue(batch.affectedApps().stream().anyMatch(app -> app.endsWith("app3")));
+        }
+    }
+
+    @Test
+    void close_stopsTheWatchThread() throws Exception {
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        GraphWatcher watcher = trace.watch(DEBOUNCE, batches::add);
+        watcher.close();
+        watcher.await();
+    }
+
+    @Test
+    void watch_rejectsLoadedInstances() throws Exception {
+        KustomTrace trace = KustomTrace.fromDirectory(appsDir);
+        Path snapshot = tempDir.resolve("graph.bin");
+        trace.save(snapshot);
+        KustomTrace loaded = KustomTrace.load(snapshot);
+        assertThrows(IllegalStateException.class, () -> loaded.watch(DEBOUNCE, batches::add));
+    }
+
+    /** Waits for a batch that includes {@code path}; file systems may report other paths too. */
+    private WatchBatch nextBatchWith(Path path) throws InterruptedException {
+        Path expected = path.toAbsolutePath().normalize();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < deadline) {
+            WatchBatch batch = batches.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (batch != null && batch.changed().stream()
+                    .anyMatch(changed -> changed.toAbsolutePath().normalize().equals(expected))) {
+                return batch;
+            }
+        }
+        fail("No batch reported " + path);
+        return null;
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = appsDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}